@@ -0,0 +1,72 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BenchmarkUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.FormatProvider;
+import com.github.fracpete.gpsformats4j.formats.Formats;
+
+/**
+ * Helper methods for the benchmarks.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class BenchmarkUtils {
+
+  /**
+   * Returns the provider of the format.
+   *
+   * @param name	the name of the format, eg GPX
+   * @return		the provider
+   * @throws IllegalArgumentException	if the format is unknown
+   */
+  public static FormatProvider provider(String name) {
+    FormatProvider	result;
+
+    result = Formats.get(name);
+    if (result == null)
+      throw new IllegalArgumentException("Unknown format: " + name);
+
+    return result;
+  }
+
+  /**
+   * Returns the format class.
+   *
+   * @param name	the name of the format, eg GPX
+   * @return		the class
+   * @throws IllegalArgumentException	if the format is unknown
+   */
+  public static Class formatClass(String name) {
+    return provider(name).getFormatClass();
+  }
+
+  /**
+   * Instantiates the format.
+   *
+   * @param name	the name of the format, eg GPX
+   * @return		the format
+   * @throws IllegalArgumentException	if the format is unknown
+   */
+  public static Format newFormat(String name) {
+    return provider(name).newInstance();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Benchmarks.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rate per second and
+ * per operation) enabled. Accepts the same options as JMH's own main class,
+ * eg "-p points=10000000 -jvmArgsAppend -Xmx16g FormatBenchmark.read".
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class Benchmarks {
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args	the JMH options
+   * @throws Exception	if running fails
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions	cmdline;
+    OptionsBuilder	options;
+    Runner		runner;
+    boolean		gc;
+
+    cmdline = new CommandLineOptions(args);
+    if (cmdline.shouldHelp()) {
+      cmdline.showHelp();
+      return;
+    }
+
+    gc = false;
+    for (ProfilerConfig profiler: cmdline.getProfilers()) {
+      if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName()))
+	gc = true;
+    }
+    options = new OptionsBuilder();
+    options.parent(cmdline);
+    if (!gc)
+      options.addProfiler(GCProfiler.class);
+
+    runner = new Runner(options.build());
+    if (cmdline.shouldList())
+      runner.list();
+    else if (cmdline.shouldListWithParams())
+      runner.listWithParams(cmdline);
+    else
+      runner.run();
+  }
+}
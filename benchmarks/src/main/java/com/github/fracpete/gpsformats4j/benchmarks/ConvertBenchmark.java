@@ -0,0 +1,141 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConvertBenchmark.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import com.github.fracpete.gpsformats4j.ConversionResult;
+import com.github.fracpete.gpsformats4j.Converter;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks end-to-end conversions (input file to output file) with the
+ * {@link Converter}, as performed by the Convert command-line tool, ie
+ * streaming if both formats support it. The "points" and "bytes" counters
+ * report the throughput in points/s and bytes/s (bytes of the input file).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see TrackGenerator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConvertBenchmark {
+
+  /** the input and output format (format names), separated by a colon. */
+  @Param({"CSV:GPX", "GPX:CSV", "GPX:KML", "KML:GPX", "GPX:TCX", "TCX:GPX"})
+  public String pair;
+
+  /** the total number of points. */
+  @Param({"1000", "100000", "1000000"})
+  public int points;
+
+  /** the number of tracks. */
+  @Param({"5"})
+  public int tracks;
+
+  /** whether to generate time and elevation. */
+  @Param({"true"})
+  public boolean optional;
+
+  /** the converter. */
+  protected Converter m_Converter;
+
+  /** the input format. */
+  protected Class m_InputFormat;
+
+  /** the output format. */
+  protected Class m_OutputFormat;
+
+  /** the file to convert. */
+  protected File m_Input;
+
+  /** the file to write. */
+  protected File m_Output;
+
+  /**
+   * Sets up the converter and generates the file to convert.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String[]	formats;
+    Format	format;
+    String	msg;
+
+    formats        = pair.split(":");
+    m_InputFormat  = BenchmarkUtils.formatClass(formats[0]);
+    m_OutputFormat = BenchmarkUtils.formatClass(formats[1]);
+    m_Converter    = new Converter();
+    m_Input        = File.createTempFile("gpsformats4j-in-", "." + formats[0].toLowerCase());
+    m_Output       = File.createTempFile("gpsformats4j-out-", "." + formats[1].toLowerCase());
+    format         = BenchmarkUtils.newFormat(formats[0]);
+    msg            = format.write(new TrackGenerator(TrackGenerator.DEFAULT_SEED, optional).generate(points, tracks), m_Input);
+    if (msg != null)
+      throw new IllegalStateException("Failed to generate input: " + msg);
+  }
+
+  /**
+   * Removes the files.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    m_Input.delete();
+    m_Output.delete();
+  }
+
+  /**
+   * Converts the file.
+   *
+   * @param counters	the counters to update
+   * @return		the result
+   */
+  @Benchmark
+  public ConversionResult convert(FormatBenchmark.Counters counters) {
+    ConversionResult	result;
+
+    result = m_Converter.convert(m_Input, m_InputFormat, null, m_Output, m_OutputFormat, null);
+    if (!result.isSuccess())
+      throw new IllegalStateException("Failed to convert: " + result.getError());
+    counters.points += result.getPoints();
+    counters.bytes  += m_Input.length();
+
+    return result;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FormatBenchmark.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import com.github.fracpete.gpsformats4j.formats.Format;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the (non-streaming) read and write methods of the formats on
+ * synthetic tracks. Besides the operations per second, the "points" and
+ * "bytes" counters report the throughput in points/s and bytes/s (bytes
+ * of the file that gets read or written).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see TrackGenerator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FormatBenchmark {
+
+  /**
+   * The throughput counters, reported as rates.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+
+    /** the number of points read/written. */
+    public long points;
+
+    /** the number of bytes read/written. */
+    public long bytes;
+
+    /**
+     * Resets the counters before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+      points = 0;
+      bytes  = 0;
+    }
+  }
+
+  /** the format (format name). */
+  @Param({"CSV", "GPX", "TCX", "KML"})
+  public String format;
+
+  /** the total number of points. */
+  @Param({"1000", "100000", "1000000"})
+  public int points;
+
+  /** the number of tracks. */
+  @Param({"5"})
+  public int tracks;
+
+  /** whether to generate time and elevation. */
+  @Param({"true", "false"})
+  public boolean optional;
+
+  /** the format instance. */
+  protected Format m_Format;
+
+  /** the generated points. */
+  protected List<CSVRecord> m_Data;
+
+  /** the file to read. */
+  protected File m_Input;
+
+  /** the file to write. */
+  protected File m_Output;
+
+  /**
+   * Instantiates the format and generates the points and the file to read.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    String	msg;
+
+    m_Format = BenchmarkUtils.newFormat(format);
+    m_Data   = new TrackGenerator(TrackGenerator.DEFAULT_SEED, optional).generate(points, tracks);
+    m_Input  = File.createTempFile("gpsformats4j-in-", "." + format.toLowerCase());
+    m_Output = File.createTempFile("gpsformats4j-out-", "." + format.toLowerCase());
+    msg      = m_Format.write(m_Data, m_Input);
+    if (msg != null)
+      throw new IllegalStateException("Failed to generate input: " + msg);
+  }
+
+  /**
+   * Removes the files.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    m_Input.delete();
+    m_Output.delete();
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @param counters	the counters to update
+   * @return		the points
+   */
+  @Benchmark
+  public List<CSVRecord> read(Counters counters) {
+    List<CSVRecord>	result;
+
+    result = m_Format.read(m_Input);
+    if (result == null)
+      throw new IllegalStateException("Failed to read: " + m_Input);
+    counters.points += result.size();
+    counters.bytes  += m_Input.length();
+
+    return result;
+  }
+
+  /**
+   * Writes the points.
+   *
+   * @param counters	the counters to update
+   * @return		null if successful, otherwise error message
+   */
+  @Benchmark
+  public String write(Counters counters) {
+    String	result;
+
+    result = m_Format.write(m_Data, m_Output);
+    if (result != null)
+      throw new IllegalStateException("Failed to write: " + result);
+    counters.points += m_Data.size();
+    counters.bytes  += m_Output.length();
+
+    return result;
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StartupBenchmark.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import com.github.fracpete.gpsformats4j.Convert;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the time of a single invocation of the Convert tool in a new
+ * process, converting a small GPX file to TCX, ie what a per-file call from
+ * cron or CI costs. Launchers:
+ * <ul>
+ *   <li>JVM - plain JVM</li>
+ *   <li>CDS - JVM with an AppCDS archive, created by a training run in the
+ *   setup (requires Java 13 or later)</li>
+ *   <li>NATIVE - the native executable built with "mvn -Pnative package"
+ *   (see the "executable" parameter)</li>
+ * </ul>
+ * The NATIVE launcher is not run by default, use "-p launcher=JVM,CDS,NATIVE".
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+  /** how to launch the tool. */
+  @Param({"JVM", "CDS"})
+  public String launcher;
+
+  /** the native executable, relative to the benchmarks directory. */
+  @Param({"../target/gpsformats4j-convert"})
+  public String executable;
+
+  /** the total number of points. */
+  @Param({"1000"})
+  public int points;
+
+  /** the directory for the files. */
+  protected File m_Dir;
+
+  /** the file to convert. */
+  protected File m_Input;
+
+  /** the file to write. */
+  protected File m_Output;
+
+  /** the file receiving the console output of the tool. */
+  protected File m_Log;
+
+  /** the command to execute. */
+  protected List<String> m_Command;
+
+  /**
+   * Generates the file to convert and prepares the launcher.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Format		format;
+    List<String>	jvm;
+    List<String>	args;
+    File		archive;
+    File		exec;
+    String		msg;
+
+    m_Dir    = Files.createTempDirectory("gpsformats4j-startup-").toFile();
+    m_Input  = new File(m_Dir, "in.gpx");
+    m_Output = new File(m_Dir, "out.tcx");
+    m_Log    = new File(m_Dir, "out.log");
+    format   = BenchmarkUtils.newFormat("GPX");
+    msg      = format.write(new TrackGenerator(TrackGenerator.DEFAULT_SEED, true).generate(points, 1), m_Input);
+    if (msg != null)
+      throw new IllegalStateException("Failed to generate input: " + msg);
+
+    jvm = Arrays.asList(
+      new File(System.getProperty("java.home"), "bin/java").getPath(),
+      "-cp", System.getProperty("java.class.path"),
+      "-Xmx256m");
+    args = Arrays.asList(
+      "--in_file", m_Input.getAbsolutePath(), "--in_format", "GPX",
+      "--out_file", m_Output.getAbsolutePath(), "--out_format", "TCX");
+
+    m_Command = new ArrayList<>();
+    switch (launcher) {
+      case "JVM":
+	m_Command.addAll(jvm);
+	m_Command.add(Convert.class.getName());
+	break;
+
+      case "CDS":
+	archive = new File(m_Dir, "convert.jsa");
+	m_Command.addAll(jvm);
+	m_Command.add("-XX:ArchiveClassesAtExit=" + archive);
+	m_Command.add(Convert.class.getName());
+	m_Command.addAll(args);
+	run();
+	if (!archive.exists())
+	  throw new IllegalStateException("Failed to create CDS archive: " + archive);
+	m_Command.clear();
+	m_Command.addAll(jvm);
+	m_Command.add("-XX:SharedArchiveFile=" + archive);
+	m_Command.add("-Xshare:auto");
+	m_Command.add(Convert.class.getName());
+	break;
+
+      case "NATIVE":
+	exec = new File(executable);
+	if (!exec.canExecute())
+	  throw new IllegalStateException("Native executable not found (build with 'mvn -Pnative package'): " + exec.getAbsolutePath());
+	m_Command.add(exec.getAbsolutePath());
+	break;
+
+      default:
+	throw new IllegalStateException("Unknown launcher: " + launcher);
+    }
+    m_Command.addAll(args);
+  }
+
+  /**
+   * Removes the files.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    File[]	files;
+
+    files = m_Dir.listFiles();
+    if (files != null) {
+      for (File file: files)
+	file.delete();
+    }
+    m_Dir.delete();
+  }
+
+  /**
+   * Runs the command and waits for it to finish.
+   *
+   * @return		the exit code
+   * @throws Exception	if launching fails or the conversion failed
+   */
+  protected int run() throws Exception {
+    ProcessBuilder	builder;
+    int			result;
+
+    builder = new ProcessBuilder(m_Command);
+    builder.redirectErrorStream(true);
+    builder.redirectOutput(m_Log);
+    result = builder.start().waitFor();
+    if (result != 0)
+      throw new IllegalStateException("Conversion failed with exit code " + result + ":\n"
+	+ new String(Files.readAllBytes(m_Log.toPath()), StandardCharsets.UTF_8));
+
+    return result;
+  }
+
+  /**
+   * Converts the file in a new process.
+   *
+   * @return		the exit code
+   * @throws Exception	if the conversion fails
+   */
+  @Benchmark
+  public int convert() throws Exception {
+    return run();
+  }
+}
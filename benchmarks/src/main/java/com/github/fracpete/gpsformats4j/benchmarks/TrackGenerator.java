@@ -0,0 +1,151 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TrackGenerator.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.benchmarks;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVRecordFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic tracks as random walks, deterministic for a given
+ * seed. The points are spread evenly across the tracks, one second and a
+ * few meters apart. Time and elevation are optional fields and can be
+ * left empty.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class TrackGenerator {
+
+  /** the default seed. */
+  public static final long DEFAULT_SEED = 42;
+
+  /** the start of the tracks (2026-01-01T00:00:00Z). */
+  public static final long START_TIME = TimeUtils.epochDay(2026, 1, 1) * TimeUtils.MSEC_PER_DAY;
+
+  /** the number of decimals for latitude/longitude. */
+  public static final int COORDINATE_DECIMALS = 7;
+
+  /** the number of decimals for the elevation. */
+  public static final int ELEVATION_DECIMALS = 1;
+
+  /** the seed. */
+  protected long m_Seed;
+
+  /** whether to generate time and elevation. */
+  protected boolean m_Optional;
+
+  /**
+   * Initializes the generator.
+   *
+   * @param seed	the seed for the random walks
+   * @param optional	whether to generate time and elevation
+   */
+  public TrackGenerator(long seed, boolean optional) {
+    m_Seed     = seed;
+    m_Optional = optional;
+  }
+
+  /**
+   * Returns the mapping for the generated records.
+   *
+   * @return		the mapping (column name to index)
+   */
+  protected Map<String,Integer> newMapping() {
+    Map<String,Integer>	result;
+
+    result = new HashMap<>();
+    result.put(Format.KEY_TRACK, 0);
+    result.put(Format.KEY_TIME, 1);
+    result.put(Format.KEY_LAT, 2);
+    result.put(Format.KEY_LON, 3);
+    result.put(Format.KEY_ELEVATION, 4);
+
+    return result;
+  }
+
+  /**
+   * Generates the points.
+   *
+   * @param points	the total number of points
+   * @param tracks	the number of tracks to spread the points across
+   * @return		the points, ordered by track
+   */
+  public List<CSVRecord> generate(int points, int tracks) {
+    List<CSVRecord>	result;
+    Map<String,Integer>	mapping;
+    Random		random;
+    String		track;
+    long		time;
+    double		lat;
+    double		lon;
+    double		ele;
+    double		heading;
+    int			perTrack;
+    int			t;
+    int			i;
+
+    result  = new ArrayList<>(points);
+    mapping = newMapping();
+    random  = new Random(m_Seed);
+    tracks  = Math.max(1, Math.min(tracks, points));
+    for (t = 0; t < tracks; t++) {
+      track    = "Track " + (t + 1);
+      perTrack = points / tracks + ((t < points % tracks) ? 1 : 0);
+      time     = START_TIME + t * 86400000L;
+      lat      = -60 + random.nextDouble() * 120;
+      lon      = -180 + random.nextDouble() * 360;
+      ele      = random.nextDouble() * 1000;
+      heading  = random.nextDouble() * 2 * Math.PI;
+      for (i = 0; i < perTrack; i++) {
+	result.add(CSVRecordFactory.newRecord(
+	  new String[]{
+	    track,
+	    m_Optional ? TimeUtils.format(time) : "",
+	    CoordinateUtils.format(lat, COORDINATE_DECIMALS),
+	    CoordinateUtils.format(lon, COORDINATE_DECIMALS),
+	    m_Optional ? CoordinateUtils.format(ele, ELEVATION_DECIMALS) : "",
+	  },
+	  mapping, null, result.size() + 1, -1));
+	// about 3-8m per second, slowly changing direction
+	heading += random.nextGaussian() * 0.1;
+	lat     += Math.cos(heading) * (3 + random.nextDouble() * 5) / 111320.0;
+	lon     += Math.sin(heading) * (3 + random.nextDouble() * 5) / (111320.0 * Math.cos(Math.toRadians(lat)));
+	if (lon >= 180)
+	  lon -= 360;
+	else if (lon < -180)
+	  lon += 360;
+	lat      = Math.max(-89, Math.min(89, lat));
+	ele     += random.nextGaussian() * 0.5;
+	time    += 1000;
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,737 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BatchConvert.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j;
+
+import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.OptionHandler;
+import com.github.fracpete.gpsformats4j.formats.Formats;
+import com.github.fracpete.gpsformats4j.metrics.Slf4jMetricsReporter;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.helper.HelpScreenException;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts all the files in a directory that match a glob pattern,
+ * using a pool of threads that share a single {@link Converter}. Outputs a report for each file and a summary
+ * at the end.
+ * <br>
+ * The output file names are generated from a template, which supports the
+ * following placeholders:
+ * <ul>
+ *   <li>{name} - the name of the input file without extension</li>
+ *   <li>{ext} - the output format in lower case</li>
+ *   <li>{path} - the directory of the input file, relative to the input directory</li>
+ * </ul>
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class BatchConvert
+  extends BaseObject
+  implements OptionHandler {
+
+  public static final String INPUT_DIR = "in_dir";
+
+  public static final String INPUT_GLOB = "in_glob";
+
+  public static final String OUTPUT_DIR = "out_dir";
+
+  public static final String OUTPUT_NAME = "out_name";
+
+  public static final String NUM_THREADS = "num_threads";
+
+  /** the default template for the output names. */
+  public static final String DEFAULT_OUTPUT_NAME = "{name}.{ext}";
+
+  /** the argument parser. */
+  protected ArgumentParser m_Parser;
+
+  /** the input directory. */
+  protected File m_InputDir;
+
+  /** the glob pattern for the input files. */
+  protected String m_InputGlob;
+
+  /** the input format. */
+  protected Class m_InputFormat;
+
+  /** the input options. */
+  protected String m_InputOptions;
+
+  /** the output directory. */
+  protected File m_OutputDir;
+
+  /** the template for the output names. */
+  protected String m_OutputName;
+
+  /** the output format. */
+  protected Class m_OutputFormat;
+
+  /** the output options. */
+  protected String m_OutputOptions;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads;
+
+  /** the cache directory, null for no caching. */
+  protected File m_CacheDir;
+
+  /** the maximum size of the cache in MB. */
+  protected long m_CacheMaxSize;
+
+  /** whether to hard-link cached outputs instead of copying them. */
+  protected boolean m_CacheLink;
+
+  /** whether to log the metrics of the conversions. */
+  protected boolean m_Metrics;
+
+  /** the reporter for the metrics, null if not logging them. */
+  protected Slf4jMetricsReporter m_Reporter;
+
+  /** whether help got requested. */
+  protected boolean m_HelpRequested;
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    String[]	formats;
+
+    super.initialize();
+
+    m_InputGlob     = "*";
+    m_InputOptions  = "";
+    m_OutputName    = DEFAULT_OUTPUT_NAME;
+    m_OutputOptions = "";
+    m_NumThreads    = Runtime.getRuntime().availableProcessors();
+    m_CacheDir      = null;
+    m_CacheMaxSize  = ConversionCache.DEFAULT_MAX_SIZE / 1024 / 1024;
+    m_CacheLink     = false;
+    m_Metrics       = false;
+
+    formats = Formats.names();
+
+    m_Parser = ArgumentParsers.newFor(getClass().getSimpleName()).build();
+
+    m_Parser.description("Converts all matching GPS files in a directory.");
+    m_Parser.defaultHelp(true);
+
+    m_Parser.addArgument("--" + INPUT_DIR)
+      .metavar("<dir>")
+      .dest(INPUT_DIR)
+      .required(true)
+      .type(String.class)
+      .help("The directory with the files to convert.");
+    m_Parser.addArgument("--" + INPUT_GLOB)
+      .metavar("<glob>")
+      .dest(INPUT_GLOB)
+      .required(false)
+      .type(String.class)
+      .setDefault(m_InputGlob)
+      .help("The glob pattern that the file paths (relative to the input directory) must match, eg '*.gpx' or '**/*.tcx'.");
+    m_Parser.addArgument("--" + Convert.INPUT_FORMAT)
+      .dest(Convert.INPUT_FORMAT)
+      .required(true)
+      .type(String.class)
+      .choices(formats)
+      .help("The input format.");
+    m_Parser.addArgument("--" + Convert.INPUT_OPTIONS)
+      .metavar("<options>")
+      .dest(Convert.INPUT_OPTIONS)
+      .required(false)
+      .type(String.class)
+      .setDefault("")
+      .help("The options for the input format, if supported. Blank-separated list of key=value pairs.");
+
+    m_Parser.addArgument("--" + OUTPUT_DIR)
+      .metavar("<dir>")
+      .dest(OUTPUT_DIR)
+      .required(true)
+      .type(String.class)
+      .help("The directory to write the converted files to.");
+    m_Parser.addArgument("--" + OUTPUT_NAME)
+      .metavar("<template>")
+      .dest(OUTPUT_NAME)
+      .required(false)
+      .type(String.class)
+      .setDefault(m_OutputName)
+      .help("The template for the output file names, supports {name}, {ext} and {path}. Input files that map to an output file already used by another input file fail, use {path} with recursive globs.");
+    m_Parser.addArgument("--" + Convert.OUTPUT_FORMAT)
+      .dest(Convert.OUTPUT_FORMAT)
+      .required(true)
+      .type(String.class)
+      .choices(formats)
+      .help("The output format.");
+    m_Parser.addArgument("--" + Convert.OUTPUT_OPTIONS)
+      .metavar("<options>")
+      .dest(Convert.OUTPUT_OPTIONS)
+      .required(false)
+      .type(String.class)
+      .setDefault("")
+      .help("The options for the output format, if supported. Blank-separated list of key=value pairs.");
+
+    m_Parser.addArgument("--" + NUM_THREADS)
+      .metavar("<num>")
+      .dest(NUM_THREADS)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_NumThreads)
+      .help("The number of files to convert concurrently, defaults to the number of cores.");
+
+    m_Parser.addArgument("--" + Convert.CACHE_DIR)
+      .metavar("<dir>")
+      .dest(Convert.CACHE_DIR)
+      .required(false)
+      .type(String.class)
+      .help("The directory for caching the outputs; repeated conversions of the same input with the same setup get served from the cache. Can be shared by several processes.");
+    m_Parser.addArgument("--" + Convert.CACHE_MAX_SIZE)
+      .metavar("<MB>")
+      .dest(Convert.CACHE_MAX_SIZE)
+      .required(false)
+      .type(Long.class)
+      .setDefault(m_CacheMaxSize)
+      .help("The maximum size of the cache, the least recently used outputs get removed when exceeded.");
+    m_Parser.addArgument("--" + Convert.CACHE_LINK)
+      .dest(Convert.CACHE_LINK)
+      .action(Arguments.storeTrue())
+      .help("Whether to hard-link cached outputs instead of copying them; outputs must not get modified in place then.");
+    m_Parser.addArgument("--" + Convert.METRICS)
+      .dest(Convert.METRICS)
+      .action(Arguments.storeTrue())
+      .help("Whether to log the metrics of each conversion and their summary: time spent parsing, transforming and serializing, points and bytes read/written, peak number of points in memory.");
+  }
+
+  /**
+   * Sets the input directory.
+   *
+   * @param value	the directory
+   */
+  public void setInputDir(File value) {
+    m_InputDir = value;
+  }
+
+  /**
+   * Returns the input directory.
+   *
+   * @return		the directory
+   */
+  public File getInputDir() {
+    return m_InputDir;
+  }
+
+  /**
+   * Sets the glob pattern for the input files.
+   *
+   * @param value	the pattern
+   */
+  public void setInputGlob(String value) {
+    m_InputGlob = value;
+  }
+
+  /**
+   * Returns the glob pattern for the input files.
+   *
+   * @return		the pattern
+   */
+  public String getInputGlob() {
+    return m_InputGlob;
+  }
+
+  /**
+   * Sets the input format.
+   *
+   * @param value	the format
+   */
+  public void setInputFormat(Class value) {
+    m_InputFormat = value;
+  }
+
+  /**
+   * Returns the input format.
+   *
+   * @return		the format
+   */
+  public Class getInputFormat() {
+    return m_InputFormat;
+  }
+
+  /**
+   * Sets the input options.
+   *
+   * @param value	the options
+   */
+  public void setInputOptions(String value) {
+    m_InputOptions = value;
+  }
+
+  /**
+   * Returns the input options.
+   *
+   * @return		the options
+   */
+  public String getInputOptions() {
+    return m_InputOptions;
+  }
+
+  /**
+   * Sets the output directory.
+   *
+   * @param value	the directory
+   */
+  public void setOutputDir(File value) {
+    m_OutputDir = value;
+  }
+
+  /**
+   * Returns the output directory.
+   *
+   * @return		the directory
+   */
+  public File getOutputDir() {
+    return m_OutputDir;
+  }
+
+  /**
+   * Sets the template for the output file names.
+   *
+   * @param value	the template
+   */
+  public void setOutputName(String value) {
+    m_OutputName = value;
+  }
+
+  /**
+   * Returns the template for the output file names.
+   *
+   * @return		the template
+   */
+  public String getOutputName() {
+    return m_OutputName;
+  }
+
+  /**
+   * Sets the output format.
+   *
+   * @param value	the format
+   */
+  public void setOutputFormat(Class value) {
+    m_OutputFormat = value;
+  }
+
+  /**
+   * Returns the output format.
+   *
+   * @return		the format
+   */
+  public Class getOutputFormat() {
+    return m_OutputFormat;
+  }
+
+  /**
+   * Sets the output options.
+   *
+   * @param value	the options
+   */
+  public void setOutputOptions(String value) {
+    m_OutputOptions = value;
+  }
+
+  /**
+   * Returns the output options.
+   *
+   * @return		the options
+   */
+  public String getOutputOptions() {
+    return m_OutputOptions;
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value	the number of threads
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use.
+   *
+   * @return		the number of threads
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Sets the directory for caching the outputs.
+   *
+   * @param value	the directory, null for no caching
+   */
+  public void setCacheDir(File value) {
+    m_CacheDir = value;
+  }
+
+  /**
+   * Returns the directory for caching the outputs.
+   *
+   * @return		the directory, null for no caching
+   */
+  public File getCacheDir() {
+    return m_CacheDir;
+  }
+
+  /**
+   * Sets the maximum size of the cache.
+   *
+   * @param value	the size in MB
+   */
+  public void setCacheMaxSize(long value) {
+    m_CacheMaxSize = value;
+  }
+
+  /**
+   * Returns the maximum size of the cache.
+   *
+   * @return		the size in MB
+   */
+  public long getCacheMaxSize() {
+    return m_CacheMaxSize;
+  }
+
+  /**
+   * Sets whether to hard-link cached outputs instead of copying them.
+   *
+   * @param value	true if to hard-link
+   */
+  public void setCacheLink(boolean value) {
+    m_CacheLink = value;
+  }
+
+  /**
+   * Returns whether to hard-link cached outputs instead of copying them.
+   *
+   * @return		true if to hard-link
+   */
+  public boolean isCacheLink() {
+    return m_CacheLink;
+  }
+
+  /**
+   * Sets whether to log the metrics of the conversions.
+   *
+   * @param value	true if to log
+   */
+  public void setMetrics(boolean value) {
+    m_Metrics = value;
+  }
+
+  /**
+   * Returns whether to log the metrics of the conversions.
+   *
+   * @return		true if to log
+   */
+  public boolean isMetrics() {
+    return m_Metrics;
+  }
+
+  /**
+   * Sets the options.
+   *
+   * @param options	the options
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    Namespace	ns;
+
+    try {
+      ns = m_Parser.parseArgs(options);
+    }
+    catch (HelpScreenException e) {
+      m_HelpRequested = true;
+      return;
+    }
+    catch (Exception e) {
+      m_Parser.printHelp();
+      m_HelpRequested = false;
+      throw e;
+    }
+
+    setInputDir(new File(ns.getString(INPUT_DIR)));
+    setInputGlob(ns.getString(INPUT_GLOB));
+    setInputFormat(Convert.formatClass(ns.getString(Convert.INPUT_FORMAT)));
+    setInputOptions(ns.getString(Convert.INPUT_OPTIONS));
+    setOutputDir(new File(ns.getString(OUTPUT_DIR)));
+    setOutputName(ns.getString(OUTPUT_NAME));
+    setOutputFormat(Convert.formatClass(ns.getString(Convert.OUTPUT_FORMAT)));
+    setOutputOptions(ns.getString(Convert.OUTPUT_OPTIONS));
+    setNumThreads(ns.getInt(NUM_THREADS));
+    setCacheDir((ns.getString(Convert.CACHE_DIR) == null) ? null : new File(ns.getString(Convert.CACHE_DIR)));
+    setCacheMaxSize(ns.getLong(Convert.CACHE_MAX_SIZE));
+    setCacheLink(ns.getBoolean(Convert.CACHE_LINK));
+    setMetrics(ns.getBoolean(Convert.METRICS));
+  }
+
+  /**
+   * Returns the help.
+   *
+   * @return		the help
+   */
+  @Override
+  public String toHelp() {
+    return m_Parser.formatHelp();
+  }
+
+  /**
+   * Locates the files to convert.
+   *
+   * @return		the files, sorted
+   * @throws Exception	if traversing the directory fails
+   */
+  protected List<Path> findInputFiles() throws Exception {
+    final Path		root;
+    final PathMatcher	matcher;
+
+    root    = m_InputDir.toPath();
+    matcher = FileSystems.getDefault().getPathMatcher("glob:" + m_InputGlob);
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+	.filter(Files::isRegularFile)
+	.filter(p -> matcher.matches(root.relativize(p)))
+	.sorted()
+	.collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Generates the output file for the input file.
+   *
+   * @param input	the input file
+   * @return		the output file
+   */
+  protected File outputFile(Path input) {
+    String	name;
+    String	path;
+    Path	parent;
+
+    name = input.getFileName().toString();
+    if (name.lastIndexOf('.') > 0)
+      name = name.substring(0, name.lastIndexOf('.'));
+    parent = m_InputDir.toPath().relativize(input).getParent();
+    path   = (parent == null) ? "" : parent.toString();
+
+    return new File(
+      m_OutputDir,
+      m_OutputName
+	.replace("{name}", name)
+	.replace("{ext}", m_OutputFormat.getSimpleName().toLowerCase())
+	.replace("{path}", path));
+  }
+
+  /**
+   * Converts a single file.
+   *
+   * @param converter	the converter to use
+   * @param input	the file to convert
+   * @return		the outcome
+   */
+  protected ConversionResult convert(Converter converter, Path input) {
+    ConversionResult	result;
+    File		output;
+
+    output = outputFile(input);
+    if ((output.getParentFile() != null) && !output.getParentFile().exists() && !output.getParentFile().mkdirs()) {
+      result = new ConversionResult(input.toFile(), output);
+      result.setError("Failed to create output directory: " + output.getParentFile(), null);
+      return result;
+    }
+
+    return converter.convert(input.toFile(), m_InputFormat, m_InputOptions, output, m_OutputFormat, m_OutputOptions);
+  }
+
+  /**
+   * Performs the conversions.
+   *
+   * @return		the outcome per file
+   * @throws Exception	if locating the files fails or the conversion gets interrupted
+   */
+  protected List<ConversionResult> doExecute() throws Exception {
+    List<ConversionResult>		result;
+    List<Path>				inputs;
+    List<Future<ConversionResult>>	futures;
+    ExecutorService			executor;
+    final Converter			converter;
+    ConversionCache			cache;
+    Map<File,Path>			targets;
+    File				output;
+    ConversionResult			conflict;
+
+    if (!m_InputDir.isDirectory())
+      throw new IllegalStateException("Input directory does not exist: " + m_InputDir);
+    if (m_OutputDir.exists() && !m_OutputDir.isDirectory())
+      throw new IllegalStateException("Output directory points to a file: " + m_OutputDir);
+
+    inputs = findInputFiles();
+    m_Logger.info("Files to convert: " + inputs.size());
+
+    result    = new ArrayList<>();
+    futures   = new ArrayList<>();
+    converter = new Converter();
+    if (m_CacheDir != null) {
+      cache = new ConversionCache(m_CacheDir, m_CacheMaxSize * 1024 * 1024);
+      cache.setHardLink(m_CacheLink);
+      converter.setCache(cache);
+    }
+    m_Reporter = null;
+    if (m_Metrics) {
+      m_Reporter = new Slf4jMetricsReporter();
+      converter.addMetricsListener(m_Reporter);
+    }
+    executor  = Executors.newFixedThreadPool(Math.max(1, m_NumThreads));
+    targets   = new HashMap<>();
+    try {
+      for (final Path input: inputs) {
+	output = outputFile(input).getAbsoluteFile();
+	if (targets.containsKey(output)) {
+	  conflict = new ConversionResult(input.toFile(), output);
+	  conflict.setError("Output file already used for " + targets.get(output) + ": " + output, null);
+	  futures.add(CompletableFuture.completedFuture(conflict));
+	  continue;
+	}
+	targets.put(output, input);
+	futures.add(executor.submit(() -> convert(converter, input)));
+      }
+      for (Future<ConversionResult> future: futures)
+	result.add(future.get());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    return result;
+  }
+
+  /**
+   * Outputs the outcome for each file and the summary.
+   *
+   * @param results	the outcomes
+   * @param duration	the overall time in msec
+   */
+  protected void report(List<ConversionResult> results, long duration) {
+    int		failed;
+    int		cached;
+    long	bytes;
+    long	points;
+    double	seconds;
+
+    failed = 0;
+    cached = 0;
+    bytes  = 0;
+    points = 0;
+    for (ConversionResult result: results) {
+      bytes += result.getInputFile().length();
+      if (result.isSuccess()) {
+	points += result.getPoints();
+	if (result.isCached())
+	  cached++;
+	m_Logger.info("OK: " + result);
+      }
+      else {
+	failed++;
+	m_Logger.error("FAILED: " + result);
+      }
+    }
+
+    seconds = Math.max(duration, 1) / 1000.0;
+    m_Logger.info("Converted: " + (results.size() - failed) + "/" + results.size() + ", failed: " + failed + (m_CacheDir != null ? ", from cache: " + cached : ""));
+    m_Logger.info(String.format("Time: %.3fs, throughput: %.1f files/s, %.0f points/s, %.2f MB/s",
+      seconds, results.size() / seconds, points / seconds, bytes / 1024.0 / 1024.0 / seconds));
+    if (m_Reporter != null)
+      m_Reporter.logSummary();
+  }
+
+  /**
+   * Performs the conversions.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String execute() {
+    List<ConversionResult>	results;
+    long			start;
+    int				failed;
+
+    if (m_HelpRequested)
+      return null;
+
+    start = System.currentTimeMillis();
+    try {
+      results = doExecute();
+    }
+    catch (Exception e) {
+      m_Logger.error("Failed to convert files!", e);
+      return "Failed to convert files: " + e;
+    }
+    report(results, System.currentTimeMillis() - start);
+
+    failed = 0;
+    for (ConversionResult result: results) {
+      if (!result.isSuccess())
+	failed++;
+    }
+    if (failed > 0) {
+      m_Logger.error("Failed to convert " + failed + " of " + results.size() + " files!");
+      return "Failed to convert " + failed + " of " + results.size() + " files!";
+    }
+
+    return null;
+  }
+
+  /**
+   * Executes the conversions.
+   *
+   * @param args	the options
+   * @throws Exception	if something goes wrong, eg setting the options
+   */
+  public static void main(String[] args) throws Exception {
+    BatchConvert convert = new BatchConvert();
+    convert.setOptions(args);
+    if (convert.execute() != null)
+      System.exit(1);
+  }
+}
@@ -0,0 +1,425 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionCache.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j;
+
+import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import com.github.fracpete.gpsformats4j.core.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Content-addressed on-disk cache for conversion outputs. The key is the
+ * SHA-256 hash of the input bytes and the conversion setup (formats,
+ * options, processing, default time zone and charset), the entries are stored as {@code <dir>/<2 hex>/<key>}.
+ * <br>
+ * Entries and outputs get written to a temporary file first and then moved
+ * into place atomically, so that several processes can share a cache
+ * directory without ever seeing partial files. Eviction removes the least
+ * recently used entries (last modified timestamp, updated on each hit) once
+ * the cache exceeds its maximum size; it is serialized across processes
+ * via a lock file.
+ * <br>
+ * With hard links enabled, outputs and entries share their content: an
+ * output that gets modified in place changes the cached entry as well.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see Converter#setCache(ConversionCache)
+ */
+public class ConversionCache
+  extends BaseObject {
+
+  /** the default maximum size in bytes (1GB). */
+  public static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+
+  /** the extension of the files with the statistics of an entry. */
+  public static final String EXT_META = ".meta";
+
+  /** the name of the lock file for eviction. */
+  public static final String LOCK_FILE = ".lock";
+
+  /** the prefix for temporary files. */
+  public static final String PREFIX_TEMP = FileUtils.PREFIX_TEMP;
+
+  /** the age in msec after which leftover temporary files get removed. */
+  public static final long MAX_TEMP_AGE = 60L * 60L * 1000L;
+
+  /** the key for the number of points in the statistics. */
+  public static final String META_POINTS = "points";
+
+  /** the key for the number of removed points in the statistics. */
+  public static final String META_REMOVED = "removed";
+
+  /** for serializing evictions within the JVM (file locks are per process). */
+  protected static final Object EVICTION_LOCK = new Object();
+
+  /** the cache directory. */
+  protected File m_Directory;
+
+  /** the maximum size in bytes. */
+  protected long m_MaxSize;
+
+  /** whether to use hard links instead of copies. */
+  protected boolean m_HardLink;
+
+  /**
+   * Initializes the cache.
+   *
+   * @param dir		the cache directory, gets created if necessary
+   * @param maxSize	the maximum size in bytes
+   */
+  public ConversionCache(File dir, long maxSize) {
+    super();
+
+    m_Directory = dir;
+    m_MaxSize   = maxSize;
+    m_HardLink  = false;
+  }
+
+  /**
+   * Returns the cache directory.
+   *
+   * @return		the directory
+   */
+  public File getDirectory() {
+    return m_Directory;
+  }
+
+  /**
+   * Returns the maximum size of the cache.
+   *
+   * @return		the size in bytes
+   */
+  public long getMaxSize() {
+    return m_MaxSize;
+  }
+
+  /**
+   * Sets whether to hard-link entries and outputs instead of copying them
+   * (falls back to copying if not supported, eg across file systems). Must
+   * be set before the cache is shared between threads.
+   *
+   * @param value	true if to use hard links
+   */
+  public void setHardLink(boolean value) {
+    m_HardLink = value;
+  }
+
+  /**
+   * Returns whether to hard-link entries and outputs instead of copying them.
+   *
+   * @return		true if to use hard links
+   */
+  public boolean isHardLink() {
+    return m_HardLink;
+  }
+
+  /**
+   * Computes the key from the content of the input file and the setup.
+   *
+   * @param input	the input file
+   * @param setup	the strings describing the setup of the conversion
+   * @return		the key (hex string)
+   * @throws Exception	if reading the file fails
+   */
+  public String key(File input, String... setup) throws Exception {
+    StringBuilder	result;
+    MessageDigest	digest;
+    InputStream		in;
+    byte[]		buffer;
+    int			read;
+
+    digest = MessageDigest.getInstance("SHA-256");
+    buffer = new byte[CompressionUtils.BUFFER_SIZE];
+    in     = new FileInputStream(input);
+    try {
+      while ((read = in.read(buffer)) != -1)
+	digest.update(buffer, 0, read);
+    }
+    finally {
+      in.close();
+    }
+    for (String s: setup) {
+      digest.update((byte) 0);
+      digest.update(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    result = new StringBuilder();
+    for (byte b: digest.digest())
+      result.append(String.format("%02x", b & 0xFF));
+
+    return result.toString();
+  }
+
+  /**
+   * Returns the file of the entry.
+   *
+   * @param key		the key of the entry
+   * @return		the file
+   */
+  protected File entry(String key) {
+    return new File(new File(m_Directory, key.substring(0, 2)), key);
+  }
+
+  /**
+   * Returns the file with the statistics of the entry.
+   *
+   * @param key		the key of the entry
+   * @return		the file
+   */
+  protected File meta(String key) {
+    return new File(new File(m_Directory, key.substring(0, 2)), key + EXT_META);
+  }
+
+  /**
+   * Returns a unique temporary file in the directory.
+   *
+   * @param dir		the directory
+   * @return		the temporary file (not created)
+   */
+  protected Path temp(File dir) {
+    return dir.toPath().resolve(PREFIX_TEMP + UUID.randomUUID());
+  }
+
+  /**
+   * Moves the file into place, atomically if supported, replacing any
+   * existing file.
+   *
+   * @param source	the file to move
+   * @param target	the destination
+   * @throws IOException	if moving fails
+   */
+  protected void move(Path source, Path target) throws IOException {
+    FileUtils.move(source, target);
+  }
+
+  /**
+   * Links or copies the file to the target via a temporary file in the
+   * target's directory, which then gets moved into place.
+   *
+   * @param source	the file to link or copy
+   * @param target	the destination
+   * @throws IOException	if linking/copying fails
+   */
+  protected void transfer(File source, File target) throws IOException {
+    File	dir;
+    Path	temp;
+    boolean	linked;
+
+    dir  = target.getAbsoluteFile().getParentFile();
+    temp = temp(dir);
+    try {
+      linked = false;
+      if (m_HardLink) {
+	try {
+	  Files.createLink(temp, source.toPath());
+	  linked = true;
+	}
+	catch (UnsupportedOperationException | IOException e) {
+	  m_Logger.debug("Failed to hard-link " + source + ", copying instead", e);
+	}
+      }
+      if (!linked)
+	Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+      move(temp, target.toPath());
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Supplies the output from the cache, if available.
+   *
+   * @param key		the key of the conversion
+   * @param result	the result to update (output file, statistics)
+   * @return		true if the output was supplied from the cache
+   */
+  public boolean retrieve(String key, ConversionResult result) {
+    File	entry;
+    Properties	props;
+    InputStream	in;
+
+    entry = entry(key);
+    if (!entry.exists())
+      return false;
+
+    try {
+      props = new Properties();
+      if (meta(key).exists()) {
+	in = new FileInputStream(meta(key));
+	try {
+	  props.load(in);
+	}
+	finally {
+	  in.close();
+	}
+      }
+      entry.setLastModified(System.currentTimeMillis());
+      transfer(entry, result.getOutputFile());
+      result.setPoints(Long.parseLong(props.getProperty(META_POINTS, "0")));
+      result.setRemoved(Long.parseLong(props.getProperty(META_REMOVED, "0")));
+      result.setCached(true);
+      return true;
+    }
+    catch (NoSuchFileException e) {
+      // evicted in the meantime
+      return false;
+    }
+    catch (Exception e) {
+      m_Logger.warn("Failed to retrieve cache entry: " + key, e);
+      return false;
+    }
+  }
+
+  /**
+   * Adds the output of the successful conversion to the cache and evicts
+   * entries if the cache has grown too large.
+   *
+   * @param key		the key of the conversion
+   * @param result	the result of the conversion
+   * @return		null if successful, otherwise error message
+   */
+  public String store(String key, ConversionResult result) {
+    File	entry;
+    File	dir;
+    Path	temp;
+    Properties	props;
+    OutputStream	out;
+
+    entry = entry(key);
+    dir   = entry.getParentFile();
+    if (!dir.exists() && !dir.mkdirs() && !dir.exists())
+      return "Failed to create cache directory: " + dir;
+
+    try {
+      props = new Properties();
+      props.setProperty(META_POINTS, "" + result.getPoints());
+      props.setProperty(META_REMOVED, "" + result.getRemoved());
+      temp = temp(dir);
+      try {
+	out = new FileOutputStream(temp.toFile());
+	try {
+	  props.store(out, null);
+	}
+	finally {
+	  out.close();
+	}
+	move(temp, meta(key).toPath());
+      }
+      finally {
+	Files.deleteIfExists(temp);
+      }
+      transfer(result.getOutputFile(), entry);
+    }
+    catch (Exception e) {
+      m_Logger.warn("Failed to store cache entry: " + key, e);
+      return "Failed to store cache entry: " + key + "\n" + e;
+    }
+
+    return evict();
+  }
+
+  /**
+   * Removes the least recently used entries until the cache is within its
+   * maximum size. Also removes temporary files and statistics that were left
+   * behind by aborted processes.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String evict() {
+    List<File>		entries;
+    Map<File,Long>	modified;
+    File[]		dirs;
+    File[]		files;
+    File		data;
+    long		size;
+    long		now;
+
+    synchronized (EVICTION_LOCK) {
+      try (FileChannel channel = FileChannel.open(new File(m_Directory, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+	// released when the channel gets closed
+	channel.lock();
+	entries  = new ArrayList<>();
+	modified = new HashMap<>();
+	size     = 0;
+	now      = System.currentTimeMillis();
+	dirs     = m_Directory.listFiles(File::isDirectory);
+	if (dirs == null)
+	  return null;
+	for (File dir: dirs) {
+	  files = dir.listFiles(File::isFile);
+	  if (files == null)
+	    continue;
+	  for (File file: files) {
+	    if (file.getName().startsWith(PREFIX_TEMP) || file.getName().endsWith(EXT_META)) {
+	      data = new File(dir, file.getName().substring(0, file.getName().length() - EXT_META.length()));
+	      if ((now - file.lastModified() > MAX_TEMP_AGE) && (file.getName().startsWith(PREFIX_TEMP) || !data.exists()))
+		Files.deleteIfExists(file.toPath());
+	      continue;
+	    }
+	    entries.add(file);
+	    modified.put(file, file.lastModified());
+	    size += file.length();
+	  }
+	}
+	if (size <= m_MaxSize)
+	  return null;
+
+	// hits keep updating the timestamps, hence sorting on a snapshot
+	entries.sort((f1, f2) -> Long.compare(modified.get(f1), modified.get(f2)));
+	for (File file: entries) {
+	  if (size <= m_MaxSize)
+	    break;
+	  size -= file.length();
+	  Files.deleteIfExists(file.toPath());
+	  Files.deleteIfExists(new File(file.getParentFile(), file.getName() + EXT_META).toPath());
+	  m_Logger.debug("Evicted cache entry: " + file.getName());
+	}
+      }
+      catch (Exception e) {
+	m_Logger.warn("Failed to evict cache entries: " + m_Directory, e);
+	return "Failed to evict cache entries: " + m_Directory + "\n" + e;
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionResult.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j;
+
+import com.github.fracpete.gpsformats4j.metrics.ConversionMetrics;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * The outcome of a conversion.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see Converter
+ */
+public class ConversionResult
+  implements Serializable {
+
+  private static final long serialVersionUID = 4146640155224312946L;
+
+  /** the input file. */
+  protected File m_InputFile;
+
+  /** the output file. */
+  protected File m_OutputFile;
+
+  /** the error message, null if successful. */
+  protected String m_Error;
+
+  /** the exception that caused the failure, if any. */
+  protected Throwable m_Exception;
+
+  /** the number of points that were converted. */
+  protected long m_Points;
+
+  /** the number of points removed by simplification. */
+  protected long m_Removed;
+
+  /** whether the conversion was streamed. */
+  protected boolean m_Streamed;
+
+  /** whether the output was supplied from the cache. */
+  protected boolean m_Cached;
+
+  /** whether the conversion got cancelled. */
+  protected boolean m_Cancelled;
+
+  /** the duration in msec. */
+  protected long m_Duration;
+
+  /** the measurements, null if not collected. */
+  protected ConversionMetrics m_Metrics;
+
+  /**
+   * Initializes the result.
+   *
+   * @param input	the input file
+   * @param output	the output file
+   */
+  public ConversionResult(File input, File output) {
+    m_InputFile  = input;
+    m_OutputFile = output;
+    m_Error      = null;
+    m_Exception  = null;
+    m_Points     = 0;
+    m_Removed    = 0;
+    m_Streamed   = false;
+    m_Cached     = false;
+    m_Cancelled  = false;
+    m_Duration   = 0;
+    m_Metrics    = null;
+  }
+
+  /**
+   * Returns the input file.
+   *
+   * @return		the file
+   */
+  public File getInputFile() {
+    return m_InputFile;
+  }
+
+  /**
+   * Returns the output file.
+   *
+   * @return		the file
+   */
+  public File getOutputFile() {
+    return m_OutputFile;
+  }
+
+  /**
+   * Marks the conversion as failed.
+   *
+   * @param error	the error message
+   * @param exception	the exception that caused the failure, can be null
+   */
+  public void setError(String error, Throwable exception) {
+    m_Error     = error;
+    m_Exception = exception;
+  }
+
+  /**
+   * Returns whether the conversion was successful.
+   *
+   * @return		true if successful
+   */
+  public boolean isSuccess() {
+    return (m_Error == null);
+  }
+
+  /**
+   * Returns the error message.
+   *
+   * @return		the error, null if successful
+   */
+  public String getError() {
+    return m_Error;
+  }
+
+  /**
+   * Returns the exception that caused the failure.
+   *
+   * @return		the exception, null if none available
+   */
+  public Throwable getException() {
+    return m_Exception;
+  }
+
+  /**
+   * Sets the number of points that were converted.
+   *
+   * @param value	the number of points
+   */
+  public void setPoints(long value) {
+    m_Points = value;
+  }
+
+  /**
+   * Returns the number of points that were converted.
+   *
+   * @return		the number of points
+   */
+  public long getPoints() {
+    return m_Points;
+  }
+
+  /**
+   * Sets the number of points that were removed by simplification.
+   *
+   * @param value	the number of points
+   */
+  public void setRemoved(long value) {
+    m_Removed = value;
+  }
+
+  /**
+   * Returns the number of points that were removed by simplification.
+   *
+   * @return		the number of points
+   */
+  public long getRemoved() {
+    return m_Removed;
+  }
+
+  /**
+   * Sets whether the conversion was streamed.
+   *
+   * @param value	true if streamed
+   */
+  public void setStreamed(boolean value) {
+    m_Streamed = value;
+  }
+
+  /**
+   * Returns whether the conversion was streamed, ie without holding all
+   * points in memory.
+   *
+   * @return		true if streamed
+   */
+  public boolean isStreamed() {
+    return m_Streamed;
+  }
+
+  /**
+   * Sets whether the output was supplied from the cache.
+   *
+   * @param value	true if cached
+   */
+  public void setCached(boolean value) {
+    m_Cached = value;
+  }
+
+  /**
+   * Returns whether the output was supplied from the cache rather than
+   * converted.
+   *
+   * @return		true if cached
+   */
+  public boolean isCached() {
+    return m_Cached;
+  }
+
+  /**
+   * Sets whether the conversion got cancelled.
+   *
+   * @param value	true if cancelled
+   */
+  public void setCancelled(boolean value) {
+    m_Cancelled = value;
+  }
+
+  /**
+   * Returns whether the conversion got cancelled (or exceeded its deadline).
+   * A cancelled conversion is not successful.
+   *
+   * @return		true if cancelled
+   */
+  public boolean isCancelled() {
+    return m_Cancelled;
+  }
+
+  /**
+   * Sets the duration of the conversion.
+   *
+   * @param value	the duration in msec
+   */
+  public void setDuration(long value) {
+    m_Duration = value;
+  }
+
+  /**
+   * Returns the duration of the conversion.
+   *
+   * @return		the duration in msec
+   */
+  public long getDuration() {
+    return m_Duration;
+  }
+
+  /**
+   * Sets the measurements.
+   *
+   * @param value	the metrics, null if not collected
+   */
+  public void setMetrics(ConversionMetrics value) {
+    m_Metrics = value;
+  }
+
+  /**
+   * Returns the measurements, only collected if the converter has metrics
+   * listeners.
+   *
+   * @return		the metrics, null if not collected
+   */
+  public ConversionMetrics getMetrics() {
+    return m_Metrics;
+  }
+
+  /**
+   * Returns a short description of the result.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    if (isSuccess())
+      return m_InputFile + " -> " + m_OutputFile + ": " + m_Points + " points"
+	+ (m_Removed > 0 ? " (" + m_Removed + " removed)" : "")
+	+ ", " + m_Duration + "ms" + (m_Streamed ? " (streamed)" : "")
+	+ (m_Cached ? " (cached)" : "");
+    else
+      return m_InputFile + " -> " + m_OutputFile + ": " + m_Error;
+  }
+}
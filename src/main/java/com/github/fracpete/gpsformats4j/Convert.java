@@ -15,26 +15,48 @@ package com.github.fracpete.gpsformats4j;/*
 
 /*
  * Convert.java
- * Copyright (C) 2016-2025 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import com.github.fracpete.gpsformats4j.core.FileUtils;
 import com.github.fracpete.gpsformats4j.core.OptionHandler;
-import com.github.fracpete.gpsformats4j.core.OptionUtils;
-import com.github.fracpete.gpsformats4j.formats.Format;
-import com.github.fracpete.gpsformats4j.formats.FormatWithOptionHandling;
+import com.github.fracpete.gpsformats4j.data.BoundingBox;
+import com.github.fracpete.gpsformats4j.filters.ResampleFilter;
+import com.github.fracpete.gpsformats4j.filters.ResampleMethod;
+import com.github.fracpete.gpsformats4j.filters.ResampleMode;
+import com.github.fracpete.gpsformats4j.filters.SimplificationAlgorithm;
+import com.github.fracpete.gpsformats4j.filters.SimplifyFilter;
+import com.github.fracpete.gpsformats4j.formats.FormatProvider;
 import com.github.fracpete.gpsformats4j.formats.Formats;
+import com.github.fracpete.gpsformats4j.formats.PipelinedPointSource;
+import com.github.fracpete.gpsformats4j.metrics.Slf4jMetricsReporter;
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+import com.github.fracpete.gpsformats4j.progress.ProgressListener;
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.helper.HelpScreenException;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.Namespace;
-import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.util.List;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 
 /**
- * Conversion class.
+ * Conversion class for the command-line. For conversions in long-running
+ * processes, use a (shared) {@link Converter} instance instead.
+ * <br>
+ * Using "-" as input or output file reads from stdin or writes to stdout,
+ * eg for shell pipelines. Logging goes to stderr.
  *
  * @author FracPete (fracpete at gmail dot com)
  */
@@ -54,6 +76,39 @@ public class Convert
 
   public static final String OUTPUT_OPTIONS = "out_options";
 
+  public static final String PIPELINE = "pipeline";
+
+  public static final String BATCH_SIZE = "batch_size";
+
+  public static final String QUEUE_SIZE = "queue_size";
+
+  public static final String SIMPLIFY = "simplify";
+
+  public static final String TOLERANCE = "tolerance";
+
+  public static final String BBOX = "bbox";
+
+  public static final String RESAMPLE = "resample";
+
+  public static final String RESAMPLE_METHOD = "resample_method";
+
+  public static final String INTERVAL = "interval";
+
+  public static final String CACHE_DIR = "cache_dir";
+
+  public static final String CACHE_MAX_SIZE = "cache_max_size";
+
+  public static final String CACHE_LINK = "cache_link";
+
+  public static final String METRICS = "metrics";
+
+  public static final String PROGRESS = "progress";
+
+  public static final String TIMEOUT = "timeout";
+
+  /** the file name for reading from stdin or writing to stdout. */
+  public static final String STDIO = "-";
+
   /** the argument parser. */
   protected ArgumentParser m_Parser;
 
@@ -75,6 +130,60 @@ public class Convert
   /** the output options. */
   protected String m_OutputOptions;
 
+  /** whether to read and write in separate threads. */
+  protected boolean m_Pipeline;
+
+  /** the number of points per batch in pipeline mode. */
+  protected int m_BatchSize;
+
+  /** the number of batches to queue in pipeline mode. */
+  protected int m_QueueSize;
+
+  /** the algorithm for simplifying the tracks. */
+  protected SimplificationAlgorithm m_Simplification;
+
+  /** the tolerance for simplifying the tracks in meters. */
+  protected double m_Tolerance;
+
+  /** the bounding box to restrict the points to, null for all points. */
+  protected BoundingBox m_BoundingBox;
+
+  /** what the interval for resampling the tracks refers to. */
+  protected ResampleMode m_ResampleMode;
+
+  /** how to reduce multiple points in an interval when resampling. */
+  protected ResampleMethod m_ResampleMethod;
+
+  /** the interval for resampling in seconds or meters. */
+  protected double m_Interval;
+
+  /** the cache directory, null for no caching. */
+  protected File m_CacheDir;
+
+  /** the maximum size of the cache in MB. */
+  protected long m_CacheMaxSize;
+
+  /** whether to hard-link cached outputs instead of copying them. */
+  protected boolean m_CacheLink;
+
+  /** whether to log the metrics of the conversion. */
+  protected boolean m_Metrics;
+
+  /** whether to log the progress of the conversion. */
+  protected boolean m_Progress;
+
+  /** the timeout in seconds, 0 for none. */
+  protected double m_Timeout;
+
+  /** the listener for the progress, null if none. */
+  protected ProgressListener m_ProgressListener;
+
+  /** the token for cancelling the conversion, null if none. */
+  protected CancellationToken m_CancellationToken;
+
+  /** the result of the last conversion. */
+  protected ConversionResult m_Result;
+
   /** whether help got requested. */
   protected boolean m_HelpRequested;
 
@@ -84,13 +193,28 @@ public class Convert
   @Override
   protected void initialize() {
     String[]	formats;
-    int		i;
 
     super.initialize();
 
-    formats = new String[Formats.allFormats().length];
-    for (i = 0; i < Formats.allFormats().length; i++)
-      formats[i] = Formats.allFormats()[i].getSimpleName();
+    m_Pipeline       = false;
+    m_BatchSize      = PipelinedPointSource.DEFAULT_BATCH_SIZE;
+    m_QueueSize      = PipelinedPointSource.DEFAULT_QUEUE_SIZE;
+    m_Simplification = SimplificationAlgorithm.NONE;
+    m_Tolerance      = SimplifyFilter.DEFAULT_TOLERANCE;
+    m_BoundingBox    = null;
+    m_ResampleMode   = ResampleMode.NONE;
+    m_ResampleMethod = ResampleMethod.PICK;
+    m_Interval       = ResampleFilter.DEFAULT_INTERVAL;
+    m_CacheDir       = null;
+    m_CacheMaxSize   = ConversionCache.DEFAULT_MAX_SIZE / 1024 / 1024;
+    m_CacheLink      = false;
+    m_Metrics        = false;
+    m_Progress       = false;
+    m_Timeout        = 0;
+    m_ProgressListener  = null;
+    m_CancellationToken = null;
+
+    formats = Formats.names();
 
     m_Parser = ArgumentParsers.newFor(getClass().getSimpleName()).build();
 
@@ -102,13 +226,13 @@ public class Convert
       .dest(INPUT_FILE)
       .required(true)
       .type(String.class)
-      .help("The input file to convert.");
+      .help("The input file to convert, '" + STDIO + "' for stdin.");
     m_Parser.addArgument("--" + INPUT_FORMAT)
       .dest(INPUT_FORMAT)
-      .required(true)
+      .required(false)
       .type(String.class)
       .choices(formats)
-      .help("The input format.");
+      .help("The input format, determined from the magic bytes or the extension of the input file if omitted.");
     m_Parser.addArgument("--" + INPUT_OPTIONS)
       .metavar("<options>")
       .dest(INPUT_OPTIONS)
@@ -122,13 +246,13 @@ public class Convert
       .dest(OUTPUT_FILE)
       .required(true)
       .type(String.class)
-      .help("The output file to generate.");
+      .help("The output file to generate, '" + STDIO + "' for stdout.");
     m_Parser.addArgument("--" + OUTPUT_FORMAT)
       .dest(OUTPUT_FORMAT)
-      .required(true)
+      .required(false)
       .type(String.class)
       .choices(formats)
-      .help("The output format.");
+      .help("The output format, determined from the extension of the output file if omitted.");
     m_Parser.addArgument("--" + OUTPUT_OPTIONS)
       .metavar("<options>")
       .dest(OUTPUT_OPTIONS)
@@ -136,6 +260,95 @@ public class Convert
       .type(String.class)
       .setDefault("")
       .help("The options for the output format, if supported. Blank-separated list of key=value pairs.");
+
+    m_Parser.addArgument("--" + PIPELINE)
+      .dest(PIPELINE)
+      .action(Arguments.storeTrue())
+      .help("Whether to parse the input in a separate thread while writing the output (streaming formats only).");
+    m_Parser.addArgument("--" + BATCH_SIZE)
+      .metavar("<num>")
+      .dest(BATCH_SIZE)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_BatchSize)
+      .help("The number of points handed over at a time in pipeline mode.");
+    m_Parser.addArgument("--" + QUEUE_SIZE)
+      .metavar("<num>")
+      .dest(QUEUE_SIZE)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_QueueSize)
+      .help("The maximum number of batches waiting to be written in pipeline mode.");
+    m_Parser.addArgument("--" + SIMPLIFY)
+      .dest(SIMPLIFY)
+      .required(false)
+      .type(SimplificationAlgorithm.class)
+      .setDefault(m_Simplification)
+      .help("The algorithm for simplifying the tracks before writing them.");
+    m_Parser.addArgument("--" + TOLERANCE)
+      .metavar("<meters>")
+      .dest(TOLERANCE)
+      .required(false)
+      .type(Double.class)
+      .setDefault(m_Tolerance)
+      .help("The tolerance for simplifying the tracks: the maximum deviation (DOUGLAS_PEUCKER) or the side of the minimum triangle (VISVALINGAM).");
+    m_Parser.addArgument("--" + BBOX)
+      .metavar("<minLat,minLon,maxLat,maxLon>")
+      .dest(BBOX)
+      .required(false)
+      .help("Only keeps the points within the bounding box (degrees); a minimum longitude larger than the maximum one crosses the antimeridian. Use --bbox=... if the minimum latitude is negative.");
+    m_Parser.addArgument("--" + RESAMPLE)
+      .dest(RESAMPLE)
+      .required(false)
+      .type(ResampleMode.class)
+      .setDefault(m_ResampleMode)
+      .help("Whether to resample the tracks at fixed time (TIME) or distance (DISTANCE) intervals before writing them.");
+    m_Parser.addArgument("--" + RESAMPLE_METHOD)
+      .dest(RESAMPLE_METHOD)
+      .required(false)
+      .type(ResampleMethod.class)
+      .setDefault(m_ResampleMethod)
+      .help("How to reduce multiple points within an interval: the point closest to the interval (PICK) or their mean (AVERAGE).");
+    m_Parser.addArgument("--" + INTERVAL)
+      .metavar("<seconds|meters>")
+      .dest(INTERVAL)
+      .required(false)
+      .type(Double.class)
+      .setDefault(m_Interval)
+      .help("The interval for resampling the tracks, in seconds (TIME) or meters (DISTANCE).");
+    m_Parser.addArgument("--" + CACHE_DIR)
+      .metavar("<dir>")
+      .dest(CACHE_DIR)
+      .required(false)
+      .type(String.class)
+      .help("The directory for caching the outputs; repeated conversions of the same input with the same setup get served from the cache. Can be shared by several processes.");
+    m_Parser.addArgument("--" + CACHE_MAX_SIZE)
+      .metavar("<MB>")
+      .dest(CACHE_MAX_SIZE)
+      .required(false)
+      .type(Long.class)
+      .setDefault(m_CacheMaxSize)
+      .help("The maximum size of the cache, the least recently used outputs get removed when exceeded.");
+    m_Parser.addArgument("--" + CACHE_LINK)
+      .dest(CACHE_LINK)
+      .action(Arguments.storeTrue())
+      .help("Whether to hard-link cached outputs instead of copying them; outputs must not get modified in place then.");
+    m_Parser.addArgument("--" + METRICS)
+      .dest(METRICS)
+      .action(Arguments.storeTrue())
+      .help("Whether to log the metrics of the conversion: time spent parsing, transforming and serializing, points and bytes read/written, peak number of points in memory.");
+    m_Parser.addArgument("--" + PROGRESS)
+      .dest(PROGRESS)
+      .action(Arguments.storeTrue())
+      .help("Whether to log the progress of the conversion: stage, bytes read and points processed.");
+    m_Parser.addArgument("--" + TIMEOUT)
+      .metavar("<seconds>")
+      .dest(TIMEOUT)
+      .required(false)
+      .type(Double.class)
+      .setDefault(m_Timeout)
+      .help("The time after which to cancel the conversion, leaving no output behind; 0 for no timeout. "
+	+ "Non-streaming reads (DOM engine, parallel CSV) only get cancelled once the file has been parsed.");
   }
 
   /**
@@ -159,7 +372,7 @@ public class Convert
   /**
    * Sets the input format.
    * 
-   * @param value	the format
+   * @param value	the format, null to determine it from the input file
    */
   public void setInputFormat(Class value) {
     m_InputFormat = value;
@@ -213,7 +426,7 @@ public class Convert
   /**
    * Sets the output format.
    * 
-   * @param value	the format
+   * @param value	the format, null to determine it from the output file
    */
   public void setOutputFormat(Class value) {
     m_OutputFormat = value;
@@ -246,6 +459,314 @@ public class Convert
     return m_OutputOptions;
   }
 
+  /**
+   * Sets whether to read and write in separate threads.
+   *
+   * @param value	true if to pipeline
+   */
+  public void setPipeline(boolean value) {
+    m_Pipeline = value;
+  }
+
+  /**
+   * Returns whether to read and write in separate threads.
+   *
+   * @return		true if to pipeline
+   */
+  public boolean isPipeline() {
+    return m_Pipeline;
+  }
+
+  /**
+   * Sets the number of points per batch in pipeline mode.
+   *
+   * @param value	the batch size
+   */
+  public void setBatchSize(int value) {
+    m_BatchSize = value;
+  }
+
+  /**
+   * Returns the number of points per batch in pipeline mode.
+   *
+   * @return		the batch size
+   */
+  public int getBatchSize() {
+    return m_BatchSize;
+  }
+
+  /**
+   * Sets the maximum number of queued batches in pipeline mode.
+   *
+   * @param value	the queue size
+   */
+  public void setQueueSize(int value) {
+    m_QueueSize = value;
+  }
+
+  /**
+   * Returns the maximum number of queued batches in pipeline mode.
+   *
+   * @return		the queue size
+   */
+  public int getQueueSize() {
+    return m_QueueSize;
+  }
+
+  /**
+   * Sets the algorithm for simplifying the tracks.
+   *
+   * @param value	the algorithm
+   */
+  public void setSimplification(SimplificationAlgorithm value) {
+    m_Simplification = value;
+  }
+
+  /**
+   * Returns the algorithm for simplifying the tracks.
+   *
+   * @return		the algorithm
+   */
+  public SimplificationAlgorithm getSimplification() {
+    return m_Simplification;
+  }
+
+  /**
+   * Sets the tolerance for simplifying the tracks.
+   *
+   * @param value	the tolerance in meters
+   */
+  public void setTolerance(double value) {
+    m_Tolerance = value;
+  }
+
+  /**
+   * Returns the tolerance for simplifying the tracks.
+   *
+   * @return		the tolerance in meters
+   */
+  public double getTolerance() {
+    return m_Tolerance;
+  }
+
+  /**
+   * Sets the bounding box to restrict the points to.
+   *
+   * @param value	the box, null for all points
+   */
+  public void setBoundingBox(BoundingBox value) {
+    m_BoundingBox = value;
+  }
+
+  /**
+   * Returns the bounding box to restrict the points to.
+   *
+   * @return		the box, null for all points
+   */
+  public BoundingBox getBoundingBox() {
+    return m_BoundingBox;
+  }
+
+  /**
+   * Sets what the interval for resampling the tracks refers to.
+   *
+   * @param value	the mode
+   */
+  public void setResampleMode(ResampleMode value) {
+    m_ResampleMode = value;
+  }
+
+  /**
+   * Returns what the interval for resampling the tracks refers to.
+   *
+   * @return		the mode
+   */
+  public ResampleMode getResampleMode() {
+    return m_ResampleMode;
+  }
+
+  /**
+   * Sets how to reduce multiple points in an interval when resampling.
+   *
+   * @param value	the method
+   */
+  public void setResampleMethod(ResampleMethod value) {
+    m_ResampleMethod = value;
+  }
+
+  /**
+   * Returns how to reduce multiple points in an interval when resampling.
+   *
+   * @return		the method
+   */
+  public ResampleMethod getResampleMethod() {
+    return m_ResampleMethod;
+  }
+
+  /**
+   * Sets the interval for resampling.
+   *
+   * @param value	the interval in seconds or meters
+   */
+  public void setInterval(double value) {
+    m_Interval = value;
+  }
+
+  /**
+   * Returns the interval for resampling.
+   *
+   * @return		the interval in seconds or meters
+   */
+  public double getInterval() {
+    return m_Interval;
+  }
+
+  /**
+   * Sets the directory for caching the outputs.
+   *
+   * @param value	the directory, null for no caching
+   */
+  public void setCacheDir(File value) {
+    m_CacheDir = value;
+  }
+
+  /**
+   * Returns the directory for caching the outputs.
+   *
+   * @return		the directory, null for no caching
+   */
+  public File getCacheDir() {
+    return m_CacheDir;
+  }
+
+  /**
+   * Sets the maximum size of the cache.
+   *
+   * @param value	the size in MB
+   */
+  public void setCacheMaxSize(long value) {
+    m_CacheMaxSize = value;
+  }
+
+  /**
+   * Returns the maximum size of the cache.
+   *
+   * @return		the size in MB
+   */
+  public long getCacheMaxSize() {
+    return m_CacheMaxSize;
+  }
+
+  /**
+   * Sets whether to hard-link cached outputs instead of copying them.
+   *
+   * @param value	true if to hard-link
+   */
+  public void setCacheLink(boolean value) {
+    m_CacheLink = value;
+  }
+
+  /**
+   * Returns whether to hard-link cached outputs instead of copying them.
+   *
+   * @return		true if to hard-link
+   */
+  public boolean isCacheLink() {
+    return m_CacheLink;
+  }
+
+  /**
+   * Sets whether to log the metrics of the conversion.
+   *
+   * @param value	true if to log
+   */
+  public void setMetrics(boolean value) {
+    m_Metrics = value;
+  }
+
+  /**
+   * Returns whether to log the metrics of the conversion.
+   *
+   * @return		true if to log
+   */
+  public boolean isMetrics() {
+    return m_Metrics;
+  }
+
+  /**
+   * Sets whether to log the progress of the conversion.
+   *
+   * @param value	true if to log
+   */
+  public void setProgress(boolean value) {
+    m_Progress = value;
+  }
+
+  /**
+   * Returns whether to log the progress of the conversion.
+   *
+   * @return		true if to log
+   */
+  public boolean isProgress() {
+    return m_Progress;
+  }
+
+  /**
+   * Sets the time after which to cancel the conversion.
+   *
+   * @param value	the timeout in seconds, 0 for none
+   */
+  public void setTimeout(double value) {
+    m_Timeout = value;
+  }
+
+  /**
+   * Returns the time after which to cancel the conversion.
+   *
+   * @return		the timeout in seconds, 0 for none
+   */
+  public double getTimeout() {
+    return m_Timeout;
+  }
+
+  /**
+   * Sets the listener to notify about the progress of the conversion.
+   *
+   * @param value	the listener, null for none
+   */
+  public void setProgressListener(ProgressListener value) {
+    m_ProgressListener = value;
+  }
+
+  /**
+   * Returns the listener to notify about the progress of the conversion.
+   *
+   * @return		the listener, null if none
+   */
+  public ProgressListener getProgressListener() {
+    return m_ProgressListener;
+  }
+
+  /**
+   * Sets the token for cancelling the conversion, eg from another thread.
+   * The token itself does not get modified, the timeout (if any) gets
+   * applied via a child token.
+   *
+   * @param value	the token, null for none
+   */
+  public void setCancellationToken(CancellationToken value) {
+    m_CancellationToken = value;
+  }
+
+  /**
+   * Returns the token for cancelling the conversion.
+   *
+   * @return		the token, null if none
+   */
+  public CancellationToken getCancellationToken() {
+    return m_CancellationToken;
+  }
+
   /**
    * Sets the options.
    *
@@ -269,11 +790,26 @@ public class Convert
     }
 
     setInputFile(new File(ns.getString(INPUT_FILE)));
-    setInputFormat(Class.forName(Format.class.getPackage().getName() + "." + ns.getString(INPUT_FORMAT)));
+    setInputFormat(formatClass(ns.getString(INPUT_FORMAT)));
     setInputOptions(ns.getString(INPUT_OPTIONS));
     setOutputFile(new File(ns.getString(OUTPUT_FILE)));
-    setOutputFormat(Class.forName(Format.class.getPackage().getName() + "." + ns.getString(OUTPUT_FORMAT)));
+    setOutputFormat(formatClass(ns.getString(OUTPUT_FORMAT)));
     setOutputOptions(ns.getString(OUTPUT_OPTIONS));
+    setPipeline(ns.getBoolean(PIPELINE));
+    setBatchSize(ns.getInt(BATCH_SIZE));
+    setQueueSize(ns.getInt(QUEUE_SIZE));
+    setSimplification((SimplificationAlgorithm) ns.get(SIMPLIFY));
+    setTolerance(ns.getDouble(TOLERANCE));
+    setBoundingBox((ns.getString(BBOX) == null) ? null : BoundingBox.parse(ns.getString(BBOX)));
+    setResampleMode((ResampleMode) ns.get(RESAMPLE));
+    setResampleMethod((ResampleMethod) ns.get(RESAMPLE_METHOD));
+    setInterval(ns.getDouble(INTERVAL));
+    setCacheDir((ns.getString(CACHE_DIR) == null) ? null : new File(ns.getString(CACHE_DIR)));
+    setCacheMaxSize(ns.getLong(CACHE_MAX_SIZE));
+    setCacheLink(ns.getBoolean(CACHE_LINK));
+    setMetrics(ns.getBoolean(METRICS));
+    setProgress(ns.getBoolean(PROGRESS));
+    setTimeout(ns.getDouble(TIMEOUT));
   }
 
   /**
@@ -287,60 +823,200 @@ public class Convert
   }
 
   /**
-   * Performs the conversion.
+   * Returns the result of the last conversion.
    *
-   * @return		null if successful, otherwise error message
+   * @return		the result, null if no conversion performed yet (or the
+   * 			formats could not be determined)
    */
-  protected String doExecute() {
-    Format		formatIn;
-    Format		formatOut;
-    List<CSVRecord>	data;
+  public ConversionResult getResult() {
+    return m_Result;
+  }
+
+  /**
+   * Returns whether the file stands for stdin/stdout.
+   *
+   * @param file	the file to check
+   * @return		true if stdin/stdout
+   */
+  public static boolean isStdio(File file) {
+    return (file != null) && file.getPath().equals(STDIO);
+  }
+
+  /**
+   * Returns the class of the format.
+   *
+   * @param name	the name of the format, can be null
+   * @return		the class, null if no name supplied
+   * @throws IllegalArgumentException	if the format is unknown
+   * @see		Formats#get(String)
+   */
+  public static Class formatClass(String name) {
+    FormatProvider	provider;
+
+    if (name == null)
+      return null;
+    provider = Formats.get(name);
+    if (provider == null)
+      throw new IllegalArgumentException("Unknown format: " + name);
+
+    return provider.getFormatClass();
+  }
 
-    if (!m_InputFile.exists())
-      return "Input file does not exist: " + m_InputFile;
-    if (m_InputFile.isDirectory())
-      return "Input file points to a directory: " + m_InputFile;
+  /**
+   * Determines the format of the file, via its magic bytes and/or extension.
+   *
+   * @param file	the file to determine the format for
+   * @param input	whether it is the input or the output file
+   * @return		the format class, null if it could not be determined
+   */
+  protected Class determineFormat(File file, boolean input) {
+    FormatProvider	provider;
 
+    if (isStdio(file))
+      return null;
     try {
-      formatIn = (Format) m_InputFormat.newInstance();
-      m_Logger.info("Input format: " + formatIn.getClass().getName());
-      formatOut = (Format) m_OutputFormat.newInstance();
-      m_Logger.info("Output format: " + formatOut.getClass().getName());
+      provider = input ? Formats.detect(file) : Formats.forExtension(file);
     }
     catch (Exception e) {
-      return "Error configuring formats: " + e;
+      m_Logger.warn("Failed to determine format of " + file, e);
+      return null;
     }
+    if (provider == null)
+      return null;
+    m_Logger.info("Determined " + (input ? "input" : "output") + " format: " + provider.getName());
 
-    if (!formatIn.canRead())
-      return "Input format does not support reading!";
-    if (!formatOut.canWrite())
-      return "Output format does not support writing!";
+    return provider.getFormatClass();
+  }
 
-    if ((formatIn instanceof FormatWithOptionHandling) && !m_InputOptions.isEmpty()) {
-      try {
-	m_Logger.info("Input options: " + m_InputOptions);
-	((FormatWithOptionHandling) formatIn).setOptions(OptionUtils.split(m_InputOptions));
+  /**
+   * Performs the conversion via streams, as stdin and/or stdout are
+   * involved. A regular output file gets written via a temporary file, like
+   * with file conversions.
+   *
+   * @param converter	the converter to use
+   * @param inputFormat	the input format
+   * @param outputFormat	the output format
+   * @param listener	the listener for the progress, can be null
+   * @param token	the token for cancelling, can be null
+   * @return		the result
+   */
+  protected ConversionResult convertStreams(Converter converter, Class inputFormat, Class outputFormat, ProgressListener listener, CancellationToken token) {
+    ConversionResult	result;
+    InputStream		input;
+    OutputStream	output;
+    File		temp;
+
+    if (converter.getCache() != null)
+      m_Logger.warn("Conversions via stdin/stdout do not get cached");
+
+    input  = null;
+    output = null;
+    temp   = null;
+    try {
+      if (isStdio(m_InputFile)) {
+	m_Logger.info("Reading: stdin");
+	input = System.in;
       }
-      catch (Exception e) {
-        return "Failed to set options for input format: " + m_InputOptions + "\n" + e;
+      else {
+	m_Logger.info("Reading: " + m_InputFile);
+	input = new BufferedInputStream(new FileInputStream(m_InputFile));
+      }
+      if (isStdio(m_OutputFile)) {
+	m_Logger.info("Writing: stdout");
+	output = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out));
       }
+      else {
+	m_Logger.info("Writing: " + m_OutputFile);
+	temp   = FileUtils.tempFile(m_OutputFile);
+	output = CompressionUtils.compress(new BufferedOutputStream(new FileOutputStream(temp)), m_OutputFile);
+      }
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(input);
+      IOUtils.closeQuietly(output);
+      if (temp != null)
+	temp.delete();
+      result = new ConversionResult(m_InputFile, m_OutputFile);
+      result.setError("Failed to open streams: " + e, e);
+      return result;
     }
 
-    if ((formatOut instanceof FormatWithOptionHandling) && !m_OutputOptions.isEmpty()) {
+    result = converter.convert(input, inputFormat, m_InputOptions, output, outputFormat, m_OutputOptions, listener, token);
+    if (temp != null) {
       try {
-	m_Logger.info("Output options: " + m_OutputOptions);
-	((FormatWithOptionHandling) formatOut).setOptions(OptionUtils.split(m_OutputOptions));
+	if (result.isSuccess())
+	  FileUtils.move(temp.toPath(), m_OutputFile.toPath());
+	else
+	  Files.deleteIfExists(temp.toPath());
       }
       catch (Exception e) {
-        return "Failed to set options for output format: " + m_OutputOptions + "\n" + e;
+	result.setError("Failed to move output into place: " + m_OutputFile + "\n" + e, e);
+	temp.delete();
       }
     }
 
-    data = formatIn.read(m_InputFile);
-    if (data == null)
-      return "Failed to read data from: " + m_InputFile;
+    return result;
+  }
+
+  /**
+   * Performs the conversion.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  protected String doExecute() {
+    Converter		converter;
+    ConversionCache	cache;
+    ProgressListener	listener;
+    CancellationToken	token;
+    Class		inputFormat;
+    Class		outputFormat;
+
+    m_Result     = null;
+    inputFormat  = m_InputFormat;
+    outputFormat = m_OutputFormat;
+    if (inputFormat == null)
+      inputFormat = determineFormat(m_InputFile, true);
+    if (inputFormat == null)
+      return "Failed to determine input format, please specify it: " + m_InputFile;
+    if (outputFormat == null)
+      outputFormat = determineFormat(m_OutputFile, false);
+    if (outputFormat == null)
+      return "Failed to determine output format, please specify it: " + m_OutputFile;
+
+    converter = new Converter();
+    converter.setPipeline(m_Pipeline);
+    converter.setBatchSize(m_BatchSize);
+    converter.setQueueSize(m_QueueSize);
+    converter.setSimplification(m_Simplification);
+    converter.setTolerance(m_Tolerance);
+    converter.setBoundingBox(m_BoundingBox);
+    converter.setResampleMode(m_ResampleMode);
+    converter.setResampleMethod(m_ResampleMethod);
+    converter.setInterval(m_Interval);
+    if (m_CacheDir != null) {
+      cache = new ConversionCache(m_CacheDir, m_CacheMaxSize * 1024 * 1024);
+      cache.setHardLink(m_CacheLink);
+      converter.setCache(cache);
+    }
+    if (m_Metrics)
+      converter.addMetricsListener(new Slf4jMetricsReporter());
+    listener = m_ProgressListener;
+    if (m_Progress) {
+      listener = p -> {
+	m_Logger.info("Progress: " + p);
+	if (m_ProgressListener != null)
+	  m_ProgressListener.progressChanged(p);
+      };
+    }
+    token = m_CancellationToken;
+    if (m_Timeout > 0)
+      token = new CancellationToken(m_CancellationToken, (long) (m_Timeout * 1000));
+    if (isStdio(m_InputFile) || isStdio(m_OutputFile))
+      m_Result = convertStreams(converter, inputFormat, outputFormat, listener, token);
+    else
+      m_Result = converter.convert(m_InputFile, inputFormat, m_InputOptions, m_OutputFile, outputFormat, m_OutputOptions, listener, token);
 
-    return formatOut.write(data, m_OutputFile);
+    return m_Result.getError();
   }
 
   /**
@@ -372,6 +1048,7 @@ public class Convert
   public static void main(String[] args) throws Exception {
     Convert convert = new Convert();
     convert.setOptions(args);
-    convert.execute();
+    if (convert.execute() != null)
+      System.exit(1);
   }
 }
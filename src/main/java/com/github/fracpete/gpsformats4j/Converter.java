@@ -0,0 +1,1166 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Converter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j;
+
+import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import com.github.fracpete.gpsformats4j.core.FileUtils;
+import com.github.fracpete.gpsformats4j.core.OptionUtils;
+import com.github.fracpete.gpsformats4j.data.BoundingBox;
+import com.github.fracpete.gpsformats4j.filters.BoundingBoxFilter;
+import com.github.fracpete.gpsformats4j.filters.ResampleFilter;
+import com.github.fracpete.gpsformats4j.filters.ResampleMethod;
+import com.github.fracpete.gpsformats4j.filters.ResampleMode;
+import com.github.fracpete.gpsformats4j.filters.SimplificationAlgorithm;
+import com.github.fracpete.gpsformats4j.filters.SimplifyFilter;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.FormatWithOptionHandling;
+import com.github.fracpete.gpsformats4j.formats.Formats;
+import com.github.fracpete.gpsformats4j.formats.ListPointSource;
+import com.github.fracpete.gpsformats4j.formats.PipelinedPointSource;
+import com.github.fracpete.gpsformats4j.formats.PointSink;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import com.github.fracpete.gpsformats4j.formats.StreamingFormat;
+import com.github.fracpete.gpsformats4j.metrics.ConversionMetrics;
+import com.github.fracpete.gpsformats4j.metrics.MetricsListener;
+import com.github.fracpete.gpsformats4j.metrics.TimedPointSink;
+import com.github.fracpete.gpsformats4j.metrics.TimedPointSource;
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+import com.github.fracpete.gpsformats4j.progress.ConversionStage;
+import com.github.fracpete.gpsformats4j.progress.MonitoredInputStream;
+import com.github.fracpete.gpsformats4j.progress.MonitoredList;
+import com.github.fracpete.gpsformats4j.progress.ProgressListener;
+import com.github.fracpete.gpsformats4j.progress.ProgressMonitor;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reusable conversion engine. Instances are thread-safe and can perform
+ * any number of conversions concurrently, once configured.
+ * <br>
+ * Configured format instances get pooled per format class and options, so
+ * that subsequent conversions with the same setup skip instantiation and
+ * option parsing. A format instance is only ever used by one conversion at
+ * a time. The pool keeps at most {@link #MAX_POOLED_INSTANCES} instances
+ * for the {@link #MAX_POOLED_SETUPS} most recently used setups. When the
+ * options come from untrusted sources, pooling can be restricted to the
+ * formats without options (see {@link #setPoolWithOptions(boolean)}).
+ * <br>
+ * With a {@link ConversionCache} set, the outputs of successful conversions
+ * get cached and repeated conversions of the same input with the same setup
+ * are served from the cache.
+ * <br>
+ * Registered {@link MetricsListener}s get notified about every conversion,
+ * with the times spent parsing, transforming and serializing, the number
+ * of points and bytes, and the peak number of points held in memory. The
+ * stages only get timed while listeners are registered.
+ * <br>
+ * Conversions can report their progress to a {@link ProgressListener} and
+ * get cancelled via a {@link CancellationToken}, which is checked while
+ * reading, simplifying and writing the points. The output gets written to a temporary
+ * file that only replaces the output file once the conversion succeeded,
+ * ie failed or cancelled conversions leave no partial output behind.
+ * <br>
+ * Conversions can also read from and write to streams, eg for serving
+ * them over the network.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see Convert
+ */
+public class Converter
+  extends BaseObject {
+
+  /** the maximum number of setups (format class and options) to pool instances for. */
+  public static final int MAX_POOLED_SETUPS = 64;
+
+  /** the maximum number of pooled instances per setup. */
+  public static final int MAX_POOLED_INSTANCES = 16;
+
+  /** whether to read and write in separate threads. */
+  protected boolean m_Pipeline;
+
+  /** the number of points per batch in pipeline mode. */
+  protected int m_BatchSize;
+
+  /** the number of batches to queue in pipeline mode. */
+  protected int m_QueueSize;
+
+  /** the algorithm for simplifying the tracks. */
+  protected SimplificationAlgorithm m_Simplification;
+
+  /** the tolerance for simplifying the tracks in meters. */
+  protected double m_Tolerance;
+
+  /** the bounding box to restrict the points to, null for all points. */
+  protected BoundingBox m_BoundingBox;
+
+  /** what the interval for resampling the tracks refers to. */
+  protected ResampleMode m_ResampleMode;
+
+  /** how to reduce multiple points in an interval when resampling. */
+  protected ResampleMethod m_ResampleMethod;
+
+  /** the interval for resampling in seconds or meters. */
+  protected double m_Interval;
+
+  /** the cache for the outputs, null if none. */
+  protected ConversionCache m_Cache;
+
+  /** the listeners for the metrics. */
+  protected List<MetricsListener> m_MetricsListeners;
+
+  /** whether to pool format instances that got configured with options. */
+  protected boolean m_PoolWithOptions;
+
+  /** the pooled format instances (class name and options -> instances), least recently used first. */
+  protected Map<String,Queue<Format>> m_Formats;
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    super.initialize();
+
+    m_Pipeline       = false;
+    m_BatchSize      = PipelinedPointSource.DEFAULT_BATCH_SIZE;
+    m_QueueSize      = PipelinedPointSource.DEFAULT_QUEUE_SIZE;
+    m_Simplification = SimplificationAlgorithm.NONE;
+    m_Tolerance      = SimplifyFilter.DEFAULT_TOLERANCE;
+    m_BoundingBox    = null;
+    m_ResampleMode   = ResampleMode.NONE;
+    m_ResampleMethod = ResampleMethod.PICK;
+    m_Interval       = ResampleFilter.DEFAULT_INTERVAL;
+    m_Cache          = null;
+    m_MetricsListeners = new CopyOnWriteArrayList<>();
+    m_PoolWithOptions = true;
+    m_Formats        = Collections.synchronizedMap(new LinkedHashMap<String,Queue<Format>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,Queue<Format>> eldest) {
+	return size() > MAX_POOLED_SETUPS;
+      }
+    });
+  }
+
+  /**
+   * Sets whether to read and write in separate threads. Must be set before
+   * the converter is shared between threads.
+   *
+   * @param value	true if to pipeline
+   */
+  public void setPipeline(boolean value) {
+    m_Pipeline = value;
+  }
+
+  /**
+   * Returns whether to read and write in separate threads.
+   *
+   * @return		true if to pipeline
+   */
+  public boolean isPipeline() {
+    return m_Pipeline;
+  }
+
+  /**
+   * Sets the number of points per batch in pipeline mode. Must be set before
+   * the converter is shared between threads.
+   *
+   * @param value	the batch size
+   */
+  public void setBatchSize(int value) {
+    m_BatchSize = value;
+  }
+
+  /**
+   * Returns the number of points per batch in pipeline mode.
+   *
+   * @return		the batch size
+   */
+  public int getBatchSize() {
+    return m_BatchSize;
+  }
+
+  /**
+   * Sets the maximum number of queued batches in pipeline mode. Must be set
+   * before the converter is shared between threads.
+   *
+   * @param value	the queue size
+   */
+  public void setQueueSize(int value) {
+    m_QueueSize = value;
+  }
+
+  /**
+   * Returns the maximum number of queued batches in pipeline mode.
+   *
+   * @return		the queue size
+   */
+  public int getQueueSize() {
+    return m_QueueSize;
+  }
+
+  /**
+   * Sets the algorithm for simplifying the tracks between reading and
+   * writing. Must be set before the converter is shared between threads.
+   *
+   * @param value	the algorithm
+   */
+  public void setSimplification(SimplificationAlgorithm value) {
+    m_Simplification = value;
+  }
+
+  /**
+   * Returns the algorithm for simplifying the tracks between reading and
+   * writing.
+   *
+   * @return		the algorithm
+   */
+  public SimplificationAlgorithm getSimplification() {
+    return m_Simplification;
+  }
+
+  /**
+   * Sets the tolerance for simplifying the tracks. Must be set before the
+   * converter is shared between threads.
+   *
+   * @param value	the tolerance in meters
+   */
+  public void setTolerance(double value) {
+    m_Tolerance = value;
+  }
+
+  /**
+   * Returns the tolerance for simplifying the tracks.
+   *
+   * @return		the tolerance in meters
+   */
+  public double getTolerance() {
+    return m_Tolerance;
+  }
+
+  /**
+   * Sets the bounding box to restrict the points to. Must be set before the
+   * converter is shared between threads.
+   *
+   * @param value	the box, null for all points
+   */
+  public void setBoundingBox(BoundingBox value) {
+    m_BoundingBox = value;
+  }
+
+  /**
+   * Returns the bounding box to restrict the points to.
+   *
+   * @return		the box, null for all points
+   */
+  public BoundingBox getBoundingBox() {
+    return m_BoundingBox;
+  }
+
+  /**
+   * Sets what the interval for resampling the tracks between reading and
+   * writing refers to. Must be set before the converter is shared between
+   * threads.
+   *
+   * @param value	the mode
+   */
+  public void setResampleMode(ResampleMode value) {
+    m_ResampleMode = value;
+  }
+
+  /**
+   * Returns what the interval for resampling the tracks between reading and
+   * writing refers to.
+   *
+   * @return		the mode
+   */
+  public ResampleMode getResampleMode() {
+    return m_ResampleMode;
+  }
+
+  /**
+   * Sets how to reduce multiple points in an interval when resampling. Must
+   * be set before the converter is shared between threads.
+   *
+   * @param value	the method
+   */
+  public void setResampleMethod(ResampleMethod value) {
+    m_ResampleMethod = value;
+  }
+
+  /**
+   * Returns how to reduce multiple points in an interval when resampling.
+   *
+   * @return		the method
+   */
+  public ResampleMethod getResampleMethod() {
+    return m_ResampleMethod;
+  }
+
+  /**
+   * Sets the interval for resampling. Must be set before the converter is
+   * shared between threads.
+   *
+   * @param value	the interval in seconds or meters
+   */
+  public void setInterval(double value) {
+    m_Interval = value;
+  }
+
+  /**
+   * Returns the interval for resampling.
+   *
+   * @return		the interval in seconds or meters
+   */
+  public double getInterval() {
+    return m_Interval;
+  }
+
+  /**
+   * Sets the cache for the outputs. Must be set before the converter is
+   * shared between threads.
+   *
+   * @param value	the cache, null to disable caching
+   */
+  public void setCache(ConversionCache value) {
+    m_Cache = value;
+  }
+
+  /**
+   * Returns the cache for the outputs.
+   *
+   * @return		the cache, null if disabled
+   */
+  public ConversionCache getCache() {
+    return m_Cache;
+  }
+
+  /**
+   * Sets whether to pool format instances that got configured with options.
+   * If disabled, only instances without options get reused, eg when the
+   * options come from clients and would otherwise each occupy a setup.
+   *
+   * @param value	true if to pool instances with options
+   */
+  public void setPoolWithOptions(boolean value) {
+    m_PoolWithOptions = value;
+  }
+
+  /**
+   * Returns whether to pool format instances that got configured with
+   * options.
+   *
+   * @return		true if instances with options get pooled
+   */
+  public boolean isPoolWithOptions() {
+    return m_PoolWithOptions;
+  }
+
+  /**
+   * Adds the listener for the metrics of the conversions.
+   *
+   * @param l		the listener to add
+   */
+  public void addMetricsListener(MetricsListener l) {
+    m_MetricsListeners.add(l);
+  }
+
+  /**
+   * Removes the listener for the metrics of the conversions.
+   *
+   * @param l		the listener to remove
+   */
+  public void removeMetricsListener(MetricsListener l) {
+    m_MetricsListeners.remove(l);
+  }
+
+  /**
+   * Removes all pooled format instances.
+   */
+  public void clearCache() {
+    m_Formats.clear();
+  }
+
+  /**
+   * Generates the key for pooling the format.
+   *
+   * @param format	the format class
+   * @param options	the options for the format
+   * @return		the key
+   */
+  protected String key(Class format, String options) {
+    return format.getName() + "\t" + options;
+  }
+
+  /**
+   * Returns a pooled format instance.
+   *
+   * @param format	the format class
+   * @param options	the options for the format
+   * @return		the instance, null if none available
+   */
+  protected Format poll(Class format, String options) {
+    Queue<Format>	queue;
+
+    if (!m_PoolWithOptions && !options.isEmpty())
+      return null;
+    queue = m_Formats.get(key(format, options));
+    if (queue == null)
+      return null;
+    return queue.poll();
+  }
+
+  /**
+   * Returns the format instance to the pool. Discards the instance if it
+   * got configured with options and these don't get pooled, or if the
+   * pool already holds {@link #MAX_POOLED_INSTANCES} for this setup; the
+   * least recently used setup gets evicted once there are more than
+   * {@link #MAX_POOLED_SETUPS}.
+   *
+   * @param options	the options of the format
+   * @param format	the format instance
+   */
+  protected void release(String options, Format format) {
+    if (!m_PoolWithOptions && !options.isEmpty())
+      return;
+    m_Formats.computeIfAbsent(key(format.getClass(), options), k -> new ArrayBlockingQueue<>(MAX_POOLED_INSTANCES)).offer(format);
+  }
+
+  /**
+   * Sets the options of the format, if supported and not empty.
+   *
+   * @param format	the format to configure
+   * @param options	the options, blank-separated list of key=value pairs
+   * @throws Exception	if setting the options fails
+   */
+  protected void setOptions(Format format, String options) throws Exception {
+    if ((format instanceof FormatWithOptionHandling) && !options.isEmpty())
+      ((FormatWithOptionHandling) format).setOptions(OptionUtils.split(options));
+  }
+
+  /**
+   * Returns whether the format supports streaming with its current setup.
+   *
+   * @param format	the format to check
+   * @return		true if streaming is possible
+   */
+  protected boolean canStream(Format format) {
+    return (format instanceof StreamingFormat) && ((StreamingFormat) format).canStream();
+  }
+
+  /**
+   * Wraps the source in the bounding box filter, if a box is set.
+   *
+   * @param source	the source to wrap
+   * @return		the filtering source, or the source itself if no box
+   */
+  protected PointSource crop(PointSource source) {
+    if (m_BoundingBox == null)
+      return source;
+    m_Logger.info("Bounding box: " + m_BoundingBox);
+    return new BoundingBoxFilter(source, m_BoundingBox);
+  }
+
+  /**
+   * Wraps the source in the resampling, if enabled.
+   *
+   * @param source	the source to wrap
+   * @return		the resampling source, or the source itself if disabled
+   */
+  protected PointSource resample(PointSource source) {
+    if (m_ResampleMode == ResampleMode.NONE)
+      return source;
+    m_Logger.info("Resampling: " + m_ResampleMode + ", method=" + m_ResampleMethod + ", interval=" + m_Interval + (m_ResampleMode == ResampleMode.TIME ? "s" : "m"));
+    return new ResampleFilter(source, m_ResampleMode, m_ResampleMethod, m_Interval);
+  }
+
+  /**
+   * Wraps the source in the simplification, if enabled.
+   *
+   * @param source	the source to wrap
+   * @param token	the token for cancelling the simplification, can be null
+   * @return		the simplifying source, or the source itself if disabled
+   */
+  protected PointSource simplify(PointSource source, CancellationToken token) {
+    SimplifyFilter	result;
+
+    if (m_Simplification == SimplificationAlgorithm.NONE)
+      return source;
+    m_Logger.info("Simplification: " + m_Simplification + ", tolerance=" + m_Tolerance + "m");
+    result = new SimplifyFilter(source, m_Simplification, m_Tolerance);
+    result.setCancellationToken(token);
+    return result;
+  }
+
+  /**
+   * Wraps the source in the enabled processing stages, ie cropping to the
+   * bounding box, resampling and simplification.
+   *
+   * @param source	the source to wrap
+   * @param token	the token for cancelling the processing of buffered tracks, can be null
+   * @return		the processing source, or the source itself if none enabled
+   */
+  protected PointSource filter(PointSource source, CancellationToken token) {
+    return simplify(resample(crop(source)), token);
+  }
+
+  /**
+   * Reports the statistics of the processing stages.
+   *
+   * @param source	the source returned by {@link #filter(PointSource, CancellationToken)}
+   * @param result	the result to update
+   */
+  protected void report(PointSource source, ConversionResult result) {
+    SimplifyFilter	simplify;
+    ResampleFilter	resample;
+    BoundingBoxFilter	crop;
+
+    while (true) {
+      if (source instanceof SimplifyFilter) {
+	simplify = (SimplifyFilter) source;
+	result.setRemoved(simplify.getRemoved());
+	if (result.getMetrics() != null)
+	  result.getMetrics().updatePeakRetained(simplify.getPeakRetained());
+	m_Logger.info("Simplification removed " + simplify.getRemoved() + " of " + simplify.getPointsIn() + " points");
+	source = simplify.getSource();
+      }
+      else if (source instanceof ResampleFilter) {
+	resample = (ResampleFilter) source;
+	m_Logger.info("Resampling turned " + resample.getPointsIn() + " into " + resample.getPointsOut() + " points (skipped: " + resample.getSkipped() + ")");
+	source = resample.getSource();
+      }
+      else if (source instanceof BoundingBoxFilter) {
+	crop = (BoundingBoxFilter) source;
+	m_Logger.info("Bounding box kept " + crop.getPointsOut() + " of " + crop.getPointsIn() + " points");
+	source = crop.getSource();
+      }
+      else {
+	break;
+      }
+    }
+  }
+
+  /**
+   * Records the failure in the result, or the cancellation if the conversion
+   * got cancelled.
+   *
+   * @param result	the result to update
+   * @param monitor	the progress of the conversion
+   * @param msg		the error message, gets followed by the input file
+   * @param e		the exception, can be null
+   */
+  protected void fail(ConversionResult result, ProgressMonitor monitor, String msg, Exception e) {
+    String	input;
+
+    input = (result.getInputFile() == null) ? "input stream" : result.getInputFile().toString();
+    if (monitor.isCancelled()) {
+      m_Logger.info("Conversion cancelled: " + input);
+      result.setError("Conversion cancelled: " + input + (monitor.getToken().isTimedOut() ? " (deadline exceeded)" : ""), e);
+      result.setCancelled(true);
+    }
+    else if (e == null) {
+      result.setError(msg + input, null);
+    }
+    else {
+      m_Logger.error(msg + input, e);
+      result.setError(msg + input + "\n" + e, e);
+    }
+  }
+
+  /**
+   * Opens the source for the input file, counting the consumed bytes and
+   * checking for cancellation on every read.
+   *
+   * @param format	the input format
+   * @param input	the file to read
+   * @param monitor	the progress of the conversion
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  protected PointSource open(StreamingFormat format, File input, ProgressMonitor monitor) throws Exception {
+    m_Logger.info("Reading: " + input);
+    return format.openSource(new BufferedInputStream(new MonitoredInputStream(new FileInputStream(input), monitor)));
+  }
+
+  /**
+   * Performs the conversion one point at a time, without holding all the
+   * points in memory (apart from the current track when simplifying). In
+   * pipeline mode, the input gets parsed (and processed) in a separate
+   * thread.
+   *
+   * @param input	opens the source for the input
+   * @param output	opens the sink for the output
+   * @param monitor	the progress of the conversion
+   * @param result	the result to update
+   */
+  protected void doStream(Callable<PointSource> input, Callable<PointSink> output, ProgressMonitor monitor, ConversionResult result) {
+    ConversionMetrics	metrics;
+    PointSource		source;
+    PointSource		filtered;
+    TimedPointSource	parsed;
+    TimedPointSource	transformed;
+    PipelinedPointSource	pipelined;
+    PointSink		sink;
+    TimedPointSink	serialized;
+    CSVRecord		rec;
+    long		count;
+    long		start;
+
+    metrics     = result.getMetrics();
+    source      = null;
+    sink        = null;
+    parsed      = null;
+    transformed = null;
+    pipelined   = null;
+    serialized  = null;
+    result.setStreamed(true);
+    try {
+      m_Logger.info("Streaming conversion");
+      monitor.setStage(ConversionStage.STREAMING);
+      start  = System.nanoTime();
+      source = input.call();
+      if (metrics != null) {
+	metrics.addParseTime(System.nanoTime() - start);
+	source = parsed = new TimedPointSource(source);
+      }
+      source   = filter(source, monitor.getToken());
+      filtered = source;
+      if (metrics != null)
+	source = transformed = new TimedPointSource(source);
+      if (m_Pipeline) {
+	m_Logger.info("Pipeline: batch size=" + m_BatchSize + ", queue size=" + m_QueueSize);
+	source = pipelined = new PipelinedPointSource(source, m_BatchSize, m_QueueSize);
+      }
+      start = System.nanoTime();
+      sink  = output.call();
+      if (metrics != null) {
+	metrics.addSerializeTime(System.nanoTime() - start);
+	sink = serialized = new TimedPointSink(sink);
+      }
+      count = 0;
+      while ((rec = source.next()) != null) {
+	sink.write(rec);
+	monitor.pointProcessed();
+	count++;
+      }
+      sink.finish();
+      report(filtered, result);
+      result.setPoints(count);
+      m_Logger.info("Points converted: " + count);
+      if (metrics != null) {
+	metrics.addParseTime(parsed.getTime());
+	metrics.addTransformTime(transformed.getTime() - parsed.getTime());
+	metrics.addSerializeTime(serialized.getTime());
+	metrics.setPointsRead(parsed.getPoints());
+	metrics.setPointsWritten(count);
+	metrics.updatePeakRetained(Math.min(count, 1));
+	if (pipelined != null)
+	  metrics.updatePeakRetained(metrics.getPeakRetained() + pipelined.getPeakRetained());
+      }
+    }
+    catch (Exception e) {
+      fail(result, monitor, "Failed to convert: ", e);
+    }
+    finally {
+      IOUtils.closeQuietly(sink);
+      IOUtils.closeQuietly(source);
+    }
+  }
+
+  /**
+   * Performs the conversion, reading all the points into memory first.
+   *
+   * @param formatIn	the input format
+   * @param formatOut	the output format
+   * @param input	the file to read from
+   * @param output	the file to write to
+   * @param monitor	the progress of the conversion
+   * @param result	the result to update
+   */
+  protected void doConvert(Format formatIn, Format formatOut, File input, File output, ProgressMonitor monitor, ConversionResult result) {
+    ConversionMetrics	metrics;
+    List<CSVRecord>	data;
+    String		msg;
+    PointSource		source;
+    CSVRecord		rec;
+    long		start;
+    long		read;
+
+    if (m_Pipeline)
+      m_Logger.warn("Pipeline mode requires streaming formats, falling back to sequential conversion");
+
+    metrics = result.getMetrics();
+    monitor.setBytesRead(0);
+    monitor.setStage(ConversionStage.READING);
+    start   = System.nanoTime();
+    if (canStream(formatIn)) {
+      data   = new ArrayList<>();
+      source = null;
+      try {
+	source = open((StreamingFormat) formatIn, input, monitor);
+	while ((rec = source.next()) != null) {
+	  data.add(rec);
+	  monitor.pointProcessed();
+	}
+      }
+      catch (Exception e) {
+	fail(result, monitor, "Failed to read data from: ", e);
+	return;
+      }
+      finally {
+	IOUtils.closeQuietly(source);
+      }
+    }
+    else {
+      data = formatIn.read(input);
+      monitor.setBytesRead(input.length());
+    }
+    if ((data == null) || monitor.isCancelled()) {
+      fail(result, monitor, "Failed to read data from: ", null);
+      return;
+    }
+    read = data.size();
+    if (metrics != null) {
+      metrics.addParseTime(System.nanoTime() - start);
+      metrics.setPointsRead(read);
+      metrics.updatePeakRetained(read);
+    }
+
+    start  = System.nanoTime();
+    source = filter(new ListPointSource(data), monitor.getToken());
+    if (!(source instanceof ListPointSource)) {
+      monitor.setStage(ConversionStage.TRANSFORMING);
+      data = new ArrayList<>();
+      try {
+	while ((rec = source.next()) != null) {
+	  data.add(rec);
+	  monitor.pointProcessed();
+	}
+      }
+      catch (Exception e) {
+	fail(result, monitor, "Failed to process: ", e);
+	return;
+      }
+      report(source, result);
+      if (metrics != null) {
+	metrics.addTransformTime(System.nanoTime() - start);
+	metrics.updatePeakRetained(read + data.size());
+      }
+    }
+
+    monitor.setStage(ConversionStage.WRITING);
+    start = System.nanoTime();
+    try {
+      msg = formatOut.write(new MonitoredList(data, monitor), output);
+    }
+    catch (Exception e) {
+      fail(result, monitor, "Failed to write: ", e);
+      return;
+    }
+    if (metrics != null)
+      metrics.addSerializeTime(System.nanoTime() - start);
+    if (monitor.isCancelled()) {
+      fail(result, monitor, msg, null);
+    }
+    else if (msg != null) {
+      result.setError(msg, null);
+    }
+    else {
+      result.setPoints(data.size());
+      if (metrics != null)
+	metrics.setPointsWritten(data.size());
+    }
+  }
+
+  /**
+   * Performs the conversion between streams via temporary files, for formats
+   * that cannot stream.
+   *
+   * @param formatIn	the input format
+   * @param formatOut	the output format
+   * @param input	the stream to read from
+   * @param output	the stream to write to
+   * @param monitor	the progress of the conversion
+   * @param result	the result to update
+   */
+  protected void doSpool(Format formatIn, Format formatOut, InputStream input, OutputStream output, ProgressMonitor monitor, ConversionResult result) {
+    File	tempIn;
+    File	tempOut;
+
+    tempIn  = null;
+    tempOut = null;
+    try {
+      tempIn  = File.createTempFile("gpsformats4j-", ".in");
+      tempOut = File.createTempFile("gpsformats4j-", ".out");
+      m_Logger.info("Spooling input: " + tempIn);
+      Files.copy(new MonitoredInputStream(input, monitor), tempIn.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      doConvert(formatIn, formatOut, tempIn, tempOut, monitor, result);
+      if (result.isSuccess())
+	Files.copy(tempOut.toPath(), output);
+    }
+    catch (Exception e) {
+      fail(result, monitor, "Failed to convert: ", e);
+    }
+    finally {
+      if (tempIn != null)
+	tempIn.delete();
+      if (tempOut != null)
+	tempOut.delete();
+    }
+  }
+
+  /**
+   * Completes the result: sets the duration and, if collected, completes
+   * the metrics and notifies the listeners.
+   *
+   * @param result	the result to complete
+   * @param start	the start of the conversion (System.nanoTime())
+   * @return		the result
+   */
+  protected ConversionResult finish(ConversionResult result, long start) {
+    ConversionMetrics	metrics;
+    long		duration;
+
+    duration = System.nanoTime() - start;
+    result.setDuration(duration / 1000000L);
+    metrics = result.getMetrics();
+    if (metrics == null)
+      return result;
+
+    metrics.setTotalTime(duration);
+    metrics.setSuccess(result.isSuccess());
+    metrics.setStreamed(result.isStreamed());
+    metrics.setCached(result.isCached());
+    if (result.getInputFile() != null)
+      metrics.setBytesIn(result.getInputFile().length());
+    if (result.isSuccess() && (result.getOutputFile() != null))
+      metrics.setBytesOut(result.getOutputFile().length());
+    if (result.isCached()) {
+      metrics.setPointsRead(result.getPoints() + result.getRemoved());
+      metrics.setPointsWritten(result.getPoints());
+    }
+    for (MetricsListener l: m_MetricsListeners) {
+      try {
+	l.conversionFinished(metrics);
+      }
+      catch (Exception e) {
+	m_Logger.warn("Metrics listener failed: " + l.getClass().getName(), e);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns a configured format instance, either from the pool or a new one.
+   *
+   * @param format	the format class
+   * @param options	the options for the format
+   * @param input	whether it is the input or the output format
+   * @param result	the result to record errors in
+   * @return		the instance, null if it failed
+   */
+  protected Format acquire(Class format, String options, boolean input, ConversionResult result) {
+    Format	instance;
+    String	type;
+
+    instance = poll(format, options);
+    if (instance != null)
+      return instance;
+
+    type = input ? "input" : "output";
+    try {
+      instance = Formats.newInstance(format);
+      m_Logger.info((input ? "Input" : "Output") + " format: " + instance.getClass().getName());
+      if (!options.isEmpty())
+	m_Logger.info((input ? "Input" : "Output") + " options: " + options);
+    }
+    catch (Exception e) {
+      result.setError("Error configuring formats: " + e, e);
+      return null;
+    }
+    try {
+      setOptions(instance, options);
+    }
+    catch (Exception e) {
+      result.setError("Failed to set options for " + type + " format: " + options + "\n" + e, e);
+      return null;
+    }
+
+    return instance;
+  }
+
+  /**
+   * Computes the cache key for the conversion, covering the input content,
+   * the formats, their options, the output compression, the processing
+   * stages and the environment that affects the output, ie the default
+   * time zone (synthetic KML timestamps) and the default charset (encoding
+   * of the XML formats).
+   *
+   * @param input	the file to convert
+   * @param inputFormat	the format of the input file
+   * @param inputOptions	the options for the input format
+   * @param output	the file to write
+   * @param outputFormat	the format of the output file
+   * @param outputOptions	the options for the output format
+   * @return		the key
+   * @throws Exception	if reading the input fails
+   */
+  protected String cacheKey(File input, Class inputFormat, String inputOptions, File output, Class outputFormat, String outputOptions) throws Exception {
+    return m_Cache.key(
+      input,
+      inputFormat.getName(),
+      inputOptions,
+      outputFormat.getName(),
+      outputOptions,
+      "compress=" + output.getName().toLowerCase().endsWith(CompressionUtils.EXT_GZIP),
+      "bbox=" + m_BoundingBox,
+      "resample=" + m_ResampleMode + "," + m_ResampleMethod + "," + m_Interval,
+      "simplify=" + m_Simplification + "," + m_Tolerance,
+      "timezone=" + TimeZone.getDefault().getID(),
+      "charset=" + Charset.defaultCharset().name());
+  }
+
+  /**
+   * Performs the conversion.
+   *
+   * @param input	the file to convert
+   * @param inputFormat	the format of the input file
+   * @param inputOptions	the options for the input format, blank-separated list of key=value pairs, can be null
+   * @param output	the file to write
+   * @param outputFormat	the format of the output file
+   * @param outputOptions	the options for the output format, blank-separated list of key=value pairs, can be null
+   * @return		the result of the conversion
+   */
+  public ConversionResult convert(File input, Class inputFormat, String inputOptions, File output, Class outputFormat, String outputOptions) {
+    return convert(input, inputFormat, inputOptions, output, outputFormat, outputOptions, null, null);
+  }
+
+  /**
+   * Performs the conversion, reporting the progress and checking the token
+   * for cancellation. A cancelled conversion returns a result flagged as
+   * cancelled and leaves an existing output file untouched. Formats that
+   * cannot stream with their current options (DOM engine, parallel CSV)
+   * read the whole file in one go, ie their reading only gets cancelled
+   * once the file has been parsed.
+   *
+   * @param input	the file to convert
+   * @param inputFormat	the format of the input file
+   * @param inputOptions	the options for the input format, blank-separated list of key=value pairs, can be null
+   * @param output	the file to write
+   * @param outputFormat	the format of the output file
+   * @param outputOptions	the options for the output format, blank-separated list of key=value pairs, can be null
+   * @param listener	the listener to notify about the progress, can be null
+   * @param token	the token for cancelling the conversion, can be null
+   * @return		the result of the conversion
+   */
+  public ConversionResult convert(File input, Class inputFormat, String inputOptions, File output, Class outputFormat, String outputOptions, ProgressListener listener, CancellationToken token) {
+    ConversionResult	result;
+    ProgressMonitor	monitor;
+    Format		formatIn;
+    Format		formatOut;
+    File		temp;
+    String		key;
+    long		start;
+
+    start         = System.nanoTime();
+    result        = new ConversionResult(input, output);
+    inputOptions  = (inputOptions == null) ? "" : inputOptions.trim();
+    outputOptions = (outputOptions == null) ? "" : outputOptions.trim();
+    if (!m_MetricsListeners.isEmpty())
+      result.setMetrics(new ConversionMetrics(inputFormat, outputFormat));
+
+    if (!input.exists()) {
+      result.setError("Input file does not exist: " + input, null);
+      return finish(result, start);
+    }
+    if (input.isDirectory()) {
+      result.setError("Input file points to a directory: " + input, null);
+      return finish(result, start);
+    }
+
+    monitor = new ProgressMonitor(input, listener, token);
+    if (monitor.isCancelled()) {
+      fail(result, monitor, null, null);
+      return finish(result, start);
+    }
+
+    key = null;
+    if (m_Cache != null) {
+      try {
+	key = cacheKey(input, inputFormat, inputOptions, output, outputFormat, outputOptions);
+	if (m_Cache.retrieve(key, result)) {
+	  m_Logger.info("Cache hit: " + key);
+	  monitor.finish(result.getPoints());
+	  return finish(result, start);
+	}
+      }
+      catch (Exception e) {
+	m_Logger.warn("Failed to compute cache key, not caching: " + input, e);
+      }
+    }
+
+    formatIn  = acquire(inputFormat, inputOptions, true, result);
+    formatOut = result.isSuccess() ? acquire(outputFormat, outputOptions, false, result) : null;
+
+    if (result.isSuccess()) {
+      temp = FileUtils.tempFile(output);
+      if (!formatIn.canRead())
+	result.setError("Input format does not support reading!", null);
+      else if (!formatOut.canWrite())
+	result.setError("Output format does not support writing!", null);
+      else if (canStream(formatIn) && canStream(formatOut))
+	doStream(
+	  () -> open((StreamingFormat) formatIn, input, monitor),
+	  () -> ((StreamingFormat) formatOut).openSink(temp),
+	  monitor, result);
+      else
+	doConvert(formatIn, formatOut, input, temp, monitor, result);
+      try {
+	if (result.isSuccess()) {
+	  FileUtils.move(temp.toPath(), output.toPath());
+	  monitor.finish(result.getPoints());
+	}
+	else {
+	  Files.deleteIfExists(temp.toPath());
+	}
+      }
+      catch (Exception e) {
+	m_Logger.error("Failed to move output into place: " + output, e);
+	result.setError("Failed to move output into place: " + output + "\n" + e, e);
+	temp.delete();
+      }
+    }
+
+    if (formatIn != null)
+      release(inputOptions, formatIn);
+    if (formatOut != null)
+      release(outputOptions, formatOut);
+
+    if ((key != null) && result.isSuccess())
+      m_Cache.store(key, result);
+
+    return finish(result, start);
+  }
+
+  /**
+   * Performs the conversion from stream to stream, eg for serving
+   * conversions over the network. Streaming formats convert one point at a
+   * time, otherwise the input gets spooled to a temporary file first. Both
+   * streams get closed. As the output gets written while converting, it is
+   * incomplete if the conversion fails and must be discarded then. Outputs
+   * of stream conversions do not get cached.
+   *
+   * @param input	the stream to convert
+   * @param inputFormat	the format of the input stream
+   * @param inputOptions	the options for the input format, blank-separated list of key=value pairs, can be null
+   * @param output	the stream to write to
+   * @param outputFormat	the format of the output stream
+   * @param outputOptions	the options for the output format, blank-separated list of key=value pairs, can be null
+   * @param listener	the listener to notify about the progress, can be null
+   * @param token	the token for cancelling the conversion, can be null
+   * @return		the result of the conversion
+   */
+  public ConversionResult convert(InputStream input, Class inputFormat, String inputOptions, OutputStream output, Class outputFormat, String outputOptions, ProgressListener listener, CancellationToken token) {
+    ConversionResult		result;
+    ProgressMonitor		monitor;
+    CountingOutputStream	counting;
+    Format			formatIn;
+    Format			formatOut;
+    StreamingFormat		streamIn;
+    StreamingFormat		streamOut;
+    long			start;
+
+    start         = System.nanoTime();
+    result        = new ConversionResult(null, null);
+    inputOptions  = (inputOptions == null) ? "" : inputOptions.trim();
+    outputOptions = (outputOptions == null) ? "" : outputOptions.trim();
+    if (!m_MetricsListeners.isEmpty())
+      result.setMetrics(new ConversionMetrics(inputFormat, outputFormat));
+
+    monitor   = new ProgressMonitor(null, listener, token);
+    counting  = new CountingOutputStream(output);
+    formatIn  = null;
+    formatOut = null;
+    if (monitor.isCancelled()) {
+      fail(result, monitor, null, null);
+    }
+    else {
+      formatIn  = acquire(inputFormat, inputOptions, true, result);
+      formatOut = result.isSuccess() ? acquire(outputFormat, outputOptions, false, result) : null;
+    }
+
+    if (result.isSuccess()) {
+      if (!formatIn.canRead())
+	result.setError("Input format does not support reading!", null);
+      else if (!formatOut.canWrite())
+	result.setError("Output format does not support writing!", null);
+      else if (canStream(formatIn) && canStream(formatOut)) {
+	streamIn  = (StreamingFormat) formatIn;
+	streamOut = (StreamingFormat) formatOut;
+	doStream(
+	  () -> streamIn.openSource(new BufferedInputStream(new MonitoredInputStream(input, monitor))),
+	  () -> streamOut.openSink(counting),
+	  monitor, result);
+      }
+      else {
+	doSpool(formatIn, formatOut, input, counting, monitor, result);
+      }
+      if (result.isSuccess())
+	monitor.finish(result.getPoints());
+    }
+    IOUtils.closeQuietly(input);
+    IOUtils.closeQuietly(counting);
+
+    if (formatIn != null)
+      release(inputOptions, formatIn);
+    if (formatOut != null)
+      release(outputOptions, formatOut);
+
+    if (result.getMetrics() != null) {
+      result.getMetrics().setBytesIn(monitor.getBytesRead());
+      result.getMetrics().setBytesOut(counting.getByteCount());
+    }
+
+    return finish(result, start);
+  }
+}
@@ -0,0 +1,901 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Server.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j;
+
+import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.OptionHandler;
+import com.github.fracpete.gpsformats4j.formats.FormatProvider;
+import com.github.fracpete.gpsformats4j.formats.Formats;
+import com.github.fracpete.gpsformats4j.metrics.ConversionStatistics;
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.helper.HelpScreenException;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conversion daemon using the JDK's built-in HTTP server, avoiding the JVM
+ * startup for every file. Endpoints:
+ * <ul>
+ *   <li>POST /convert?in_format=GPX&amp;out_format=KML (optional: in_options,
+ *   out_options) - converts the request body and streams the output back</li>
+ *   <li>GET /health - the status and the load of the worker pool (JSON)</li>
+ *   <li>GET /metrics - the conversion statistics (Prometheus text format)</li>
+ * </ul>
+ * Conversions get processed by a fixed number of workers. Once the queue of
+ * waiting conversions is full, further ones get rejected immediately with
+ * status 503. Health checks and metrics get answered outside the workers,
+ * so that they stay responsive under load.
+ * <br>
+ * Outputs up to {@link #BUFFER_SIZE} bytes get sent with their length, so
+ * their status reflects the outcome of the conversion. Larger outputs get
+ * streamed while converting; if such a conversion fails, the connection
+ * gets aborted, so that clients never mistake a truncated output for a
+ * complete one.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class Server
+  extends BaseObject
+  implements OptionHandler {
+
+  public static final String HOST = "host";
+
+  public static final String PORT = "port";
+
+  public static final String NUM_THREADS = "num_threads";
+
+  public static final String MAX_QUEUED = "max_queued";
+
+  /** the default host to bind to. */
+  public static final String DEFAULT_HOST = "localhost";
+
+  /** the default port. */
+  public static final int DEFAULT_PORT = 8080;
+
+  /** the default maximum number of queued requests. */
+  public static final int DEFAULT_MAX_QUEUED = 50;
+
+  /** the number of output bytes to buffer before streaming. */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  /** the number of HTTP threads on top of workers and queue, for health checks, metrics and rejections. */
+  public static final int EXTRA_HTTP_THREADS = 4;
+
+  /** the path for conversions. */
+  public static final String PATH_CONVERT = "/convert";
+
+  /** the path for the health check. */
+  public static final String PATH_HEALTH = "/health";
+
+  /** the path for the metrics. */
+  public static final String PATH_METRICS = "/metrics";
+
+  /** the argument parser. */
+  protected ArgumentParser m_Parser;
+
+  /** the host to bind to. */
+  protected String m_Host;
+
+  /** the port to listen on, 0 for any free port. */
+  protected int m_Port;
+
+  /** the number of concurrent conversions. */
+  protected int m_NumThreads;
+
+  /** the maximum number of requests waiting for a worker. */
+  protected int m_MaxQueued;
+
+  /** the timeout per conversion in seconds, 0 for none. */
+  protected double m_Timeout;
+
+  /** whether to read and write in separate threads. */
+  protected boolean m_Pipeline;
+
+  /** whether help got requested. */
+  protected boolean m_HelpRequested;
+
+  /** the converter. */
+  protected Converter m_Converter;
+
+  /** the statistics of the conversions. */
+  protected ConversionStatistics m_Statistics;
+
+  /** the JMX name of the statistics, null if not registered. */
+  protected ObjectName m_StatisticsName;
+
+  /** the workers, running the conversions. */
+  protected ThreadPoolExecutor m_Workers;
+
+  /** the threads of the HTTP server, parsing and answering the requests. */
+  protected ThreadPoolExecutor m_Dispatchers;
+
+  /** the HTTP server, null if not running. */
+  protected HttpServer m_Server;
+
+  /** the number of rejected requests. */
+  protected AtomicLong m_Rejected;
+
+  /**
+   * Buffers the output of a conversion and only starts sending the response
+   * once the buffer is full or the conversion finished.
+   */
+  public static class ResponseStream
+    extends OutputStream {
+
+    /** the exchange to respond to. */
+    protected HttpExchange m_Exchange;
+
+    /** the buffered output. */
+    protected ByteArrayOutputStream m_Buffer;
+
+    /** the response body, null while buffering. */
+    protected OutputStream m_Body;
+
+    /**
+     * Initializes the stream.
+     *
+     * @param exchange	the exchange to respond to
+     */
+    public ResponseStream(HttpExchange exchange) {
+      m_Exchange = exchange;
+      m_Buffer   = new ByteArrayOutputStream();
+      m_Body     = null;
+    }
+
+    /**
+     * Returns whether the response was started.
+     *
+     * @return		true if started
+     */
+    public boolean isCommitted() {
+      return (m_Body != null);
+    }
+
+    /**
+     * Starts the response with unknown length and sends the buffered output.
+     *
+     * @throws IOException	if sending fails
+     */
+    protected void commit() throws IOException {
+      m_Exchange.sendResponseHeaders(200, 0);
+      m_Body = m_Exchange.getResponseBody();
+      m_Buffer.writeTo(m_Body);
+      m_Buffer = null;
+    }
+
+    /**
+     * Writes the byte.
+     *
+     * @param b		the byte
+     * @throws IOException	if writing fails
+     */
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * Writes the bytes.
+     *
+     * @param b		the bytes
+     * @param off	the offset
+     * @param len	the number of bytes
+     * @throws IOException	if writing fails
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if ((m_Body == null) && (m_Buffer.size() + len > BUFFER_SIZE))
+	commit();
+      if (m_Body == null)
+	m_Buffer.write(b, off, len);
+      else
+	m_Body.write(b, off, len);
+    }
+
+    /**
+     * Flushes the response body, if started.
+     *
+     * @throws IOException	if flushing fails
+     */
+    @Override
+    public void flush() throws IOException {
+      if (m_Body != null)
+	m_Body.flush();
+    }
+
+    /**
+     * Only flushes, the response gets completed via {@link #finish()}.
+     *
+     * @throws IOException	if flushing fails
+     */
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    /**
+     * Completes the successful response: sends the buffered output with
+     * its length or ends the streamed response.
+     *
+     * @throws IOException	if sending fails
+     */
+    public void finish() throws IOException {
+      if (m_Body == null) {
+	m_Exchange.sendResponseHeaders(200, (m_Buffer.size() == 0) ? -1 : m_Buffer.size());
+	m_Body = m_Exchange.getResponseBody();
+	m_Buffer.writeTo(m_Body);
+	m_Buffer = null;
+      }
+      m_Body.close();
+    }
+  }
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    super.initialize();
+
+    m_Host       = DEFAULT_HOST;
+    m_Port       = DEFAULT_PORT;
+    m_NumThreads = Runtime.getRuntime().availableProcessors();
+    m_MaxQueued  = DEFAULT_MAX_QUEUED;
+    m_Timeout    = 0;
+    m_Pipeline   = false;
+    m_Rejected   = new AtomicLong();
+    m_Server     = null;
+
+    m_Parser = ArgumentParsers.newFor(getClass().getSimpleName()).build();
+
+    m_Parser.description("HTTP server for converting GPS formats.\n"
+      + "POST " + PATH_CONVERT + "?" + Convert.INPUT_FORMAT + "=GPX&" + Convert.OUTPUT_FORMAT + "=KML converts the request body, "
+      + "optionally with " + Convert.INPUT_OPTIONS + " and " + Convert.OUTPUT_OPTIONS + ".\n"
+      + "GET " + PATH_HEALTH + " and " + PATH_METRICS + " return the status and the statistics.");
+    m_Parser.defaultHelp(true);
+
+    m_Parser.addArgument("--" + HOST)
+      .metavar("<host>")
+      .dest(HOST)
+      .required(false)
+      .setDefault(m_Host)
+      .help("The host name or address to bind to; use 0.0.0.0 for all interfaces.");
+    m_Parser.addArgument("--" + PORT)
+      .metavar("<port>")
+      .dest(PORT)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_Port)
+      .help("The port to listen on, 0 for any free port.");
+    m_Parser.addArgument("--" + NUM_THREADS)
+      .metavar("<num>")
+      .dest(NUM_THREADS)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_NumThreads)
+      .help("The number of concurrent conversions, defaults to the number of cores.");
+    m_Parser.addArgument("--" + MAX_QUEUED)
+      .metavar("<num>")
+      .dest(MAX_QUEUED)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_MaxQueued)
+      .help("The maximum number of requests waiting for a worker, further requests get rejected with status 503.");
+    m_Parser.addArgument("--" + Convert.TIMEOUT)
+      .metavar("<seconds>")
+      .dest(Convert.TIMEOUT)
+      .required(false)
+      .type(Double.class)
+      .setDefault(m_Timeout)
+      .help("The time after which to cancel a conversion; 0 for no timeout.");
+    m_Parser.addArgument("--" + Convert.PIPELINE)
+      .dest(Convert.PIPELINE)
+      .action(Arguments.storeTrue())
+      .help("Whether to parse the input in a separate thread while writing the output (streaming formats only).");
+  }
+
+  /**
+   * Sets the host to bind to.
+   *
+   * @param value	the host name or address
+   */
+  public void setHost(String value) {
+    m_Host = value;
+  }
+
+  /**
+   * Returns the host to bind to.
+   *
+   * @return		the host name or address
+   */
+  public String getHost() {
+    return m_Host;
+  }
+
+  /**
+   * Sets the port to listen on.
+   *
+   * @param value	the port, 0 for any free port
+   */
+  public void setPort(int value) {
+    m_Port = value;
+  }
+
+  /**
+   * Returns the port to listen on. Once running, the actual port.
+   *
+   * @return		the port
+   */
+  public int getPort() {
+    if (m_Server != null)
+      return m_Server.getAddress().getPort();
+    return m_Port;
+  }
+
+  /**
+   * Sets the number of concurrent conversions.
+   *
+   * @param value	the number of threads
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of concurrent conversions.
+   *
+   * @return		the number of threads
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Sets the maximum number of requests waiting for a worker.
+   *
+   * @param value	the maximum
+   */
+  public void setMaxQueued(int value) {
+    m_MaxQueued = value;
+  }
+
+  /**
+   * Returns the maximum number of requests waiting for a worker.
+   *
+   * @return		the maximum
+   */
+  public int getMaxQueued() {
+    return m_MaxQueued;
+  }
+
+  /**
+   * Sets the time after which to cancel a conversion.
+   *
+   * @param value	the timeout in seconds, 0 for none
+   */
+  public void setTimeout(double value) {
+    m_Timeout = value;
+  }
+
+  /**
+   * Returns the time after which to cancel a conversion.
+   *
+   * @return		the timeout in seconds, 0 for none
+   */
+  public double getTimeout() {
+    return m_Timeout;
+  }
+
+  /**
+   * Sets whether to read and write in separate threads.
+   *
+   * @param value	true if to pipeline
+   */
+  public void setPipeline(boolean value) {
+    m_Pipeline = value;
+  }
+
+  /**
+   * Returns whether to read and write in separate threads.
+   *
+   * @return		true if to pipeline
+   */
+  public boolean isPipeline() {
+    return m_Pipeline;
+  }
+
+  /**
+   * Returns the statistics of the conversions.
+   *
+   * @return		the statistics, null if not started yet
+   */
+  public ConversionStatistics getStatistics() {
+    return m_Statistics;
+  }
+
+  /**
+   * Sets the options.
+   *
+   * @param options	the options
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    Namespace	ns;
+
+    try {
+      ns = m_Parser.parseArgs(options);
+    }
+    catch (HelpScreenException e) {
+      m_HelpRequested = true;
+      return;
+    }
+    catch (Exception e) {
+      m_Parser.printHelp();
+      m_HelpRequested = false;
+      throw e;
+    }
+
+    setHost(ns.getString(HOST));
+    setPort(ns.getInt(PORT));
+    setNumThreads(ns.getInt(NUM_THREADS));
+    setMaxQueued(ns.getInt(MAX_QUEUED));
+    setTimeout(ns.getDouble(Convert.TIMEOUT));
+    setPipeline(ns.getBoolean(Convert.PIPELINE));
+  }
+
+  /**
+   * Returns the help.
+   *
+   * @return		the help
+   */
+  @Override
+  public String toHelp() {
+    return m_Parser.formatHelp();
+  }
+
+  /**
+   * Parses the query string of the URI.
+   *
+   * @param query	the raw query, can be null
+   * @return		the decoded parameters
+   * @throws IOException	if decoding fails
+   */
+  protected Map<String,String> parseQuery(String query) throws IOException {
+    Map<String,String>	result;
+    int			pos;
+
+    result = new HashMap<>();
+    if (query == null)
+      return result;
+    for (String pair: query.split("&")) {
+      if (pair.isEmpty())
+	continue;
+      pos = pair.indexOf('=');
+      if (pos == -1)
+	result.put(URLDecoder.decode(pair, "UTF-8"), "");
+      else
+	result.put(URLDecoder.decode(pair.substring(0, pos), "UTF-8"), URLDecoder.decode(pair.substring(pos + 1), "UTF-8"));
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the format class for the name. Only the registered formats are
+   * accepted.
+   *
+   * @param name	the name of the format, case-insensitive
+   * @return		the class, null if unknown
+   * @see		Formats#get(String)
+   */
+  protected Class format(String name) {
+    FormatProvider	provider;
+
+    provider = Formats.get(name);
+    if (provider == null)
+      return null;
+    return provider.getFormatClass();
+  }
+
+  /**
+   * Returns the content type for the format.
+   *
+   * @param format	the format class
+   * @return		the MIME type
+   */
+  protected String contentType(Class format) {
+    FormatProvider	provider;
+
+    provider = Formats.get(format);
+    if ((provider == null) || (provider.getContentType() == null))
+      return "application/octet-stream";
+    return provider.getContentType();
+  }
+
+  /**
+   * Sends a complete response.
+   *
+   * @param exchange	the exchange to respond to
+   * @param status	the HTTP status
+   * @param type	the content type
+   * @param body	the body
+   * @throws IOException	if sending fails
+   */
+  protected void respond(HttpExchange exchange, int status, String type, String body) throws IOException {
+    byte[]	bytes;
+
+    bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+    exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Sends an error as plain text.
+   *
+   * @param exchange	the exchange to respond to
+   * @param status	the HTTP status
+   * @param msg		the error message
+   * @throws IOException	if sending fails
+   */
+  protected void error(HttpExchange exchange, int status, String msg) throws IOException {
+    respond(exchange, status, "text/plain", msg + "\n");
+  }
+
+  /**
+   * Handles a conversion request. Validates the request and then waits for
+   * one of the workers to perform the conversion, rejecting the request if
+   * none is available and the queue is full.
+   *
+   * @param exchange	the exchange to handle
+   * @throws IOException	if responding fails, or to abort a streamed response
+   */
+  protected void handleConvert(HttpExchange exchange) throws IOException {
+    Map<String,String>	params;
+    Class		inputFormat;
+    Class		outputFormat;
+    Future<Void>	future;
+
+    if (!exchange.getRequestMethod().equals("POST")) {
+      exchange.getResponseHeaders().set("Allow", "POST");
+      error(exchange, 405, "Conversions require POST");
+      return;
+    }
+
+    params       = parseQuery(exchange.getRequestURI().getRawQuery());
+    inputFormat  = format(params.get(Convert.INPUT_FORMAT));
+    outputFormat = format(params.get(Convert.OUTPUT_FORMAT));
+    if (inputFormat == null) {
+      error(exchange, 400, "Missing or unknown " + Convert.INPUT_FORMAT + ": " + params.get(Convert.INPUT_FORMAT));
+      return;
+    }
+    if (outputFormat == null) {
+      error(exchange, 400, "Missing or unknown " + Convert.OUTPUT_FORMAT + ": " + params.get(Convert.OUTPUT_FORMAT));
+      return;
+    }
+
+    try {
+      future = m_Workers.submit(() -> {
+	convert(exchange, params, inputFormat, outputFormat);
+	return null;
+      });
+    }
+    catch (RejectedExecutionException e) {
+      m_Rejected.incrementAndGet();
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      error(exchange, 503, "Too many requests, try again later");
+      return;
+    }
+
+    try {
+      future.get();
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+	throw (IOException) e.getCause();
+      throw new IOException("Conversion failed: " + e.getCause(), e.getCause());
+    }
+    catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for conversion", e);
+    }
+  }
+
+  /**
+   * Performs the conversion of a validated request, run by the workers.
+   *
+   * @param exchange		the exchange to handle
+   * @param params		the parameters of the request
+   * @param inputFormat		the input format
+   * @param outputFormat	the output format
+   * @throws IOException	if responding fails, or to abort a streamed response
+   */
+  protected void convert(HttpExchange exchange, Map<String,String> params, Class inputFormat, Class outputFormat) throws IOException {
+    ResponseStream	response;
+    CancellationToken	token;
+    ConversionResult	result;
+
+    token = null;
+    if (m_Timeout > 0)
+      token = new CancellationToken((long) (m_Timeout * 1000));
+    exchange.getResponseHeaders().set("Content-Type", contentType(outputFormat));
+    response = new ResponseStream(exchange);
+    result   = m_Converter.convert(
+      exchange.getRequestBody(), inputFormat, params.get(Convert.INPUT_OPTIONS),
+      response, outputFormat, params.get(Convert.OUTPUT_OPTIONS), null, token);
+
+    if (result.isSuccess()) {
+      m_Logger.info(inputFormat.getSimpleName() + " -> " + outputFormat.getSimpleName() + ": " + result.getPoints() + " points, " + result.getDuration() + "ms");
+      response.finish();
+    }
+    else if (!response.isCommitted()) {
+      exchange.getResponseHeaders().remove("Content-Type");
+      error(exchange, result.isCancelled() ? 503 : 422, result.getError());
+    }
+    else {
+      throw new IOException("Aborting response, conversion failed: " + result.getError());
+    }
+  }
+
+  /**
+   * Handles a health check.
+   *
+   * @param exchange	the exchange to handle
+   * @throws IOException	if responding fails
+   */
+  protected void handleHealth(HttpExchange exchange) throws IOException {
+    respond(exchange, 200, "application/json", String.format(
+      "{\"status\":\"UP\",\"active\":%d,\"queued\":%d,\"threads\":%d,\"max_queued\":%d,\"rejected\":%d}%n",
+      m_Workers.getActiveCount(), m_Workers.getQueue().size(), m_NumThreads, m_MaxQueued, m_Rejected.get()));
+  }
+
+  /**
+   * Appends a metric in Prometheus text format.
+   *
+   * @param buffer	the buffer to append to
+   * @param name	the name (without prefix)
+   * @param type	the type, eg "counter"
+   * @param help	the description
+   * @param value	the value
+   */
+  protected void metric(StringBuilder buffer, String name, String type, String help, Number value) {
+    buffer.append("# HELP gpsformats4j_").append(name).append(" ").append(help).append("\n");
+    buffer.append("# TYPE gpsformats4j_").append(name).append(" ").append(type).append("\n");
+    buffer.append("gpsformats4j_").append(name).append(" ").append(value).append("\n");
+  }
+
+  /**
+   * Handles a metrics request, responds with the statistics in Prometheus
+   * text format.
+   *
+   * @param exchange	the exchange to handle
+   * @throws IOException	if responding fails
+   */
+  protected void handleMetrics(HttpExchange exchange) throws IOException {
+    StringBuilder	buffer;
+    String		name;
+
+    buffer = new StringBuilder();
+    metric(buffer, "conversions_total", "counter", "Number of conversions.", m_Statistics.getConversions());
+    metric(buffer, "failures_total", "counter", "Number of failed conversions.", m_Statistics.getFailures());
+    metric(buffer, "rejected_total", "counter", "Number of requests rejected due to a full queue.", m_Rejected.get());
+    metric(buffer, "points_read_total", "counter", "Number of points read.", m_Statistics.getPointsRead());
+    metric(buffer, "points_written_total", "counter", "Number of points written.", m_Statistics.getPointsWritten());
+    metric(buffer, "bytes_in_total", "counter", "Number of bytes read.", m_Statistics.getBytesIn());
+    metric(buffer, "bytes_out_total", "counter", "Number of bytes written.", m_Statistics.getBytesOut());
+    metric(buffer, "peak_retained_points", "gauge", "Maximum number of points held in memory by a conversion.", m_Statistics.getPeakRetainedPoints());
+    metric(buffer, "active_requests", "gauge", "Number of requests being processed.", m_Workers.getActiveCount());
+    metric(buffer, "queued_requests", "gauge", "Number of requests waiting for a worker.", m_Workers.getQueue().size());
+    name = "gpsformats4j_conversion_duration_seconds";
+    buffer.append("# HELP ").append(name).append(" Duration of the conversions (estimated quantiles).\n");
+    buffer.append("# TYPE ").append(name).append(" summary\n");
+    buffer.append(name).append("{quantile=\"0.5\"} ").append(m_Statistics.getTotalTime50thPercentile() / 1000).append("\n");
+    buffer.append(name).append("{quantile=\"0.95\"} ").append(m_Statistics.getTotalTime95thPercentile() / 1000).append("\n");
+    buffer.append(name).append("{quantile=\"0.99\"} ").append(m_Statistics.getTotalTime99thPercentile() / 1000).append("\n");
+    buffer.append(name).append("_sum ").append(m_Statistics.getTotalTimeMean() * m_Statistics.getConversions() / 1000).append("\n");
+    buffer.append(name).append("_count ").append(m_Statistics.getConversions()).append("\n");
+
+    respond(exchange, 200, "text/plain; version=0.0.4", buffer.toString());
+  }
+
+  /**
+   * Dispatches the request to the handler for its path. The handlers
+   * complete the response. Exceptions make the HTTP server close the
+   * connection, which aborts a streamed response.
+   *
+   * @param exchange	the exchange to handle
+   * @throws IOException	if responding fails
+   */
+  protected void handle(HttpExchange exchange) throws IOException {
+    String	path;
+
+    try {
+      path = exchange.getRequestURI().getPath();
+      if (path.equals(PATH_CONVERT))
+	handleConvert(exchange);
+      else if (!exchange.getRequestMethod().equals("GET"))
+	error(exchange, 405, "Only GET supported for: " + path);
+      else if (path.equals(PATH_HEALTH))
+	handleHealth(exchange);
+      else if (path.equals(PATH_METRICS))
+	handleMetrics(exchange);
+      else
+	error(exchange, 404, "Unknown path: " + path);
+    }
+    catch (IOException e) {
+      m_Logger.warn("Failed to handle request: " + exchange.getRequestURI() + "\n" + e);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts the server.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String start() {
+    BlockingQueue<Runnable>	queue;
+    AtomicInteger		count;
+    AtomicInteger		dispatchers;
+
+    if (m_Server != null)
+      return "Server already running!";
+
+    m_Statistics = new ConversionStatistics();
+    try {
+      m_StatisticsName = m_Statistics.register("server-" + m_Port);
+    }
+    catch (Exception e) {
+      m_Logger.warn("Failed to register statistics with JMX", e);
+      m_StatisticsName = null;
+    }
+    m_Converter = new Converter();
+    m_Converter.setPipeline(m_Pipeline);
+    // the options come from the clients, only reuse formats without any
+    m_Converter.setPoolWithOptions(false);
+    m_Converter.addMetricsListener(m_Statistics);
+
+    // only the conversions run on the workers; health checks, metrics and
+    // rejections get answered by the threads of the HTTP server. at most
+    // workers + queue of these threads wait for conversions (further ones
+    // get rejected right away), the extra threads keep the other requests
+    // responsive. requests beyond that wait for a free HTTP thread
+    queue = (m_MaxQueued > 0) ? new ArrayBlockingQueue<>(m_MaxQueued) : new SynchronousQueue<>();
+    count = new AtomicInteger();
+    m_Workers = new ThreadPoolExecutor(
+      m_NumThreads, m_NumThreads, 0L, TimeUnit.MILLISECONDS, queue,
+      r -> new Thread(r, "gpsformats4j-worker-" + count.incrementAndGet()));
+    dispatchers   = new AtomicInteger();
+    m_Dispatchers = new ThreadPoolExecutor(
+      m_NumThreads + m_MaxQueued + EXTRA_HTTP_THREADS, m_NumThreads + m_MaxQueued + EXTRA_HTTP_THREADS,
+      60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      r -> new Thread(r, "gpsformats4j-http-" + dispatchers.incrementAndGet()));
+    m_Dispatchers.allowCoreThreadTimeOut(true);
+
+    try {
+      m_Server = HttpServer.create(new InetSocketAddress(m_Host, m_Port), m_MaxQueued + m_NumThreads);
+    }
+    catch (Exception e) {
+      m_Workers.shutdown();
+      m_Dispatchers.shutdown();
+      m_Logger.error("Failed to start server: " + m_Host + ":" + m_Port, e);
+      return "Failed to start server: " + m_Host + ":" + m_Port + "\n" + e;
+    }
+    m_Server.createContext("/", this::handle);
+    m_Server.setExecutor(m_Dispatchers);
+    m_Server.start();
+    m_Logger.info("Listening on http://" + m_Host + ":" + getPort() + " (threads: " + m_NumThreads + ", max queued: " + m_MaxQueued + ")");
+
+    return null;
+  }
+
+  /**
+   * Stops the server, waiting for the running conversions to finish.
+   *
+   * @param delay	the maximum time to wait in seconds
+   */
+  public void stop(int delay) {
+    if (m_Server == null)
+      return;
+
+    m_Logger.info("Stopping server");
+    m_Server.stop(delay);
+    m_Server = null;
+    m_Workers.shutdown();
+    m_Dispatchers.shutdown();
+    try {
+      m_Workers.awaitTermination(delay, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      // ignored
+    }
+    if (m_StatisticsName != null) {
+      try {
+	m_Statistics.unregister(m_StatisticsName);
+      }
+      catch (Exception e) {
+	m_Logger.warn("Failed to unregister statistics", e);
+      }
+    }
+    m_Logger.info("Statistics:\n" + m_Statistics.toSummary());
+  }
+
+  /**
+   * Starts the server and stops it again when the JVM shuts down.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String execute() {
+    String	result;
+
+    if (m_HelpRequested)
+      return null;
+
+    result = start();
+    if (result != null)
+      m_Logger.error(result);
+    else
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(5)));
+
+    return result;
+  }
+
+  /**
+   * Runs the server.
+   *
+   * @param args	the options
+   * @throws Exception	if something goes wrong, eg setting the options
+   */
+  public static void main(String[] args) throws Exception {
+    Server server = new Server();
+    server.setOptions(args);
+    if (server.execute() != null)
+      System.exit(1);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompressionUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Helper class for transparently handling compressed files. Compressed
+ * input is detected from its magic bytes, compressed output from the file
+ * extension.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class CompressionUtils {
+
+  /** the extension for gzip files. */
+  public static final String EXT_GZIP = ".gz";
+
+  /** the magic bytes of gzip files. */
+  public static final byte[] MAGIC_GZIP = {(byte) 0x1f, (byte) 0x8b};
+
+  /** the magic bytes of zip files. */
+  public static final byte[] MAGIC_ZIP = {'P', 'K', 3, 4};
+
+  /** the buffer size for the compression streams. */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Ensures that the stream supports mark/reset.
+   *
+   * @param input	the stream to check
+   * @return		the stream or a buffered wrapper
+   */
+  public static InputStream markable(InputStream input) {
+    if (input.markSupported())
+      return input;
+    return new BufferedInputStream(input, BUFFER_SIZE);
+  }
+
+  /**
+   * Checks whether the stream starts with the magic bytes, without
+   * consuming them.
+   *
+   * @param input	the stream to check, must support mark/reset
+   * @param magic	the magic bytes
+   * @return		true if the magic bytes are present
+   * @throws IOException	if reading fails
+   * @see #markable(InputStream)
+   */
+  public static boolean startsWith(InputStream input, byte[] magic) throws IOException {
+    byte[]	buffer;
+    int		read;
+    int		n;
+
+    buffer = new byte[magic.length];
+    read   = 0;
+    input.mark(magic.length);
+    try {
+      while (read < magic.length) {
+	n = input.read(buffer, read, magic.length - read);
+	if (n == -1)
+	  return false;
+	read += n;
+      }
+    }
+    finally {
+      input.reset();
+    }
+    for (n = 0; n < magic.length; n++) {
+      if (buffer[n] != magic[n])
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks whether the file starts with the magic bytes.
+   *
+   * @param file	the file to check
+   * @param magic	the magic bytes
+   * @return		true if the magic bytes are present
+   * @throws IOException	if reading fails
+   */
+  public static boolean startsWith(File file, byte[] magic) throws IOException {
+    try (InputStream input = new BufferedInputStream(new FileInputStream(file), magic.length)) {
+      return startsWith(input, magic);
+    }
+  }
+
+  /**
+   * Returns whether the file is gzip compressed, based on its magic bytes.
+   *
+   * @param file	the file to check
+   * @return		true if compressed
+   * @throws IOException	if reading fails
+   */
+  public static boolean isGzip(File file) throws IOException {
+    return startsWith(file, MAGIC_GZIP);
+  }
+
+  /**
+   * Decompresses the stream if it is gzip compressed, otherwise it is
+   * returned as is (or buffered, if it does not support mark/reset).
+   *
+   * @param input	the stream to decompress
+   * @return		the uncompressed stream
+   * @throws IOException	if reading fails
+   */
+  public static InputStream decompress(InputStream input) throws IOException {
+    input = markable(input);
+    if (startsWith(input, MAGIC_GZIP))
+      return new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE);
+    return input;
+  }
+
+  /**
+   * Compresses the output if the file has a gzip extension, otherwise the
+   * stream is returned as is.
+   *
+   * @param output	the stream to write to
+   * @param file	the file that the stream writes to
+   * @return		the (compressing) stream
+   * @throws IOException	if compression cannot be initialized
+   * @see #EXT_GZIP
+   */
+  public static OutputStream compress(OutputStream output, File file) throws IOException {
+    if (file.getName().toLowerCase().endsWith(EXT_GZIP))
+      return new BufferedOutputStream(new GZIPOutputStream(output, BUFFER_SIZE), BUFFER_SIZE);
+    return output;
+  }
+}
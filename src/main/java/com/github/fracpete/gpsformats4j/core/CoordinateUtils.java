@@ -0,0 +1,360 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CoordinateUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+
+/**
+ * Fast parsing and formatting of the numbers of coordinates and elevations,
+ * working directly on characters. Numbers are always output in plain
+ * notation (no exponent), either with the fewest digits that still parse
+ * back to the same value or rounded to a maximum number of decimals.
+ * <br>
+ * Plain decimals with up to 15 significant digits are computed directly
+ * (and correctly rounded), anything else is handed to {@link Double} and
+ * {@link BigDecimal}.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class CoordinateUtils {
+
+  /** the precision for outputting the fewest digits that parse back to the same value. */
+  public static final int SHORTEST = -1;
+
+  /** the maximum number of decimals that is handled directly. */
+  public static final int MAX_DECIMALS = 17;
+
+  /** the limit for mantissas that can be represented exactly as double. */
+  protected static final long MAX_MANTISSA = 1L << 53;
+
+  /** the powers of ten that can be represented exactly as double. */
+  protected static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+    1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+    1e21, 1e22,
+  };
+
+  /** the powers of ten as long, up to {@link #MAX_DECIMALS}. */
+  protected static final long[] LONG_POWERS_OF_TEN = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+    1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+    100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L,
+  };
+
+  /**
+   * Parses a decimal number from the characters.
+   *
+   * @param chars	the characters
+   * @param start	the first character
+   * @param length	the number of characters
+   * @return		the value, NaN if not a number
+   * @see #parse(CharSequence, int, int)
+   */
+  public static double parse(char[] chars, int start, int length) {
+    return parse(CharBuffer.wrap(chars), start, start + length);
+  }
+
+  /**
+   * Parses a decimal number from the string.
+   *
+   * @param s		the string
+   * @return		the value, NaN if empty or not a number
+   * @see #parse(CharSequence, int, int)
+   */
+  public static double parse(CharSequence s) {
+    return parse(s, 0, s.length());
+  }
+
+  /**
+   * Parses a decimal number from the characters. Surrounding whitespace is
+   * ignored.
+   *
+   * @param s		the characters
+   * @param start	the first character
+   * @param end		the end of the characters (excl)
+   * @return		the value, NaN if empty or not a number
+   */
+  public static double parse(CharSequence s, int start, int end) {
+    int		i;
+    boolean	negative;
+    boolean	dot;
+    boolean	digits;
+    long	mantissa;
+    int		scale;
+    char	c;
+
+    while ((start < end) && Character.isWhitespace(s.charAt(start)))
+      start++;
+    while ((end > start) && Character.isWhitespace(s.charAt(end - 1)))
+      end--;
+
+    i        = start;
+    negative = false;
+    dot      = false;
+    digits   = false;
+    mantissa = 0;
+    scale    = 0;
+
+    if ((i < end) && ((s.charAt(i) == '-') || (s.charAt(i) == '+'))) {
+      negative = (s.charAt(i) == '-');
+      i++;
+    }
+    for (; i < end; i++) {
+      c = s.charAt(i);
+      if ((c >= '0') && (c <= '9')) {
+	digits   = true;
+	mantissa = mantissa * 10 + (c - '0');
+	if (dot)
+	  scale++;
+	if ((mantissa >= MAX_MANTISSA) || (scale >= POWERS_OF_TEN.length))
+	  return parseSlow(s, start, end);
+      }
+      else if ((c == '.') && !dot) {
+	dot = true;
+      }
+      else {
+	return parseSlow(s, start, end);
+      }
+    }
+    if (!digits)
+      return Double.NaN;
+
+    if (negative)
+      return -(mantissa / POWERS_OF_TEN[scale]);
+    else
+      return mantissa / POWERS_OF_TEN[scale];
+  }
+
+  /**
+   * Parses the characters using {@link Double#parseDouble(String)}.
+   *
+   * @param s		the characters
+   * @param start	the first character
+   * @param end		the end of the characters (excl)
+   * @return		the value, NaN if not a number
+   */
+  protected static double parseSlow(CharSequence s, int start, int end) {
+    try {
+      return Double.parseDouble(s.subSequence(start, end).toString());
+    }
+    catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Appends the scaled value, omitting trailing zeros of the decimals.
+   *
+   * @param sb		the buffer to append to
+   * @param negative	whether the value is negative
+   * @param scaled	the absolute value, multiplied by 10^decimals
+   * @param decimals	the number of decimals in the scaled value
+   */
+  protected static void appendScaled(StringBuilder sb, boolean negative, long scaled, int decimals) {
+    long	fraction;
+    long	limit;
+
+    if (negative && (scaled != 0))
+      sb.append('-');
+    sb.append(scaled / LONG_POWERS_OF_TEN[decimals]);
+    fraction = scaled % LONG_POWERS_OF_TEN[decimals];
+    if (fraction == 0)
+      return;
+    while (fraction % 10 == 0) {
+      fraction /= 10;
+      decimals--;
+    }
+    sb.append('.');
+    for (limit = LONG_POWERS_OF_TEN[decimals - 1]; (limit > 1) && (fraction < limit); limit /= 10)
+      sb.append('0');
+    sb.append(fraction);
+  }
+
+  /**
+   * Appends the fixed-point number in plain notation, omitting trailing
+   * zeros of the decimals.
+   *
+   * @param sb		the buffer to append to
+   * @param scaled	the number, multiplied by 10^decimals
+   * @param decimals	the number of decimals in the scaled value (0-{@link #MAX_DECIMALS})
+   * @return		the buffer
+   */
+  public static StringBuilder appendFixed(StringBuilder sb, long scaled, int decimals) {
+    appendScaled(sb, scaled < 0, Math.abs(scaled), decimals);
+    return sb;
+  }
+
+  /**
+   * Checks whether the value rounded to the number of decimals parses back
+   * to the same value.
+   *
+   * @param abs		the absolute value
+   * @param decimals	the number of decimals
+   * @return		true if the same value
+   */
+  protected static boolean roundTrips(double abs, int decimals) {
+    return (Math.round(abs * POWERS_OF_TEN[decimals]) / POWERS_OF_TEN[decimals] == abs);
+  }
+
+  /**
+   * Determines the fewest decimals at which the rounded value parses back
+   * to the same value.
+   *
+   * @param abs		the absolute value
+   * @return		the number of decimals, -1 if the value cannot be handled directly
+   */
+  protected static int shortest(double abs) {
+    int		low;
+    int		high;
+    int		i;
+
+    high = 0;
+    while ((high < MAX_DECIMALS) && (abs * POWERS_OF_TEN[high + 1] < MAX_MANTISSA))
+      high++;
+    if ((abs * POWERS_OF_TEN[high] >= MAX_MANTISSA) || !roundTrips(abs, high))
+      return -1;
+
+    // the more decimals, the more likely the value round-trips
+    low = 0;
+    while (low < high) {
+      i = (low + high) >>> 1;
+      if (roundTrips(abs, i))
+	high = i;
+      else
+	low = i + 1;
+    }
+
+    return high;
+  }
+
+  /**
+   * Appends the number in plain notation. When rounding to a maximum number
+   * of decimals, ties are rounded away from zero, based on the fewest digits
+   * that represent the value (ie 0.125 gets rounded to 0.13, even though
+   * its binary value is slightly less).
+   *
+   * @param sb		the buffer to append to
+   * @param value	the number, nothing gets appended if NaN
+   * @param precision	the maximum number of decimals, {@link #SHORTEST} for the
+   * 			fewest digits that parse back to the same value
+   * @return		the buffer
+   */
+  public static StringBuilder append(StringBuilder sb, double value, int precision) {
+    double	abs;
+    long	scaled;
+    long	divisor;
+    int		decimals;
+
+    if (Double.isNaN(value))
+      return sb;
+    if (Double.isInfinite(value))
+      return sb.append(value);
+
+    abs      = Math.abs(value);
+    decimals = shortest(abs);
+    if (decimals == -1) {
+      if (precision < 0)
+	return sb.append(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+      else
+	return sb.append(BigDecimal.valueOf(value).setScale(precision, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString());
+    }
+
+    scaled = Math.round(abs * POWERS_OF_TEN[decimals]);
+    if ((precision >= 0) && (decimals > precision)) {
+      divisor  = LONG_POWERS_OF_TEN[decimals - precision];
+      scaled   = (scaled + divisor / 2) / divisor;
+      decimals = precision;
+    }
+    appendScaled(sb, value < 0, scaled, decimals);
+
+    return sb;
+  }
+
+  /**
+   * Formats the number in plain notation.
+   *
+   * @param value	the number
+   * @param precision	the maximum number of decimals, {@link #SHORTEST} for the
+   * 			fewest digits that parse back to the same value
+   * @return		the string, empty if NaN
+   */
+  public static String format(double value, int precision) {
+    return append(new StringBuilder(24), value, precision).toString();
+  }
+
+  /**
+   * Returns the number of decimals of a plain decimal number.
+   *
+   * @param s		the number
+   * @return		the number of decimals, -1 if not a plain decimal number
+   */
+  protected static int decimals(String s) {
+    int		result;
+    int		i;
+    char	c;
+
+    result = -1;
+    for (i = 0; i < s.length(); i++) {
+      c = s.charAt(i);
+      if (c == '.') {
+	if (result > -1)
+	  return -1;
+	result = 0;
+      }
+      else if ((c >= '0') && (c <= '9')) {
+	if (result > -1)
+	  result++;
+      }
+      else if ((i > 0) || (c != '-')) {
+	return -1;
+      }
+    }
+
+    return (result == -1) ? 0 : result;
+  }
+
+  /**
+   * Rounds the number in the string to the maximum number of decimals.
+   * Plain decimal numbers that are precise enough already are returned as
+   * is, as are strings that are not numbers.
+   *
+   * @param s		the number
+   * @param precision	the maximum number of decimals, no rounding if negative
+   * @return		the (rounded) number
+   */
+  public static String round(String s, int precision) {
+    int		decimals;
+    double	value;
+
+    if ((precision < 0) || s.isEmpty())
+      return s;
+    decimals = decimals(s);
+    if ((decimals > -1) && (decimals <= precision))
+      return s;
+    value = parse(s);
+    if (Double.isNaN(value))
+      return s;
+
+    return format(value, precision);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FileUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Helper class for writing files via temporary files, so that readers never
+ * see partially written files.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class FileUtils {
+
+  /** the prefix for temporary files. */
+  public static final String PREFIX_TEMP = ".tmp-";
+
+  /**
+   * Returns a unique temporary file next to the target. The name ends with
+   * the target's name, so that its extension (eg ".gz" for compression) is
+   * retained.
+   *
+   * @param target	the file to write eventually
+   * @return		the temporary file (not created)
+   */
+  public static File tempFile(File target) {
+    target = target.getAbsoluteFile();
+    return new File(target.getParentFile(), PREFIX_TEMP + UUID.randomUUID() + "-" + target.getName());
+  }
+
+  /**
+   * Moves the file into place, atomically if supported, replacing any
+   * existing file.
+   *
+   * @param source	the file to move
+   * @param target	the destination
+   * @throws IOException	if moving fails
+   */
+  public static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
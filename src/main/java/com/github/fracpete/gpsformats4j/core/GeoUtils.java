@@ -0,0 +1,70 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GeoUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.core;
+
+/**
+ * Helper methods for geographic coordinates (WGS84 degrees), using a
+ * spherical earth model.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class GeoUtils {
+
+  /** the mean radius of the earth in meters. */
+  public static final double EARTH_RADIUS = 6371008.8;
+
+  /**
+   * Returns the great-circle distance between the two positions
+   * (haversine formula).
+   *
+   * @param lat1	the latitude of the first position
+   * @param lon1	the longitude of the first position
+   * @param lat2	the latitude of the second position
+   * @param lon2	the longitude of the second position
+   * @return		the distance in meters
+   */
+  public static double distance(double lat1, double lon1, double lat2, double lon2) {
+    double	sinLat;
+    double	sinLon;
+    double	h;
+
+    sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+    sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+    h      = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+  }
+
+  /**
+   * Normalizes the longitude to the range [-180, 180).
+   *
+   * @param lon		the longitude
+   * @return		the normalized longitude
+   */
+  public static double normalizeLongitude(double lon) {
+    if ((lon >= -180) && (lon < 180))
+      return lon;
+    lon = (lon + 180) % 360;
+    if (lon < 0)
+      lon += 360;
+    return lon - 180;
+  }
+}
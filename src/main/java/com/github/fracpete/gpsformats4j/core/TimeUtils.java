@@ -0,0 +1,362 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TimeUtils.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.core;
+
+/**
+ * Fast parsing and formatting of ISO 8601 timestamps, as found in GPX, TCX
+ * and KML files, working directly on characters and epoch milliseconds.
+ * <br>
+ * Supported: yyyy-MM-dd'T'HH:mm[:ss[.fraction]] (a blank instead of 'T' is
+ * accepted as well), optionally followed by 'Z' or an offset (+HH, +HH:mm or
+ * +HHmm). Timestamps without offset are interpreted as UTC. Fractions are
+ * truncated to milliseconds. Dates and times get validated strictly, except
+ * for 24:00:00, which denotes the end of the day.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class TimeUtils {
+
+  /**
+   * How to output the time zone.
+   */
+  public enum Zone {
+    /** no zone information, ie local time. */
+    NONE,
+    /** UTC, ie 'Z'. */
+    UTC,
+    /** offset in extended format, eg +01:00. */
+    OFFSET,
+    /** offset in basic format, eg +0100. */
+    OFFSET_BASIC,
+  }
+
+  /** the value for missing/invalid timestamps. */
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  /** the milliseconds per day. */
+  public static final long MSEC_PER_DAY = 86400000L;
+
+  /**
+   * Parses the digits.
+   *
+   * @param s		the characters
+   * @param start	the first digit
+   * @param len		the number of digits
+   * @return		the value, -1 if not all digits
+   */
+  protected static int digits(CharSequence s, int start, int len) {
+    int		result;
+    int		i;
+    char	c;
+
+    if (start + len > s.length())
+      return -1;
+    result = 0;
+    for (i = start; i < start + len; i++) {
+      c = s.charAt(i);
+      if ((c < '0') || (c > '9'))
+	return -1;
+      result = result * 10 + (c - '0');
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the days since 1970-01-01 for the date (proleptic Gregorian).
+   *
+   * @param year	the year
+   * @param month	the month (1-12)
+   * @param day		the day of the month (1-31)
+   * @return		the epoch day
+   */
+  public static long epochDay(long year, int month, int day) {
+    long	era;
+    long	yoe;
+    long	doy;
+    long	doe;
+
+    year -= (month <= 2) ? 1 : 0;
+    era = (year >= 0 ? year : year - 399) / 400;
+    yoe = year - era * 400;
+    doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+    return era * 146097 + doe - 719468;
+  }
+
+  /**
+   * Returns the number of days in the month.
+   *
+   * @param year	the year
+   * @param month	the month (1-12)
+   * @return		the number of days
+   */
+  protected static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+	return ((year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0))) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+	return 30;
+      default:
+	return 31;
+    }
+  }
+
+  /**
+   * Parses the timestamp.
+   *
+   * @param s		the timestamp, surrounding whitespace is ignored
+   * @return		the epoch milliseconds, {@link #NO_TIME} if empty or invalid
+   */
+  public static long parse(CharSequence s) {
+    int		start;
+    int		end;
+    int		pos;
+    int		year;
+    int		month;
+    int		day;
+    int		hour;
+    int		minute;
+    int		second;
+    int		millis;
+    int		scale;
+    int		offset;
+    int		offHour;
+    int		offMin;
+    char	c;
+
+    if (s == null)
+      return NO_TIME;
+    start = 0;
+    end   = s.length();
+    while ((start < end) && Character.isWhitespace(s.charAt(start)))
+      start++;
+    while ((end > start) && Character.isWhitespace(s.charAt(end - 1)))
+      end--;
+    if ((start > 0) || (end < s.length()))
+      s = s.subSequence(start, end);
+    if (s.length() < 16)
+      return NO_TIME;
+
+    // date
+    year  = digits(s, 0, 4);
+    month = digits(s, 5, 2);
+    day   = digits(s, 8, 2);
+    if ((year < 0) || (month < 1) || (month > 12) || (day < 1) || (s.charAt(4) != '-') || (s.charAt(7) != '-'))
+      return NO_TIME;
+    if (day > daysInMonth(year, month))
+      return NO_TIME;
+    c = s.charAt(10);
+    if ((c != 'T') && (c != 't') && (c != ' '))
+      return NO_TIME;
+
+    // time
+    hour   = digits(s, 11, 2);
+    minute = digits(s, 14, 2);
+    if ((hour < 0) || (hour > 24) || (minute < 0) || (minute > 59) || (s.charAt(13) != ':'))
+      return NO_TIME;
+    second = 0;
+    millis = 0;
+    pos    = 16;
+    if ((pos < s.length()) && (s.charAt(pos) == ':')) {
+      second = digits(s, pos + 1, 2);
+      if ((second < 0) || (second > 59))
+	return NO_TIME;
+      pos += 3;
+      if ((pos < s.length()) && ((s.charAt(pos) == '.') || (s.charAt(pos) == ','))) {
+	pos++;
+	scale = 0;
+	while ((pos < s.length()) && (s.charAt(pos) >= '0') && (s.charAt(pos) <= '9')) {
+	  if (scale < 3) {
+	    millis = millis * 10 + (s.charAt(pos) - '0');
+	    scale++;
+	  }
+	  pos++;
+	}
+	if (scale == 0)
+	  return NO_TIME;
+	for (; scale < 3; scale++)
+	  millis *= 10;
+      }
+    }
+
+    // 24:00 denotes the end of the day
+    if ((hour == 24) && ((minute > 0) || (second > 0) || (millis > 0)))
+      return NO_TIME;
+
+    // zone
+    offset = 0;
+    if (pos < s.length()) {
+      c = s.charAt(pos);
+      if (((c == 'Z') || (c == 'z')) && (pos + 1 == s.length())) {
+	offset = 0;
+      }
+      else if ((c == '+') || (c == '-')) {
+	offHour = digits(s, pos + 1, 2);
+	offMin  = 0;
+	if (s.length() == pos + 6) {
+	  if (s.charAt(pos + 3) != ':')
+	    return NO_TIME;
+	  offMin = digits(s, pos + 4, 2);
+	}
+	else if (s.length() == pos + 5) {
+	  offMin = digits(s, pos + 3, 2);
+	}
+	else if (s.length() != pos + 3) {
+	  return NO_TIME;
+	}
+	if ((offHour < 0) || (offHour > 18) || (offMin < 0) || (offMin > 59))
+	  return NO_TIME;
+	offset = (offHour * 60 + offMin) * ((c == '-') ? -1 : 1);
+      }
+      else {
+	return NO_TIME;
+      }
+    }
+
+    return epochDay(year, month, day) * MSEC_PER_DAY
+      + ((hour * 60L + minute - offset) * 60L + second) * 1000L
+      + millis;
+  }
+
+  /**
+   * Appends the number, padded with zeros.
+   *
+   * @param sb		the buffer to append to
+   * @param value	the value (not negative)
+   * @param width	the minimum width
+   */
+  protected static void pad(StringBuilder sb, long value, int width) {
+    long	limit;
+    int		i;
+
+    limit = 1;
+    for (i = 1; i < width; i++)
+      limit *= 10;
+    while ((limit > 1) && (value < limit)) {
+      sb.append('0');
+      limit /= 10;
+    }
+    sb.append(value);
+  }
+
+  /**
+   * Appends the timestamp in ISO 8601 format. Milliseconds are only output
+   * if not zero.
+   *
+   * @param sb		the buffer to append to
+   * @param millis	the epoch milliseconds
+   * @param offset	the offset from UTC in minutes, ignored for {@link Zone#UTC}
+   * @param zone	how to output the zone
+   * @return		the buffer
+   */
+  public static StringBuilder append(StringBuilder sb, long millis, int offset, Zone zone) {
+    long	days;
+    long	msec;
+    long	doe;
+    long	yoe;
+    long	doy;
+    long	mp;
+    long	era;
+    long	year;
+    int		month;
+    int		day;
+
+    if (zone == Zone.UTC)
+      offset = 0;
+    millis += offset * 60000L;
+    days    = Math.floorDiv(millis, MSEC_PER_DAY);
+    msec    = Math.floorMod(millis, MSEC_PER_DAY);
+
+    // civil from days
+    days += 719468;
+    era   = (days >= 0 ? days : days - 146096) / 146097;
+    doe   = days - era * 146097;
+    yoe   = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    doy   = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    mp    = (5 * doy + 2) / 153;
+    day   = (int) (doy - (153 * mp + 2) / 5 + 1);
+    month = (int) (mp < 10 ? mp + 3 : mp - 9);
+    year  = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+    pad(sb, year, 4);
+    sb.append('-');
+    pad(sb, month, 2);
+    sb.append('-');
+    pad(sb, day, 2);
+    sb.append('T');
+    pad(sb, msec / 3600000, 2);
+    sb.append(':');
+    pad(sb, (msec / 60000) % 60, 2);
+    sb.append(':');
+    pad(sb, (msec / 1000) % 60, 2);
+    if (msec % 1000 != 0) {
+      sb.append('.');
+      pad(sb, msec % 1000, 3);
+    }
+
+    switch (zone) {
+      case UTC:
+	sb.append('Z');
+	break;
+      case OFFSET:
+      case OFFSET_BASIC:
+	sb.append(offset < 0 ? '-' : '+');
+	pad(sb, Math.abs(offset) / 60, 2);
+	if (zone == Zone.OFFSET)
+	  sb.append(':');
+	pad(sb, Math.abs(offset) % 60, 2);
+	break;
+      default:
+	break;
+    }
+
+    return sb;
+  }
+
+  /**
+   * Formats the timestamp in ISO 8601 format.
+   *
+   * @param millis	the epoch milliseconds
+   * @param offset	the offset from UTC in minutes, ignored for {@link Zone#UTC}
+   * @param zone	how to output the zone
+   * @return		the string
+   */
+  public static String format(long millis, int offset, Zone zone) {
+    return append(new StringBuilder(29), millis, offset, zone).toString();
+  }
+
+  /**
+   * Formats the timestamp in ISO 8601 format in UTC, eg 2020-01-31T12:34:56Z.
+   *
+   * @param millis	the epoch milliseconds
+   * @return		the string, empty if {@link #NO_TIME}
+   */
+  public static String format(long millis) {
+    if (millis == NO_TIME)
+      return "";
+    return format(millis, 0, Zone.UTC);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BoundingBox.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.data;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.GeoUtils;
+
+import java.io.Serializable;
+
+/**
+ * Immutable bounding box in degrees. A minimum longitude larger than the
+ * maximum one denotes a box that crosses the antimeridian, eg 170,-170.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class BoundingBox
+  implements Serializable {
+
+  private static final long serialVersionUID = 6403524893562210385L;
+
+  /** the minimum latitude. */
+  protected final double m_MinLat;
+
+  /** the minimum longitude. */
+  protected final double m_MinLon;
+
+  /** the maximum latitude. */
+  protected final double m_MaxLat;
+
+  /** the maximum longitude. */
+  protected final double m_MaxLon;
+
+  /**
+   * Initializes the box.
+   *
+   * @param minLat	the minimum latitude
+   * @param minLon	the minimum (western) longitude
+   * @param maxLat	the maximum latitude
+   * @param maxLon	the maximum (eastern) longitude
+   * @throws IllegalArgumentException	if a value is out of range or the latitudes are swapped
+   */
+  public BoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+    if (!(minLat >= -90) || !(maxLat <= 90) || !(minLat <= maxLat))
+      throw new IllegalArgumentException("Invalid latitude range: " + minLat + ", " + maxLat);
+    if (!(minLon >= -180) || !(minLon <= 180) || !(maxLon >= -180) || !(maxLon <= 180))
+      throw new IllegalArgumentException("Invalid longitude range: " + minLon + ", " + maxLon);
+    m_MinLat = minLat;
+    m_MinLon = minLon;
+    m_MaxLat = maxLat;
+    m_MaxLon = maxLon;
+  }
+
+  /**
+   * Returns the minimum latitude.
+   *
+   * @return		the latitude
+   */
+  public double getMinLat() {
+    return m_MinLat;
+  }
+
+  /**
+   * Returns the minimum (western) longitude.
+   *
+   * @return		the longitude
+   */
+  public double getMinLon() {
+    return m_MinLon;
+  }
+
+  /**
+   * Returns the maximum latitude.
+   *
+   * @return		the latitude
+   */
+  public double getMaxLat() {
+    return m_MaxLat;
+  }
+
+  /**
+   * Returns the maximum (eastern) longitude.
+   *
+   * @return		the longitude
+   */
+  public double getMaxLon() {
+    return m_MaxLon;
+  }
+
+  /**
+   * Returns whether the box crosses the antimeridian.
+   *
+   * @return		true if crossing
+   */
+  public boolean crossesAntimeridian() {
+    return (m_MinLon > m_MaxLon);
+  }
+
+  /**
+   * Checks whether the position lies within the box (edges included).
+   *
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @return		true if within the box, false if outside or missing
+   */
+  public boolean contains(double lat, double lon) {
+    if (!(lat >= m_MinLat) || !(lat <= m_MaxLat) || Double.isNaN(lon))
+      return false;
+    lon = GeoUtils.normalizeLongitude(lon);
+    if (crossesAntimeridian())
+      return (lon >= m_MinLon) || (lon <= m_MaxLon);
+    // -180 and 180 are the same meridian
+    return ((lon >= m_MinLon) && (lon <= m_MaxLon)) || (lon + 360 <= m_MaxLon);
+  }
+
+  /**
+   * Returns the box as "minLat,minLon,maxLat,maxLon".
+   *
+   * @return		the string
+   */
+  @Override
+  public String toString() {
+    return CoordinateUtils.format(m_MinLat, CoordinateUtils.SHORTEST)
+      + "," + CoordinateUtils.format(m_MinLon, CoordinateUtils.SHORTEST)
+      + "," + CoordinateUtils.format(m_MaxLat, CoordinateUtils.SHORTEST)
+      + "," + CoordinateUtils.format(m_MaxLon, CoordinateUtils.SHORTEST);
+  }
+
+  /**
+   * Parses the box from "minLat,minLon,maxLat,maxLon".
+   *
+   * @param s		the string to parse
+   * @return		the box
+   * @throws IllegalArgumentException	if the string cannot be parsed or the values are invalid
+   */
+  public static BoundingBox parse(String s) {
+    String[]	parts;
+    double[]	values;
+    int		i;
+
+    parts = s.split(",");
+    if (parts.length != 4)
+      throw new IllegalArgumentException("Expected minLat,minLon,maxLat,maxLon, got: " + s);
+    values = new double[parts.length];
+    for (i = 0; i < parts.length; i++) {
+      values[i] = CoordinateUtils.parse(parts[i]);
+      if (Double.isNaN(values[i]))
+	throw new IllegalArgumentException("Not a number: " + parts[i]);
+    }
+
+    return new BoundingBox(values[0], values[1], values[2], values[3]);
+  }
+}
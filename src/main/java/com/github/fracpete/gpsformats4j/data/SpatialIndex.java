@@ -0,0 +1,609 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SpatialIndex.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.data;
+
+import com.github.fracpete.gpsformats4j.core.GeoUtils;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Static R-tree over the points of a {@link TrackStore}, bulk-loaded with
+ * Sort-Tile-Recursive (STR) packing. Points without position are not
+ * indexed. The nodes are held in primitive arrays, level by level, with
+ * the children of a node being a contiguous range of the level below.
+ * <br>
+ * Queries return the indices of the points in the store. Bounding box and
+ * radius queries return them in ascending order (ie in track order),
+ * nearest neighbor queries sorted by distance. Distances are great-circle
+ * distances in meters; the antimeridian is handled by all queries.
+ * <br>
+ * The index does not reflect points added to the store afterwards. Once
+ * built, it is safe to query from multiple threads.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class SpatialIndex {
+
+  /** the default maximum number of children per node. */
+  public static final int DEFAULT_NODE_SIZE = 16;
+
+  /**
+   * Entry for the nearest neighbor search.
+   */
+  protected static class Entry
+    implements Comparable<Entry> {
+
+    /** the (minimum) distance in meters. */
+    public double distance;
+
+    /** the node or point index. */
+    public int index;
+
+    /** whether a point rather than a node. */
+    public boolean point;
+
+    /**
+     * Initializes the entry.
+     *
+     * @param distance	the (minimum) distance
+     * @param index	the node or point index
+     * @param point	whether a point
+     */
+    public Entry(double distance, int index, boolean point) {
+      this.distance = distance;
+      this.index    = index;
+      this.point    = point;
+    }
+
+    /**
+     * Compares the distances.
+     *
+     * @param o		the entry to compare with
+     * @return		less than, equal to or greater than zero
+     */
+    @Override
+    public int compareTo(Entry o) {
+      return Double.compare(distance, o.distance);
+    }
+  }
+
+  /** the underlying store. */
+  protected TrackStore m_Store;
+
+  /** the maximum number of children per node. */
+  protected int m_NodeSize;
+
+  /** the indexed points (store indices) in leaf order. */
+  protected int[] m_Points;
+
+  /** the number of nodes. */
+  protected int m_NumNodes;
+
+  /** the number of leaves (the first nodes). */
+  protected int m_NumLeaves;
+
+  /** the minimum latitudes of the nodes. */
+  protected double[] m_MinLat;
+
+  /** the minimum longitudes of the nodes. */
+  protected double[] m_MinLon;
+
+  /** the maximum latitudes of the nodes. */
+  protected double[] m_MaxLat;
+
+  /** the maximum longitudes of the nodes. */
+  protected double[] m_MaxLon;
+
+  /** the first child of the nodes (points for leaves, nodes otherwise). */
+  protected int[] m_Start;
+
+  /** the end of the children of the nodes (excl). */
+  protected int[] m_End;
+
+  /**
+   * Builds the index with the default node size.
+   *
+   * @param store	the store to index
+   */
+  public SpatialIndex(TrackStore store) {
+    this(store, DEFAULT_NODE_SIZE);
+  }
+
+  /**
+   * Builds the index.
+   *
+   * @param store	the store to index
+   * @param nodeSize	the maximum number of children per node (at least 2)
+   */
+  public SpatialIndex(TrackStore store, int nodeSize) {
+    if (nodeSize < 2)
+      throw new IllegalArgumentException("Node size must be at least 2: " + nodeSize);
+    m_Store    = store;
+    m_NodeSize = nodeSize;
+    build();
+  }
+
+  /**
+   * Builds the tree.
+   */
+  protected void build() {
+    double[]	lat;
+    double[]	lon;
+    int[]	ids;
+    int[]	order;
+    int		n;
+    int		i;
+    int		capacity;
+    int		count;
+    int		levelStart;
+    int		levelEnd;
+
+    // points with position
+    lat = new double[m_Store.size()];
+    lon = new double[m_Store.size()];
+    ids = new int[m_Store.size()];
+    n   = 0;
+    for (i = 0; i < m_Store.size(); i++) {
+      if (Double.isNaN(m_Store.getLat(i)) || Double.isNaN(m_Store.getLon(i)))
+	continue;
+      lat[n] = m_Store.getLat(i);
+      lon[n] = m_Store.getLon(i);
+      ids[n] = i;
+      n++;
+    }
+
+    capacity = 0;
+    for (count = n; count > 1; count = (count + m_NodeSize - 1) / m_NodeSize)
+      capacity += (count + m_NodeSize - 1) / m_NodeSize;
+    capacity   = Math.max(1, capacity);
+    m_MinLat   = new double[capacity];
+    m_MinLon   = new double[capacity];
+    m_MaxLat   = new double[capacity];
+    m_MaxLon   = new double[capacity];
+    m_Start    = new int[capacity];
+    m_End      = new int[capacity];
+    m_Points   = new int[n];
+    m_NumNodes = 0;
+
+    if (n == 0) {
+      m_NumLeaves = 0;
+      return;
+    }
+
+    // leaves
+    order = strOrder(lon, lat, n);
+    for (i = 0; i < n; i++)
+      m_Points[i] = ids[order[i]];
+    for (i = 0; i < n; i += m_NodeSize)
+      addNode(i, Math.min(n, i + m_NodeSize), true);
+    m_NumLeaves = m_NumNodes;
+
+    // inner nodes, until only the root is left
+    levelStart = 0;
+    levelEnd   = m_NumNodes;
+    while (levelEnd - levelStart > 1) {
+      count = levelEnd - levelStart;
+      lat   = new double[count];
+      lon   = new double[count];
+      for (i = 0; i < count; i++) {
+	lat[i] = (m_MinLat[levelStart + i] + m_MaxLat[levelStart + i]) / 2;
+	lon[i] = (m_MinLon[levelStart + i] + m_MaxLon[levelStart + i]) / 2;
+      }
+      permute(levelStart, strOrder(lon, lat, count));
+      for (i = levelStart; i < levelEnd; i += m_NodeSize)
+	addNode(i, Math.min(levelEnd, i + m_NodeSize), false);
+      levelStart = levelEnd;
+      levelEnd   = m_NumNodes;
+    }
+  }
+
+  /**
+   * Appends a node, computing its bounds from its children.
+   *
+   * @param start	the first child
+   * @param end		the end of the children (excl)
+   * @param leaf	whether the children are points
+   */
+  protected void addNode(int start, int end, boolean leaf) {
+    double	minLat;
+    double	minLon;
+    double	maxLat;
+    double	maxLon;
+    int		i;
+
+    minLat = Double.POSITIVE_INFINITY;
+    minLon = Double.POSITIVE_INFINITY;
+    maxLat = Double.NEGATIVE_INFINITY;
+    maxLon = Double.NEGATIVE_INFINITY;
+    for (i = start; i < end; i++) {
+      if (leaf) {
+	minLat = Math.min(minLat, m_Store.getLat(m_Points[i]));
+	minLon = Math.min(minLon, m_Store.getLon(m_Points[i]));
+	maxLat = Math.max(maxLat, m_Store.getLat(m_Points[i]));
+	maxLon = Math.max(maxLon, m_Store.getLon(m_Points[i]));
+      }
+      else {
+	minLat = Math.min(minLat, m_MinLat[i]);
+	minLon = Math.min(minLon, m_MinLon[i]);
+	maxLat = Math.max(maxLat, m_MaxLat[i]);
+	maxLon = Math.max(maxLon, m_MaxLon[i]);
+      }
+    }
+    m_MinLat[m_NumNodes] = minLat;
+    m_MinLon[m_NumNodes] = minLon;
+    m_MaxLat[m_NumNodes] = maxLat;
+    m_MaxLon[m_NumNodes] = maxLon;
+    m_Start[m_NumNodes]  = start;
+    m_End[m_NumNodes]    = end;
+    m_NumNodes++;
+  }
+
+  /**
+   * Reorders the nodes of a level.
+   *
+   * @param offset	the first node of the level
+   * @param order	the new order, relative to the offset
+   */
+  protected void permute(int offset, int[] order) {
+    double[]	minLat;
+    double[]	minLon;
+    double[]	maxLat;
+    double[]	maxLon;
+    int[]	start;
+    int[]	end;
+    int		i;
+
+    minLat = Arrays.copyOfRange(m_MinLat, offset, offset + order.length);
+    minLon = Arrays.copyOfRange(m_MinLon, offset, offset + order.length);
+    maxLat = Arrays.copyOfRange(m_MaxLat, offset, offset + order.length);
+    maxLon = Arrays.copyOfRange(m_MaxLon, offset, offset + order.length);
+    start  = Arrays.copyOfRange(m_Start, offset, offset + order.length);
+    end    = Arrays.copyOfRange(m_End, offset, offset + order.length);
+    for (i = 0; i < order.length; i++) {
+      m_MinLat[offset + i] = minLat[order[i]];
+      m_MinLon[offset + i] = minLon[order[i]];
+      m_MaxLat[offset + i] = maxLat[order[i]];
+      m_MaxLon[offset + i] = maxLon[order[i]];
+      m_Start[offset + i]  = start[order[i]];
+      m_End[offset + i]    = end[order[i]];
+    }
+  }
+
+  /**
+   * Determines the STR order of the entries: sorted by x, cut into
+   * vertical slices of whole nodes, each slice sorted by y.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param count	the number of entries
+   * @return		the order
+   */
+  protected int[] strOrder(double[] x, double[] y, int count) {
+    int[]	result;
+    int		nodes;
+    int		slices;
+    int		sliceSize;
+    int		i;
+
+    result = new int[count];
+    for (i = 0; i < count; i++)
+      result[i] = i;
+    sort(result, x, 0, count);
+    nodes     = (count + m_NodeSize - 1) / m_NodeSize;
+    slices    = (int) Math.ceil(Math.sqrt(nodes));
+    sliceSize = ((nodes + slices - 1) / slices) * m_NodeSize;
+    for (i = 0; i < count; i += sliceSize)
+      sort(result, y, i, Math.min(count, i + sliceSize));
+
+    return result;
+  }
+
+  /**
+   * Sorts the indices by their keys (quicksort, insertion sort for short
+   * ranges).
+   *
+   * @param indices	the indices to sort
+   * @param keys	the keys
+   * @param from	the start of the range
+   * @param to		the end of the range (excl)
+   */
+  protected static void sort(int[] indices, double[] keys, int from, int to) {
+    double	pivot;
+    int		tmp;
+    int		i;
+    int		j;
+
+    while (to - from > 16) {
+      pivot = median(keys[indices[from]], keys[indices[(from + to) >>> 1]], keys[indices[to - 1]]);
+      i     = from;
+      j     = to - 1;
+      while (i <= j) {
+	while (keys[indices[i]] < pivot)
+	  i++;
+	while (keys[indices[j]] > pivot)
+	  j--;
+	if (i <= j) {
+	  tmp          = indices[i];
+	  indices[i++] = indices[j];
+	  indices[j--] = tmp;
+	}
+      }
+      // recurse into the smaller part, loop over the larger one
+      if (j - from < to - i) {
+	sort(indices, keys, from, j + 1);
+	from = i;
+      }
+      else {
+	sort(indices, keys, i, to);
+	to = j + 1;
+      }
+    }
+
+    for (i = from + 1; i < to; i++) {
+      tmp = indices[i];
+      for (j = i - 1; (j >= from) && (keys[indices[j]] > keys[tmp]); j--)
+	indices[j + 1] = indices[j];
+      indices[j + 1] = tmp;
+    }
+  }
+
+  /**
+   * Returns the median of the three values.
+   *
+   * @param a		the first value
+   * @param b		the second value
+   * @param c		the third value
+   * @return		the median
+   */
+  protected static double median(double a, double b, double c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  /**
+   * Returns the underlying store.
+   *
+   * @return		the store
+   */
+  public TrackStore getStore() {
+    return m_Store;
+  }
+
+  /**
+   * Returns the number of indexed points.
+   *
+   * @return		the number of points
+   */
+  public int size() {
+    return m_Points.length;
+  }
+
+  /**
+   * Returns the index of the root node.
+   *
+   * @return		the root, -1 if the index is empty
+   */
+  protected int root() {
+    return m_NumNodes - 1;
+  }
+
+  /**
+   * Appends the value to the array, growing it if necessary.
+   *
+   * @param array	the array
+   * @param size	the number of values in the array
+   * @param value	the value to append
+   * @return		the (new) array
+   */
+  protected static int[] append(int[] array, int size, int value) {
+    if (size == array.length)
+      array = Arrays.copyOf(array, Math.max(16, size * 2));
+    array[size] = value;
+    return array;
+  }
+
+  /**
+   * Returns the points within the box (edges included).
+   *
+   * @param box		the box
+   * @return		the indices of the points in the store, ascending
+   */
+  public int[] query(BoundingBox box) {
+    int[]	result;
+    int[]	stack;
+    int		size;
+    int		count;
+    int		node;
+    int		i;
+
+    result = new int[16];
+    count  = 0;
+    if (root() == -1)
+      return new int[0];
+
+    stack = new int[64];
+    size  = 0;
+    stack[size++] = root();
+    while (size > 0) {
+      node = stack[--size];
+      if (!intersects(node, box))
+	continue;
+      for (i = m_Start[node]; i < m_End[node]; i++) {
+	if (node < m_NumLeaves) {
+	  if (box.contains(m_Store.getLat(m_Points[i]), m_Store.getLon(m_Points[i])))
+	    result = append(result, count++, m_Points[i]);
+	}
+	else {
+	  stack = append(stack, size++, i);
+	}
+      }
+    }
+    result = Arrays.copyOf(result, count);
+    Arrays.sort(result);
+
+    return result;
+  }
+
+  /**
+   * Checks whether the node intersects the box.
+   *
+   * @param node	the node
+   * @param box		the box
+   * @return		true if intersecting
+   */
+  protected boolean intersects(int node, BoundingBox box) {
+    if ((m_MaxLat[node] < box.getMinLat()) || (m_MinLat[node] > box.getMaxLat()))
+      return false;
+    // longitudes of the points are not necessarily normalized
+    if ((m_MinLon[node] < -180) || (m_MaxLon[node] >= 180))
+      return true;
+    if (box.crossesAntimeridian())
+      return (m_MaxLon[node] >= box.getMinLon()) || (m_MinLon[node] <= box.getMaxLon());
+    return (m_MaxLon[node] >= box.getMinLon()) && (m_MinLon[node] <= box.getMaxLon());
+  }
+
+  /**
+   * Returns the minimum distance between the position and any point within
+   * the node's bounds. This is a lower bound: the larger of the latitude
+   * difference and the distance to the closest meridian of the bounds.
+   *
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @param node	the node
+   * @return		the minimum distance in meters
+   */
+  protected double minDistance(double lat, double lon, int node) {
+    double	dLat;
+    double	dLon;
+    double	meridian;
+    double	span;
+    double	east;
+
+    if (lat < m_MinLat[node])
+      dLat = m_MinLat[node] - lat;
+    else if (lat > m_MaxLat[node])
+      dLat = lat - m_MaxLat[node];
+    else
+      dLat = 0;
+
+    // eastward offset from the western bound, as the longitudes are not necessarily normalized
+    span = m_MaxLon[node] - m_MinLon[node];
+    east = GeoUtils.normalizeLongitude(lon - m_MinLon[node] - 180) + 180;
+    if ((span >= 360) || (east <= span))
+      dLon = 0;
+    else
+      dLon = Math.min(east - span, 360 - east);
+
+    // distance to the great circle of the meridian; beyond 90 degrees, the pole is closest
+    if (dLon == 0)
+      meridian = 0;
+    else if (dLon < 90)
+      meridian = Math.asin(Math.cos(Math.toRadians(lat)) * Math.sin(Math.toRadians(dLon)));
+    else
+      meridian = Math.toRadians(90 - Math.abs(lat));
+
+    return GeoUtils.EARTH_RADIUS * Math.max(Math.toRadians(dLat), meridian);
+  }
+
+  /**
+   * Returns the points within the radius around the position.
+   *
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @param radius	the radius in meters
+   * @return		the indices of the points in the store, ascending
+   */
+  public int[] withinRadius(double lat, double lon, double radius) {
+    int[]	result;
+    int[]	stack;
+    int		size;
+    int		count;
+    int		node;
+    int		i;
+
+    if ((root() == -1) || Double.isNaN(lat) || Double.isNaN(lon))
+      return new int[0];
+
+    result = new int[16];
+    count  = 0;
+    stack  = new int[64];
+    size   = 0;
+    stack[size++] = root();
+    while (size > 0) {
+      node = stack[--size];
+      if (minDistance(lat, lon, node) > radius)
+	continue;
+      for (i = m_Start[node]; i < m_End[node]; i++) {
+	if (node < m_NumLeaves) {
+	  if (GeoUtils.distance(lat, lon, m_Store.getLat(m_Points[i]), m_Store.getLon(m_Points[i])) <= radius)
+	    result = append(result, count++, m_Points[i]);
+	}
+	else {
+	  stack = append(stack, size++, i);
+	}
+      }
+    }
+    result = Arrays.copyOf(result, count);
+    Arrays.sort(result);
+
+    return result;
+  }
+
+  /**
+   * Returns the k points closest to the position (best-first search).
+   *
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @param k		the number of points
+   * @return		the indices of the points in the store, closest first
+   */
+  public int[] nearest(double lat, double lon, int k) {
+    int[]			result;
+    int				count;
+    PriorityQueue<Entry>	queue;
+    Entry			entry;
+    int				i;
+
+    if ((root() == -1) || (k <= 0) || Double.isNaN(lat) || Double.isNaN(lon))
+      return new int[0];
+
+    result = new int[Math.min(k, size())];
+    count  = 0;
+    queue  = new PriorityQueue<>();
+    queue.add(new Entry(minDistance(lat, lon, root()), root(), false));
+    while (!queue.isEmpty() && (count < result.length)) {
+      entry = queue.poll();
+      if (entry.point) {
+	result[count++] = entry.index;
+      }
+      else if (entry.index < m_NumLeaves) {
+	for (i = m_Start[entry.index]; i < m_End[entry.index]; i++)
+	  queue.add(new Entry(GeoUtils.distance(lat, lon, m_Store.getLat(m_Points[i]), m_Store.getLon(m_Points[i])), m_Points[i], true));
+      }
+      else {
+	for (i = m_Start[entry.index]; i < m_End[entry.index]; i++)
+	  queue.add(new Entry(minDistance(lat, lon, i), i, false));
+      }
+    }
+
+    return result;
+  }
+}
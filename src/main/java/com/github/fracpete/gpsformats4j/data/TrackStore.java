@@ -0,0 +1,449 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TrackStore.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.data;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import com.github.fracpete.gpsformats4j.formats.BIN;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import com.github.fracpete.gpsformats4j.formats.StreamingFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVRecordFactory;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, in-memory store for points. Coordinates, elevation and time
+ * (epoch msec) are held in primitive arrays, the track names are
+ * dictionary-encoded. Compared to a list of records with string values,
+ * this only requires a fraction of the heap.
+ * <br>
+ * Missing values are represented by NaN (coordinates, elevation) and
+ * {@link #NO_TIME} (time).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class TrackStore {
+
+  /** the value for missing timestamps. */
+  public static final long NO_TIME = TimeUtils.NO_TIME;
+
+  /** the default capacity. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** the mapping used by records generated from the store. */
+  protected static final Map<String,Integer> MAPPING;
+  static {
+    Map<String,Integer> map = new HashMap<>();
+    map.put(Format.KEY_TRACK, 0);
+    map.put(Format.KEY_TIME, 1);
+    map.put(Format.KEY_LAT, 2);
+    map.put(Format.KEY_LON, 3);
+    map.put(Format.KEY_ELEVATION, 4);
+    MAPPING = Collections.unmodifiableMap(map);
+  }
+
+  /** the number of points. */
+  protected int m_Size;
+
+  /** the track indices. */
+  protected int[] m_Track;
+
+  /** the timestamps (epoch msec). */
+  protected long[] m_Time;
+
+  /** the latitudes. */
+  protected double[] m_Lat;
+
+  /** the longitudes. */
+  protected double[] m_Lon;
+
+  /** the elevations. */
+  protected double[] m_Elevation;
+
+  /** the dictionary of track names. */
+  protected List<String> m_TrackNames;
+
+  /** the lookup of track name to index in dictionary. */
+  protected Map<String,Integer> m_TrackLookup;
+
+  /**
+   * Initializes the store with the default capacity.
+   */
+  public TrackStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Initializes the store.
+   *
+   * @param capacity	the initial capacity
+   */
+  public TrackStore(int capacity) {
+    capacity      = Math.max(1, capacity);
+    m_Size        = 0;
+    m_Track       = new int[capacity];
+    m_Time        = new long[capacity];
+    m_Lat         = new double[capacity];
+    m_Lon         = new double[capacity];
+    m_Elevation   = new double[capacity];
+    m_TrackNames  = new ArrayList<>();
+    m_TrackLookup = new HashMap<>();
+  }
+
+  /**
+   * Ensures that the arrays can hold the specified number of points.
+   *
+   * @param capacity	the required capacity
+   */
+  protected void ensureCapacity(int capacity) {
+    int		newCapacity;
+
+    if (capacity <= m_Lat.length)
+      return;
+    newCapacity = Math.max(capacity, m_Lat.length + (m_Lat.length >> 1));
+    resize(newCapacity);
+  }
+
+  /**
+   * Resizes the arrays.
+   *
+   * @param capacity	the new capacity
+   */
+  protected void resize(int capacity) {
+    m_Track     = Arrays.copyOf(m_Track, capacity);
+    m_Time      = Arrays.copyOf(m_Time, capacity);
+    m_Lat       = Arrays.copyOf(m_Lat, capacity);
+    m_Lon       = Arrays.copyOf(m_Lon, capacity);
+    m_Elevation = Arrays.copyOf(m_Elevation, capacity);
+  }
+
+  /**
+   * Shrinks the arrays to the number of points.
+   */
+  public void trimToSize() {
+    if (m_Size < m_Lat.length)
+      resize(Math.max(1, m_Size));
+  }
+
+  /**
+   * Returns the dictionary index for the track name, adding it if necessary.
+   *
+   * @param track	the track name
+   * @return		the index
+   */
+  protected int trackIndex(String track) {
+    Integer	result;
+
+    result = m_TrackLookup.get(track);
+    if (result == null) {
+      result = m_TrackNames.size();
+      m_TrackNames.add(track);
+      m_TrackLookup.put(track, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds a point.
+   *
+   * @param track	the track name
+   * @param time	the timestamp (epoch msec), {@link #NO_TIME} if missing
+   * @param lat		the latitude, NaN if missing
+   * @param lon		the longitude, NaN if missing
+   * @param elevation	the elevation, NaN if missing
+   */
+  public void add(String track, long time, double lat, double lon, double elevation) {
+    ensureCapacity(m_Size + 1);
+    m_Track[m_Size]     = trackIndex(track);
+    m_Time[m_Size]      = time;
+    m_Lat[m_Size]       = lat;
+    m_Lon[m_Size]       = lon;
+    m_Elevation[m_Size] = elevation;
+    m_Size++;
+  }
+
+  /**
+   * Adds the point represented by the record.
+   *
+   * @param rec		the record to add
+   */
+  public void add(CSVRecord rec) {
+    add(
+      rec.get(Format.KEY_TRACK),
+      parseTime(rec.get(Format.KEY_TIME)),
+      parseNumber(rec.get(Format.KEY_LAT)),
+      parseNumber(rec.get(Format.KEY_LON)),
+      parseNumber(rec.get(Format.KEY_ELEVATION)));
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the number of distinct tracks.
+   *
+   * @return		the number of tracks
+   */
+  public int numTracks() {
+    return m_TrackNames.size();
+  }
+
+  /**
+   * Returns the name of the track with the specified dictionary index.
+   *
+   * @param index	the dictionary index
+   * @return		the name
+   */
+  public String getTrackName(int index) {
+    return m_TrackNames.get(index);
+  }
+
+  /**
+   * Returns the dictionary index of the track of the point.
+   *
+   * @param index	the index of the point
+   * @return		the dictionary index
+   */
+  public int getTrackIndex(int index) {
+    return m_Track[index];
+  }
+
+  /**
+   * Returns the track name of the point.
+   *
+   * @param index	the index of the point
+   * @return		the name
+   */
+  public String getTrack(int index) {
+    return m_TrackNames.get(m_Track[index]);
+  }
+
+  /**
+   * Returns the timestamp of the point.
+   *
+   * @param index	the index of the point
+   * @return		the timestamp (epoch msec), {@link #NO_TIME} if missing
+   */
+  public long getTime(int index) {
+    return m_Time[index];
+  }
+
+  /**
+   * Returns the latitude of the point.
+   *
+   * @param index	the index of the point
+   * @return		the latitude, NaN if missing
+   */
+  public double getLat(int index) {
+    return m_Lat[index];
+  }
+
+  /**
+   * Returns the longitude of the point.
+   *
+   * @param index	the index of the point
+   * @return		the longitude, NaN if missing
+   */
+  public double getLon(int index) {
+    return m_Lon[index];
+  }
+
+  /**
+   * Returns the elevation of the point.
+   *
+   * @param index	the index of the point
+   * @return		the elevation, NaN if missing
+   */
+  public double getElevation(int index) {
+    return m_Elevation[index];
+  }
+
+  /**
+   * Returns the point as record.
+   *
+   * @param index	the index of the point
+   * @return		the record
+   */
+  public CSVRecord toRecord(int index) {
+    return CSVRecordFactory.newRecord(
+      new String[]{
+	getTrack(index),
+	formatTime(m_Time[index]),
+	formatNumber(m_Lat[index]),
+	formatNumber(m_Lon[index]),
+	formatNumber(m_Elevation[index]),
+      },
+      MAPPING, null, index + 1, -1);
+  }
+
+  /**
+   * Returns a read-only view of the points as records. The records get
+   * created on demand.
+   *
+   * @return		the view
+   */
+  public List<CSVRecord> toRecords() {
+    return new AbstractList<CSVRecord>() {
+      @Override
+      public CSVRecord get(int index) {
+	if ((index < 0) || (index >= m_Size))
+	  throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_Size);
+	return toRecord(index);
+      }
+      @Override
+      public int size() {
+	return m_Size;
+      }
+    };
+  }
+
+  /**
+   * Creates a store from the records.
+   *
+   * @param records	the records to add
+   * @return		the store
+   */
+  public static TrackStore fromRecords(Iterable<CSVRecord> records) {
+    TrackStore	result;
+
+    if (records instanceof List)
+      result = new TrackStore(((List) records).size());
+    else
+      result = new TrackStore();
+    for (CSVRecord rec: records)
+      result.add(rec);
+    result.trimToSize();
+
+    return result;
+  }
+
+  /**
+   * Creates a store from the points of the source.
+   *
+   * @param source	the source to read from, does not get closed
+   * @return		the store
+   * @throws Exception	if reading fails
+   */
+  public static TrackStore fromSource(PointSource source) throws Exception {
+    TrackStore	result;
+    CSVRecord	rec;
+
+    result = new TrackStore();
+    while ((rec = source.next()) != null)
+      result.add(rec);
+    result.trimToSize();
+
+    return result;
+  }
+
+  /**
+   * Loads the file into a store. Streams the points if the format supports
+   * it, avoiding the intermediate list of records. {@link BIN} files get
+   * decoded directly, without any records.
+   *
+   * @param format	the format to read with
+   * @param input	the file to load
+   * @return		the store, null if failed to read
+   * @throws Exception	if reading fails
+   */
+  public static TrackStore load(Format format, File input) throws Exception {
+    PointSource		source;
+    List<CSVRecord>	records;
+
+    if (format instanceof BIN)
+      return ((BIN) format).readStore(input);
+
+    if ((format instanceof StreamingFormat) && ((StreamingFormat) format).canStream()) {
+      source = null;
+      try {
+	source = ((StreamingFormat) format).openSource(input);
+	return fromSource(source);
+      }
+      finally {
+	IOUtils.closeQuietly(source);
+      }
+    }
+
+    records = format.read(input);
+    if (records == null)
+      return null;
+    return fromRecords(records);
+  }
+
+  /**
+   * Parses a number.
+   *
+   * @param s		the string to parse
+   * @return		the number, NaN if empty or not a number
+   */
+  public static double parseNumber(String s) {
+    return CoordinateUtils.parse(s);
+  }
+
+  /**
+   * Formats a number, using the fewest digits that parse back to the same
+   * value.
+   *
+   * @param value	the number to format
+   * @return		the string, empty if NaN
+   */
+  public static String formatNumber(double value) {
+    return CoordinateUtils.format(value, CoordinateUtils.SHORTEST);
+  }
+
+  /**
+   * Parses an ISO 8601 timestamp. Timestamps without offset are interpreted
+   * as UTC.
+   *
+   * @param s		the string to parse
+   * @return		the timestamp (epoch msec), {@link #NO_TIME} if empty or invalid
+   */
+  public static long parseTime(String s) {
+    return TimeUtils.parse(s);
+  }
+
+  /**
+   * Formats a timestamp as ISO 8601 in UTC.
+   *
+   * @param time	the timestamp (epoch msec)
+   * @return		the string, empty if {@link #NO_TIME}
+   */
+  public static String formatTime(long time) {
+    return TimeUtils.format(time);
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractTrackFilter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+import com.github.fracpete.gpsformats4j.progress.ProgressMonitor;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Ancestor for filters that process the points of another source one track
+ * at a time. Consecutive points with the same track name form a track; only
+ * the points of the current track are held in memory.
+ * <br>
+ * With a {@link CancellationToken} set, buffering a track and processing it
+ * abort with a {@link CancellationException} once the token is cancelled.
+ * <br>
+ * Closing the filter closes the wrapped source.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public abstract class AbstractTrackFilter
+  implements PointSource {
+
+  /** the wrapped source. */
+  protected PointSource m_Source;
+
+  /** the first point of the next track, null if none read yet. */
+  protected CSVRecord m_Pending;
+
+  /** whether the wrapped source is exhausted. */
+  protected boolean m_Finished;
+
+  /** the processed points of the current track. */
+  protected List<CSVRecord> m_Track;
+
+  /** the position in the processed points. */
+  protected int m_Pos;
+
+  /** the number of points read from the source. */
+  protected long m_PointsIn;
+
+  /** the number of points supplied. */
+  protected long m_PointsOut;
+
+  /** the largest number of points of a track. */
+  protected long m_PeakRetained;
+
+  /** the token for cancelling, can be null. */
+  protected CancellationToken m_Token;
+
+  /**
+   * Initializes the filter.
+   *
+   * @param source	the source to filter
+   */
+  protected AbstractTrackFilter(PointSource source) {
+    m_Source       = source;
+    m_Pending      = null;
+    m_Finished     = false;
+    m_Track        = Collections.emptyList();
+    m_Pos          = 0;
+    m_PointsIn     = 0;
+    m_PointsOut    = 0;
+    m_PeakRetained = 0;
+    m_Token        = null;
+  }
+
+  /**
+   * Sets the token for cancelling the processing.
+   *
+   * @param value	the token, can be null
+   */
+  public void setCancellationToken(CancellationToken value) {
+    m_Token = value;
+  }
+
+  /**
+   * Returns the token for cancelling the processing.
+   *
+   * @return		the token, can be null
+   */
+  public CancellationToken getCancellationToken() {
+    return m_Token;
+  }
+
+  /**
+   * Throws an exception if the token got cancelled. Only checks every
+   * {@link ProgressMonitor#CHECK_POINTS} iterations.
+   *
+   * @param token	the token, can be null
+   * @param iteration	the current iteration of the loop
+   * @throws CancellationException	if cancelled
+   */
+  protected static void checkCancelled(CancellationToken token, long iteration) {
+    if ((token != null) && ((iteration & (ProgressMonitor.CHECK_POINTS - 1)) == 0))
+      token.throwIfCancelled();
+  }
+
+  /**
+   * Reads the points of the next track from the source.
+   *
+   * @return		the points, empty if the source is exhausted
+   * @throws Exception	if reading fails
+   */
+  protected List<CSVRecord> readTrack() throws Exception {
+    List<CSVRecord>	result;
+    CSVRecord		rec;
+    String		name;
+
+    result = new ArrayList<>();
+    if (m_Pending != null) {
+      result.add(m_Pending);
+      m_Pending = null;
+    }
+    name = result.isEmpty() ? null : result.get(0).get(Format.KEY_TRACK);
+    while ((rec = m_Source.next()) != null) {
+      m_PointsIn++;
+      checkCancelled(m_Token, m_PointsIn);
+      if (name == null) {
+	name = rec.get(Format.KEY_TRACK);
+      }
+      else if (!name.equals(rec.get(Format.KEY_TRACK))) {
+	m_Pending = rec;
+	break;
+      }
+      result.add(rec);
+    }
+    if (rec == null)
+      m_Finished = true;
+
+    return result;
+  }
+
+  /**
+   * Processes the points of a track.
+   *
+   * @param track	the points of the track, all with the same track name
+   * @return		the points to supply
+   * @throws Exception	if processing fails
+   */
+  protected abstract List<CSVRecord> filter(List<CSVRecord> track) throws Exception;
+
+  /**
+   * Returns the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if reading or processing fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    List<CSVRecord>	track;
+
+    while (m_Pos >= m_Track.size()) {
+      if (m_Finished && (m_Pending == null))
+	return null;
+      track = readTrack();
+      m_PeakRetained = Math.max(m_PeakRetained, track.size());
+      if (!track.isEmpty())
+	m_Track = filter(track);
+      else
+	m_Track = Collections.emptyList();
+      m_Pos = 0;
+    }
+    m_PointsOut++;
+
+    return m_Track.get(m_Pos++);
+  }
+
+  /**
+   * Returns the wrapped source.
+   *
+   * @return		the source
+   */
+  public PointSource getSource() {
+    return m_Source;
+  }
+
+  /**
+   * Returns the number of points read from the wrapped source so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsIn() {
+    return m_PointsIn;
+  }
+
+  /**
+   * Returns the number of points supplied so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsOut() {
+    return m_PointsOut;
+  }
+
+  /**
+   * Returns the largest number of points of a track held in memory so far.
+   *
+   * @return		the number of points
+   */
+  public long getPeakRetained() {
+    return m_PeakRetained;
+  }
+
+  /**
+   * Closes the wrapped source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Track   = Collections.emptyList();
+    m_Pending = null;
+    m_Source.close();
+  }
+}
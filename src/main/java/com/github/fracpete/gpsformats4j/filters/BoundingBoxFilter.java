@@ -0,0 +1,124 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BoundingBoxFilter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.data.BoundingBox;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+
+/**
+ * Only lets through the points within a bounding box. Points without
+ * position are removed as well. Works on one point at a time, ie a single
+ * linear pass without any index.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see com.github.fracpete.gpsformats4j.data.SpatialIndex
+ */
+public class BoundingBoxFilter
+  implements PointSource {
+
+  /** the wrapped source. */
+  protected PointSource m_Source;
+
+  /** the box. */
+  protected BoundingBox m_Box;
+
+  /** the number of points read from the source. */
+  protected long m_PointsIn;
+
+  /** the number of points supplied. */
+  protected long m_PointsOut;
+
+  /**
+   * Initializes the filter.
+   *
+   * @param source	the source to filter
+   * @param box		the box to keep the points of
+   */
+  public BoundingBoxFilter(PointSource source, BoundingBox box) {
+    m_Source    = source;
+    m_Box       = box;
+    m_PointsIn  = 0;
+    m_PointsOut = 0;
+  }
+
+  /**
+   * Returns the next point within the box.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if reading fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    CSVRecord	rec;
+
+    while ((rec = m_Source.next()) != null) {
+      m_PointsIn++;
+      if (m_Box.contains(CoordinateUtils.parse(rec.get(Format.KEY_LAT)), CoordinateUtils.parse(rec.get(Format.KEY_LON)))) {
+	m_PointsOut++;
+	return rec;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the wrapped source.
+   *
+   * @return		the source
+   */
+  public PointSource getSource() {
+    return m_Source;
+  }
+
+  /**
+   * Returns the number of points read from the wrapped source so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsIn() {
+    return m_PointsIn;
+  }
+
+  /**
+   * Returns the number of points supplied so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsOut() {
+    return m_PointsOut;
+  }
+
+  /**
+   * Closes the wrapped source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Source.close();
+  }
+}
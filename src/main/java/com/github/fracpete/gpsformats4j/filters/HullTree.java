@@ -0,0 +1,423 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * HullTree.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Static segment tree of convex hulls over a sequence of points, for finding
+ * the point of a range of the sequence that is extreme in a given direction
+ * (ie maximizes the dot product with it).
+ * <br>
+ * The points get grouped into buckets of {@link #BUCKET_SIZE}; every node
+ * stores the lower and upper chain of the convex hull of its buckets,
+ * computed from the hulls of its children. Building takes O(n log n) time,
+ * a query O(log^2 n) plus scanning the partial buckets at both ends of the
+ * range. Unlike hulls maintained incrementally along the path (Melkman), the
+ * points do not have to form a simple polyline, ie self-intersecting tracks
+ * are fine.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class HullTree {
+
+  /** the number of points per bucket (leaf). */
+  public static final int BUCKET_SIZE = 32;
+
+  /** the x coordinates. */
+  protected double[] m_X;
+
+  /** the y coordinates. */
+  protected double[] m_Y;
+
+  /** the number of leaves (power of 2). */
+  protected int m_Leaves;
+
+  /** the point indices of all the hull chains. */
+  protected int[] m_Chains;
+
+  /** the number of used elements in the chains. */
+  protected int m_Used;
+
+  /** the start of the lower chain per node. */
+  protected int[] m_LowerStart;
+
+  /** the length of the lower chain per node. */
+  protected int[] m_LowerLength;
+
+  /** the start of the upper chain per node. */
+  protected int[] m_UpperStart;
+
+  /** the length of the upper chain per node. */
+  protected int[] m_UpperLength;
+
+  /**
+   * Builds the tree for the points.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   */
+  public HullTree(double[] x, double[] y) {
+    this(x, y, null);
+  }
+
+  /**
+   * Builds the tree for the points, checking the token after every node.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param token	the token for cancelling, can be null
+   * @throws CancellationException	if cancelled
+   */
+  public HullTree(double[] x, double[] y, CancellationToken token) {
+    int		buckets;
+    int		nodes;
+    int		i;
+
+    m_X     = x;
+    m_Y     = y;
+    buckets = (x.length + BUCKET_SIZE - 1) / BUCKET_SIZE;
+    m_Leaves = 1;
+    while (m_Leaves < buckets)
+      m_Leaves *= 2;
+    nodes = 2 * m_Leaves;
+    m_LowerStart  = new int[nodes];
+    m_LowerLength = new int[nodes];
+    m_UpperStart  = new int[nodes];
+    m_UpperLength = new int[nodes];
+    m_Chains      = new int[4 * x.length + 16];
+    m_Used        = 0;
+
+    for (i = 0; i < buckets; i++) {
+      if (token != null)
+	token.throwIfCancelled();
+      buildLeaf(m_Leaves + i, i * BUCKET_SIZE, Math.min(x.length, (i + 1) * BUCKET_SIZE));
+    }
+    for (i = m_Leaves - 1; i >= 1; i--) {
+      if (token != null)
+	token.throwIfCancelled();
+      buildNode(i);
+    }
+  }
+
+  /**
+   * Returns whether point a comes before point b, ordered by x, then y.
+   *
+   * @param a		the first point
+   * @param b		the second point
+   * @return		true if a comes before b
+   */
+  protected boolean before(int a, int b) {
+    return (m_X[a] < m_X[b]) || ((m_X[a] == m_X[b]) && (m_Y[a] < m_Y[b]));
+  }
+
+  /**
+   * Returns the cross product of (b - a) and (c - a), positive if a, b, c
+   * turn counter-clockwise.
+   *
+   * @param a		the first point
+   * @param b		the second point
+   * @param c		the third point
+   * @return		the cross product
+   */
+  protected double cross(int a, int b, int c) {
+    return (m_X[b] - m_X[a]) * (m_Y[c] - m_Y[a]) - (m_Y[b] - m_Y[a]) * (m_X[c] - m_X[a]);
+  }
+
+  /**
+   * Makes sure that the chains can take the additional elements.
+   *
+   * @param count	the number of elements to add
+   */
+  protected void ensureCapacity(int count) {
+    if (m_Used + count > m_Chains.length)
+      m_Chains = Arrays.copyOf(m_Chains, Math.max(m_Chains.length * 2, m_Used + count));
+  }
+
+  /**
+   * Computes the lower and upper chain of the sorted points (monotone chain)
+   * and stores them for the node.
+   *
+   * @param node	the node
+   * @param sorted	the points, ordered by x, then y
+   * @param count	the number of points
+   */
+  protected void setHull(int node, int[] sorted, int count) {
+    int		len;
+    int		i;
+
+    ensureCapacity(2 * count);
+
+    m_LowerStart[node] = m_Used;
+    len = 0;
+    for (i = 0; i < count; i++) {
+      while ((len >= 2) && (cross(m_Chains[m_Used + len - 2], m_Chains[m_Used + len - 1], sorted[i]) <= 0))
+	len--;
+      m_Chains[m_Used + len++] = sorted[i];
+    }
+    m_LowerLength[node] = len;
+    m_Used += len;
+
+    m_UpperStart[node] = m_Used;
+    len = 0;
+    for (i = 0; i < count; i++) {
+      while ((len >= 2) && (cross(m_Chains[m_Used + len - 2], m_Chains[m_Used + len - 1], sorted[i]) >= 0))
+	len--;
+      m_Chains[m_Used + len++] = sorted[i];
+    }
+    m_UpperLength[node] = len;
+    m_Used += len;
+  }
+
+  /**
+   * Builds the hull of a bucket.
+   *
+   * @param node	the leaf node
+   * @param from	the first point (incl)
+   * @param to		the last point (excl)
+   */
+  protected void buildLeaf(int node, int from, int to) {
+    int[]	sorted;
+    int		count;
+    int		i;
+    int		j;
+    int		p;
+
+    // insertion sort, buckets are small
+    sorted = new int[to - from];
+    count  = 0;
+    for (i = from; i < to; i++) {
+      p = i;
+      j = count - 1;
+      while ((j >= 0) && before(p, sorted[j])) {
+	sorted[j + 1] = sorted[j];
+	j--;
+      }
+      sorted[j + 1] = p;
+      count++;
+    }
+    setHull(node, sorted, count);
+  }
+
+  /**
+   * Merges the lower and upper chain of the node into the vertices of its
+   * hull, ordered by x, then y.
+   *
+   * @param node	the node
+   * @param vertices	for storing the vertices
+   * @param offset	the position to start storing at
+   * @return		the number of vertices
+   */
+  protected int vertices(int node, int[] vertices, int offset) {
+    int		lower;
+    int		lowerEnd;
+    int		upper;
+    int		upperEnd;
+    int		count;
+
+    lower    = m_LowerStart[node];
+    lowerEnd = lower + m_LowerLength[node];
+    upper    = m_UpperStart[node];
+    upperEnd = upper + m_UpperLength[node];
+    count    = 0;
+    while ((lower < lowerEnd) || (upper < upperEnd)) {
+      if (upper == upperEnd) {
+	vertices[offset + count++] = m_Chains[lower++];
+      }
+      else if (lower == lowerEnd) {
+	vertices[offset + count++] = m_Chains[upper++];
+      }
+      else if (m_Chains[lower] == m_Chains[upper]) {
+	vertices[offset + count++] = m_Chains[lower++];
+	upper++;
+      }
+      else if (before(m_Chains[lower], m_Chains[upper])) {
+	vertices[offset + count++] = m_Chains[lower++];
+      }
+      else {
+	vertices[offset + count++] = m_Chains[upper++];
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Builds the hull of an inner node from the hulls of its children.
+   *
+   * @param node	the node
+   */
+  protected void buildNode(int node) {
+    int[]	children;
+    int[]	sorted;
+    int		left;
+    int		right;
+    int		count;
+    int		i;
+    int		j;
+
+    children = new int[m_LowerLength[2 * node] + m_UpperLength[2 * node] + m_LowerLength[2 * node + 1] + m_UpperLength[2 * node + 1]];
+    left     = vertices(2 * node, children, 0);
+    right    = vertices(2 * node + 1, children, left);
+    sorted   = new int[left + right];
+    count    = 0;
+    i        = 0;
+    j        = left;
+    while ((i < left) || (j < left + right)) {
+      if ((j == left + right) || ((i < left) && before(children[i], children[j])))
+	sorted[count++] = children[i++];
+      else
+	sorted[count++] = children[j++];
+    }
+    setHull(node, sorted, count);
+  }
+
+  /**
+   * Returns the vertex of the chain that maximizes the dot product with the
+   * direction. The edges of a hull chain turn by less than 180 degrees, ie
+   * the dot product changes its trend at most once along the chain.
+   *
+   * @param start	the start of the chain
+   * @param length	the length of the chain
+   * @param dx		the x component of the direction
+   * @param dy		the y component of the direction
+   * @return		the point index, -1 if empty chain
+   */
+  protected int chainExtreme(int start, int length, double dx, double dy) {
+    int		first;
+    int		last;
+    int		lo;
+    int		hi;
+    int		mid;
+
+    if (length == 0)
+      return -1;
+    if (length == 1)
+      return m_Chains[start];
+
+    first = m_Chains[start];
+    last  = m_Chains[start + length - 1];
+    if (dot(m_Chains[start + 1], dx, dy) <= dot(first, dx, dy))
+      return (dot(first, dx, dy) >= dot(last, dx, dy)) ? first : last;
+
+    // increasing at the start: find the first edge that no longer increases
+    lo = 1;
+    hi = length - 1;
+    while (lo < hi) {
+      mid = (lo + hi) >>> 1;
+      if (dot(m_Chains[start + mid + 1], dx, dy) <= dot(m_Chains[start + mid], dx, dy))
+	hi = mid;
+      else
+	lo = mid + 1;
+    }
+
+    return m_Chains[start + lo];
+  }
+
+  /**
+   * Returns the dot product of the point with the direction.
+   *
+   * @param i		the point
+   * @param dx		the x component of the direction
+   * @param dy		the y component of the direction
+   * @return		the dot product
+   */
+  protected double dot(int i, double dx, double dy) {
+    return m_X[i] * dx + m_Y[i] * dy;
+  }
+
+  /**
+   * Returns the better of the two points for the direction.
+   *
+   * @param best	the current best point, -1 if none
+   * @param i		the point to check, -1 if none
+   * @param dx		the x component of the direction
+   * @param dy		the y component of the direction
+   * @return		the better point
+   */
+  protected int better(int best, int i, double dx, double dy) {
+    if (i == -1)
+      return best;
+    if ((best == -1) || (dot(i, dx, dy) > dot(best, dx, dy)))
+      return i;
+    return best;
+  }
+
+  /**
+   * Returns the point of the range that maximizes the dot product with the
+   * direction.
+   *
+   * @param from	the first point (incl)
+   * @param to		the last point (incl)
+   * @param dx		the x component of the direction
+   * @param dy		the y component of the direction
+   * @return		the point index, -1 if the range is empty
+   */
+  public int extreme(int from, int to, double dx, double dy) {
+    int		result;
+    int		first;
+    int		last;
+    int		left;
+    int		right;
+    int		i;
+
+    result = -1;
+    if (from > to)
+      return result;
+
+    first = from / BUCKET_SIZE;
+    last  = to / BUCKET_SIZE;
+    if (first == last) {
+      for (i = from; i <= to; i++)
+	result = better(result, i, dx, dy);
+      return result;
+    }
+
+    // partial buckets
+    for (i = from; i < (first + 1) * BUCKET_SIZE; i++)
+      result = better(result, i, dx, dy);
+    for (i = last * BUCKET_SIZE; i <= to; i++)
+      result = better(result, i, dx, dy);
+
+    // full buckets in between
+    left  = m_Leaves + first + 1;
+    right = m_Leaves + last;
+    while (left < right) {
+      if ((left & 1) == 1) {
+	result = better(result, chainExtreme(m_LowerStart[left], m_LowerLength[left], dx, dy), dx, dy);
+	result = better(result, chainExtreme(m_UpperStart[left], m_UpperLength[left], dx, dy), dx, dy);
+	left++;
+      }
+      if ((right & 1) == 1) {
+	right--;
+	result = better(result, chainExtreme(m_LowerStart[right], m_LowerLength[right], dx, dy), dx, dy);
+	result = better(result, chainExtreme(m_UpperStart[right], m_UpperLength[right], dx, dy), dx, dy);
+      }
+      left  >>= 1;
+      right >>= 1;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,451 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ResampleFilter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.GeoUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVRecordFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resamples each track to a fixed interval of time or distance along the
+ * track, in a single pass and only keeping the current and the previous
+ * point plus running sums in memory.
+ * <br>
+ * The interval centers start at the first point of the track. Multiple
+ * points within an interval (downsampling) get reduced to a single one,
+ * either by picking the point closest to the center or by averaging them.
+ * For intervals without points (upsampling), a point gets interpolated
+ * linearly at the center. Generated timestamps are in UTC, generated
+ * coordinates get rounded to {@link #COORDINATE_DECIMALS} decimals.
+ * <br>
+ * Points without position, and in {@link ResampleMode#TIME} mode also
+ * points without timestamp, are skipped. Timestamps going backwards are
+ * treated as unchanged.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class ResampleFilter
+  implements PointSource {
+
+  /** the default interval (seconds or meters). */
+  public static final double DEFAULT_INTERVAL = 5.0;
+
+  /** the decimals for the coordinates of generated points (ie 0.1mm). */
+  public static final int COORDINATE_DECIMALS = 9;
+
+  /** the decimals for the elevation of generated points. */
+  public static final int ELEVATION_DECIMALS = 3;
+
+  /** the mapping used by generated records. */
+  protected static final Map<String,Integer> MAPPING;
+  static {
+    Map<String,Integer> map = new HashMap<>();
+    map.put(Format.KEY_TRACK, 0);
+    map.put(Format.KEY_TIME, 1);
+    map.put(Format.KEY_LAT, 2);
+    map.put(Format.KEY_LON, 3);
+    map.put(Format.KEY_ELEVATION, 4);
+    MAPPING = Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * A parsed point.
+   */
+  protected static class Point {
+
+    /** the original record. */
+    public CSVRecord record;
+
+    /** the track name. */
+    public String track;
+
+    /** the timestamp (epoch msec), {@link TimeUtils#NO_TIME} if missing. */
+    public long time;
+
+    /** the latitude. */
+    public double lat;
+
+    /** the longitude. */
+    public double lon;
+
+    /** the elevation, NaN if missing. */
+    public double ele;
+
+    /** the position along the resampled dimension (msec or meters). */
+    public double pos;
+  }
+
+  /** the wrapped source. */
+  protected PointSource m_Source;
+
+  /** what the interval refers to. */
+  protected ResampleMode m_Mode;
+
+  /** how to reduce multiple points in an interval. */
+  protected ResampleMethod m_Method;
+
+  /** the interval in msec or meters. */
+  protected double m_Interval;
+
+  /** the last point that was added to an interval, null at the start of a track. */
+  protected Point m_Prev;
+
+  /** the point that is yet to be added to an interval. */
+  protected Point m_Current;
+
+  /** the position of the first interval center of the track. */
+  protected double m_Start;
+
+  /** the index of the current interval. */
+  protected long m_Index;
+
+  /** the number of points in the current interval. */
+  protected int m_Count;
+
+  /** the point closest to the center of the current interval. */
+  protected Point m_Best;
+
+  /** the sum of the latitudes in the current interval. */
+  protected double m_SumLat;
+
+  /** the longitude of the first point in the current interval. */
+  protected double m_Reference;
+
+  /** the sum of the longitudes, relative to the first one, in the current interval. */
+  protected double m_SumLon;
+
+  /** the sum of the elevations in the current interval. */
+  protected double m_SumEle;
+
+  /** the number of elevations in the current interval. */
+  protected int m_CountEle;
+
+  /** the sum of the timestamps in the current interval. */
+  protected double m_SumTime;
+
+  /** the number of timestamps in the current interval. */
+  protected int m_CountTime;
+
+  /** whether the wrapped source is exhausted. */
+  protected boolean m_Finished;
+
+  /** the number of points read from the source. */
+  protected long m_PointsIn;
+
+  /** the number of points supplied. */
+  protected long m_PointsOut;
+
+  /** the number of skipped points. */
+  protected long m_Skipped;
+
+  /**
+   * Initializes the filter.
+   *
+   * @param source	the source to resample
+   * @param mode	what the interval refers to
+   * @param method	how to reduce multiple points in an interval
+   * @param interval	the interval in seconds or meters
+   */
+  public ResampleFilter(PointSource source, ResampleMode mode, ResampleMethod method, double interval) {
+    if (mode == ResampleMode.NONE)
+      throw new IllegalArgumentException("No resample mode specified!");
+    if (!(interval > 0))
+      throw new IllegalArgumentException("Interval must be positive: " + interval);
+    m_Source    = source;
+    m_Mode      = mode;
+    m_Method    = method;
+    m_Interval  = (mode == ResampleMode.TIME) ? interval * 1000 : interval;
+    m_Prev      = null;
+    m_Current   = null;
+    m_Count     = 0;
+    m_Finished  = false;
+    m_PointsIn  = 0;
+    m_PointsOut = 0;
+    m_Skipped   = 0;
+  }
+
+  /**
+   * Parses the record.
+   *
+   * @param rec		the record to parse
+   * @return		the point, null if it cannot be resampled
+   */
+  protected Point parse(CSVRecord rec) {
+    Point	result;
+    boolean	sameTrack;
+
+    result        = new Point();
+    result.record = rec;
+    result.track  = rec.get(Format.KEY_TRACK);
+    result.lat    = CoordinateUtils.parse(rec.get(Format.KEY_LAT));
+    result.lon    = CoordinateUtils.parse(rec.get(Format.KEY_LON));
+    result.ele    = CoordinateUtils.parse(rec.get(Format.KEY_ELEVATION));
+    result.time   = TimeUtils.parse(rec.get(Format.KEY_TIME));
+    if (Double.isNaN(result.lat) || Double.isNaN(result.lon))
+      return null;
+
+    sameTrack = (m_Prev != null) && m_Prev.track.equals(result.track);
+    if (m_Mode == ResampleMode.TIME) {
+      if (result.time == TimeUtils.NO_TIME)
+	return null;
+      result.pos = result.time;
+      if (sameTrack && (result.pos < m_Prev.pos))
+	result.pos = m_Prev.pos;
+    }
+    else {
+      result.pos = 0;
+      if (sameTrack)
+	result.pos = m_Prev.pos + GeoUtils.distance(m_Prev.lat, m_Prev.lon, result.lat, result.lon);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the center of the current interval.
+   *
+   * @return		the position of the center
+   */
+  protected double center() {
+    return m_Start + m_Index * m_Interval;
+  }
+
+  /**
+   * Adds the point to the current interval.
+   *
+   * @param p		the point to add
+   */
+  protected void add(Point p) {
+    if (m_Count == 0) {
+      m_Best      = p;
+      m_Reference = p.lon;
+      m_SumLat    = 0;
+      m_SumLon    = 0;
+      m_SumEle    = 0;
+      m_CountEle  = 0;
+      m_SumTime   = 0;
+      m_CountTime = 0;
+    }
+    else if (Math.abs(p.pos - center()) < Math.abs(m_Best.pos - center())) {
+      m_Best = p;
+    }
+    m_Count++;
+    m_SumLat += p.lat;
+    m_SumLon += GeoUtils.normalizeLongitude(p.lon - m_Reference);
+    if (!Double.isNaN(p.ele)) {
+      m_SumEle += p.ele;
+      m_CountEle++;
+    }
+    if (p.time != TimeUtils.NO_TIME) {
+      m_SumTime += p.time;
+      m_CountTime++;
+    }
+  }
+
+  /**
+   * Creates a record.
+   *
+   * @param track	the track name
+   * @param time	the timestamp, {@link TimeUtils#NO_TIME} if missing
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @param ele		the elevation, NaN if missing
+   * @return		the record
+   */
+  protected CSVRecord newRecord(String track, long time, double lat, double lon, double ele) {
+    return CSVRecordFactory.newRecord(
+      new String[]{
+	track,
+	TimeUtils.format(time),
+	CoordinateUtils.format(lat, COORDINATE_DECIMALS),
+	CoordinateUtils.format(GeoUtils.normalizeLongitude(lon), COORDINATE_DECIMALS),
+	CoordinateUtils.format(ele, ELEVATION_DECIMALS),
+      },
+      MAPPING, null, m_PointsOut + 1, -1);
+  }
+
+  /**
+   * Reduces the points of the current interval to a single point and
+   * starts a new interval.
+   *
+   * @return		the point
+   */
+  protected CSVRecord reduce() {
+    CSVRecord	result;
+
+    if ((m_Method == ResampleMethod.PICK) || (m_Count == 1)) {
+      result = m_Best.record;
+    }
+    else {
+      result = newRecord(
+	m_Best.track,
+	(m_CountTime > 0) ? Math.round(m_SumTime / m_CountTime) : TimeUtils.NO_TIME,
+	m_SumLat / m_Count,
+	m_Reference + m_SumLon / m_Count,
+	(m_CountEle > 0) ? m_SumEle / m_CountEle : Double.NaN);
+    }
+    m_Count = 0;
+
+    return result;
+  }
+
+  /**
+   * Interpolates a point at the center of the current interval.
+   *
+   * @param from	the point before the center
+   * @param to		the point after the center
+   * @return		the interpolated point
+   */
+  protected CSVRecord interpolate(Point from, Point to) {
+    double	f;
+    long	time;
+
+    f = (center() - from.pos) / (to.pos - from.pos);
+    if (m_Mode == ResampleMode.TIME)
+      time = Math.round(center());
+    else if ((from.time != TimeUtils.NO_TIME) && (to.time != TimeUtils.NO_TIME))
+      time = from.time + Math.round((to.time - from.time) * f);
+    else
+      time = TimeUtils.NO_TIME;
+
+    return newRecord(
+      to.track,
+      time,
+      from.lat + (to.lat - from.lat) * f,
+      from.lon + GeoUtils.normalizeLongitude(to.lon - from.lon) * f,
+      from.ele + (to.ele - from.ele) * f);
+  }
+
+  /**
+   * Returns the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if reading fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    CSVRecord	rec;
+
+    while (true) {
+      if (m_Current != null) {
+	// new track? finish the last interval of the previous one first
+	if ((m_Prev != null) && !m_Prev.track.equals(m_Current.track)) {
+	  if (m_Count > 0) {
+	    m_PointsOut++;
+	    return reduce();
+	  }
+	  m_Prev = null;
+	}
+	if (m_Prev == null) {
+	  m_Start = m_Current.pos;
+	  m_Index = 0;
+	}
+	// beyond the current interval?
+	if (m_Current.pos >= center() + m_Interval / 2) {
+	  rec = (m_Count > 0) ? reduce() : interpolate(m_Prev, m_Current);
+	  m_Index++;
+	  m_PointsOut++;
+	  return rec;
+	}
+	add(m_Current);
+	m_Prev    = m_Current;
+	m_Current = null;
+      }
+
+      if (m_Finished) {
+	if (m_Count > 0) {
+	  m_PointsOut++;
+	  return reduce();
+	}
+	return null;
+      }
+
+      rec = m_Source.next();
+      if (rec == null) {
+	m_Finished = true;
+	continue;
+      }
+      m_PointsIn++;
+      m_Current = parse(rec);
+      if (m_Current == null)
+	m_Skipped++;
+    }
+  }
+
+  /**
+   * Returns the wrapped source.
+   *
+   * @return		the source
+   */
+  public PointSource getSource() {
+    return m_Source;
+  }
+
+  /**
+   * Returns the number of points read from the wrapped source so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsIn() {
+    return m_PointsIn;
+  }
+
+  /**
+   * Returns the number of points supplied so far.
+   *
+   * @return		the number of points
+   */
+  public long getPointsOut() {
+    return m_PointsOut;
+  }
+
+  /**
+   * Returns the number of points that were skipped, as they lacked
+   * position or timestamp.
+   *
+   * @return		the number of points
+   */
+  public long getSkipped() {
+    return m_Skipped;
+  }
+
+  /**
+   * Closes the wrapped source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Prev    = null;
+    m_Current = null;
+    m_Best    = null;
+    m_Source.close();
+  }
+}
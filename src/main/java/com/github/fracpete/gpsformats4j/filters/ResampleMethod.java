@@ -0,0 +1,35 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ResampleMethod.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+/**
+ * How to reduce multiple points within an interval when resampling tracks.
+ * Intervals without points always get interpolated linearly.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see ResampleFilter
+ */
+public enum ResampleMethod {
+  /** keeps the point closest to the center of the interval as is. */
+  PICK,
+  /** averages the points. */
+  AVERAGE,
+}
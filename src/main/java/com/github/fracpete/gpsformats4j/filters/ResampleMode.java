@@ -0,0 +1,36 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ResampleMode.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+/**
+ * What the interval for resampling tracks refers to.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see ResampleFilter
+ */
+public enum ResampleMode {
+  /** no resampling. */
+  NONE,
+  /** interval in seconds. */
+  TIME,
+  /** interval in meters along the track. */
+  DISTANCE,
+}
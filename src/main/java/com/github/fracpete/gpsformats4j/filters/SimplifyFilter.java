@@ -0,0 +1,522 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SimplifyFilter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.filters;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.GeoUtils;
+import com.github.fracpete.gpsformats4j.formats.Format;
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import com.github.fracpete.gpsformats4j.progress.CancellationToken;
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplifies each track, removing points that hardly change its shape.
+ * The first and last point of a track are always kept, as are points
+ * without position.
+ * <br>
+ * The points get projected onto a plane in meters (equirectangular, around
+ * the mean latitude of the track), which is accurate enough for the extent
+ * of a track. Neither algorithm uses recursion:
+ * <ul>
+ *   <li>Douglas-Peucker keeps the points that are further than the
+ *   tolerance from the simplified line, using an explicit stack. Rather
+ *   than scanning every segment for its farthest point, which takes O(n^2)
+ *   time in the degenerate case that every split only separates a single
+ *   point, larger segments query a {@link HullTree} for the points
+ *   farthest to either side of the segment and beyond either of its ends.
+ *   This takes O(n log n) time for building the tree plus O(log^2 n) per
+ *   kept point. Segments with points beyond their ends that may exceed the
+ *   tolerance without any of the queried ones doing so (ie close to
+ *   turnarounds) get scanned.</li>
+ *   <li>Visvalingam-Whyatt repeatedly removes the point whose triangle with
+ *   its neighbors has the smallest area, as long as that area is below
+ *   the one of a triangle with base and height of the tolerance
+ *   (ie tolerance^2 / 2). Uses a binary heap, O(n log n) time.</li>
+ * </ul>
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class SimplifyFilter
+  extends AbstractTrackFilter {
+
+  /** the default tolerance in meters. */
+  public static final double DEFAULT_TOLERANCE = 1.0;
+
+  /** the number of points up to which a segment gets scanned rather than queried. */
+  public static final int MAX_SCAN = 2 * HullTree.BUCKET_SIZE;
+
+  /** the algorithm to use. */
+  protected SimplificationAlgorithm m_Algorithm;
+
+  /** the tolerance in meters. */
+  protected double m_Tolerance;
+
+  /**
+   * Initializes the filter.
+   *
+   * @param source	the source to simplify
+   * @param algorithm	the algorithm to use
+   * @param tolerance	the tolerance in meters
+   */
+  public SimplifyFilter(PointSource source, SimplificationAlgorithm algorithm, double tolerance) {
+    super(source);
+    m_Algorithm = algorithm;
+    m_Tolerance = tolerance;
+  }
+
+  /**
+   * Returns the number of points removed so far.
+   *
+   * @return		the number of points
+   */
+  public long getRemoved() {
+    return m_PointsIn - m_PointsOut;
+  }
+
+  /**
+   * Simplifies the track.
+   *
+   * @param track	the points of the track
+   * @return		the remaining points
+   */
+  @Override
+  protected List<CSVRecord> filter(List<CSVRecord> track) {
+    List<CSVRecord>	result;
+    int[]		index;
+    double[]		lat;
+    double[]		lon;
+    double[]		x;
+    double[]		y;
+    boolean[]		keep;
+    double		meanLat;
+    double		offset;
+    double		scaleX;
+    double		scaleY;
+    int			n;
+    int			i;
+
+    // positions
+    index   = new int[track.size()];
+    lat     = new double[track.size()];
+    lon     = new double[track.size()];
+    n       = 0;
+    meanLat = 0;
+    for (i = 0; i < track.size(); i++) {
+      checkCancelled(m_Token, i);
+      lat[n] = CoordinateUtils.parse(track.get(i).get(Format.KEY_LAT));
+      lon[n] = CoordinateUtils.parse(track.get(i).get(Format.KEY_LON));
+      if (Double.isNaN(lat[n]) || Double.isNaN(lon[n]))
+	continue;
+      index[n] = i;
+      meanLat += lat[n];
+      n++;
+    }
+    if ((n < 3) || (m_Algorithm == SimplificationAlgorithm.NONE))
+      return track;
+
+    // projection, unwrapping longitudes across the antimeridian
+    meanLat /= n;
+    scaleY = Math.toRadians(1) * GeoUtils.EARTH_RADIUS;
+    scaleX = scaleY * Math.cos(Math.toRadians(meanLat));
+    x      = new double[n];
+    y      = new double[n];
+    offset = 0;
+    for (i = 0; i < n; i++) {
+      if (i > 0) {
+	if (lon[i] - lon[i - 1] > 180)
+	  offset -= 360;
+	else if (lon[i] - lon[i - 1] < -180)
+	  offset += 360;
+      }
+      x[i] = (lon[i] + offset) * scaleX;
+      y[i] = lat[i] * scaleY;
+    }
+
+    keep = new boolean[n];
+    switch (m_Algorithm) {
+      case DOUGLAS_PEUCKER:
+	douglasPeucker(x, y, m_Tolerance, keep, m_Token);
+	break;
+      case VISVALINGAM:
+	visvalingam(x, y, m_Tolerance * m_Tolerance / 2, keep, m_Token);
+	break;
+      default:
+	throw new IllegalStateException("Unhandled algorithm: " + m_Algorithm);
+    }
+
+    // points without position are kept
+    result = new ArrayList<>();
+    n      = 0;
+    for (i = 0; i < track.size(); i++) {
+      if ((n < keep.length) && (index[n] == i)) {
+	if (keep[n])
+	  result.add(track.get(i));
+	n++;
+      }
+      else {
+	result.add(track.get(i));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the squared distance of the point to the segment.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param i		the point
+   * @param start	the start of the segment
+   * @param end		the end of the segment
+   * @return		the squared distance
+   */
+  protected static double distanceSquared(double[] x, double[] y, int i, int start, int end) {
+    double	dx;
+    double	dy;
+    double	len;
+    double	t;
+
+    dx  = x[end] - x[start];
+    dy  = y[end] - y[start];
+    len = dx * dx + dy * dy;
+    t   = 0;
+    if (len > 0)
+      t = Math.max(0, Math.min(1, ((x[i] - x[start]) * dx + (y[i] - y[start]) * dy) / len));
+    dx = x[start] + t * dx - x[i];
+    dy = y[start] + t * dy - y[i];
+
+    return dx * dx + dy * dy;
+  }
+
+  /**
+   * Returns the point of the segment that is farthest from it, if further
+   * than the tolerance, by scanning all the points of the segment.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param start	the start of the segment
+   * @param end		the end of the segment
+   * @param tolerance	the squared tolerance
+   * @param token	the token for cancelling, can be null
+   * @return		the point, -1 if none beyond the tolerance
+   */
+  protected static int scan(double[] x, double[] y, int start, int end, double tolerance, CancellationToken token) {
+    int		result;
+    double	max;
+    double	dist;
+    int		i;
+
+    result = -1;
+    max    = tolerance;
+    for (i = start + 1; i < end; i++) {
+      checkCancelled(token, i);
+      dist = distanceSquared(x, y, i, start, end);
+      if (dist > max) {
+	max    = dist;
+	result = i;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the point of the segment that is farthest from it, if further
+   * than the tolerance. Queries the points farthest to either side of the
+   * segment and beyond either end; if all points lie between the ends, the
+   * farthest of these is the farthest point overall. Otherwise, the
+   * distance beyond the ends and the one to the side are combined into an
+   * upper bound, and the segment only gets scanned if that bound exceeds
+   * the tolerance.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param tree	the hulls of the points
+   * @param start	the start of the segment
+   * @param end		the end of the segment
+   * @param tolerance	the squared tolerance
+   * @param token	the token for cancelling, can be null
+   * @return		the point, -1 if none beyond the tolerance
+   */
+  protected static int farthest(double[] x, double[] y, HullTree tree, int start, int end, double tolerance, CancellationToken token) {
+    int		result;
+    int[]	candidates;
+    double	dx;
+    double	dy;
+    double	len;
+    double	max;
+    double	dist;
+    double	side;
+    double	beyond;
+    int		i;
+
+    dx  = x[end] - x[start];
+    dy  = y[end] - y[start];
+    len = dx * dx + dy * dy;
+    if ((tree == null) || (end - start <= MAX_SCAN) || (len == 0))
+      return scan(x, y, start, end, tolerance, token);
+
+    // left and right of the segment, beyond its end and its start
+    candidates = new int[]{
+      tree.extreme(start + 1, end - 1, -dy, dx),
+      tree.extreme(start + 1, end - 1, dy, -dx),
+      tree.extreme(start + 1, end - 1, dx, dy),
+      tree.extreme(start + 1, end - 1, -dx, -dy),
+    };
+    result = -1;
+    max    = tolerance;
+    for (i = 0; i < candidates.length; i++) {
+      dist = distanceSquared(x, y, candidates[i], start, end);
+      if (dist > max) {
+	max    = dist;
+	result = candidates[i];
+      }
+    }
+    if (result != -1)
+      return result;
+
+    // all points between the ends?
+    beyond = Math.max(
+      ((x[candidates[2]] - x[start]) * dx + (y[candidates[2]] - y[start]) * dy - len),
+      -((x[candidates[3]] - x[start]) * dx + (y[candidates[3]] - y[start]) * dy));
+    if (beyond <= 0)
+      return -1;
+    side = Math.max(
+      Math.abs((x[candidates[0]] - x[start]) * dy - (y[candidates[0]] - y[start]) * dx),
+      Math.abs((x[candidates[1]] - x[start]) * dy - (y[candidates[1]] - y[start]) * dx));
+    if ((side * side + beyond * beyond) / len <= tolerance)
+      return -1;
+
+    return scan(x, y, start, end, tolerance, token);
+  }
+
+  /**
+   * Douglas-Peucker simplification, using an explicit stack of segments.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param tolerance	the maximum distance
+   * @param keep	for flagging the points to keep
+   * @param token	the token for cancelling, can be null
+   */
+  protected static void douglasPeucker(double[] x, double[] y, double tolerance, boolean[] keep, CancellationToken token) {
+    HullTree	tree;
+    int[]	stack;
+    int		size;
+    int		start;
+    int		end;
+    int		farthest;
+    long	iteration;
+
+    keep[0]               = true;
+    keep[keep.length - 1] = true;
+    tree  = (keep.length > MAX_SCAN) ? new HullTree(x, y, token) : null;
+    stack = new int[64];
+    size  = 0;
+    stack[size++] = 0;
+    stack[size++] = keep.length - 1;
+    tolerance *= tolerance;
+    iteration  = 0;
+
+    while (size > 0) {
+      checkCancelled(token, ++iteration);
+      end   = stack[--size];
+      start = stack[--size];
+      if (end - start < 2)
+	continue;
+      farthest = farthest(x, y, tree, start, end, tolerance, token);
+      if (farthest == -1)
+	continue;
+      keep[farthest] = true;
+      if (size + 4 > stack.length)
+	stack = Arrays.copyOf(stack, stack.length * 2);
+      stack[size++] = start;
+      stack[size++] = farthest;
+      stack[size++] = farthest;
+      stack[size++] = end;
+    }
+  }
+
+  /**
+   * Returns the area of the triangle.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param a		the first corner
+   * @param b		the second corner
+   * @param c		the third corner
+   * @return		the area
+   */
+  protected static double area(double[] x, double[] y, int a, int b, int c) {
+    return Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) / 2;
+  }
+
+  /**
+   * Visvalingam-Whyatt simplification, using a binary min-heap of the
+   * effective areas.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param threshold	the minimum area to keep a point
+   * @param keep	for flagging the points to keep
+   * @param token	the token for cancelling, can be null
+   */
+  protected static void visvalingam(double[] x, double[] y, double threshold, boolean[] keep, CancellationToken token) {
+    int		n;
+    int[]	prev;
+    int[]	next;
+    double[]	areas;
+    int[]	heap;
+    int[]	pos;
+    int		size;
+    int		i;
+
+    n     = keep.length;
+    prev  = new int[n];
+    next  = new int[n];
+    areas = new double[n];
+    heap  = new int[n - 2];
+    pos   = new int[n];
+    Arrays.fill(keep, true);
+    for (i = 0; i < n; i++) {
+      prev[i] = i - 1;
+      next[i] = i + 1;
+    }
+
+    // heap of the inner points
+    size = 0;
+    for (i = 1; i < n - 1; i++) {
+      checkCancelled(token, i);
+      areas[i]   = area(x, y, i - 1, i, i + 1);
+      heap[size] = i;
+      pos[i]     = size;
+      size++;
+    }
+    for (i = size / 2 - 1; i >= 0; i--)
+      siftDown(heap, pos, areas, size, i);
+
+    while ((size > 0) && (areas[heap[0]] < threshold)) {
+      checkCancelled(token, size);
+      i = heap[0];
+      size--;
+      if (size > 0) {
+	heap[0]      = heap[size];
+	pos[heap[0]] = 0;
+	siftDown(heap, pos, areas, size, 0);
+      }
+      keep[i] = false;
+      next[prev[i]] = next[i];
+      prev[next[i]] = prev[i];
+
+      // update neighbors, their effective area never drops below the removed one's
+      update(x, y, prev, next, areas, heap, pos, size, prev[i], areas[i]);
+      update(x, y, prev, next, areas, heap, pos, size, next[i], areas[i]);
+    }
+  }
+
+  /**
+   * Recomputes the effective area of a point after its neighbor got removed.
+   *
+   * @param x		the x coordinates
+   * @param y		the y coordinates
+   * @param prev	the previous remaining point of each point
+   * @param next	the next remaining point of each point
+   * @param areas	the effective areas
+   * @param heap	the heap (point indices)
+   * @param pos		the positions of the points in the heap
+   * @param size	the number of elements in the heap
+   * @param i		the point to update
+   * @param min		the area of the removed neighbor
+   */
+  protected static void update(double[] x, double[] y, int[] prev, int[] next, double[] areas, int[] heap, int[] pos, int size, int i, double min) {
+    double	area;
+
+    // first and last point are not in the heap
+    if ((prev[i] == -1) || (next[i] == next.length))
+      return;
+    area = Math.max(min, area(x, y, prev[i], i, next[i]));
+    if (area < areas[i]) {
+      areas[i] = area;
+      siftUp(heap, pos, areas, pos[i]);
+    }
+    else {
+      areas[i] = area;
+      siftDown(heap, pos, areas, size, pos[i]);
+    }
+  }
+
+  /**
+   * Moves the heap element up until the heap property is restored.
+   *
+   * @param heap	the heap (point indices)
+   * @param pos		the positions of the points in the heap
+   * @param areas	the areas of the points
+   * @param i		the position of the element to move
+   */
+  protected static void siftUp(int[] heap, int[] pos, double[] areas, int i) {
+    int		parent;
+    int		elem;
+
+    elem = heap[i];
+    while (i > 0) {
+      parent = (i - 1) / 2;
+      if (areas[heap[parent]] <= areas[elem])
+	break;
+      heap[i]      = heap[parent];
+      pos[heap[i]] = i;
+      i            = parent;
+    }
+    heap[i]   = elem;
+    pos[elem] = i;
+  }
+
+  /**
+   * Moves the heap element down until the heap property is restored.
+   *
+   * @param heap	the heap (point indices)
+   * @param pos		the positions of the points in the heap
+   * @param areas	the areas of the points
+   * @param size	the number of elements in the heap
+   * @param i		the position of the element to move
+   */
+  protected static void siftDown(int[] heap, int[] pos, double[] areas, int size, int i) {
+    int		child;
+    int		elem;
+
+    elem = heap[i];
+    while ((child = 2 * i + 1) < size) {
+      if ((child + 1 < size) && (areas[heap[child + 1]] < areas[heap[child]]))
+	child++;
+      if (areas[elem] <= areas[heap[child]])
+	break;
+      heap[i]      = heap[child];
+      pos[heap[i]] = i;
+      i            = child;
+    }
+    heap[i]   = elem;
+    pos[elem] = i;
+  }
+}
@@ -20,13 +20,24 @@
 package com.github.fracpete.gpsformats4j.formats;
 
 import com.github.fracpete.gpsformats4j.core.BaseObject;
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
 import org.apache.commons.csv.CSVRecord;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
  * Ancestor for formats.
+ * <br>
+ * Gzip compressed input gets decompressed transparently, output gets
+ * compressed if the file name ends with ".gz".
  *
  * @author FracPete (fracpete at gmail dot com)
  */
@@ -64,4 +75,70 @@ public abstract class AbstractFormat
    * @return		null if successful, otherwise error message
    */
   public abstract String write(List<CSVRecord> data, File output);
+
+  /**
+   * Prepares the raw input stream for parsing, decompressing gzip content.
+   *
+   * @param input	the raw stream
+   * @return		the stream to parse
+   * @throws IOException	if reading fails
+   */
+  protected InputStream wrapInput(InputStream input) throws IOException {
+    return CompressionUtils.decompress(input);
+  }
+
+  /**
+   * Prepares the stream for writing.
+   * <br>
+   * Default implementation returns the stream as is.
+   *
+   * @param output	the stream to write to
+   * @return		the stream to write the format to
+   * @throws IOException	if preparing fails
+   */
+  protected OutputStream wrapOutput(OutputStream output) throws IOException {
+    return output;
+  }
+
+  /**
+   * Opens the file for parsing.
+   *
+   * @param input	the file to read
+   * @return		the stream to parse
+   * @throws IOException	if opening fails
+   * @see #wrapInput(InputStream)
+   */
+  protected InputStream openInput(File input) throws IOException {
+    InputStream	result;
+
+    result = new BufferedInputStream(new FileInputStream(input));
+    try {
+      return wrapInput(result);
+    }
+    catch (IOException e) {
+      result.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the file for writing, compressing it if the name ends with ".gz".
+   *
+   * @param output	the file to write
+   * @return		the stream to write the format to
+   * @throws IOException	if opening fails
+   * @see #wrapOutput(OutputStream)
+   */
+  protected OutputStream openOutput(File output) throws IOException {
+    OutputStream	result;
+
+    result = new BufferedOutputStream(new FileOutputStream(output));
+    try {
+      return wrapOutput(CompressionUtils.compress(result, output));
+    }
+    catch (IOException e) {
+      result.close();
+      throw e;
+    }
+  }
 }
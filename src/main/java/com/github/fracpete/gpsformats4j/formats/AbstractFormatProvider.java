@@ -0,0 +1,153 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractFormatProvider.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+/**
+ * Ancestor for providers, storing the description of the format.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public abstract class AbstractFormatProvider
+  implements FormatProvider {
+
+  /** the name. */
+  protected String m_Name;
+
+  /** the extensions. */
+  protected String[] m_Extensions;
+
+  /** the magic bytes (null if none). */
+  protected byte[] m_Magic;
+
+  /** the MIME type. */
+  protected String m_ContentType;
+
+  /** whether reading is supported. */
+  protected boolean m_Read;
+
+  /** whether writing is supported. */
+  protected boolean m_Write;
+
+  /** whether streaming is supported. */
+  protected boolean m_Stream;
+
+  /**
+   * Initializes the provider.
+   *
+   * @param name	the name of the format
+   * @param extensions	the extensions, lower case without dot
+   * @param magic	the magic bytes, null if none
+   * @param contentType	the MIME type
+   * @param read	whether reading is supported
+   * @param write	whether writing is supported
+   * @param stream	whether streaming is supported
+   */
+  protected AbstractFormatProvider(String name, String[] extensions, byte[] magic, String contentType, boolean read, boolean write, boolean stream) {
+    m_Name        = name;
+    m_Extensions  = extensions;
+    m_Magic       = magic;
+    m_ContentType = contentType;
+    m_Read        = read;
+    m_Write       = write;
+    m_Stream      = stream;
+  }
+
+  /**
+   * Returns the name of the format, as used on the command-line.
+   *
+   * @return		the name, eg GPX
+   */
+  @Override
+  public String getName() {
+    return m_Name;
+  }
+
+  /**
+   * Returns the file extensions of the format.
+   *
+   * @return		the extensions, lower case without dot
+   */
+  @Override
+  public String[] getExtensions() {
+    return m_Extensions.clone();
+  }
+
+  /**
+   * Returns the magic bytes that the (uncompressed) files start with.
+   *
+   * @return		the magic bytes, null if the format has none
+   */
+  @Override
+  public byte[] getMagic() {
+    return (m_Magic == null) ? null : m_Magic.clone();
+  }
+
+  /**
+   * Returns the MIME type of the format.
+   *
+   * @return		the type
+   */
+  @Override
+  public String getContentType() {
+    return m_ContentType;
+  }
+
+  /**
+   * Returns whether the format can read files.
+   *
+   * @return		true if supported
+   */
+  @Override
+  public boolean canRead() {
+    return m_Read;
+  }
+
+  /**
+   * Returns whether the format can write files.
+   *
+   * @return		true if supported
+   */
+  @Override
+  public boolean canWrite() {
+    return m_Write;
+  }
+
+  /**
+   * Returns whether the format can stream the points (with its default
+   * options).
+   *
+   * @return		true if supported
+   */
+  @Override
+  public boolean canStream() {
+    return m_Stream;
+  }
+
+  /**
+   * Returns the name of the format.
+   *
+   * @return		the name
+   */
+  @Override
+  public String toString() {
+    return m_Name;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractFormatWithOptionHandling.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Ancestor for formats that support options.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public abstract class AbstractFormatWithOptionHandling
+  extends AbstractFormat
+  implements FormatWithOptionHandling {
+
+  public static final String COORD_PRECISION = "coord_precision";
+
+  public static final String ELEVATION_PRECISION = "ele_precision";
+
+  /** the argument parser. */
+  protected ArgumentParser m_Parser;
+
+  /** the maximum number of decimals for latitude/longitude when writing (-1 = as is). */
+  protected int m_CoordinatePrecision;
+
+  /** the maximum number of decimals for the elevation when writing (-1 = as is). */
+  protected int m_ElevationPrecision;
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    super.initialize();
+
+    m_CoordinatePrecision = -1;
+    m_ElevationPrecision  = -1;
+    m_Parser = ArgumentParsers.newFor(getClass().getSimpleName()).build();
+    m_Parser.description("Options for the " + getClass().getSimpleName() + " format.");
+    m_Parser.defaultHelp(true);
+    addOptions(m_Parser);
+  }
+
+  /**
+   * Adds the options to the parser.
+   * <br>
+   * Default implementation adds the precision options for writing.
+   *
+   * @param parser	the parser to update
+   */
+  protected void addOptions(ArgumentParser parser) {
+    parser.addArgument("--" + COORD_PRECISION)
+      .dest(COORD_PRECISION)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(-1)
+      .help("The maximum number of decimals for latitude/longitude when writing, eg 7 (about 1cm); -1 to write them as is.");
+    parser.addArgument("--" + ELEVATION_PRECISION)
+      .dest(ELEVATION_PRECISION)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(-1)
+      .help("The maximum number of decimals for the elevation when writing, eg 1; -1 to write it as is.");
+  }
+
+  /**
+   * Applies the parsed options.
+   * <br>
+   * Default implementation applies the precision options for writing.
+   *
+   * @param ns		the parsed options
+   * @throws Exception	if applying of options fails
+   */
+  protected void applyOptions(Namespace ns) throws Exception {
+    setCoordinatePrecision(ns.getInt(COORD_PRECISION));
+    setElevationPrecision(ns.getInt(ELEVATION_PRECISION));
+  }
+
+  /**
+   * Sets the maximum number of decimals for latitude/longitude when writing.
+   *
+   * @param value	the precision, -1 to write them as is
+   */
+  public void setCoordinatePrecision(int value) {
+    m_CoordinatePrecision = value;
+  }
+
+  /**
+   * Returns the maximum number of decimals for latitude/longitude when
+   * writing.
+   *
+   * @return		the precision, -1 if written as is
+   */
+  public int getCoordinatePrecision() {
+    return m_CoordinatePrecision;
+  }
+
+  /**
+   * Sets the maximum number of decimals for the elevation when writing.
+   *
+   * @param value	the precision, -1 to write it as is
+   */
+  public void setElevationPrecision(int value) {
+    m_ElevationPrecision = value;
+  }
+
+  /**
+   * Returns the maximum number of decimals for the elevation when writing.
+   *
+   * @return		the precision, -1 if written as is
+   */
+  public int getElevationPrecision() {
+    return m_ElevationPrecision;
+  }
+
+  /**
+   * Rounds the latitude/longitude for writing.
+   *
+   * @param value	the latitude/longitude
+   * @return		the (rounded) value
+   * @see #getCoordinatePrecision()
+   */
+  public String formatCoordinate(String value) {
+    return CoordinateUtils.round(value, m_CoordinatePrecision);
+  }
+
+  /**
+   * Rounds the elevation for writing.
+   *
+   * @param value	the elevation
+   * @return		the (rounded) value
+   * @see #getElevationPrecision()
+   */
+  public String formatElevation(String value) {
+    return CoordinateUtils.round(value, m_ElevationPrecision);
+  }
+
+  /**
+   * For setting options.
+   *
+   * @param options	the options
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    applyOptions(m_Parser.parseArgs(options));
+  }
+
+  /**
+   * Returns the help string.
+   *
+   * @return		the help
+   */
+  @Override
+  public String toHelp() {
+    return m_Parser.formatHelp();
+  }
+}
@@ -15,26 +15,41 @@
 
 /**
  * AbstractXMLFormat.java
- * Copyright (C) 2016 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
 
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.IOUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Ancestor for XML-based formats.
@@ -42,32 +57,349 @@ import java.nio.charset.Charset;
  * @author FracPete (fracpete at gmail dot com)
  */
 public abstract class AbstractXMLFormat
-  extends AbstractFormat {
+  extends AbstractFormatWithOptionHandling
+  implements StreamingFormat {
+
+  public static final String ENGINE = "engine";
+
+  public static final String COMPACT = "compact";
+
+  /** the factory for the pull-parsers (thread-safe once configured). */
+  protected static final XMLInputFactory INPUT_FACTORY = newXMLInputFactory();
+
+  /** the factory for the StAX writers (thread-safe once configured). */
+  protected static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  /** the DOM parser per thread, as parsers are not thread-safe. */
+  protected static final ThreadLocal<DocumentBuilder> PARSER = new ThreadLocal<>();
+
+  /** the DOM builder for new documents per thread. */
+  protected static final ThreadLocal<DocumentBuilder> BUILDER = new ThreadLocal<>();
+
+  /** the transformer factory per thread, as factories are not thread-safe. */
+  protected static final ThreadLocal<TransformerFactory> TRANSFORMER_FACTORY = new ThreadLocal<>();
+
+  /** the engine to use for reading/writing. */
+  protected XMLEngine m_Engine;
+
+  /** whether to omit indentation when writing. */
+  protected boolean m_Compact;
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    m_Engine  = XMLEngine.STAX;
+    m_Compact = false;
+    super.initialize();
+  }
+
+  /**
+   * Adds the options to the parser.
+   *
+   * @param parser	the parser to update
+   */
+  @Override
+  protected void addOptions(ArgumentParser parser) {
+    super.addOptions(parser);
+    parser.addArgument("--" + ENGINE)
+      .dest(ENGINE)
+      .required(false)
+      .type(String.class)
+      .choices(XMLEngine.DOM.name(), XMLEngine.STAX.name())
+      .setDefault(XMLEngine.STAX.name())
+      .help("The XML engine to use for reading/writing: DOM builds the whole document in memory, STAX streams it.");
+    parser.addArgument("--" + COMPACT)
+      .dest(COMPACT)
+      .required(false)
+      .type(Boolean.class)
+      .setDefault(false)
+      .help("Whether to omit the indentation when writing, for smaller files.");
+  }
+
+  /**
+   * Applies the parsed options.
+   *
+   * @param ns		the parsed options
+   * @throws Exception	if applying of options fails
+   */
+  @Override
+  protected void applyOptions(Namespace ns) throws Exception {
+    super.applyOptions(ns);
+    setEngine(XMLEngine.valueOf(ns.getString(ENGINE)));
+    setCompact(ns.getBoolean(COMPACT));
+  }
+
+  /**
+   * Sets the engine to use for reading/writing.
+   *
+   * @param value	the engine
+   */
+  public void setEngine(XMLEngine value) {
+    m_Engine = value;
+  }
+
+  /**
+   * Returns the engine to use for reading/writing.
+   *
+   * @return		the engine
+   */
+  public XMLEngine getEngine() {
+    return m_Engine;
+  }
+
+  /**
+   * Sets whether to omit the indentation when writing.
+   *
+   * @param value	true if compact
+   */
+  public void setCompact(boolean value) {
+    m_Compact = value;
+  }
+
+  /**
+   * Returns whether to omit the indentation when writing.
+   *
+   * @return		true if compact
+   */
+  public boolean isCompact() {
+    return m_Compact;
+  }
+
+  /**
+   * Reads the file by loading the full DOM.
+   *
+   * @param input	the input file
+   * @return		the collected data, null in case of an error
+   */
+  protected abstract List<CSVRecord> readDOM(File input);
+
+  /**
+   * Creates the pull-parser based reader for the stream.
+   *
+   * @param input	the stream to read from
+   * @return		the reader
+   * @throws Exception	if the reader cannot be created
+   */
+  protected abstract AbstractXMLStreamReader newStreamReader(InputStream input) throws Exception;
+
+  /**
+   * Returns whether streaming is supported with the current setup.
+   *
+   * @return		true if the STAX engine is used
+   * @see #getEngine()
+   */
+  @Override
+  public boolean canStream() {
+    return (m_Engine == XMLEngine.STAX);
+  }
+
+  /**
+   * Opens a source for reading the points from the file.
+   *
+   * @param input	the input file
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(File input) throws Exception {
+    m_Logger.info("Reading: " + input);
+    return openSource(new BufferedInputStream(new FileInputStream(input)));
+  }
+
+  /**
+   * Opens a source for reading the points from the stream.
+   *
+   * @param input	the stream to read from, gets closed with the source
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(InputStream input) throws Exception {
+    try {
+      return newStreamReader(wrapInput(input));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(input);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the file with a pull-parser in a single pass.
+   *
+   * @param input	the input file
+   * @return		the collected data, null in case of an error
+   * @see #newStreamReader(InputStream)
+   */
+  protected List<CSVRecord> readStAX(File input) {
+    List<CSVRecord>	result;
+    PointSource		source;
+    CSVRecord		rec;
+
+    result = new ArrayList<>();
+    source = null;
+    try {
+      source = openSource(input);
+      while ((rec = source.next()) != null)
+	result.add(rec);
+    }
+    catch (Exception e) {
+      m_Logger.error("Failed to read: " + input, e);
+      return null;
+    }
+    finally {
+      IOUtils.closeQuietly(source);
+    }
+
+    return result;
+  }
 
   /**
    * Reads the file.
    *
    * @param input	the input file
-   * @return		the XML document, null in case of an error
+   * @return		the collected data, null in case of an error
+   * @see #getEngine()
    */
-  protected Document readXML(File input) {
+  @Override
+  public List<CSVRecord> read(File input) {
+    if (m_Engine == XMLEngine.DOM)
+      return readDOM(input);
+    else
+      return readStAX(input);
+  }
+
+  /**
+   * Creates the factory for the pull-parsers. DTDs and external entities are
+   * not supported.
+   *
+   * @return		the factory
+   */
+  protected static XMLInputFactory newXMLInputFactory() {
+    XMLInputFactory	result;
+
+    result = XMLInputFactory.newInstance();
+    result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    return result;
+  }
+
+  /**
+   * Returns the DOM parser for the current thread, creating it if necessary.
+   *
+   * @return		the parser, reset
+   * @throws Exception	if creation of parser fails
+   */
+  protected static DocumentBuilder getParser() throws Exception {
     DocumentBuilderFactory 	factory;
-    DocumentBuilder 		builder;
+    DocumentBuilder 		result;
 
-    try {
-      m_Logger.info("Reading: " + input);
+    result = PARSER.get();
+    if (result == null) {
       factory = DocumentBuilderFactory.newInstance();
       factory.setValidating(false);
       factory.setNamespaceAware(true);
       factory.setIgnoringComments(true);
       factory.setIgnoringElementContentWhitespace(true);
-      builder = factory.newDocumentBuilder();
-      return builder.parse(input);
+      result = factory.newDocumentBuilder();
+      PARSER.set(result);
+    }
+    else {
+      result.reset();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the DOM builder for new documents for the current thread,
+   * creating it if necessary.
+   *
+   * @return		the builder
+   * @throws Exception	if creation of builder fails
+   */
+  protected static DocumentBuilder getBuilder() throws Exception {
+    DocumentBuilder 		result;
+
+    result = BUILDER.get();
+    if (result == null) {
+      result = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+      BUILDER.set(result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the transformer factory for the current thread, creating it if
+   * necessary.
+   *
+   * @return		the factory
+   */
+  protected static TransformerFactory getTransformerFactory() {
+    TransformerFactory 	result;
+
+    result = TRANSFORMER_FACTORY.get();
+    if (result == null) {
+      result = TransformerFactory.newInstance();
+      result.setAttribute("indent-number", 2);
+      TRANSFORMER_FACTORY.set(result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @param input	the input file
+   * @return		the XML document, null in case of an error
+   */
+  protected Document readXML(File input) {
+    DocumentBuilder 		builder;
+    InputStream			stream;
+
+    stream = null;
+    try {
+      m_Logger.info("Reading: " + input);
+      builder = getParser();
+      stream  = openInput(input);
+      return builder.parse(stream);
     }
     catch (Exception e) {
       m_Logger.error("Failed to read: " + input, e);
       return null;
     }
+    finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+
+  /**
+   * Creates a pull-parser for the stream. DTDs and external entities are
+   * not supported.
+   *
+   * @param input	the stream to parse
+   * @return		the parser
+   * @throws Exception	if creation of parser fails
+   */
+  protected XMLStreamReader newXMLStreamReader(InputStream input) throws Exception {
+    return INPUT_FACTORY.createXMLStreamReader(input);
+  }
+
+  /**
+   * Creates a StAX writer for the stream, using the default charset.
+   *
+   * @param output	the stream to write to
+   * @return		the writer
+   * @throws Exception	if creation of writer fails
+   */
+  protected XMLStreamWriter newXMLStreamWriter(OutputStream output) throws Exception {
+    return OUTPUT_FACTORY.createXMLStreamWriter(output, Charset.defaultCharset().name());
   }
 
   /**
@@ -76,13 +408,8 @@ public abstract class AbstractXMLFormat
    * @return		the new document, null if failed to create
    */
   protected Document newDocument() {
-    DocumentBuilderFactory 	factory;
-    DocumentBuilder 		builder;
-
     try {
-      factory = DocumentBuilderFactory.newInstance();
-      builder = factory.newDocumentBuilder();
-      return builder.newDocument();
+      return getBuilder().newDocument();
     }
     catch (Exception e) {
       m_Logger.error("Failed to create new XML document!", e);
@@ -117,33 +444,124 @@ public abstract class AbstractXMLFormat
    * @return		null if successful, otherwise error message
    */
   protected String writeXML(Document doc, File output) {
-    TransformerFactory 	tfactory;
     Transformer 	transformer;
     StringWriter 	swriter;
-    FileWriter 		fwriter;
+    OutputStream 	stream;
 
-    fwriter  = null;
+    stream = null;
     try {
       m_Logger.info("Writing: " + output);
-      tfactory = TransformerFactory.newInstance();
-      tfactory.setAttribute("indent-number", 2);
-      transformer = tfactory.newTransformer();
+      transformer = getTransformerFactory().newTransformer();
       transformer.setOutputProperty(OutputKeys.ENCODING, Charset.defaultCharset().toString());
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+      transformer.setOutputProperty(OutputKeys.INDENT, m_Compact ? "no" : "yes");
       swriter = new StringWriter();
       transformer.transform(new DOMSource(doc), new StreamResult(swriter));
-      fwriter = new FileWriter(output);
-      IOUtils.write(swriter.toString(), fwriter);
+      stream = openOutput(output);
+      IOUtils.write(swriter.toString(), stream, Charset.defaultCharset());
+      stream.close();
+    }
+    catch (Exception e) {
+      m_Logger.error("Failed to write: " + output, e);
+      return "Failed to write: " + output + "\n" + e;
+    }
+    finally {
+      IOUtils.closeQuietly(stream);
+    }
+
+    return null;
+  }
+
+  /**
+   * Writes to a file by building the full DOM.
+   *
+   * @param data	the data to write
+   * @param output	the output file
+   * @return		null if successful, otherwise error message
+   */
+  protected abstract String writeDOM(List<CSVRecord> data, File output);
+
+  /**
+   * Creates the StAX based writer for the stream.
+   *
+   * @param output	the stream to write to
+   * @return		the writer
+   * @throws Exception	if the writer cannot be created
+   */
+  protected abstract AbstractXMLStreamWriter newStreamWriter(OutputStream output) throws Exception;
+
+  /**
+   * Opens a sink for writing the points to the file.
+   *
+   * @param output	the output file
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(File output) throws Exception {
+    m_Logger.info("Writing: " + output);
+    return openSink(CompressionUtils.compress(new BufferedOutputStream(new FileOutputStream(output)), output));
+  }
+
+  /**
+   * Opens a sink for writing the points to the stream.
+   *
+   * @param output	the stream to write to, gets closed with the sink
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(OutputStream output) throws Exception {
+    try {
+      return newStreamWriter(wrapOutput(output));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(output);
+      throw e;
+    }
+  }
+
+  /**
+   * Writes to a file, streaming the elements directly to disk.
+   *
+   * @param data	the data to write
+   * @param output	the output file
+   * @return		null if successful, otherwise error message
+   * @see #newStreamWriter(OutputStream)
+   */
+  protected String writeStAX(List<CSVRecord> data, File output) {
+    PointSink	sink;
+
+    sink = null;
+    try {
+      sink = openSink(output);
+      for (CSVRecord rec: data)
+	sink.write(rec);
+      sink.finish();
     }
     catch (Exception e) {
       m_Logger.error("Failed to write: " + output, e);
       return "Failed to write: " + output + "\n" + e;
     }
     finally {
-      IOUtils.closeQuietly(fwriter);
+      IOUtils.closeQuietly(sink);
     }
 
     return null;
   }
 
+  /**
+   * Writes to a file.
+   *
+   * @param data	the data to write
+   * @param output	the output file
+   * @return		null if successful, otherwise error message
+   * @see #getEngine()
+   */
+  @Override
+  public String write(List<CSVRecord> data, File output) {
+    if (m_Engine == XMLEngine.DOM)
+      return writeDOM(data, output);
+    else
+      return writeStAX(data, output);
+  }
 }
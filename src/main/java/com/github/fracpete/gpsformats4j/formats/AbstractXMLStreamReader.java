@@ -0,0 +1,124 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractXMLStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVRecordFactory;
+import org.apache.commons.io.IOUtils;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ancestor for pull-parser based readers that emit one point at a time in
+ * a single forward pass. Only the values of the current point are kept in
+ * memory.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public abstract class AbstractXMLStreamReader
+  implements PointSource {
+
+  /** the underlying stream. */
+  protected InputStream m_Input;
+
+  /** the pull-parser. */
+  protected XMLStreamReader m_Reader;
+
+  /** the column mapping shared by all records. */
+  protected Map<String,Integer> m_Mapping;
+
+  /** the number of points read so far. */
+  protected long m_Count;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that opened the reader
+   * @param input	the stream to read from
+   * @throws Exception	if the parser cannot be created
+   */
+  protected AbstractXMLStreamReader(AbstractXMLFormat owner, InputStream input) throws Exception {
+    m_Input   = input;
+    m_Reader  = owner.newXMLStreamReader(input);
+    m_Count   = 0;
+    m_Mapping = new HashMap<>();
+    m_Mapping.put(Format.KEY_TRACK, 0);
+    m_Mapping.put(Format.KEY_TIME, 1);
+    m_Mapping.put(Format.KEY_LAT, 2);
+    m_Mapping.put(Format.KEY_LON, 3);
+    m_Mapping.put(Format.KEY_ELEVATION, 4);
+  }
+
+  /**
+   * Creates a new record from the values, using the shared mapping.
+   *
+   * @param track	the track
+   * @param time	the timestamp
+   * @param lat		the latitude
+   * @param lon		the longitude
+   * @param ele		the elevation
+   * @return		the record
+   */
+  protected CSVRecord newRecord(String track, String time, String lat, String lon, String ele) {
+    m_Count++;
+    return CSVRecordFactory.newRecord(new String[]{track, time, lat, lon, ele}, m_Mapping, null, m_Count, -1);
+  }
+
+  /**
+   * Returns the text of the current element, trimmed. Moves the parser to
+   * the end tag of the element.
+   *
+   * @return		the text
+   * @throws Exception	if the element does not contain text only
+   */
+  protected String elementText() throws Exception {
+    return m_Reader.getElementText().trim();
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if parsing fails
+   */
+  @Override
+  public abstract CSVRecord next() throws Exception;
+
+  /**
+   * Closes the parser and the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      m_Reader.close();
+    }
+    catch (Exception e) {
+      // ignored
+    }
+    IOUtils.closeQuietly(m_Input);
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractXMLStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Ancestor for writers that output the points as they arrive, using a
+ * StAX stream writer. Only the currently open elements are kept in memory.
+ * Unless in compact mode, the output gets indented with two blanks per
+ * level.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public abstract class AbstractXMLStreamWriter
+  implements PointSink {
+
+  /** the indentation per level. */
+  public static final String INDENT = "  ";
+
+  /** the underlying stream. */
+  protected OutputStream m_Output;
+
+  /** the stream writer. */
+  protected XMLStreamWriter m_Writer;
+
+  /** whether to omit indentation. */
+  protected boolean m_Compact;
+
+  /** the maximum number of decimals for latitude/longitude (-1 = as is). */
+  protected int m_CoordinatePrecision;
+
+  /** the maximum number of decimals for the elevation (-1 = as is). */
+  protected int m_ElevationPrecision;
+
+  /** the current nesting level. */
+  protected int m_Depth;
+
+  /** whether the element at the current level has child elements. */
+  protected boolean m_HasChildren;
+
+  /** whether the document has been started. */
+  protected boolean m_Started;
+
+  /** whether the writer has been closed. */
+  protected boolean m_Closed;
+
+  /**
+   * Initializes the writer.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if the writer cannot be created
+   */
+  protected AbstractXMLStreamWriter(AbstractXMLFormat owner, OutputStream output) throws Exception {
+    m_Output              = output;
+    m_Writer              = owner.newXMLStreamWriter(output);
+    m_Compact             = owner.isCompact();
+    m_CoordinatePrecision = owner.getCoordinatePrecision();
+    m_ElevationPrecision  = owner.getElevationPrecision();
+    m_Depth               = 0;
+    m_HasChildren         = false;
+    m_Started             = false;
+    m_Closed              = false;
+  }
+
+  /**
+   * Writes a newline and the indentation for the current level, unless
+   * in compact mode.
+   *
+   * @throws Exception	if writing fails
+   */
+  protected void indent() throws Exception {
+    int		i;
+
+    if (m_Compact)
+      return;
+    m_Writer.writeCharacters("\n");
+    for (i = 0; i < m_Depth; i++)
+      m_Writer.writeCharacters(INDENT);
+  }
+
+  /**
+   * Starts the document, if not yet started.
+   *
+   * @throws Exception	if writing fails
+   */
+  protected void startDocument() throws Exception {
+    if (m_Started)
+      return;
+    m_Started = true;
+    m_Writer.writeStartDocument(Charset.defaultCharset().name(), "1.0");
+    writeHeader();
+  }
+
+  /**
+   * Writes the root element and anything else that precedes the points.
+   *
+   * @throws Exception	if writing fails
+   */
+  protected abstract void writeHeader() throws Exception;
+
+  /**
+   * Starts a new element.
+   *
+   * @param name	the name of the element
+   * @throws Exception	if writing fails
+   */
+  protected void start(String name) throws Exception {
+    indent();
+    m_Writer.writeStartElement(name);
+    m_Depth++;
+    m_HasChildren = false;
+  }
+
+  /**
+   * Adds an attribute to the element that was just started.
+   *
+   * @param name	the name of the attribute
+   * @param value	the value of the attribute
+   * @throws Exception	if writing fails
+   */
+  protected void attribute(String name, String value) throws Exception {
+    m_Writer.writeAttribute(name, value);
+  }
+
+  /**
+   * Adds a namespaced attribute to the element that was just started.
+   *
+   * @param prefix	the prefix of the namespace
+   * @param uri		the URI of the namespace
+   * @param name	the name of the attribute
+   * @param value	the value of the attribute
+   * @throws Exception	if writing fails
+   */
+  protected void attribute(String prefix, String uri, String name, String value) throws Exception {
+    m_Writer.writeAttribute(prefix, uri, name, value);
+  }
+
+  /**
+   * Declares a namespace on the element that was just started.
+   *
+   * @param prefix	the prefix, null for the default namespace
+   * @param uri		the URI of the namespace
+   * @throws Exception	if writing fails
+   */
+  protected void namespace(String prefix, String uri) throws Exception {
+    if (prefix == null)
+      m_Writer.writeDefaultNamespace(uri);
+    else
+      m_Writer.writeNamespace(prefix, uri);
+  }
+
+  /**
+   * Writes text to the current element.
+   *
+   * @param text	the text
+   * @throws Exception	if writing fails
+   */
+  protected void text(String text) throws Exception {
+    m_Writer.writeCharacters(text);
+  }
+
+  /**
+   * Rounds the latitude/longitude for writing.
+   *
+   * @param value	the latitude/longitude
+   * @return		the (rounded) value
+   */
+  protected String coordinate(String value) {
+    return CoordinateUtils.round(value, m_CoordinatePrecision);
+  }
+
+  /**
+   * Rounds the elevation for writing.
+   *
+   * @param value	the elevation
+   * @return		the (rounded) value
+   */
+  protected String elevation(String value) {
+    return CoordinateUtils.round(value, m_ElevationPrecision);
+  }
+
+  /**
+   * Ends the current element.
+   *
+   * @throws Exception	if writing fails
+   */
+  protected void end() throws Exception {
+    m_Depth--;
+    if (m_HasChildren)
+      indent();
+    m_Writer.writeEndElement();
+    m_HasChildren = true;
+  }
+
+  /**
+   * Writes an element that contains only text.
+   *
+   * @param name	the name of the element
+   * @param text	the text
+   * @throws Exception	if writing fails
+   */
+  protected void element(String name, String text) throws Exception {
+    start(name);
+    text(text);
+    end();
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void write(CSVRecord rec) throws Exception {
+    startDocument();
+    doWrite(rec);
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  protected abstract void doWrite(CSVRecord rec) throws Exception;
+
+  /**
+   * Finishes the document, closing all open elements. Also closes the
+   * writer and the underlying stream, so that errors when completing the
+   * output (eg compression) get reported.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void finish() throws Exception {
+    startDocument();
+    while (m_Depth > 0)
+      end();
+    if (!m_Compact)
+      m_Writer.writeCharacters("\n");
+    m_Writer.writeEndDocument();
+    m_Writer.flush();
+    m_Closed = true;
+    m_Writer.close();
+    m_Output.close();
+  }
+
+  /**
+   * Closes the writer and the underlying stream, if not already closed by
+   * {@link #finish()}. Does not finish the document.
+   *
+   * @throws IOException	if closing fails
+   * @see #finish()
+   */
+  @Override
+  public void close() throws IOException {
+    if (m_Closed)
+      return;
+    m_Closed = true;
+    try {
+      m_Writer.close();
+    }
+    catch (Exception e) {
+      // ignored
+    }
+    IOUtils.closeQuietly(m_Output);
+  }
+}
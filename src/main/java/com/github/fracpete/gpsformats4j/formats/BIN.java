@@ -0,0 +1,484 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BIN.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import com.github.fracpete.gpsformats4j.data.TrackStore;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary format, intended as fast intermediate format. Values are
+ * stored as fixed-point numbers: timestamps in UTC milliseconds,
+ * latitude/longitude with 7 decimals (about 1cm) and the elevation with 3
+ * decimals, unless other precisions are specified. More precise values get
+ * rounded, timestamps that cannot be parsed are dropped.
+ * <br>
+ * Layout (multi-byte numbers are big-endian):
+ * <ol>
+ *   <li>header: magic "GPSB", version, decimals of latitude/longitude and
+ *   elevation</li>
+ *   <li>blocks: marker 'T', then (as varints) length of the UTF-8 track
+ *   name, name, number of points and payload size, followed by the CRC32
+ *   of the name and the payload, and the payload itself. Consecutive points
+ *   of a track are stored in blocks of at most {@link #MAX_BLOCK_POINTS}
+ *   points.</li>
+ *   <li>table: marker 'E', then (as varints) the number of blocks and for
+ *   each block the track name, the offset of its marker (relative to the
+ *   previous block) and its number of points</li>
+ *   <li>trailer: CRC32 of the table, offset of the table marker (8 bytes),
+ *   magic "GPSE"</li>
+ * </ol>
+ * The payload holds for each point a byte with flags for the values that
+ * are present, followed by the zigzag varint encoded differences of these
+ * values to the previous ones within the block.
+ * <br>
+ * The CRCs get verified when reading. A block's points are only supplied
+ * after its CRC matched.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see BINProvider
+ */
+public class BIN
+  extends AbstractFormatWithOptionHandling
+  implements StreamingFormat {
+
+  /** the magic bytes at the start. */
+  public static final byte[] MAGIC = {'G', 'P', 'S', 'B'};
+
+  /** the magic bytes at the end. */
+  public static final byte[] TRAILER_MAGIC = {'G', 'P', 'S', 'E'};
+
+  /** the version of the layout. */
+  public static final int VERSION = 1;
+
+  /** the marker of a block. */
+  public static final int MARKER_BLOCK = 'T';
+
+  /** the marker of the table. */
+  public static final int MARKER_END = 'E';
+
+  /** the size of the trailer in bytes. */
+  public static final int TRAILER_SIZE = 16;
+
+  /** the default decimals for latitude/longitude (about 1cm). */
+  public static final int DEFAULT_COORDINATE_DECIMALS = 7;
+
+  /** the default decimals for the elevation (1mm). */
+  public static final int DEFAULT_ELEVATION_DECIMALS = 3;
+
+  /** the maximum decimals, avoiding overflows. */
+  public static final int MAX_DECIMALS = 12;
+
+  /** the maximum number of points in a block. */
+  public static final int MAX_BLOCK_POINTS = 65536;
+
+  /** the flag for a timestamp. */
+  public static final int FLAG_TIME = 1;
+
+  /** the flag for a latitude. */
+  public static final int FLAG_LAT = 2;
+
+  /** the flag for a longitude. */
+  public static final int FLAG_LON = 4;
+
+  /** the flag for an elevation. */
+  public static final int FLAG_ELEVATION = 8;
+
+  /**
+   * Entry of the block table.
+   */
+  public static class Block {
+
+    /** the track name. */
+    protected String m_Track;
+
+    /** the offset of the block in the file. */
+    protected long m_Offset;
+
+    /** the number of points. */
+    protected int m_Points;
+
+    /**
+     * Initializes the entry.
+     *
+     * @param track	the track name
+     * @param offset	the offset of the block in the file
+     * @param points	the number of points
+     */
+    public Block(String track, long offset, int points) {
+      m_Track  = track;
+      m_Offset = offset;
+      m_Points = points;
+    }
+
+    /**
+     * Returns the track name.
+     *
+     * @return		the name
+     */
+    public String getTrack() {
+      return m_Track;
+    }
+
+    /**
+     * Returns the offset of the block in the file.
+     *
+     * @return		the offset
+     */
+    public long getOffset() {
+      return m_Offset;
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return		the number of points
+     */
+    public int getPoints() {
+      return m_Points;
+    }
+
+    /**
+     * Returns a short description.
+     *
+     * @return		the description
+     */
+    @Override
+    public String toString() {
+      return m_Track + ": " + m_Points + " points @" + m_Offset;
+    }
+  }
+
+  /**
+   * Returns the decimals for storing latitude/longitude.
+   *
+   * @return		the decimals
+   * @see #getCoordinatePrecision()
+   */
+  public int getCoordinateDecimals() {
+    return (m_CoordinatePrecision < 0) ? DEFAULT_COORDINATE_DECIMALS : Math.min(MAX_DECIMALS, m_CoordinatePrecision);
+  }
+
+  /**
+   * Returns the decimals for storing the elevation.
+   *
+   * @return		the decimals
+   * @see #getElevationPrecision()
+   */
+  public int getElevationDecimals() {
+    return (m_ElevationPrecision < 0) ? DEFAULT_ELEVATION_DECIMALS : Math.min(MAX_DECIMALS, m_ElevationPrecision);
+  }
+
+  /**
+   * Returns the zigzag encoding of the value, mapping small negative and
+   * positive values to small non-negative ones.
+   *
+   * @param value	the value to encode
+   * @return		the encoded value
+   */
+  public static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Decodes a zigzag encoded value.
+   *
+   * @param value	the encoded value
+   * @return		the value
+   */
+  public static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Returns whether reading is supported.
+   *
+   * @return		true if supported
+   */
+  @Override
+  public boolean canRead() {
+    return true;
+  }
+
+  /**
+   * Returns whether streaming is supported with the current setup.
+   *
+   * @return		always true
+   */
+  @Override
+  public boolean canStream() {
+    return true;
+  }
+
+  /**
+   * Opens a source for reading the points from the file.
+   *
+   * @param input	the input file
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(File input) throws Exception {
+    m_Logger.info("Reading: " + input);
+    return openSource(new BufferedInputStream(new FileInputStream(input)));
+  }
+
+  /**
+   * Opens a source for reading the points from the stream.
+   *
+   * @param input	the stream to read from, gets closed with the source
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(InputStream input) throws Exception {
+    try {
+      return new BINStreamReader(wrapInput(input));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(input);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @param input	the input file
+   * @return		the collected data, null in case of an error
+   */
+  @Override
+  public List<CSVRecord> read(File input) {
+    List<CSVRecord>	result;
+    PointSource		source;
+    CSVRecord		rec;
+
+    result = new ArrayList<>();
+    source = null;
+    try {
+      source = openSource(input);
+      while ((rec = source.next()) != null)
+	result.add(rec);
+    }
+    catch (Exception e) {
+      m_Logger.error("Failed to read: " + input, e);
+      return null;
+    }
+    finally {
+      IOUtils.closeQuietly(source);
+    }
+
+    return result;
+  }
+
+  /**
+   * Reads the file directly into a store, without creating records.
+   *
+   * @param input	the input file
+   * @return		the store
+   * @throws Exception	if reading fails
+   */
+  public TrackStore readStore(File input) throws Exception {
+    TrackStore		result;
+    BINStreamReader	reader;
+
+    m_Logger.info("Reading: " + input);
+    result = new TrackStore();
+    reader = null;
+    try {
+      reader = new BINStreamReader(wrapInput(new BufferedInputStream(new FileInputStream(input))));
+      while (reader.advance())
+	result.add(reader.getTrack(), reader.getTime(), reader.getLat(), reader.getLon(), reader.getElevation());
+    }
+    finally {
+      IOUtils.closeQuietly(reader);
+    }
+    result.trimToSize();
+
+    return result;
+  }
+
+  /**
+   * Reads the block table from the end of the (uncompressed) file, without
+   * reading the blocks.
+   *
+   * @param input	the input file
+   * @return		the blocks
+   * @throws IOException	if reading fails or the file is not valid
+   */
+  public static List<Block> readTable(File input) throws IOException {
+    List<Block>		result;
+    RandomAccessFile	file;
+    byte[]		trailer;
+    byte[]		table;
+    long		offset;
+    long		crc;
+    CRC32		check;
+    int			i;
+
+    file = new RandomAccessFile(input, "r");
+    try {
+      if (file.length() < MAGIC.length + 3 + 1 + TRAILER_SIZE)
+	throw new IOException("File too short: " + input);
+      trailer = new byte[TRAILER_SIZE];
+      file.seek(file.length() - TRAILER_SIZE);
+      file.readFully(trailer);
+      for (i = 0; i < TRAILER_MAGIC.length; i++) {
+	if (trailer[TRAILER_SIZE - TRAILER_MAGIC.length + i] != TRAILER_MAGIC[i])
+	  throw new IOException("Not a " + BIN.class.getSimpleName() + " file (or compressed): " + input);
+      }
+      crc    = 0;
+      offset = 0;
+      for (i = 0; i < 4; i++)
+	crc = (crc << 8) | (trailer[i] & 0xff);
+      for (i = 4; i < 12; i++)
+	offset = (offset << 8) | (trailer[i] & 0xff);
+      if ((offset < MAGIC.length + 3) || (offset > file.length() - TRAILER_SIZE - 1))
+	throw new IOException("Invalid table offset: " + offset);
+
+      file.seek(offset);
+      if (file.read() != MARKER_END)
+	throw new IOException("Invalid table marker at offset " + offset);
+      table = new byte[(int) (file.length() - TRAILER_SIZE - offset - 1)];
+      file.readFully(table);
+    }
+    finally {
+      IOUtils.closeQuietly(file);
+    }
+
+    check = new CRC32();
+    check.update(table, 0, table.length);
+    if (check.getValue() != crc)
+      throw new IOException("Checksum mismatch of block table: " + input);
+
+    result = new ArrayList<>();
+    BINStreamReader.decodeTable(table, result);
+
+    return result;
+  }
+
+  /**
+   * Returns whether writing is supported.
+   *
+   * @return		true if supported
+   */
+  @Override
+  public boolean canWrite() {
+    return true;
+  }
+
+  /**
+   * Opens a sink for writing the points to the file.
+   *
+   * @param output	the output file
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(File output) throws Exception {
+    m_Logger.info("Writing: " + output);
+    return openSink(CompressionUtils.compress(new BufferedOutputStream(new FileOutputStream(output)), output));
+  }
+
+  /**
+   * Opens a sink for writing the points to the stream.
+   *
+   * @param output	the stream to write to, gets closed with the sink
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(OutputStream output) throws Exception {
+    try {
+      return new BINStreamWriter(this, wrapOutput(output));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(output);
+      throw e;
+    }
+  }
+
+  /**
+   * Writes to a file.
+   *
+   * @param data	the data to write
+   * @param output	the output file
+   * @return		null if successful, otherwise error message
+   */
+  @Override
+  public String write(List<CSVRecord> data, File output) {
+    PointSink	sink;
+
+    sink = null;
+    try {
+      sink = openSink(output);
+      for (CSVRecord rec: data)
+	sink.write(rec);
+      sink.finish();
+    }
+    catch (Exception e) {
+      m_Logger.error("Failed to write: " + output, e);
+      return "Failed to write: " + output + "\n" + e;
+    }
+    finally {
+      IOUtils.closeQuietly(sink);
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the name as UTF-8 bytes.
+   *
+   * @param name	the name
+   * @return		the bytes
+   */
+  protected static byte[] encodeName(String name) {
+    return name.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the name from the UTF-8 bytes.
+   *
+   * @param bytes	the bytes
+   * @param offset	the offset of the name
+   * @param length	the length of the name
+   * @return		the name
+   */
+  protected static String decodeName(byte[] bytes, int offset, int length) {
+    return new String(bytes, offset, length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,521 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BINStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.csv.CSVRecordFactory;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Reader for the binary format that decodes one block at a time. The block
+ * table at the end gets compared with the blocks that were read.
+ * <br>
+ * Besides supplying records, the points can be decoded into primitive
+ * values with {@link #advance()} and the getters.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see BIN
+ */
+public class BINStreamReader
+  implements PointSource {
+
+  /** the underlying stream. */
+  protected InputStream m_Input;
+
+  /** the decimals for latitude/longitude. */
+  protected int m_CoordinateDecimals;
+
+  /** the decimals for the elevation. */
+  protected int m_ElevationDecimals;
+
+  /** the factor for turning fixed-point latitude/longitude into numbers. */
+  protected double m_CoordinateScale;
+
+  /** the factor for turning the fixed-point elevation into a number. */
+  protected double m_ElevationScale;
+
+  /** the number of bytes read so far. */
+  protected long m_Position;
+
+  /** the blocks read so far. */
+  protected List<BIN.Block> m_Blocks;
+
+  /** whether the end has been reached. */
+  protected boolean m_Finished;
+
+  /** the track name of the current block. */
+  protected String m_Track;
+
+  /** the payload of the current block. */
+  protected byte[] m_Payload;
+
+  /** the number of bytes in the payload. */
+  protected int m_Size;
+
+  /** the position in the payload. */
+  protected int m_Pos;
+
+  /** the number of points left in the block. */
+  protected int m_Remaining;
+
+  /** the flags of the current point. */
+  protected int m_Flags;
+
+  /** the timestamp of the current point. */
+  protected long m_Time;
+
+  /** the fixed-point latitude of the current point. */
+  protected long m_Lat;
+
+  /** the fixed-point longitude of the current point. */
+  protected long m_Lon;
+
+  /** the fixed-point elevation of the current point. */
+  protected long m_Elevation;
+
+  /** for verifying the checksums. */
+  protected CRC32 m_CRC;
+
+  /** the mapping for the generated records. */
+  protected Map<String,Integer> m_Mapping;
+
+  /** for generating the values. */
+  protected StringBuilder m_Buffer;
+
+  /** the number of records returned so far. */
+  protected long m_Count;
+
+  /**
+   * Initializes the reader and reads the header.
+   *
+   * @param input	the stream to read from
+   * @throws IOException	if reading the header fails or not the binary format
+   */
+  public BINStreamReader(InputStream input) throws IOException {
+    byte[]	header;
+    int		i;
+
+    m_Input     = (input instanceof BufferedInputStream) ? input : new BufferedInputStream(input);
+    m_Position  = 0;
+    m_Blocks    = new ArrayList<>();
+    m_Finished  = false;
+    m_Payload   = new byte[8192];
+    m_Remaining = 0;
+    m_CRC       = new CRC32();
+    m_Mapping   = CSV.newMapping();
+    m_Buffer    = new StringBuilder(32);
+    m_Count     = 0;
+
+    header = new byte[BIN.MAGIC.length + 3];
+    readFully(header, header.length);
+    for (i = 0; i < BIN.MAGIC.length; i++) {
+      if (header[i] != BIN.MAGIC[i])
+	throw new IOException("Not a " + BIN.class.getSimpleName() + " file!");
+    }
+    if (header[BIN.MAGIC.length] != BIN.VERSION)
+      throw new IOException("Unsupported version: " + header[BIN.MAGIC.length]);
+    m_CoordinateDecimals = header[BIN.MAGIC.length + 1];
+    m_ElevationDecimals  = header[BIN.MAGIC.length + 2];
+    if ((m_CoordinateDecimals < 0) || (m_CoordinateDecimals > BIN.MAX_DECIMALS)
+      || (m_ElevationDecimals < 0) || (m_ElevationDecimals > BIN.MAX_DECIMALS))
+      throw new IOException("Invalid decimals: " + m_CoordinateDecimals + "/" + m_ElevationDecimals);
+    m_CoordinateScale = Math.pow(10, m_CoordinateDecimals);
+    m_ElevationScale  = Math.pow(10, m_ElevationDecimals);
+  }
+
+  /**
+   * Reads the specified number of bytes.
+   *
+   * @param buffer	the buffer to read into
+   * @param length	the number of bytes
+   * @throws IOException	if reading fails or the stream ends prematurely
+   */
+  protected void readFully(byte[] buffer, int length) throws IOException {
+    int		read;
+    int		n;
+
+    read = 0;
+    while (read < length) {
+      n = m_Input.read(buffer, read, length - read);
+      if (n < 0)
+	throw new EOFException("Truncated " + BIN.class.getSimpleName() + " file!");
+      read += n;
+    }
+    m_Position += length;
+  }
+
+  /**
+   * Reads a varint from the stream.
+   *
+   * @return		the value
+   * @throws IOException	if reading fails or the stream ends prematurely
+   */
+  protected long readVarint() throws IOException {
+    long	result;
+    int		shift;
+    int		b;
+
+    result = 0;
+    shift  = 0;
+    do {
+      b = m_Input.read();
+      if (b < 0)
+	throw new EOFException("Truncated " + BIN.class.getSimpleName() + " file!");
+      m_Position++;
+      if (shift > 63)
+	throw new IOException("Invalid varint at offset " + m_Position);
+      result |= (long) (b & 0x7F) << shift;
+      shift  += 7;
+    }
+    while ((b & 0x80) != 0);
+
+    return result;
+  }
+
+  /**
+   * Decodes a varint from the buffer.
+   *
+   * @param buffer	the buffer
+   * @param pos		the position, gets updated (position 0)
+   * @param end		the end of the data (excl)
+   * @return		the value
+   * @throws IOException	if the data is truncated
+   */
+  protected static long decodeVarint(byte[] buffer, int[] pos, int end) throws IOException {
+    long	result;
+    int		shift;
+    int		b;
+
+    result = 0;
+    shift  = 0;
+    do {
+      if ((pos[0] >= end) || (shift > 63))
+	throw new IOException("Invalid varint at position " + pos[0]);
+      b       = buffer[pos[0]++];
+      result |= (long) (b & 0x7F) << shift;
+      shift  += 7;
+    }
+    while ((b & 0x80) != 0);
+
+    return result;
+  }
+
+  /**
+   * Decodes the block table (without the marker).
+   *
+   * @param table	the table
+   * @param blocks	for adding the blocks
+   * @throws IOException	if the table is invalid
+   */
+  protected static void decodeTable(byte[] table, List<BIN.Block> blocks) throws IOException {
+    int[]	pos;
+    long	count;
+    long	offset;
+    int		length;
+    String	name;
+    long	i;
+
+    pos    = new int[1];
+    count  = decodeVarint(table, pos, table.length);
+    offset = 0;
+    for (i = 0; i < count; i++) {
+      length = (int) decodeVarint(table, pos, table.length);
+      if ((length < 0) || (pos[0] + length > table.length))
+	throw new IOException("Invalid track name in block table");
+      name    = BIN.decodeName(table, pos[0], length);
+      pos[0] += length;
+      offset += decodeVarint(table, pos, table.length);
+      blocks.add(new BIN.Block(name, offset, (int) decodeVarint(table, pos, table.length)));
+    }
+    if (pos[0] != table.length)
+      throw new IOException("Trailing data in block table");
+  }
+
+  /**
+   * Reads the next block, or the table at the end.
+   *
+   * @return		true if a block was read, false if the end was reached
+   * @throws IOException	if reading fails or the data is invalid
+   */
+  protected boolean readBlock() throws IOException {
+    long	offset;
+    int		marker;
+    int		length;
+    byte[]	name;
+    byte[]	fixed;
+    long	crc;
+    int		i;
+
+    offset = m_Position;
+    marker = m_Input.read();
+    m_Position++;
+    if (marker == BIN.MARKER_END) {
+      readTable(offset);
+      return false;
+    }
+    if (marker != BIN.MARKER_BLOCK)
+      throw new IOException((marker < 0 ? "Truncated " + BIN.class.getSimpleName() + " file" : "Invalid block marker") + " at offset " + offset);
+
+    length = (int) readVarint();
+    if ((length < 0) || (length > 65536))
+      throw new IOException("Invalid track name length at offset " + offset);
+    name = new byte[length];
+    readFully(name, length);
+    m_Track     = BIN.decodeName(name, 0, length);
+    m_Remaining = (int) readVarint();
+    m_Size      = (int) readVarint();
+    if ((m_Remaining < 0) || (m_Remaining > BIN.MAX_BLOCK_POINTS) || (m_Size < 0))
+      throw new IOException("Invalid block header at offset " + offset);
+    fixed = new byte[4];
+    readFully(fixed, fixed.length);
+    crc = 0;
+    for (i = 0; i < fixed.length; i++)
+      crc = (crc << 8) | (fixed[i] & 0xff);
+    if (m_Size > m_Payload.length)
+      m_Payload = new byte[Math.max(m_Size, m_Payload.length * 2)];
+    readFully(m_Payload, m_Size);
+
+    m_CRC.reset();
+    m_CRC.update(name, 0, name.length);
+    m_CRC.update(m_Payload, 0, m_Size);
+    if (m_CRC.getValue() != crc)
+      throw new IOException("Checksum mismatch of block at offset " + offset);
+
+    m_Blocks.add(new BIN.Block(m_Track, offset, m_Remaining));
+    m_Pos       = 0;
+    m_Time      = 0;
+    m_Lat       = 0;
+    m_Lon       = 0;
+    m_Elevation = 0;
+
+    return true;
+  }
+
+  /**
+   * Reads the table and the trailer, comparing them with the blocks read.
+   *
+   * @param offset	the offset of the table marker
+   * @throws IOException	if reading fails or the table does not match
+   */
+  protected void readTable(long offset) throws IOException {
+    byte[]		rest;
+    byte[]		table;
+    List<BIN.Block>	blocks;
+    long		crc;
+    long		tableOffset;
+    int			i;
+
+    rest = IOUtils.toByteArray(m_Input);
+    if (rest.length < BIN.TRAILER_SIZE)
+      throw new EOFException("Truncated " + BIN.class.getSimpleName() + " file!");
+    for (i = 0; i < BIN.TRAILER_MAGIC.length; i++) {
+      if (rest[rest.length - BIN.TRAILER_MAGIC.length + i] != BIN.TRAILER_MAGIC[i])
+	throw new IOException("Invalid trailer");
+    }
+    table       = new byte[rest.length - BIN.TRAILER_SIZE];
+    System.arraycopy(rest, 0, table, 0, table.length);
+    crc         = 0;
+    tableOffset = 0;
+    for (i = 0; i < 4; i++)
+      crc = (crc << 8) | (rest[table.length + i] & 0xff);
+    for (i = 4; i < 12; i++)
+      tableOffset = (tableOffset << 8) | (rest[table.length + i] & 0xff);
+
+    m_CRC.reset();
+    m_CRC.update(table, 0, table.length);
+    if (m_CRC.getValue() != crc)
+      throw new IOException("Checksum mismatch of block table");
+    if (tableOffset != offset)
+      throw new IOException("Table offset mismatch: " + tableOffset + " != " + offset);
+
+    blocks = new ArrayList<>();
+    decodeTable(table, blocks);
+    if (blocks.size() != m_Blocks.size())
+      throw new IOException("Block table lists " + blocks.size() + " blocks, read " + m_Blocks.size());
+    for (i = 0; i < blocks.size(); i++) {
+      if (!blocks.get(i).getTrack().equals(m_Blocks.get(i).getTrack())
+	|| (blocks.get(i).getOffset() != m_Blocks.get(i).getOffset())
+	|| (blocks.get(i).getPoints() != m_Blocks.get(i).getPoints()))
+	throw new IOException("Block table does not match block #" + (i + 1) + ": " + blocks.get(i));
+    }
+    m_Finished = true;
+  }
+
+  /**
+   * Decodes a varint from the payload.
+   *
+   * @return		the value
+   * @throws IOException	if the payload is truncated
+   */
+  protected long payload() throws IOException {
+    long	result;
+    int		shift;
+    int		b;
+
+    result = 0;
+    shift  = 0;
+    do {
+      if ((m_Pos >= m_Size) || (shift > 63))
+	throw new IOException("Invalid payload in block of track " + m_Track);
+      b       = m_Payload[m_Pos++];
+      result |= (long) (b & 0x7F) << shift;
+      shift  += 7;
+    }
+    while ((b & 0x80) != 0);
+
+    return result;
+  }
+
+  /**
+   * Decodes the next point.
+   *
+   * @return		true if a point was decoded, false if no more points available
+   * @throws IOException	if reading fails or the data is invalid
+   */
+  public boolean advance() throws IOException {
+    while (m_Remaining == 0) {
+      if (m_Finished)
+	return false;
+      if ((m_Track != null) && (m_Pos != m_Size))
+	throw new IOException("Trailing data in block of track " + m_Track);
+      if (!readBlock())
+	return false;
+    }
+
+    m_Flags = (int) payload();
+    if ((m_Flags & BIN.FLAG_TIME) != 0)
+      m_Time += BIN.unzigzag(payload());
+    if ((m_Flags & BIN.FLAG_LAT) != 0)
+      m_Lat += BIN.unzigzag(payload());
+    if ((m_Flags & BIN.FLAG_LON) != 0)
+      m_Lon += BIN.unzigzag(payload());
+    if ((m_Flags & BIN.FLAG_ELEVATION) != 0)
+      m_Elevation += BIN.unzigzag(payload());
+    m_Remaining--;
+
+    return true;
+  }
+
+  /**
+   * Returns the track name of the current point.
+   *
+   * @return		the name
+   */
+  public String getTrack() {
+    return m_Track;
+  }
+
+  /**
+   * Returns the timestamp of the current point.
+   *
+   * @return		the epoch msec, {@link TimeUtils#NO_TIME} if missing
+   */
+  public long getTime() {
+    return ((m_Flags & BIN.FLAG_TIME) != 0) ? m_Time : TimeUtils.NO_TIME;
+  }
+
+  /**
+   * Returns the latitude of the current point.
+   *
+   * @return		the latitude, NaN if missing
+   */
+  public double getLat() {
+    return ((m_Flags & BIN.FLAG_LAT) != 0) ? m_Lat / m_CoordinateScale : Double.NaN;
+  }
+
+  /**
+   * Returns the longitude of the current point.
+   *
+   * @return		the longitude, NaN if missing
+   */
+  public double getLon() {
+    return ((m_Flags & BIN.FLAG_LON) != 0) ? m_Lon / m_CoordinateScale : Double.NaN;
+  }
+
+  /**
+   * Returns the elevation of the current point.
+   *
+   * @return		the elevation, NaN if missing
+   */
+  public double getElevation() {
+    return ((m_Flags & BIN.FLAG_ELEVATION) != 0) ? m_Elevation / m_ElevationScale : Double.NaN;
+  }
+
+  /**
+   * Returns the fixed-point number as string.
+   *
+   * @param flag	the flag of the value
+   * @param value	the fixed-point number
+   * @param decimals	the decimals of the number
+   * @return		the string, empty if missing
+   */
+  protected String toString(int flag, long value, int decimals) {
+    if ((m_Flags & flag) == 0)
+      return "";
+    m_Buffer.setLength(0);
+    return CoordinateUtils.appendFixed(m_Buffer, value, decimals).toString();
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if reading fails or the data is invalid
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    if (!advance())
+      return null;
+
+    m_Count++;
+    return CSVRecordFactory.newRecord(
+      new String[]{
+	m_Track,
+	TimeUtils.format(getTime()),
+	toString(BIN.FLAG_LAT, m_Lat, m_CoordinateDecimals),
+	toString(BIN.FLAG_LON, m_Lon, m_CoordinateDecimals),
+	toString(BIN.FLAG_ELEVATION, m_Elevation, m_ElevationDecimals),
+      },
+      m_Mapping, null, m_Count, -1);
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Payload = null;
+    m_Input.close();
+  }
+}
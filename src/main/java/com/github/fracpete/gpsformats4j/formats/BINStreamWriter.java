@@ -0,0 +1,390 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BINStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Writer for the binary format that encodes the points as they arrive.
+ * Only the current block is held in memory.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see BIN
+ */
+public class BINStreamWriter
+  implements PointSink {
+
+  /** the underlying stream. */
+  protected OutputStream m_Output;
+
+  /** the decimals for latitude/longitude. */
+  protected int m_CoordinateDecimals;
+
+  /** the decimals for the elevation. */
+  protected int m_ElevationDecimals;
+
+  /** the factor for turning latitude/longitude into fixed-point numbers. */
+  protected double m_CoordinateScale;
+
+  /** the factor for turning the elevation into fixed-point numbers. */
+  protected double m_ElevationScale;
+
+  /** the number of bytes written so far. */
+  protected long m_Position;
+
+  /** the track name of the current block, null if none started. */
+  protected String m_Track;
+
+  /** the payload of the current block. */
+  protected byte[] m_Payload;
+
+  /** the number of bytes in the payload. */
+  protected int m_Size;
+
+  /** the number of points in the current block. */
+  protected int m_Points;
+
+  /** the previous timestamp in the block. */
+  protected long m_PrevTime;
+
+  /** the previous latitude in the block. */
+  protected long m_PrevLat;
+
+  /** the previous longitude in the block. */
+  protected long m_PrevLon;
+
+  /** the previous elevation in the block. */
+  protected long m_PrevElevation;
+
+  /** the block table (varints). */
+  protected byte[] m_Table;
+
+  /** the number of bytes in the table. */
+  protected int m_TableSize;
+
+  /** the number of blocks. */
+  protected int m_NumBlocks;
+
+  /** the offset of the previous block. */
+  protected long m_PrevOffset;
+
+  /** for computing the checksums. */
+  protected CRC32 m_CRC;
+
+  /** for the fixed-size numbers. */
+  protected byte[] m_Fixed;
+
+  /**
+   * Initializes the writer and writes the header.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if writing the header fails
+   */
+  public BINStreamWriter(BIN owner, OutputStream output) throws Exception {
+    m_Output             = output;
+    m_CoordinateDecimals = owner.getCoordinateDecimals();
+    m_ElevationDecimals  = owner.getElevationDecimals();
+    m_CoordinateScale    = Math.pow(10, m_CoordinateDecimals);
+    m_ElevationScale     = Math.pow(10, m_ElevationDecimals);
+    m_Position           = 0;
+    m_Track              = null;
+    m_Payload            = new byte[8192];
+    m_Size               = 0;
+    m_Points             = 0;
+    m_Table              = new byte[256];
+    m_TableSize          = 0;
+    m_NumBlocks          = 0;
+    m_PrevOffset         = 0;
+    m_CRC                = new CRC32();
+    m_Fixed              = new byte[8];
+
+    write(BIN.MAGIC, 0, BIN.MAGIC.length);
+    write(new byte[]{BIN.VERSION, (byte) m_CoordinateDecimals, (byte) m_ElevationDecimals}, 0, 3);
+  }
+
+  /**
+   * Writes the bytes to the output.
+   *
+   * @param bytes	the bytes
+   * @param offset	the offset of the first byte
+   * @param length	the number of bytes
+   * @throws IOException	if writing fails
+   */
+  protected void write(byte[] bytes, int offset, int length) throws IOException {
+    m_Output.write(bytes, offset, length);
+    m_Position += length;
+  }
+
+  /**
+   * Writes the value as fixed-size big-endian number.
+   *
+   * @param value	the value
+   * @param size	the number of bytes
+   * @throws IOException	if writing fails
+   */
+  protected void writeFixed(long value, int size) throws IOException {
+    int		i;
+
+    for (i = size - 1; i >= 0; i--) {
+      m_Fixed[i] = (byte) value;
+      value >>>= 8;
+    }
+    write(m_Fixed, 0, size);
+  }
+
+  /**
+   * Appends the value as varint to the buffer.
+   *
+   * @param buffer	the buffer
+   * @param size	the number of bytes in the buffer
+   * @param value	the (non-negative) value
+   * @return		the (new) buffer, the new size is the old size plus {@link #varintSize(long)}
+   */
+  protected static byte[] putVarint(byte[] buffer, int size, long value) {
+    if (size + 10 > buffer.length)
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + 10));
+    while ((value & ~0x7FL) != 0) {
+      buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[size] = (byte) value;
+
+    return buffer;
+  }
+
+  /**
+   * Returns the number of bytes of the value as varint.
+   *
+   * @param value	the value
+   * @return		the number of bytes
+   */
+  protected static int varintSize(long value) {
+    int		result;
+
+    result = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      result++;
+    }
+
+    return result;
+  }
+
+  /**
+   * Appends the value as varint to the payload.
+   *
+   * @param value	the (non-negative) value
+   */
+  protected void payload(long value) {
+    m_Payload = putVarint(m_Payload, m_Size, value);
+    m_Size   += varintSize(value);
+  }
+
+  /**
+   * Appends the value as varint to the table.
+   *
+   * @param value	the (non-negative) value
+   */
+  protected void table(long value) {
+    m_Table      = putVarint(m_Table, m_TableSize, value);
+    m_TableSize += varintSize(value);
+  }
+
+  /**
+   * Appends the bytes to the table.
+   *
+   * @param bytes	the bytes to append
+   */
+  protected void table(byte[] bytes) {
+    if (m_TableSize + bytes.length > m_Table.length)
+      m_Table = Arrays.copyOf(m_Table, Math.max(m_Table.length * 2, m_TableSize + bytes.length));
+    System.arraycopy(bytes, 0, m_Table, m_TableSize, bytes.length);
+    m_TableSize += bytes.length;
+  }
+
+  /**
+   * Turns the value into a fixed-point number.
+   *
+   * @param value	the value
+   * @param scale	the scale factor
+   * @return		the fixed-point number
+   */
+  protected static long scale(double value, double scale) {
+    return Math.round(value * scale);
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void write(CSVRecord rec) throws Exception {
+    String	track;
+    long	time;
+    double	lat;
+    double	lon;
+    double	ele;
+    long	value;
+    int		flags;
+
+    track = rec.get(Format.KEY_TRACK);
+    if ((m_Track != null) && (!m_Track.equals(track) || (m_Points == BIN.MAX_BLOCK_POINTS)))
+      flushBlock();
+    if (m_Track == null) {
+      m_Track         = track;
+      m_Size          = 0;
+      m_Points        = 0;
+      m_PrevTime      = 0;
+      m_PrevLat       = 0;
+      m_PrevLon       = 0;
+      m_PrevElevation = 0;
+    }
+
+    time  = TimeUtils.parse(rec.get(Format.KEY_TIME));
+    lat   = CoordinateUtils.parse(rec.get(Format.KEY_LAT));
+    lon   = CoordinateUtils.parse(rec.get(Format.KEY_LON));
+    ele   = CoordinateUtils.parse(rec.get(Format.KEY_ELEVATION));
+    flags = 0;
+    if (time != TimeUtils.NO_TIME)
+      flags |= BIN.FLAG_TIME;
+    if (!Double.isNaN(lat))
+      flags |= BIN.FLAG_LAT;
+    if (!Double.isNaN(lon))
+      flags |= BIN.FLAG_LON;
+    if (!Double.isNaN(ele))
+      flags |= BIN.FLAG_ELEVATION;
+    payload(flags);
+
+    if ((flags & BIN.FLAG_TIME) != 0) {
+      payload(BIN.zigzag(time - m_PrevTime));
+      m_PrevTime = time;
+    }
+    if ((flags & BIN.FLAG_LAT) != 0) {
+      value = scale(lat, m_CoordinateScale);
+      payload(BIN.zigzag(value - m_PrevLat));
+      m_PrevLat = value;
+    }
+    if ((flags & BIN.FLAG_LON) != 0) {
+      value = scale(lon, m_CoordinateScale);
+      payload(BIN.zigzag(value - m_PrevLon));
+      m_PrevLon = value;
+    }
+    if ((flags & BIN.FLAG_ELEVATION) != 0) {
+      value = scale(ele, m_ElevationScale);
+      payload(BIN.zigzag(value - m_PrevElevation));
+      m_PrevElevation = value;
+    }
+    m_Points++;
+  }
+
+  /**
+   * Writes the current block, if any, and records it in the table.
+   *
+   * @throws IOException	if writing fails
+   */
+  protected void flushBlock() throws IOException {
+    byte[]	name;
+    byte[]	header;
+    int		size;
+
+    if (m_Track == null)
+      return;
+
+    name   = BIN.encodeName(m_Track);
+    header = new byte[32 + name.length];
+    size   = 0;
+    header[size++] = (byte) BIN.MARKER_BLOCK;
+    header = putVarint(header, size, name.length);
+    size  += varintSize(name.length);
+    System.arraycopy(name, 0, header, size, name.length);
+    size  += name.length;
+    header = putVarint(header, size, m_Points);
+    size  += varintSize(m_Points);
+    header = putVarint(header, size, m_Size);
+    size  += varintSize(m_Size);
+
+    m_CRC.reset();
+    m_CRC.update(name, 0, name.length);
+    m_CRC.update(m_Payload, 0, m_Size);
+
+    table(name.length);
+    table(name);
+    table(m_Position - m_PrevOffset);
+    table(m_Points);
+    m_PrevOffset = m_Position;
+    m_NumBlocks++;
+
+    write(header, 0, size);
+    writeFixed(m_CRC.getValue(), 4);
+    write(m_Payload, 0, m_Size);
+    m_Track = null;
+  }
+
+  /**
+   * Writes the last block, the table and the trailer, then closes the
+   * underlying stream, so that errors when completing the output (eg
+   * compression) get reported.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void finish() throws Exception {
+    byte[]	count;
+    long	offset;
+
+    flushBlock();
+    offset = m_Position;
+    write(new byte[]{(byte) BIN.MARKER_END}, 0, 1);
+    count = putVarint(new byte[10], 0, m_NumBlocks);
+    write(count, 0, varintSize(m_NumBlocks));
+    write(m_Table, 0, m_TableSize);
+    m_CRC.reset();
+    m_CRC.update(count, 0, varintSize(m_NumBlocks));
+    m_CRC.update(m_Table, 0, m_TableSize);
+    writeFixed(m_CRC.getValue(), 4);
+    writeFixed(offset, 8);
+    write(BIN.TRAILER_MAGIC, 0, BIN.TRAILER_MAGIC.length);
+    m_Output.close();
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Payload = null;
+    m_Table   = null;
+    IOUtils.closeQuietly(m_Output);
+  }
+}
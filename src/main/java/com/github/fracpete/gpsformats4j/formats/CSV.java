@@ -15,20 +15,26 @@
 
 /**
  * CSV.java
- * Copyright (C) 2016 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.CSVRecordFactory;
 import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,11 +50,277 @@ import java.util.Map;
  *   <li>longitude</li>
  *   <li>elevation</li>
  * </ol>
+ * By default, the first row is expected to be a header with these names
+ * (case-insensitive), in which case the columns can be in any order.
+ * Without a header, the columns are used in the order listed above.
+ * <br>
+ * In parallel mode, the file gets memory-mapped and split into chunks at
+ * record boundaries, which are parsed concurrently.
  *
  * @author FracPete (fracpete at gmail dot com)
+ * @see CSVProvider
  */
 public class CSV
-  extends AbstractFormat {
+  extends AbstractFormatWithOptionHandling
+  implements StreamingFormat {
+
+  public static final String HEADER = "header";
+
+  public static final String PARALLEL = "parallel";
+
+  public static final String CHUNK_SIZE = "chunk_size";
+
+  public static final String NUM_THREADS = "num_threads";
+
+  /** the columns in their default order. */
+  public static final String[] COLUMNS = {KEY_TRACK, KEY_TIME, KEY_LAT, KEY_LON, KEY_ELEVATION};
+
+  /** the default chunk size in bytes for parallel reading. */
+  public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  /** whether the first row is a header. */
+  protected boolean m_Header;
+
+  /** whether to read in parallel. */
+  protected boolean m_Parallel;
+
+  /** the chunk size in bytes for parallel reading. */
+  protected int m_ChunkSize;
+
+  /** the number of threads for parallel reading. */
+  protected int m_NumThreads;
+
+  /**
+   * Initializes the members.
+   */
+  @Override
+  protected void initialize() {
+    m_Header     = true;
+    m_Parallel   = false;
+    m_ChunkSize  = DEFAULT_CHUNK_SIZE;
+    m_NumThreads = Runtime.getRuntime().availableProcessors();
+    super.initialize();
+  }
+
+  /**
+   * Adds the options to the parser.
+   *
+   * @param parser	the parser to update
+   */
+  @Override
+  protected void addOptions(ArgumentParser parser) {
+    super.addOptions(parser);
+    parser.addArgument("--" + HEADER)
+      .dest(HEADER)
+      .required(false)
+      .type(Boolean.class)
+      .setDefault(m_Header)
+      .help("Whether the first row is a header with the column names, otherwise the columns are expected in the order: " + String.join(", ", COLUMNS) + ".");
+    parser.addArgument("--" + PARALLEL)
+      .dest(PARALLEL)
+      .required(false)
+      .type(Boolean.class)
+      .setDefault(m_Parallel)
+      .help("Whether to memory-map the file and parse chunks of it in parallel (disables streaming).");
+    parser.addArgument("--" + CHUNK_SIZE)
+      .dest(CHUNK_SIZE)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_ChunkSize)
+      .help("The approximate size in bytes of the chunks to parse in parallel (at least " + CSVParallelReader.MIN_CHUNK_SIZE + ").");
+    parser.addArgument("--" + NUM_THREADS)
+      .dest(NUM_THREADS)
+      .required(false)
+      .type(Integer.class)
+      .setDefault(m_NumThreads)
+      .help("The number of threads to use for parsing in parallel.");
+  }
+
+  /**
+   * Applies the parsed options.
+   *
+   * @param ns		the parsed options
+   * @throws Exception	if applying of options fails
+   */
+  @Override
+  protected void applyOptions(Namespace ns) throws Exception {
+    super.applyOptions(ns);
+    setHeader(ns.getBoolean(HEADER));
+    setParallel(ns.getBoolean(PARALLEL));
+    setChunkSize(ns.getInt(CHUNK_SIZE));
+    setNumThreads(ns.getInt(NUM_THREADS));
+  }
+
+  /**
+   * Sets whether the first row is a header.
+   *
+   * @param value	true if header present
+   */
+  public void setHeader(boolean value) {
+    m_Header = value;
+  }
+
+  /**
+   * Returns whether the first row is a header.
+   *
+   * @return		true if header present
+   */
+  public boolean hasHeader() {
+    return m_Header;
+  }
+
+  /**
+   * Sets whether to read in parallel.
+   *
+   * @param value	true if parallel
+   */
+  public void setParallel(boolean value) {
+    m_Parallel = value;
+  }
+
+  /**
+   * Returns whether to read in parallel.
+   *
+   * @return		true if parallel
+   */
+  public boolean isParallel() {
+    return m_Parallel;
+  }
+
+  /**
+   * Sets the approximate chunk size in bytes for parallel reading.
+   *
+   * @param value	the size
+   */
+  public void setChunkSize(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Chunk size must be at least 1, provided: " + value);
+    m_ChunkSize = value;
+  }
+
+  /**
+   * Returns the approximate chunk size in bytes for parallel reading.
+   *
+   * @return		the size
+   */
+  public int getChunkSize() {
+    return m_ChunkSize;
+  }
+
+  /**
+   * Sets the number of threads for parallel reading.
+   *
+   * @param value	the number of threads
+   */
+  public void setNumThreads(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of threads must be at least 1, provided: " + value);
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads for parallel reading.
+   *
+   * @return		the number of threads
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the mapping for the records generated by the readers.
+   *
+   * @return		the mapping (column name to index)
+   */
+  protected static Map<String,Integer> newMapping() {
+    Map<String,Integer>	result;
+    int			i;
+
+    result = new HashMap<>();
+    for (i = 0; i < COLUMNS.length; i++)
+      result.put(COLUMNS[i], i);
+
+    return result;
+  }
+
+  /**
+   * Determines the indices of the columns, either from the header row or,
+   * if none, in the default order.
+   *
+   * @param header	the header row, null if none
+   * @return		the indices in the row, in the order of {@link #COLUMNS}
+   * @throws IOException	if the header lacks columns
+   */
+  protected static int[] columns(String[] header) throws IOException {
+    int[]		result;
+    List<String>	missing;
+    int			i;
+    int			n;
+
+    result = new int[COLUMNS.length];
+    if (header == null) {
+      for (i = 0; i < COLUMNS.length; i++)
+	result[i] = i;
+      return result;
+    }
+
+    missing = new ArrayList<>();
+    for (i = 0; i < COLUMNS.length; i++) {
+      result[i] = -1;
+      for (n = 0; n < header.length; n++) {
+	if (header[n].trim().equalsIgnoreCase(COLUMNS[i])) {
+	  result[i] = n;
+	  break;
+	}
+      }
+      if (result[i] == -1)
+	missing.add(COLUMNS[i]);
+    }
+    if (!missing.isEmpty())
+      throw new IOException("Header lacks column(s): " + String.join(", ", missing));
+
+    return result;
+  }
+
+  /**
+   * Turns the values of a row into a record with the columns in the
+   * default order. Missing values are represented by empty strings.
+   *
+   * @param row		the values of the row
+   * @param columns	the indices of the columns in the row
+   * @param mapping	the mapping for the record
+   * @param recNo	the record number
+   * @return		the record
+   * @see #columns(String[])
+   * @see #newMapping()
+   */
+  protected static CSVRecord newRecord(String[] row, int[] columns, Map<String,Integer> mapping, long recNo) {
+    String[]	values;
+    int		i;
+
+    values = new String[columns.length];
+    for (i = 0; i < columns.length; i++)
+      values[i] = (columns[i] < row.length) ? row[columns[i]] : "";
+
+    return CSVRecordFactory.newRecord(values, mapping, null, recNo, -1);
+  }
+
+  /**
+   * Returns the values of the record.
+   *
+   * @param rec		the record
+   * @return		the values
+   */
+  protected static String[] values(CSVRecord rec) {
+    String[]	result;
+    int		i;
+
+    result = new String[rec.size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = rec.get(i);
+
+    return result;
+  }
 
   /**
    * Returns whether reading is supported.
@@ -60,6 +332,62 @@ public class CSV
     return true;
   }
 
+  /**
+   * Returns whether streaming is supported with the current setup.
+   *
+   * @return		true unless reading in parallel
+   */
+  @Override
+  public boolean canStream() {
+    return !m_Parallel;
+  }
+
+  /**
+   * Opens a source for reading the points from the file.
+   *
+   * @param input	the input file
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(File input) throws Exception {
+    m_Logger.info("Reading: " + input);
+    return openSource(new BufferedInputStream(new FileInputStream(input)));
+  }
+
+  /**
+   * Opens a source for reading the points from the stream.
+   *
+   * @param input	the stream to read from, gets closed with the source
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSource openSource(InputStream input) throws Exception {
+    try {
+      return new CSVStreamReader(this, wrapInput(input));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(input);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns whether the file is gzip compressed.
+   *
+   * @param input	the file to check
+   * @return		true if compressed, false if not or failed to check
+   */
+  protected boolean isGzip(File input) {
+    try {
+      return CompressionUtils.isGzip(input);
+    }
+    catch (Exception e) {
+      return false;
+    }
+  }
+
   /**
    * Reads the file.
    *
@@ -69,19 +397,38 @@ public class CSV
   @Override
   public List<CSVRecord> read(File input) {
     List<CSVRecord>	result;
-    CSVParser		parser;
+    PointSource		source;
+    CSVRecord		rec;
+
+    if (m_Parallel && !CSVParallelReader.isSupported(Charset.defaultCharset()))
+      m_Logger.warn("Charset " + Charset.defaultCharset() + " not supported for parallel reading, reading sequentially");
+    else if (m_Parallel && isGzip(input))
+      m_Logger.info("Compressed files cannot be read in parallel, reading sequentially");
+    else if (m_Parallel) {
+      try {
+	m_Logger.info("Reading (parallel): " + input);
+	return new CSVParallelReader(this).read(input);
+      }
+      catch (Exception e) {
+	m_Logger.error("Failed to read: " + input, e);
+	return null;
+      }
+    }
 
     result = new ArrayList<>();
+    source = null;
     try {
-      m_Logger.info("Reading: " + input);
-      parser = CSVParser.parse(input, Charset.defaultCharset(), CSVFormat.DEFAULT);
-      for (CSVRecord rec: parser)
+      source = openSource(input);
+      while ((rec = source.next()) != null)
 	result.add(rec);
     }
     catch (Exception e) {
       m_Logger.error("Failed to read: " + input, e);
       return null;
     }
+    finally {
+      IOUtils.closeQuietly(source);
+    }
 
     return result;
   }
@@ -96,6 +443,37 @@ public class CSV
     return true;
   }
 
+  /**
+   * Opens a sink for writing the points to the file.
+   *
+   * @param output	the output file
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(File output) throws Exception {
+    m_Logger.info("Writing: " + output);
+    return openSink(CompressionUtils.compress(new BufferedOutputStream(new FileOutputStream(output)), output));
+  }
+
+  /**
+   * Opens a sink for writing the points to the stream.
+   *
+   * @param output	the stream to write to, gets closed with the sink
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  @Override
+  public PointSink openSink(OutputStream output) throws Exception {
+    try {
+      return new CSVStreamWriter(this, wrapOutput(output));
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(output);
+      throw e;
+    }
+  }
+
   /**
    * Writes to a file.
    *
@@ -105,51 +483,21 @@ public class CSV
    */
   @Override
   public String write(List<CSVRecord> data, File output) {
-    CSVPrinter		printer;
-    FileWriter		writer;
-    boolean		first;
-    int			i;
-    CSVRecord		header;
-    List<String>	values;
-    Map<String,Integer>	map;
+    PointSink	sink;
 
-    writer  = null;
-    printer = null;
+    sink = null;
     try {
-      m_Logger.info("Writing: " + output);
-      writer  = new FileWriter(output);
-      printer = new CSVPrinter(writer, CSVFormat.DEFAULT);
-      first   = true;
-      for (CSVRecord rec: data) {
-	if (first) {
-	  map = new HashMap<>();
-	  map.put(KEY_TRACK, 0);
-	  map.put(KEY_TIME, 1);
-	  map.put(KEY_LAT, 2);
-	  map.put(KEY_LON, 3);
-	  map.put(KEY_ELEVATION, 4);
-	  values = new ArrayList<>();
-	  values.add(KEY_TRACK);
-	  values.add(KEY_TIME);
-	  values.add(KEY_LAT);
-	  values.add(KEY_LON);
-	  values.add(KEY_ELEVATION);
-	  header = CSVRecordFactory.newRecord(values.toArray(new String[values.size()]), map);
-	  printer.printRecord(header);
-	}
-	printer.printRecord(rec);
-	first = false;
-      }
-      printer.flush();
-      printer.close();
+      sink = openSink(output);
+      for (CSVRecord rec: data)
+	sink.write(rec);
+      sink.finish();
     }
     catch (Exception e) {
       m_Logger.error("Failed to write: " + output, e);
       return "Failed to write: " + output + "\n" + e;
     }
     finally {
-      IOUtils.closeQuietly(writer);
-      IOUtils.closeQuietly(printer);
+      IOUtils.closeQuietly(sink);
     }
 
     return null;
@@ -0,0 +1,319 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CSVParallelReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a CSV file in parallel. The file gets memory-mapped and split into
+ * chunks of roughly the configured size, which are parsed on a fork-join
+ * pool and then merged in their original order.
+ * <br>
+ * Chunks always end after a line break that is not within a quoted value.
+ * Whether a position is within quotes is determined from the parity of the
+ * number of quote characters before it: each chunk counts its quotes in
+ * parallel and the prefix sum gives the parity at the start of each chunk
+ * (escaped quotes come in pairs and therefore do not change the parity).
+ * <br>
+ * Requires a charset in which line breaks and quotes are single bytes, like
+ * UTF-8 or ISO-8859-1; other charsets are read sequentially.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see CSV
+ */
+public class CSVParallelReader {
+
+  /** the minimum chunk size, to limit the number of mappings. */
+  public static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Container for the quote statistics of a chunk.
+   */
+  protected static class Scan {
+
+    /** the number of quotes in the chunk. */
+    public long quotes;
+
+    /** the position after the first line break preceded by an even/odd number of quotes (within the chunk), -1 if none. */
+    public long[] boundary = {-1, -1};
+  }
+
+  /** the owning format. */
+  protected CSV m_Owner;
+
+  /** the charset to use. */
+  protected Charset m_Charset;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that uses the reader
+   */
+  public CSVParallelReader(CSV owner) {
+    m_Owner   = owner;
+    m_Charset = Charset.defaultCharset();
+  }
+
+  /**
+   * Returns whether the charset encodes line breaks and quotes as single
+   * bytes, which is required for splitting the file.
+   *
+   * @param charset	the charset to check
+   * @return		true if supported
+   */
+  public static boolean isSupported(Charset charset) {
+    return Arrays.equals("\n\"".getBytes(charset), new byte[]{'\n', '"'});
+  }
+
+  /**
+   * Maps a region of the file into memory.
+   *
+   * @param channel	the channel of the file
+   * @param start	the start of the region
+   * @param end		the end of the region (excl)
+   * @return		the buffer
+   * @throws IOException	if mapping fails or the region is too large
+   */
+  protected MappedByteBuffer map(FileChannel channel, long start, long end) throws IOException {
+    if (end - start > Integer.MAX_VALUE)
+      throw new IOException("Chunk too large to map, starting at byte " + start + ": " + (end - start));
+    return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+  }
+
+  /**
+   * Counts the quotes in the region and locates the first line breaks
+   * preceded by an even and odd number of quotes.
+   *
+   * @param channel	the channel of the file
+   * @param start	the start of the region
+   * @param end		the end of the region (excl)
+   * @return		the statistics
+   * @throws IOException	if mapping fails
+   */
+  protected Scan scan(FileChannel channel, long start, long end) throws IOException {
+    Scan		result;
+    MappedByteBuffer	buffer;
+    int			i;
+    int			parity;
+    byte		b;
+
+    result = new Scan();
+    buffer = map(channel, start, end);
+    for (i = 0; i < buffer.limit(); i++) {
+      b = buffer.get(i);
+      if (b == '"') {
+	result.quotes++;
+      }
+      else if (b == '\n') {
+	parity = (int) (result.quotes & 1);
+	if (result.boundary[parity] == -1)
+	  result.boundary[parity] = start + i + 1;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses the region of the file.
+   *
+   * @param channel	the channel of the file
+   * @param start	the start of the region
+   * @param end		the end of the region (excl)
+   * @return		the rows
+   * @throws IOException	if mapping or parsing fails
+   */
+  protected List<String[]> parse(FileChannel channel, long start, long end) throws IOException {
+    List<String[]>	result;
+    CSVParser		parser;
+
+    result = new ArrayList<>();
+    parser = CSVParser.parse(m_Charset.decode(map(channel, start, end)).toString(), CSVFormat.DEFAULT);
+    try {
+      for (CSVRecord rec: parser)
+	result.add(CSV.values(rec));
+    }
+    finally {
+      parser.close();
+    }
+
+    return result;
+  }
+
+  /**
+   * Executes the tasks on the pool and returns their results in order.
+   *
+   * @param pool	the pool to use
+   * @param tasks	the tasks to execute
+   * @param <T>		the type of result
+   * @return		the results
+   * @throws Exception	the first exception that a task threw
+   */
+  protected <T> List<T> invoke(ForkJoinPool pool, List<Callable<T>> tasks) throws Exception {
+    List<T>		result;
+    List<Future<T>>	futures;
+
+    futures = pool.invokeAll(tasks);
+    result  = new ArrayList<>(futures.size());
+    try {
+      for (Future<T> future : futures)
+	result.add(future.get());
+    }
+    catch (ExecutionException e) {
+      for (Future<T> future : futures)
+	future.cancel(true);
+      if (e.getCause() instanceof Exception)
+	throw (Exception) e.getCause();
+      throw e;
+    }
+
+    return result;
+  }
+
+  /**
+   * Determines the chunks, ensuring that they start at record boundaries.
+   *
+   * @param pool	the pool to use
+   * @param channel	the channel of the file
+   * @param size	the size of the file
+   * @return		the start positions of the chunks, followed by the size of the file
+   * @throws Exception	if scanning fails
+   */
+  protected List<Long> chunks(ForkJoinPool pool, final FileChannel channel, final long size) throws Exception {
+    List<Long>			result;
+    List<Callable<Scan>>	tasks;
+    List<Scan>			scans;
+    long			chunkSize;
+    long			pos;
+    long			quotes;
+    long			boundary;
+    int				i;
+
+    chunkSize = Math.max(MIN_CHUNK_SIZE, m_Owner.getChunkSize());
+    tasks     = new ArrayList<>();
+    for (pos = 0; pos < size; pos += chunkSize) {
+      final long start = pos;
+      final long end   = Math.min(size, pos + chunkSize);
+      tasks.add(() -> scan(channel, start, end));
+    }
+    scans = invoke(pool, tasks);
+
+    result = new ArrayList<>();
+    result.add(0L);
+    quotes = 0;
+    for (i = 0; i < scans.size(); i++) {
+      // the first chunk always starts at 0, only subsequent ones need aligning
+      if (i > 0) {
+	boundary = scans.get(i).boundary[(int) (quotes & 1)];
+	if ((boundary != -1) && (boundary < size))
+	  result.add(boundary);
+      }
+      quotes += scans.get(i).quotes;
+    }
+    result.add(size);
+
+    return result;
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @param input	the file to read
+   * @return		the records
+   * @throws Exception	if reading fails
+   */
+  public List<CSVRecord> read(File input) throws Exception {
+    List<CSVRecord>			result;
+    ForkJoinPool			pool;
+    List<Long>				chunks;
+    List<Callable<List<String[]>>>	parseTasks;
+    List<List<String[]>>		rows;
+    List<Callable<List<CSVRecord>>>	recordTasks;
+    final Map<String,Integer>		mapping;
+    final int[]				columns;
+    long				offset;
+    int					i;
+
+    if (!isSupported(m_Charset))
+      throw new IOException("Charset not supported for parallel reading: " + m_Charset);
+
+    pool = new ForkJoinPool(m_Owner.getNumThreads());
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      chunks = chunks(pool, channel, channel.size());
+
+      parseTasks = new ArrayList<>();
+      for (i = 0; i < chunks.size() - 1; i++) {
+	final long start = chunks.get(i);
+	final long end   = chunks.get(i + 1);
+	parseTasks.add(() -> parse(channel, start, end));
+      }
+      rows = invoke(pool, parseTasks);
+
+      // header
+      if (m_Owner.hasHeader() && !rows.isEmpty() && !rows.get(0).isEmpty())
+	columns = CSV.columns(rows.get(0).remove(0));
+      else
+	columns = CSV.columns(null);
+
+      // records, numbered across the chunks
+      mapping     = CSV.newMapping();
+      recordTasks = new ArrayList<>();
+      offset      = 0;
+      for (i = 0; i < rows.size(); i++) {
+	final List<String[]> chunk = rows.get(i);
+	final long first = offset;
+	recordTasks.add(() -> {
+	  List<CSVRecord> records = new ArrayList<>(chunk.size());
+	  for (int n = 0; n < chunk.size(); n++)
+	    records.add(CSV.newRecord(chunk.get(n), columns, mapping, first + n + 1));
+	  return records;
+	});
+	offset += chunk.size();
+      }
+
+      result = new ArrayList<>((int) offset);
+      for (List<CSVRecord> records: invoke(pool, recordTasks))
+	result.addAll(records);
+    }
+    finally {
+      pool.shutdownNow();
+    }
+
+    return result;
+  }
+}
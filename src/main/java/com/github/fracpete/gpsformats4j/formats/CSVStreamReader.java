@@ -0,0 +1,107 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CSVStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reader for CSV that parses one record at a time. The records get
+ * returned with the columns in the default order, regardless of their
+ * order in the file.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see CSV
+ */
+public class CSVStreamReader
+  implements PointSource {
+
+  /** the underlying stream. */
+  protected InputStream m_Input;
+
+  /** the parser. */
+  protected CSVParser m_Parser;
+
+  /** the iterator over the records. */
+  protected Iterator<CSVRecord> m_Records;
+
+  /** the indices of the columns. */
+  protected int[] m_Columns;
+
+  /** the mapping for the generated records. */
+  protected Map<String,Integer> m_Mapping;
+
+  /** the number of records returned so far. */
+  protected long m_Count;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that opened the reader
+   * @param input	the stream to read from
+   * @throws Exception	if the parser cannot be created
+   */
+  public CSVStreamReader(CSV owner, InputStream input) throws Exception {
+    m_Input   = input;
+    m_Parser  = new CSVParser(new BufferedReader(new InputStreamReader(input, Charset.defaultCharset())), CSVFormat.DEFAULT);
+    m_Records = m_Parser.iterator();
+    m_Mapping = CSV.newMapping();
+    m_Count   = 0;
+    if (owner.hasHeader() && m_Records.hasNext())
+      m_Columns = CSV.columns(CSV.values(m_Records.next()));
+    else
+      m_Columns = CSV.columns(null);
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if parsing fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    if (m_Records.hasNext())
+      return CSV.newRecord(CSV.values(m_Records.next()), m_Columns, m_Mapping, ++m_Count);
+    return null;
+  }
+
+  /**
+   * Closes the parser and the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    IOUtils.closeQuietly(m_Parser);
+    IOUtils.closeQuietly(m_Input);
+  }
+}
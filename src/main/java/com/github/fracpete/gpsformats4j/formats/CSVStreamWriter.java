@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CSVStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Writer for CSV that outputs the records as they arrive. The header row
+ * precedes the first record.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see CSV
+ */
+public class CSVStreamWriter
+  implements PointSink {
+
+  /** the underlying stream. */
+  protected OutputStream m_Output;
+
+  /** the printer. */
+  protected CSVPrinter m_Printer;
+
+  /** whether the header has been written. */
+  protected boolean m_HeaderWritten;
+
+  /** the maximum number of decimals for latitude/longitude (-1 = as is). */
+  protected int m_CoordinatePrecision;
+
+  /** the maximum number of decimals for the elevation (-1 = as is). */
+  protected int m_ElevationPrecision;
+
+  /**
+   * Initializes the writer.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if the printer cannot be created
+   */
+  public CSVStreamWriter(CSV owner, OutputStream output) throws Exception {
+    m_Output              = output;
+    m_Printer             = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(output, Charset.defaultCharset())), CSVFormat.DEFAULT);
+    m_HeaderWritten       = false;
+    m_CoordinatePrecision = owner.getCoordinatePrecision();
+    m_ElevationPrecision  = owner.getElevationPrecision();
+  }
+
+  /**
+   * Rounds the latitude/longitude for writing.
+   *
+   * @param value	the latitude/longitude
+   * @return		the (rounded) value
+   */
+  protected String coordinate(String value) {
+    return CoordinateUtils.round(value, m_CoordinatePrecision);
+  }
+
+  /**
+   * Rounds the elevation for writing.
+   *
+   * @param value	the elevation
+   * @return		the (rounded) value
+   */
+  protected String elevation(String value) {
+    return CoordinateUtils.round(value, m_ElevationPrecision);
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void write(CSVRecord rec) throws Exception {
+    if (!m_HeaderWritten) {
+      m_Printer.printRecord(Format.KEY_TRACK, Format.KEY_TIME, Format.KEY_LAT, Format.KEY_LON, Format.KEY_ELEVATION);
+      m_HeaderWritten = true;
+    }
+    if ((m_CoordinatePrecision < 0) && (m_ElevationPrecision < 0)) {
+      m_Printer.printRecord(rec);
+    }
+    else {
+      m_Printer.print(rec.get(Format.KEY_TRACK));
+      m_Printer.print(rec.get(Format.KEY_TIME));
+      m_Printer.print(coordinate(rec.get(Format.KEY_LAT)));
+      m_Printer.print(coordinate(rec.get(Format.KEY_LON)));
+      m_Printer.print(elevation(rec.get(Format.KEY_ELEVATION)));
+      m_Printer.println();
+    }
+  }
+
+  /**
+   * Flushes the output and closes the printer and the underlying stream,
+   * so that errors when completing the output (eg compression) get reported.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void finish() throws Exception {
+    m_Printer.flush();
+    m_Printer.close();
+    m_Output.close();
+  }
+
+  /**
+   * Closes the printer and the underlying stream.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    IOUtils.closeQuietly(m_Printer);
+    IOUtils.closeQuietly(m_Output);
+  }
+}
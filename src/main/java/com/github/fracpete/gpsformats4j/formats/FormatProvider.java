@@ -0,0 +1,99 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FormatProvider.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+/**
+ * Describes a format and creates instances of it, without having to load
+ * the format class itself. Providers get discovered via
+ * {@link java.util.ServiceLoader}, ie additional formats can be plugged in
+ * by listing their provider in
+ * META-INF/services/com.github.fracpete.gpsformats4j.formats.FormatProvider.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see Formats
+ */
+public interface FormatProvider {
+
+  /**
+   * Returns the name of the format, as used on the command-line.
+   *
+   * @return		the name, eg GPX
+   */
+  public String getName();
+
+  /**
+   * Returns the file extensions of the format.
+   *
+   * @return		the extensions, lower case without dot
+   */
+  public String[] getExtensions();
+
+  /**
+   * Returns the magic bytes that the (uncompressed) files start with.
+   *
+   * @return		the magic bytes, null if the format has none
+   */
+  public byte[] getMagic();
+
+  /**
+   * Returns the MIME type of the format.
+   *
+   * @return		the type
+   */
+  public String getContentType();
+
+  /**
+   * Returns whether the format can read files.
+   *
+   * @return		true if supported
+   */
+  public boolean canRead();
+
+  /**
+   * Returns whether the format can write files.
+   *
+   * @return		true if supported
+   */
+  public boolean canWrite();
+
+  /**
+   * Returns whether the format can stream the points (with its default
+   * options).
+   *
+   * @return		true if supported
+   * @see StreamingFormat
+   */
+  public boolean canStream();
+
+  /**
+   * Returns the format class. Loads the class.
+   *
+   * @return		the class
+   */
+  public Class<? extends Format> getFormatClass();
+
+  /**
+   * Returns a new instance of the format, with its default options.
+   *
+   * @return		the instance
+   */
+  public Format newInstance();
+}
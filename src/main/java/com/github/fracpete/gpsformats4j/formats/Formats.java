@@ -15,29 +15,269 @@
 
 /**
  * Formats.java
- * Copyright (C) 2016-2017 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
 
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
 /**
- * Helper class for all formats.
+ * Registry of the formats, discovered via {@link ServiceLoader} (see
+ * {@link FormatProvider}). The providers get loaded once, on first access;
+ * the format classes only when an instance is requested. If several
+ * providers use the same name, the first one on the classpath wins.
  *
  * @author FracPete (fracpete at gmail dot com)
  */
 public class Formats {
 
   /**
-   * Returns all available formats.
+   * Holds the providers, initialized on first access.
+   */
+  protected static class Registry {
+
+    /** the providers. */
+    protected static final List<FormatProvider> PROVIDERS = load();
+
+    /**
+     * Discovers the providers. Broken providers and duplicate names are
+     * skipped with a warning.
+     *
+     * @return		the providers
+     */
+    protected static List<FormatProvider> load() {
+      List<FormatProvider>	result;
+      Iterator<FormatProvider>	iter;
+      FormatProvider		provider;
+
+      result = new ArrayList<>();
+      iter   = ServiceLoader.load(FormatProvider.class, Formats.class.getClassLoader()).iterator();
+      while (true) {
+	try {
+	  if (!iter.hasNext())
+	    break;
+	  provider = iter.next();
+	}
+	catch (ServiceConfigurationError e) {
+	  LoggerFactory.getLogger(Formats.class).warn("Failed to load format provider: " + e.getMessage());
+	  continue;
+	}
+	if (find(result, provider.getName()) != null)
+	  LoggerFactory.getLogger(Formats.class).warn("Duplicate format '" + provider.getName() + "', ignoring: " + provider.getClass().getName());
+	else
+	  result.add(provider);
+      }
+
+      return Collections.unmodifiableList(result);
+    }
+  }
+
+  /**
+   * Returns the provider with the name.
+   *
+   * @param providers	the providers to search
+   * @param name	the name, case-insensitive
+   * @return		the provider, null if not found
+   */
+  protected static FormatProvider find(List<FormatProvider> providers, String name) {
+    for (FormatProvider provider: providers) {
+      if (provider.getName().equalsIgnoreCase(name))
+	return provider;
+    }
+    return null;
+  }
+
+  /**
+   * Returns all available providers.
+   *
+   * @return		the providers
+   */
+  public static List<FormatProvider> providers() {
+    return Registry.PROVIDERS;
+  }
+
+  /**
+   * Returns the names of all available formats.
+   *
+   * @return		the names
+   */
+  public static String[] names() {
+    String[]	result;
+    int		i;
+
+    result = new String[providers().size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = providers().get(i).getName();
+
+    return result;
+  }
+
+  /**
+   * Returns the provider for the format name.
+   *
+   * @param name	the name, case-insensitive
+   * @return		the provider, null if unknown
+   */
+  public static FormatProvider get(String name) {
+    if (name == null)
+      return null;
+    return find(providers(), name);
+  }
+
+  /**
+   * Returns the provider for the format class. Only loads the class of the
+   * provider with the same name as the class, unless it is provided under
+   * another name.
+   *
+   * @param format	the format class
+   * @return		the provider, null if unknown
+   */
+  public static FormatProvider get(Class<?> format) {
+    FormatProvider	result;
+
+    result = get(format.getSimpleName());
+    if ((result != null) && (result.getFormatClass() == format))
+      return result;
+    for (FormatProvider provider: providers()) {
+      if (provider.getFormatClass() == format)
+	return provider;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the provider for the file extension, ignoring a gzip extension.
+   *
+   * @param file	the file to get the provider for
+   * @return		the provider, null if no match
+   */
+  public static FormatProvider forExtension(File file) {
+    String	name;
+
+    name = file.getName().toLowerCase();
+    if (name.endsWith(CompressionUtils.EXT_GZIP))
+      name = name.substring(0, name.length() - CompressionUtils.EXT_GZIP.length());
+    for (FormatProvider provider: providers()) {
+      for (String ext: provider.getExtensions()) {
+	if (name.endsWith("." + ext))
+	  return provider;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the provider whose magic bytes the (decompressed) file starts with.
+   *
+   * @param file	the file to check
+   * @return		the provider, null if no match
+   * @throws IOException	if reading fails
+   */
+  public static FormatProvider forMagic(File file) throws IOException {
+    byte[]	header;
+    byte[]	magic;
+    int		length;
+    int		read;
+    int		i;
+
+    length = 0;
+    for (FormatProvider provider: providers()) {
+      if (provider.getMagic() != null)
+	length = Math.max(length, provider.getMagic().length);
+    }
+    if (length == 0)
+      return null;
+
+    header = new byte[length];
+    read   = 0;
+    try (InputStream input = CompressionUtils.decompress(new FileInputStream(file))) {
+      while (read < length) {
+	i = input.read(header, read, length - read);
+	if (i == -1)
+	  break;
+	read += i;
+      }
+    }
+
+    for (FormatProvider provider: providers()) {
+      magic = provider.getMagic();
+      if ((magic == null) || (magic.length > read))
+	continue;
+      for (i = 0; i < magic.length; i++) {
+	if (header[i] != magic[i])
+	  break;
+      }
+      if (i == magic.length)
+	return provider;
+    }
+
+    return null;
+  }
+
+  /**
+   * Determines the format of the file, via its magic bytes (if the file
+   * exists) or its extension.
+   *
+   * @param file	the file to check
+   * @return		the provider, null if undetermined
+   * @throws IOException	if reading fails
+   */
+  public static FormatProvider detect(File file) throws IOException {
+    FormatProvider	result;
+
+    result = null;
+    if (file.isFile())
+      result = forMagic(file);
+    if (result == null)
+      result = forExtension(file);
+
+    return result;
+  }
+
+  /**
+   * Instantiates the format via its provider. Classes without a provider
+   * get instantiated via reflection.
+   *
+   * @param format	the format class
+   * @return		the instance
+   * @throws Exception	if instantiation fails
+   */
+  public static Format newInstance(Class<?> format) throws Exception {
+    FormatProvider	provider;
+
+    provider = get(format);
+    if (provider != null)
+      return provider.newInstance();
+    return Format.class.cast(format.getDeclaredConstructor().newInstance());
+  }
+
+  /**
+   * Returns all available formats. Loads all format classes.
    *
    * @return		the formats
+   * @see		#providers()
    */
   public static Class[] allFormats() {
-    return new Class[]{
-      CSV.class,
-      GPX.class,
-      TCX.class,
-      KML.class,
-    };
+    Class[]	result;
+    int		i;
+
+    result = new Class[providers().size()];
+    for (i = 0; i < result.length; i++)
+      result[i] = providers().get(i).getFormatClass();
+
+    return result;
   }
 }
@@ -15,11 +15,13 @@
 
 /*
  * GPX.java
- * Copyright (C) 2016-2019 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
 
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils.Zone;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.CSVRecordFactory;
 import org.w3c.dom.Document;
@@ -27,10 +29,9 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,11 +40,14 @@ import java.util.Map;
  * GPX format.
  *
  * @author FracPete (fracpete at gmail dot com)
- * @see Formats#allFormats()
+ * @see GPXProvider
  */
 public class GPX
   extends AbstractXMLFormat {
 
+  /** the start of the dummy timestamps (2000-01-01 00:00:00). */
+  public static final long DUMMY_START = TimeUtils.epochDay(2000, 1, 1) * TimeUtils.MSEC_PER_DAY;
+
   /**
    * Returns whether reading is supported.
    *
@@ -58,37 +62,25 @@ public class GPX
    * Create a dummy timestamp.
    *
    * @param index	the index of the item (used as seconds)
-   * @return		the generated timestamp (yyyy-MM-dd'T'HH:mm:ss)
+   * @return		the generated timestamp (yyyy-MM-dd'T'HH:mm:ss), local time
+   * @see #DUMMY_START
    */
   protected String dummyTimestamp(int index) {
-    Calendar		cal;
-    SimpleDateFormat	dformat;
-
-    cal = new GregorianCalendar();
-    cal.set(Calendar.YEAR, 2000);
-    cal.set(Calendar.MONTH, 0);
-    cal.set(Calendar.DAY_OF_MONTH, 1);
-    cal.set(Calendar.HOUR, 0);
-    cal.set(Calendar.MINUTE, 0);
-    cal.set(Calendar.SECOND, 0);
-    cal.add(Calendar.SECOND, index);
-
-    dformat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-
-    return dformat.format(cal.getTime());
+    return TimeUtils.format(DUMMY_START + index * 1000L, 0, Zone.NONE);
   }
 
   /**
-   * Reads the file.
+   * Reads the file by loading the full DOM.
    *
    * @param input	the input file
    * @return		the collected data, null in case of an error
    */
   @Override
-  public List<CSVRecord> read(File input) {
+  protected List<CSVRecord> readDOM(File input) {
     List<CSVRecord>		result;
     Document 			doc;
     NodeList 			segs;
+    NodeList 			points;
     NodeList			children;
     Element			seg;
     int				t;
@@ -110,11 +102,11 @@ public class GPX
       map.put(KEY_LON, 3);
       map.put(KEY_ELEVATION, 4);
       for (t = 0; t < segs.getLength(); t++) {
-	segs = ((Element) segs.item(t)).getElementsByTagName("trkpt");
-	for (p = 0; p < segs.getLength(); p++) {
+	points = ((Element) segs.item(t)).getElementsByTagName("trkpt");
+	for (p = 0; p < points.getLength(); p++) {
 	  count++;
 	  values = new ArrayList<>();
-	  seg    = (Element) segs.item(p);
+	  seg    = (Element) points.item(p);
 	  // track
 	  values.add("" + t);
 	  // time
@@ -147,6 +139,18 @@ public class GPX
     return result;
   }
 
+  /**
+   * Creates the pull-parser based reader for the stream.
+   *
+   * @param input	the stream to read from
+   * @return		the reader
+   * @throws Exception	if the reader cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamReader newStreamReader(InputStream input) throws Exception {
+    return new GPXStreamReader(this, input);
+  }
+
   /**
    * Returns whether writing is supported.
    *
@@ -158,14 +162,14 @@ public class GPX
   }
 
   /**
-   * Writes to a file.
+   * Writes to a file by building the full DOM.
    *
    * @param data	the data to write
    * @param output	the output file
    * @return		null if successful, otherwise error message
    */
   @Override
-  public String write(List<CSVRecord> data, File output) {
+  protected String writeDOM(List<CSVRecord> data, File output) {
     Document 	doc;
     Element 	child;
     Element 	gpx;
@@ -179,7 +183,7 @@ public class GPX
       doc = gpx.getOwnerDocument();
       gpx.setAttribute("xmlns", "http://www.topografix.com/GPX/1/1");
       gpx.setAttribute("xmlns:gpxx", "http://www.garmin.com/xmlschemas/GpxExtensions/v3");
-      gpx.setAttribute("xmlns:gpxtpx", "\"http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
+      gpx.setAttribute("xmlns:gpxtpx", "http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
       gpx.setAttribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
       gpx.setAttribute("xsi:schemaLocation", "http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd http://www.garmin.com/xmlschemas/GpxExtensions/v3 http://www.garmin.com/xmlschemas/GpxExtensionsv3.xsd http://www.garmin.com/xmlschemas/TrackPointExtension/v1 http://www.garmin.com/xmlschemas/TrackPointExtensionv1.xsd");
       gpx.setAttribute("creator", "gpsformats4j");
@@ -196,16 +200,23 @@ public class GPX
 	  seg = doc.createElement("trkseg");
 	  track.appendChild(seg);
 	}
+	// points without position cannot be represented
+	if (rec.get(KEY_LAT).isEmpty() || rec.get(KEY_LON).isEmpty())
+	  continue;
 	point = doc.createElement("trkpt");
-	point.setAttribute("lat", rec.get(KEY_LAT));
-	point.setAttribute("lon", rec.get(KEY_LON));
+	point.setAttribute("lat", formatCoordinate(rec.get(KEY_LAT)));
+	point.setAttribute("lon", formatCoordinate(rec.get(KEY_LON)));
 	seg.appendChild(point);
-	child = doc.createElement("ele");
-	child.setTextContent(rec.get(KEY_ELEVATION));
-	point.appendChild(child);
-	child = doc.createElement("time");
-	child.setTextContent(rec.get(KEY_TIME));
-	point.appendChild(child);
+	if (!rec.get(KEY_ELEVATION).isEmpty()) {
+	  child = doc.createElement("ele");
+	  child.setTextContent(formatElevation(rec.get(KEY_ELEVATION)));
+	  point.appendChild(child);
+	}
+	if (!rec.get(KEY_TIME).isEmpty()) {
+	  child = doc.createElement("time");
+	  child.setTextContent(rec.get(KEY_TIME));
+	  point.appendChild(child);
+	}
       }
 
       return writeXML(doc, output);
@@ -215,4 +226,16 @@ public class GPX
       return "Failed to write: " + output + "\n" + e;
     }
   }
+
+  /**
+   * Creates the StAX based writer for the stream.
+   *
+   * @param output	the stream to write to
+   * @return		the writer
+   * @throws Exception	if the writer cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamWriter newStreamWriter(OutputStream output) throws Exception {
+    return new GPXStreamWriter(this, output);
+  }
 }
@@ -0,0 +1,57 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GPXProvider.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+/**
+ * Provides the {@link GPX} format.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class GPXProvider
+  extends AbstractFormatProvider {
+
+  /**
+   * Initializes the provider.
+   */
+  public GPXProvider() {
+    super("GPX", new String[]{"gpx"}, null, "application/gpx+xml", true, true, true);
+  }
+
+  /**
+   * Returns the format class. Loads the class.
+   *
+   * @return		the class
+   */
+  @Override
+  public Class<? extends Format> getFormatClass() {
+    return GPX.class;
+  }
+
+  /**
+   * Returns a new instance of the format, with its default options.
+   *
+   * @return		the instance
+   */
+  @Override
+  public Format newInstance() {
+    return new GPX();
+  }
+}
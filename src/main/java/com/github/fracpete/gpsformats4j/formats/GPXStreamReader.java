@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GPXStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import javax.xml.stream.XMLStreamConstants;
+import java.io.InputStream;
+
+/**
+ * Pull-parser based reader for GPX.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see GPX
+ */
+public class GPXStreamReader
+  extends AbstractXMLStreamReader {
+
+  /** the owning format. */
+  protected GPX m_Owner;
+
+  /** the index of the current track segment. */
+  protected int m_Segment;
+
+  /** whether the parser is currently within a track segment. */
+  protected boolean m_InSegment;
+
+  /** the index of the point within the current segment. */
+  protected int m_Point;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that opened the reader
+   * @param input	the stream to read from
+   * @throws Exception	if the parser cannot be created
+   */
+  public GPXStreamReader(GPX owner, InputStream input) throws Exception {
+    super(owner, input);
+    m_Owner     = owner;
+    m_Segment   = -1;
+    m_InSegment = false;
+    m_Point     = 0;
+  }
+
+  /**
+   * Returns the attribute value, trimmed.
+   *
+   * @param name	the name of the attribute
+   * @return		the value, empty string if not present
+   */
+  protected String attribute(String name) {
+    String	result;
+
+    result = m_Reader.getAttributeValue(null, name);
+    if (result == null)
+      return "";
+    return result.trim();
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if parsing fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    boolean	inPoint;
+    String	name;
+    String	lat;
+    String	lon;
+    String	time;
+    String	ele;
+
+    inPoint = false;
+    lat     = null;
+    lon     = null;
+    time    = null;
+    ele     = null;
+
+    while (m_Reader.hasNext()) {
+      switch (m_Reader.next()) {
+	case XMLStreamConstants.START_ELEMENT:
+	  name = m_Reader.getLocalName();
+	  if (name.equals("trkseg")) {
+	    m_Segment++;
+	    m_Point     = 0;
+	    m_InSegment = true;
+	  }
+	  else if (m_InSegment && name.equals("trkpt")) {
+	    inPoint = true;
+	    lat     = attribute("lat");
+	    lon     = attribute("lon");
+	    time    = null;
+	    ele     = null;
+	  }
+	  else if (inPoint && (time == null) && name.equals("time")) {
+	    time = elementText();
+	  }
+	  else if (inPoint && (ele == null) && name.equals("ele")) {
+	    ele = elementText();
+	  }
+	  break;
+
+	case XMLStreamConstants.END_ELEMENT:
+	  name = m_Reader.getLocalName();
+	  if (inPoint && name.equals("trkpt")) {
+	    if (time == null)
+	      time = m_Owner.dummyTimestamp(m_Point);
+	    if (ele == null)
+	      ele = "0";
+	    m_Point++;
+	    return newRecord("" + m_Segment, time, lat, lon, ele);
+	  }
+	  else if (name.equals("trkseg")) {
+	    m_InSegment = false;
+	  }
+	  break;
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * GPXStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.OutputStream;
+
+/**
+ * StAX based writer for GPX.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see GPX
+ */
+public class GPXStreamWriter
+  extends AbstractXMLStreamWriter {
+
+  /** the current track, null if none started yet. */
+  protected String m_Track;
+
+  /**
+   * Initializes the writer.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if the writer cannot be created
+   */
+  public GPXStreamWriter(GPX owner, OutputStream output) throws Exception {
+    super(owner, output);
+    m_Track = null;
+  }
+
+  /**
+   * Writes the root element.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void writeHeader() throws Exception {
+    start("gpx");
+    namespace(null, "http://www.topografix.com/GPX/1/1");
+    namespace("gpxx", "http://www.garmin.com/xmlschemas/GpxExtensions/v3");
+    namespace("gpxtpx", "http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
+    namespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+    attribute("xsi", "http://www.w3.org/2001/XMLSchema-instance", "schemaLocation", "http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd http://www.garmin.com/xmlschemas/GpxExtensions/v3 http://www.garmin.com/xmlschemas/GpxExtensionsv3.xsd http://www.garmin.com/xmlschemas/TrackPointExtension/v1 http://www.garmin.com/xmlschemas/TrackPointExtensionv1.xsd");
+    attribute("creator", "gpsformats4j");
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void doWrite(CSVRecord rec) throws Exception {
+    if ((m_Track == null) || !m_Track.equals(rec.get(Format.KEY_TRACK))) {
+      if (m_Track != null) {
+	end();  // trkseg
+	end();  // trk
+      }
+      m_Track = rec.get(Format.KEY_TRACK);
+      start("trk");
+      element("name", m_Track);
+      start("trkseg");
+    }
+
+    // points without position cannot be represented
+    if (rec.get(Format.KEY_LAT).isEmpty() || rec.get(Format.KEY_LON).isEmpty())
+      return;
+
+    start("trkpt");
+    attribute("lat", coordinate(rec.get(Format.KEY_LAT)));
+    attribute("lon", coordinate(rec.get(Format.KEY_LON)));
+    if (!rec.get(Format.KEY_ELEVATION).isEmpty())
+      element("ele", elevation(rec.get(Format.KEY_ELEVATION)));
+    if (!rec.get(Format.KEY_TIME).isEmpty())
+      element("time", rec.get(Format.KEY_TIME));
+    end();
+  }
+}
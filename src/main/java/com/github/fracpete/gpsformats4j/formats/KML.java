@@ -15,39 +15,83 @@
 
 /**
  * KML.java
- * Copyright (C) 2017 FracPete
+ * Copyright (C) 2017-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
 
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils;
+import com.github.fracpete.gpsformats4j.core.TimeUtils.Zone;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.CSVRecordFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * KML format (Keyhole Markup Language).
  * https://developers.google.com/kml/documentation/kmlreference
  *
  * Only handles absolute altitudes.
+ * <br>
+ * The name of a Placemark is taken from its first name child element that
+ * appears before any coordinates, otherwise the index of the Placemark is
+ * used. Both engines apply the same rule.
+ * <br>
+ * Zipped input (ie KMZ) is read transparently, using the first .kml file in
+ * the archive.
  *
  * @author FracPete (fracpete at gmail dot com)
- * @see Formats#allFormats()
+ * @see KMLProvider
  */
 public class KML
   extends AbstractXMLFormat {
 
+  /** the start of the generated timestamps (2000-01-01 00:00:00, as UTC). */
+  public static final long SYNTHETIC_START = TimeUtils.epochDay(2000, 1, 1) * TimeUtils.MSEC_PER_DAY;
+
+  /**
+   * Returns the offset of the local time zone at the start of the generated
+   * timestamps.
+   *
+   * @return		the offset in minutes
+   * @see #SYNTHETIC_START
+   */
+  protected static int syntheticOffset() {
+    TimeZone	tz;
+
+    tz = TimeZone.getDefault();
+    return tz.getOffset(SYNTHETIC_START - tz.getRawOffset()) / 60000;
+  }
+
+  /**
+   * Generates the timestamp for a point, as KML does not store any. The
+   * timestamps of each placemark start at 2000-01-01 00:00:00 (local time),
+   * advancing one second per point.
+   *
+   * @param point	the 1-based index of the point in the placemark
+   * @param offset	the offset of the local time zone in minutes
+   * @return		the timestamp (yyyy-MM-dd'T'HH:mm:ssZ)
+   * @see #syntheticOffset()
+   */
+  protected static String syntheticTime(int point, int offset) {
+    return TimeUtils.format(SYNTHETIC_START - offset * 60000L + point * 1000L, offset, Zone.OFFSET_BASIC);
+  }
+
   /**
    * Returns whether reading is supported.
    *
@@ -59,13 +103,35 @@ public class KML
   }
 
   /**
-   * Reads the file.
+   * Returns the name of the placemark, ie the text of its first name child
+   * element that appears before any coordinates.
+   *
+   * @param placemark	the placemark to get the name for
+   * @return		the name, null if none
+   */
+  protected String name(Element placemark) {
+    Node	child;
+
+    for (child = placemark.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() != Node.ELEMENT_NODE)
+	continue;
+      if ("name".equals(child.getLocalName()))
+	return child.getTextContent().trim();
+      if ("coordinates".equals(child.getLocalName()) || (((Element) child).getElementsByTagName("coordinates").getLength() > 0))
+	return null;
+    }
+
+    return null;
+  }
+
+  /**
+   * Reads the file by loading the full DOM.
    *
    * @param input	the input file
    * @return		the collected data, null in case of an error
    */
   @Override
-  public List<CSVRecord> read(File input) {
+  protected List<CSVRecord> readDOM(File input) {
     List<CSVRecord>	result;
     Document 		doc;
     String		track;
@@ -75,18 +141,19 @@ public class KML
     Element 		coordinates;
     int			i;
     int			c;
-    String[]		coords;
-    String[]		parts;
+    char[]		text;
+    KMLCoordinatesTokenizer	tokenizer;
     CSVRecord		rec;
-    List<String>	values;
+    String[]		values;
     Map<String,Integer> map;
-    Calendar		cal;
-    SimpleDateFormat	df;
     int			count;
+    int			point;
+    int			offset;
 
-    result = new ArrayList<>();
-    df     = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-    count  = 0;
+    result    = new ArrayList<>();
+    offset    = syntheticOffset();
+    count     = 0;
+    tokenizer = new KMLCoordinatesTokenizer();
     map    = new HashMap<>();
     map.put(KEY_TRACK, 0);
     map.put(KEY_TIME, 1);
@@ -98,37 +165,28 @@ public class KML
       pms  = doc.getElementsByTagName("Placemark");
       for (i = 0; i < pms.getLength(); i++) {
 	pm   = (Element) pms.item(i);
-	list = pm.getElementsByTagName("name");
-	if (list.getLength() == 1)
-	  track = list.item(0).getTextContent().trim();
-	else
+	track = name(pm);
+	if (track == null)
 	  track = "" + i;
-	cal = new GregorianCalendar();
-	cal.set(Calendar.YEAR, 2000);
-	cal.set(Calendar.MONTH, Calendar.JANUARY);
-	cal.set(Calendar.DAY_OF_MONTH, 1);
-	cal.set(Calendar.HOUR_OF_DAY, 0);
-	cal.set(Calendar.MINUTE, 0);
-	cal.set(Calendar.SECOND, 0);
+	point = 0;
 	list = pm.getElementsByTagName("coordinates");
 	for (c = 0; c < list.getLength(); c++) {
 	  coordinates = (Element) list.item(c);
-	  coords      = coordinates.getTextContent().split(" ");
-	  for (String coord: coords) {
-	    if (coord.trim().isEmpty())
-	      continue;
-	    parts = coord.trim().split(",");
-	    if (parts.length == 3) {
-	      count++;
-	      cal.add(Calendar.SECOND, 1);
-	      values = new ArrayList<>();
-	      values.add(track);
-	      values.add(df.format(cal.getTime()));
-	      values.addAll(Arrays.asList(parts));
-	      // add record
-	      rec = CSVRecordFactory.newRecord(values.toArray(new String[values.size()]), map, null, count, -1);
-	      result.add(rec);
-	    }
+	  text        = coordinates.getTextContent().toCharArray();
+	  // same tokenization as the STAX engine: whitespace-separated 2/3-tuples
+	  tokenizer.reset();
+	  tokenizer.feed(text, 0, text.length);
+	  while (tokenizer.next() || tokenizer.finish()) {
+	    count++;
+	    point++;
+	    values = new String[]{
+	      track,
+	      syntheticTime(point, offset),
+	      tokenizer.text(0),
+	      tokenizer.text(1),
+	      (tokenizer.size() > 2) ? tokenizer.text(2) : ""};
+	    rec = CSVRecordFactory.newRecord(values, map, null, count, -1);
+	    result.add(rec);
 	  }
 	}
       }
@@ -141,6 +199,44 @@ public class KML
     return result;
   }
 
+  /**
+   * Prepares the raw input stream for parsing. Unzips KMZ archives,
+   * positioning the stream at the first .kml file.
+   *
+   * @param input	the raw stream
+   * @return		the stream to parse
+   * @throws IOException	if reading fails or the archive contains no .kml file
+   */
+  @Override
+  protected InputStream wrapInput(InputStream input) throws IOException {
+    ZipInputStream	zip;
+    ZipEntry		entry;
+
+    input = super.wrapInput(input);
+    if (!CompressionUtils.startsWith(input, CompressionUtils.MAGIC_ZIP))
+      return input;
+
+    zip = new ZipInputStream(input);
+    while ((entry = zip.getNextEntry()) != null) {
+      if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".kml"))
+	return zip;
+    }
+    zip.close();
+    throw new IOException("No .kml file found in archive!");
+  }
+
+  /**
+   * Creates the pull-parser based reader for the stream.
+   *
+   * @param input	the stream to read from
+   * @return		the reader
+   * @throws Exception	if the reader cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamReader newStreamReader(InputStream input) throws Exception {
+    return new KMLStreamReader(this, input);
+  }
+
   /**
    * Returns whether writing is supported.
    *
@@ -152,14 +248,14 @@ public class KML
   }
 
   /**
-   * Writes to a file.
+   * Writes to a file by building the full DOM.
    *
    * @param data	the data to write
    * @param output	the output file
    * @return		null if successful, otherwise error message
    */
   @Override
-  public String write(List<CSVRecord> data, File output) {
+  protected String writeDOM(List<CSVRecord> data, File output) {
     Document 		doc;
     Element		root;
     Element 		child;
@@ -214,14 +310,20 @@ public class KML
 	  pm.appendChild(coordinates);
 	}
 
+	// points without position cannot be represented
+	if (rec.get(KEY_LAT).isEmpty() || rec.get(KEY_LON).isEmpty())
+	  continue;
+
 	if (coords.length() > 0)
 	  coords.append(" ");
 
-	coords.append(rec.get(KEY_LAT));
+	coords.append(formatCoordinate(rec.get(KEY_LAT)));
 	coords.append(",");
-	coords.append(rec.get(KEY_LON));
-	coords.append(",");
-	coords.append(rec.get(KEY_ELEVATION));
+	coords.append(formatCoordinate(rec.get(KEY_LON)));
+	if (!rec.get(KEY_ELEVATION).isEmpty()) {
+	  coords.append(",");
+	  coords.append(formatElevation(rec.get(KEY_ELEVATION)));
+	}
       }
 
       // trailing coordinates?
@@ -235,4 +337,16 @@ public class KML
       return "Failed to write: " + output + "\n" + e;
     }
   }
+
+  /**
+   * Creates the StAX based writer for the stream.
+   *
+   * @param output	the stream to write to
+   * @return		the writer
+   * @throws Exception	if the writer cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamWriter newStreamWriter(OutputStream output) throws Exception {
+    return new KMLStreamWriter(this, output);
+  }
 }
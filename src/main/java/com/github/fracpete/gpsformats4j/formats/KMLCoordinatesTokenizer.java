@@ -0,0 +1,268 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KMLCoordinatesTokenizer.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CoordinateUtils;
+
+/**
+ * Incremental tokenizer for the content of KML coordinates elements, ie
+ * whitespace-separated tuples of comma-separated numbers. The text can be
+ * fed in chunks as it arrives from the parser; tuples that span chunks are
+ * handled transparently. Only the current tuple is buffered.
+ * <br>
+ * Tuples with two or three components are accepted, anything else or tuples
+ * with non-numeric components get skipped. The tokenizer does not interpret
+ * the components; the KML readers store them as latitude, longitude and
+ * altitude, matching the order the KML writers use (note that the KML
+ * specification uses longitude, latitude, altitude).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see KMLStreamReader
+ */
+public class KMLCoordinatesTokenizer {
+
+  /** the maximum number of components in a tuple. */
+  public static final int MAX_COMPONENTS = 3;
+
+  /** the characters of the components of the current tuple. */
+  protected char[][] m_Chars;
+
+  /** the number of characters per component of the current tuple. */
+  protected int[] m_Lengths;
+
+  /** the index of the current component. */
+  protected int m_Component;
+
+  /** whether the current tuple has too many components. */
+  protected boolean m_Overflow;
+
+  /** the parsed values of the last completed tuple. */
+  protected double[] m_Values;
+
+  /** the number of components of the last completed tuple. */
+  protected int m_Size;
+
+  /** the current chunk. */
+  protected char[] m_Chunk;
+
+  /** the position in the current chunk. */
+  protected int m_Pos;
+
+  /** the end of the current chunk (excl). */
+  protected int m_End;
+
+  /**
+   * Initializes the tokenizer.
+   */
+  public KMLCoordinatesTokenizer() {
+    int		i;
+
+    m_Chars   = new char[MAX_COMPONENTS][];
+    m_Lengths = new int[MAX_COMPONENTS];
+    m_Values  = new double[MAX_COMPONENTS];
+    for (i = 0; i < MAX_COMPONENTS; i++)
+      m_Chars[i] = new char[32];
+    reset();
+  }
+
+  /**
+   * Resets the tokenizer, discarding any partial tuple.
+   */
+  public void reset() {
+    resetTuple();
+    m_Size  = 0;
+    m_Chunk = null;
+    m_Pos   = 0;
+    m_End   = 0;
+  }
+
+  /**
+   * Discards the current, partial tuple.
+   */
+  protected void resetTuple() {
+    int		i;
+
+    for (i = 0; i < MAX_COMPONENTS; i++)
+      m_Lengths[i] = 0;
+    m_Component = 0;
+    m_Overflow  = false;
+  }
+
+  /**
+   * Sets the next chunk of characters to tokenize. The array is only
+   * referenced until {@link #next()} returns false.
+   *
+   * @param chars	the characters
+   * @param start	the start of the chunk
+   * @param length	the length of the chunk
+   */
+  public void feed(char[] chars, int start, int length) {
+    m_Chunk = chars;
+    m_Pos   = start;
+    m_End   = start + length;
+  }
+
+  /**
+   * Appends the character to the current component.
+   *
+   * @param c		the character to append
+   */
+  protected void append(char c) {
+    char[]	chars;
+    char[]	grown;
+
+    chars = m_Chars[m_Component];
+    if (m_Lengths[m_Component] == chars.length) {
+      grown = new char[chars.length * 2];
+      System.arraycopy(chars, 0, grown, 0, chars.length);
+      m_Chars[m_Component] = grown;
+      chars = grown;
+    }
+    chars[m_Lengths[m_Component]++] = c;
+  }
+
+  /**
+   * Completes the current tuple, parsing its components.
+   *
+   * @return		true if a valid tuple was completed
+   */
+  protected boolean completeTuple() {
+    int		size;
+    int		i;
+    boolean	result;
+
+    size   = (m_Lengths[m_Component] > 0) ? m_Component + 1 : m_Component;
+    result = !m_Overflow && (size >= 2);
+    if (result) {
+      for (i = 0; i < size; i++) {
+	if (m_Lengths[i] == 0) {
+	  result = false;
+	  break;
+	}
+	m_Values[i] = CoordinateUtils.parse(m_Chars[i], 0, m_Lengths[i]);
+	if (Double.isNaN(m_Values[i])) {
+	  result = false;
+	  break;
+	}
+      }
+    }
+    m_Size = result ? size : 0;
+    // keep the characters of the completed tuple available, only reset the counters
+    m_Component = 0;
+    m_Overflow  = false;
+
+    return result;
+  }
+
+  /**
+   * Advances to the next complete tuple in the current chunk.
+   *
+   * @return		true if a tuple was completed, false if the chunk is
+   * 			exhausted (a partial tuple is kept for the next chunk)
+   */
+  public boolean next() {
+    char	c;
+    boolean	pending;
+
+    // discard characters of previous tuple
+    if (m_Size > 0) {
+      m_Size = 0;
+      resetTuple();
+    }
+
+    while (m_Pos < m_End) {
+      c = m_Chunk[m_Pos++];
+      if (Character.isWhitespace(c)) {
+	pending = (m_Component > 0) || (m_Lengths[0] > 0);
+	if (pending) {
+	  if (completeTuple())
+	    return true;
+	  resetTuple();
+	}
+      }
+      else if (c == ',') {
+	if (m_Component < MAX_COMPONENTS - 1)
+	  m_Component++;
+	else
+	  m_Overflow = true;
+      }
+      else if (!m_Overflow) {
+	append(c);
+      }
+    }
+
+    m_Chunk = null;
+    return false;
+  }
+
+  /**
+   * Completes any pending tuple, to be called at the end of the coordinates
+   * element.
+   *
+   * @return		true if a tuple was completed
+   */
+  public boolean finish() {
+    boolean	result;
+
+    if (m_Size > 0) {
+      m_Size = 0;
+      resetTuple();
+    }
+    result = false;
+    if ((m_Component > 0) || (m_Lengths[0] > 0)) {
+      result = completeTuple();
+      if (!result)
+	resetTuple();
+    }
+    m_Chunk = null;
+
+    return result;
+  }
+
+  /**
+   * Returns the number of components of the last completed tuple.
+   *
+   * @return		the number of components (2 or 3)
+   */
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the parsed value of the component of the last completed tuple.
+   *
+   * @param index	the index of the component
+   * @return		the value
+   */
+  public double value(int index) {
+    return m_Values[index];
+  }
+
+  /**
+   * Returns the text of the component of the last completed tuple.
+   *
+   * @param index	the index of the component
+   * @return		the text
+   */
+  public String text(int index) {
+    return new String(m_Chars[index], 0, m_Lengths[index]);
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KMLStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import javax.xml.stream.XMLStreamConstants;
+import java.io.InputStream;
+
+/**
+ * Pull-parser based reader for KML. The content of coordinates elements is
+ * tokenized as it arrives from the parser, so even LineStrings with millions
+ * of vertices never get turned into a single string.
+ * <br>
+ * The name of a Placemark is taken from its first name child element that
+ * appears before any coordinates, otherwise the index of the Placemark is
+ * used (same as the DOM engine).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see KML
+ * @see KMLCoordinatesTokenizer
+ */
+public class KMLStreamReader
+  extends AbstractXMLStreamReader {
+
+  /** the tokenizer for the coordinates. */
+  protected KMLCoordinatesTokenizer m_Tokenizer;
+
+  /** the offset of the local time zone for the generated timestamps (minutes). */
+  protected int m_Offset;
+
+  /** the index of the current placemark. */
+  protected int m_Placemark;
+
+  /** whether the parser is within a placemark. */
+  protected boolean m_InPlacemark;
+
+  /** the nesting level of the current element within the placemark (placemark: 0). */
+  protected int m_Depth;
+
+  /** whether the parser is within a coordinates element. */
+  protected boolean m_InCoordinates;
+
+  /** the name of the current placemark. */
+  protected String m_Track;
+
+  /** the number of points in the current placemark. */
+  protected int m_Point;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that opened the reader
+   * @param input	the stream to read from
+   * @throws Exception	if the parser cannot be created
+   */
+  public KMLStreamReader(KML owner, InputStream input) throws Exception {
+    super(owner, input);
+
+    m_Offset        = KML.syntheticOffset();
+    m_Tokenizer     = new KMLCoordinatesTokenizer();
+    m_Placemark     = -1;
+    m_InPlacemark   = false;
+    m_Depth         = 0;
+    m_InCoordinates = false;
+    m_Track         = null;
+    m_Point         = 0;
+  }
+
+  /**
+   * Creates a record from the last tuple of the tokenizer.
+   *
+   * @return		the record
+   */
+  protected CSVRecord newRecord() {
+    m_Point++;
+    return newRecord(
+      m_Track,
+      KML.syntheticTime(m_Point, m_Offset),
+      m_Tokenizer.text(0),
+      m_Tokenizer.text(1),
+      (m_Tokenizer.size() > 2) ? m_Tokenizer.text(2) : "");
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if parsing fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    String	name;
+
+    // remaining tuples in current chunk?
+    if (m_InCoordinates && m_Tokenizer.next())
+      return newRecord();
+
+    while (m_Reader.hasNext()) {
+      switch (m_Reader.next()) {
+	case XMLStreamConstants.START_ELEMENT:
+	  name = m_Reader.getLocalName();
+	  if (name.equals("Placemark")) {
+	    m_Placemark++;
+	    m_InPlacemark = true;
+	    m_Depth       = 0;
+	    m_Track       = null;
+	    m_Point       = 0;
+	    break;
+	  }
+	  if (!m_InPlacemark)
+	    break;
+	  m_Depth++;
+	  if ((m_Depth == 1) && name.equals("name") && (m_Track == null)) {
+	    // consumes the end element
+	    m_Track = m_Reader.getElementText().trim();
+	    m_Depth--;
+	  }
+	  else if (name.equals("coordinates")) {
+	    // names after the coordinates are ignored
+	    if (m_Track == null)
+	      m_Track = "" + m_Placemark;
+	    m_InCoordinates = true;
+	    m_Tokenizer.reset();
+	  }
+	  break;
+
+	case XMLStreamConstants.CHARACTERS:
+	case XMLStreamConstants.CDATA:
+	case XMLStreamConstants.SPACE:
+	  if (m_InCoordinates) {
+	    m_Tokenizer.feed(m_Reader.getTextCharacters(), m_Reader.getTextStart(), m_Reader.getTextLength());
+	    if (m_Tokenizer.next())
+	      return newRecord();
+	  }
+	  break;
+
+	case XMLStreamConstants.END_ELEMENT:
+	  name = m_Reader.getLocalName();
+	  if (m_InPlacemark)
+	    m_Depth--;
+	  if (m_InCoordinates && name.equals("coordinates")) {
+	    m_InCoordinates = false;
+	    if (m_Tokenizer.finish())
+	      return newRecord();
+	  }
+	  else if (name.equals("Placemark")) {
+	    m_InPlacemark = false;
+	  }
+	  break;
+      }
+    }
+
+    return null;
+  }
+}
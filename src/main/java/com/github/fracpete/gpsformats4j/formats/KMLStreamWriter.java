@@ -0,0 +1,106 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KMLStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.OutputStream;
+
+/**
+ * StAX based writer for KML. The coordinates get written as they arrive
+ * rather than being collected for each track first.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see KML
+ */
+public class KMLStreamWriter
+  extends AbstractXMLStreamWriter {
+
+  /** the current track, null if none started yet. */
+  protected String m_Track;
+
+  /** whether no coordinates have been written for the current track yet. */
+  protected boolean m_First;
+
+  /**
+   * Initializes the writer.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if the writer cannot be created
+   */
+  public KMLStreamWriter(KML owner, OutputStream output) throws Exception {
+    super(owner, output);
+    m_Track = null;
+    m_First = true;
+  }
+
+  /**
+   * Writes the root and the document element.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void writeHeader() throws Exception {
+    start("kml");
+    namespace(null, "http://www.opengis.net/kml/2.2");
+    start("Document");
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void doWrite(CSVRecord rec) throws Exception {
+    if ((m_Track == null) || !m_Track.equals(rec.get(Format.KEY_TRACK))) {
+      if (m_Track != null) {
+	end();  // coordinates
+	end();  // Placemark
+      }
+      m_Track = rec.get(Format.KEY_TRACK);
+      start("Placemark");
+      element("name", m_Track);
+      element("extrude", "1");
+      element("tessellate", "1");
+      element("altitudeMode", "absolute");
+      start("coordinates");
+      m_First = true;
+    }
+
+    // points without position cannot be represented
+    if (rec.get(Format.KEY_LAT).isEmpty() || rec.get(Format.KEY_LON).isEmpty())
+      return;
+
+    if (!m_First)
+      text(" ");
+    m_First = false;
+    text(coordinate(rec.get(Format.KEY_LAT)));
+    text(",");
+    text(coordinate(rec.get(Format.KEY_LON)));
+    if (!rec.get(Format.KEY_ELEVATION).isEmpty()) {
+      text(",");
+      text(elevation(rec.get(Format.KEY_ELEVATION)));
+    }
+  }
+}
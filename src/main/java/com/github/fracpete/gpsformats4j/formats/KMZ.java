@@ -0,0 +1,60 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KMZ.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import com.github.fracpete.gpsformats4j.core.CompressionUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * KMZ format, ie zipped KML. Writes the KML as doc.kml into the archive.
+ * Reading is handled by {@link KML}, which unzips archives transparently.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see KMZProvider
+ */
+public class KMZ
+  extends KML {
+
+  /** the name of the KML document in the archive. */
+  public static final String DOC_KML = "doc.kml";
+
+  /**
+   * Prepares the stream for writing, zipping the KML as doc.kml.
+   *
+   * @param output	the stream to write to
+   * @return		the stream to write the KML to
+   * @throws IOException	if creating the archive entry fails
+   */
+  @Override
+  protected OutputStream wrapOutput(OutputStream output) throws IOException {
+    ZipOutputStream	zip;
+
+    zip = new ZipOutputStream(super.wrapOutput(output));
+    zip.putNextEntry(new ZipEntry(DOC_KML));
+
+    return new BufferedOutputStream(zip, CompressionUtils.BUFFER_SIZE);
+  }
+}
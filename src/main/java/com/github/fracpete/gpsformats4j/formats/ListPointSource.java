@@ -0,0 +1,70 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ListPointSource.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.List;
+
+/**
+ * Supplies the points of a list, eg for running points that have been read
+ * into memory through the same processing as streamed ones.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class ListPointSource
+  implements PointSource {
+
+  /** the points. */
+  protected List<CSVRecord> m_Points;
+
+  /** the position of the next point. */
+  protected int m_Pos;
+
+  /**
+   * Initializes the source.
+   *
+   * @param points	the points to supply
+   */
+  public ListPointSource(List<CSVRecord> points) {
+    m_Points = points;
+    m_Pos    = 0;
+  }
+
+  /**
+   * Returns the next point.
+   *
+   * @return		the point, null if no more points available
+   */
+  @Override
+  public CSVRecord next() {
+    if (m_Pos >= m_Points.size())
+      return null;
+    return m_Points.get(m_Pos++);
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PipelinedPointSource.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads the points of another source in a separate thread, handing them
+ * over in batches via a bounded queue. This allows parsing the input while
+ * the consumer is writing the output. Once the queue is full, the reading
+ * thread blocks, keeping the memory usage bounded by
+ * queue size * batch size points.
+ * <br>
+ * Errors of the reading thread (including {@link Error}s) are re-thrown by
+ * {@link #next()}. Closing the source stops the reading thread and closes
+ * the wrapped source.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class PipelinedPointSource
+  implements PointSource {
+
+  /** the default number of points per batch. */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  /** the default number of batches in the queue. */
+  public static final int DEFAULT_QUEUE_SIZE = 16;
+
+  /** how long to wait for the reading thread to stop when closing, in msec. */
+  public static final long CLOSE_TIMEOUT = 5000;
+
+  /** the batch that marks the end of the points. */
+  protected static final List<CSVRecord> END = Collections.emptyList();
+
+  /** the wrapped source. */
+  protected PointSource m_Source;
+
+  /** the number of points per batch. */
+  protected int m_BatchSize;
+
+  /** the batches. */
+  protected BlockingQueue<List<CSVRecord>> m_Queue;
+
+  /** the reading thread. */
+  protected Thread m_Producer;
+
+  /** the error that the reading thread encountered. */
+  protected volatile Throwable m_Error;
+
+  /** whether the source has been closed. */
+  protected volatile boolean m_Closed;
+
+  /** the current batch. */
+  protected List<CSVRecord> m_Batch;
+
+  /** the position in the current batch. */
+  protected int m_Pos;
+
+  /** whether the end has been reached. */
+  protected boolean m_Finished;
+
+  /** the maximum number of points waiting in the queue (and the current batch). */
+  protected volatile long m_PeakRetained;
+
+  /**
+   * Initializes the source with default batch and queue sizes.
+   *
+   * @param source	the source to read from
+   */
+  public PipelinedPointSource(PointSource source) {
+    this(source, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+  }
+
+  /**
+   * Initializes the source.
+   *
+   * @param source	the source to read from
+   * @param batchSize	the number of points per batch
+   * @param queueSize	the maximum number of batches waiting in the queue
+   */
+  public PipelinedPointSource(PointSource source, int batchSize, int queueSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1, provided: " + batchSize);
+    if (queueSize < 1)
+      throw new IllegalArgumentException("Queue size must be at least 1, provided: " + queueSize);
+
+    m_Source       = source;
+    m_BatchSize    = batchSize;
+    m_Queue        = new ArrayBlockingQueue<>(queueSize);
+    m_Error        = null;
+    m_Closed       = false;
+    m_Batch        = null;
+    m_Pos          = 0;
+    m_Finished     = false;
+    m_PeakRetained = 0;
+    m_Producer     = new Thread(this::produce, getClass().getSimpleName());
+    m_Producer.setDaemon(true);
+    m_Producer.start();
+  }
+
+  /**
+   * Reads the points from the wrapped source and puts them in the queue,
+   * followed by the end marker.
+   */
+  protected void produce() {
+    List<CSVRecord>	batch;
+    CSVRecord		rec;
+
+    try {
+      batch = new ArrayList<>(m_BatchSize);
+      while (!m_Closed && ((rec = m_Source.next()) != null)) {
+	batch.add(rec);
+	if (batch.size() == m_BatchSize) {
+	  m_Queue.put(batch);
+	  m_PeakRetained = Math.max(m_PeakRetained, (long) (m_Queue.size() + 1) * m_BatchSize);
+	  batch = new ArrayList<>(m_BatchSize);
+	}
+      }
+      if (!batch.isEmpty())
+	m_Queue.put(batch);
+    }
+    catch (InterruptedException e) {
+      // closed by consumer
+    }
+    catch (Throwable t) {
+      m_Error = t;
+    }
+    finally {
+      try {
+	if (!m_Closed)
+	  m_Queue.put(END);
+      }
+      catch (InterruptedException e) {
+	// closed by consumer
+      }
+    }
+  }
+
+  /**
+   * Returns the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if the reading thread failed or the source was closed
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    if (m_Finished)
+      return null;
+    if (m_Closed)
+      throw new IllegalStateException("Source has been closed!");
+
+    if ((m_Batch == null) || (m_Pos == m_Batch.size())) {
+      m_Batch = m_Queue.take();
+      m_Pos   = 0;
+      if (m_Batch == END) {
+	m_Finished = true;
+	m_Batch    = null;
+	if (m_Error instanceof Exception)
+	  throw (Exception) m_Error;
+	if (m_Error != null)
+	  throw new ExecutionException("Reading thread failed: " + m_Error, m_Error);
+	return null;
+      }
+    }
+
+    return m_Batch.get(m_Pos++);
+  }
+
+  /**
+   * Returns approximately how many points were held in memory at most, ie
+   * the points of the queued batches and the batch being consumed.
+   *
+   * @return		the number of points
+   */
+  public long getPeakRetained() {
+    return m_PeakRetained;
+  }
+
+  /**
+   * Stops the reading thread and closes the wrapped source. Waits at most
+   * {@link #CLOSE_TIMEOUT} msec for the reading thread to stop.
+   *
+   * @throws IOException	never
+   */
+  @Override
+  public void close() throws IOException {
+    if (m_Closed)
+      return;
+    m_Closed = true;
+    m_Producer.interrupt();
+    m_Queue.clear();
+    // closing the source also unblocks a producer that waits for input
+    IOUtils.closeQuietly(m_Source);
+    try {
+      m_Producer.join(CLOSE_TIMEOUT);
+      if (m_Producer.isAlive())
+	LoggerFactory.getLogger(getClass()).warn("Reading thread did not stop within " + CLOSE_TIMEOUT + "msec, abandoning it");
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    m_Batch = null;
+  }
+}
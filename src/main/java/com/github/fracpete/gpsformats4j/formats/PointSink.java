@@ -0,0 +1,52 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PointSink.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.Closeable;
+
+/**
+ * Interface for sinks that accept the points one at a time. The output is
+ * only complete after calling {@link #finish()}, closing a sink without
+ * finishing it leaves the output incomplete.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see StreamingFormat#openSink(java.io.File)
+ */
+public interface PointSink
+  extends Closeable {
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  public void write(CSVRecord rec) throws Exception;
+
+  /**
+   * Completes the output.
+   *
+   * @throws Exception	if writing fails
+   */
+  public void finish() throws Exception;
+}
@@ -0,0 +1,78 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StreamingFormat.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Interface for formats that can read/write the points one at a time,
+ * without materializing all of them in memory.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public interface StreamingFormat
+  extends Format {
+
+  /**
+   * Returns whether streaming is supported with the current setup.
+   *
+   * @return		true if supported
+   */
+  public boolean canStream();
+
+  /**
+   * Opens a source for reading the points from the file.
+   *
+   * @param input	the input file
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  public PointSource openSource(File input) throws Exception;
+
+  /**
+   * Opens a source for reading the points from the stream.
+   *
+   * @param input	the stream to read from, gets closed with the source
+   * @return		the source, needs closing
+   * @throws Exception	if opening fails
+   */
+  public PointSource openSource(InputStream input) throws Exception;
+
+  /**
+   * Opens a sink for writing the points to the file.
+   *
+   * @param output	the output file
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  public PointSink openSink(File output) throws Exception;
+
+  /**
+   * Opens a sink for writing the points to the stream.
+   *
+   * @param output	the stream to write to, gets closed with the sink
+   * @return		the sink, needs finishing and closing
+   * @throws Exception	if opening fails
+   */
+  public PointSink openSink(OutputStream output) throws Exception;
+}
@@ -15,7 +15,7 @@
 
 /**
  * TCX.java
- * Copyright (C) 2016 FracPete
+ * Copyright (C) 2016-2026 FracPete
  */
 
 package com.github.fracpete.gpsformats4j.formats;
@@ -27,6 +27,8 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +38,7 @@ import java.util.Map;
  * TCX format (proprietary Garmin XML format).
  *
  * @author FracPete (fracpete at gmail dot com)
- * @see Formats#allFormats()
+ * @see TCXProvider
  */
 public class TCX
   extends AbstractXMLFormat {
@@ -52,18 +54,34 @@ public class TCX
   }
 
   /**
-   * Reads the file.
+   * Returns the trimmed text of the first element with the specified name
+   * below the parent.
+   *
+   * @param parent	the parent element
+   * @param name	the name of the element
+   * @return		the text, empty string if not present
+   */
+  protected String text(Element parent, String name) {
+    NodeList	children;
+
+    children = parent.getElementsByTagName(name);
+    if (children.getLength() == 0)
+      return "";
+    return children.item(0).getTextContent().trim();
+  }
+
+  /**
+   * Reads the file by loading the full DOM.
    *
    * @param input	the input file
    * @return		the collected data, null in case of an error
    */
   @Override
-  public List<CSVRecord> read(File input) {
+  protected List<CSVRecord> readDOM(File input) {
     List<CSVRecord>		result;
     Document 			doc;
     NodeList			tracks;
     NodeList			points;
-    NodeList			children;
     Element			point;
     int				t;
     int				p;
@@ -92,17 +110,13 @@ public class TCX
 	  // track
 	  values.add("" + t);
 	  // time
-	  children = point.getElementsByTagName("Time");
-	  values.add(children.item(0).getTextContent().trim());
+	  values.add(text(point, "Time"));
 	  // lat
-	  children = point.getElementsByTagName("LatitudeDegrees");
-	  values.add(children.item(0).getTextContent().trim());
+	  values.add(text(point, "LatitudeDegrees"));
 	  // lon
-	  children = point.getElementsByTagName("LongitudeDegrees");
-	  values.add(children.item(0).getTextContent().trim());
+	  values.add(text(point, "LongitudeDegrees"));
 	  // elevation
-	  children = point.getElementsByTagName("AltitudeMeters");
-	  values.add(children.item(0).getTextContent().trim());
+	  values.add(text(point, "AltitudeMeters"));
 	  // add record
 	  rec = CSVRecordFactory.newRecord(values.toArray(new String[values.size()]), map, null, count, -1);
 	  result.add(rec);
@@ -117,6 +131,18 @@ public class TCX
     return result;
   }
 
+  /**
+   * Creates the pull-parser based reader for the stream.
+   *
+   * @param input	the stream to read from
+   * @return		the reader
+   * @throws Exception	if the reader cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamReader newStreamReader(InputStream input) throws Exception {
+    return new TCXStreamReader(this, input);
+  }
+
   /**
    * Returns whether writing is supported.
    *
@@ -128,14 +154,14 @@ public class TCX
   }
 
   /**
-   * Writes to a file.
+   * Writes to a file by building the full DOM.
    *
    * @param data	the data to write
    * @param output	the output file
    * @return		null if successful, otherwise error message
    */
   @Override
-  public String write(List<CSVRecord> data, File output) {
+  protected String writeDOM(List<CSVRecord> data, File output) {
     Document 	doc;
     Element 	child;
     Element 	tcx;
@@ -198,21 +224,25 @@ public class TCX
 	point.appendChild(child);
 
 	// position
-	pos = doc.createElement("Position");
-	point.appendChild(pos);
+	if (!rec.get(KEY_LAT).isEmpty() && !rec.get(KEY_LON).isEmpty()) {
+	  pos = doc.createElement("Position");
+	  point.appendChild(pos);
 
-	child = doc.createElement("LatitudeDegrees");
-	child.setTextContent(rec.get(KEY_LAT));
-	pos.appendChild(child);
+	  child = doc.createElement("LatitudeDegrees");
+	  child.setTextContent(formatCoordinate(rec.get(KEY_LAT)));
+	  pos.appendChild(child);
 
-	child = doc.createElement("LongitudeDegrees");
-	child.setTextContent(rec.get(KEY_LON));
-	pos.appendChild(child);
+	  child = doc.createElement("LongitudeDegrees");
+	  child.setTextContent(formatCoordinate(rec.get(KEY_LON)));
+	  pos.appendChild(child);
+	}
 
 	// elevation
-	child = doc.createElement("AltitudeMeters");
-	child.setTextContent(rec.get(KEY_ELEVATION));
-	point.appendChild(child);
+	if (!rec.get(KEY_ELEVATION).isEmpty()) {
+	  child = doc.createElement("AltitudeMeters");
+	  child.setTextContent(formatElevation(rec.get(KEY_ELEVATION)));
+	  point.appendChild(child);
+	}
 
 	// distance
 	child = doc.createElement("DistanceMeters");
@@ -227,4 +257,16 @@ public class TCX
       return "Failed to write: " + output + "\n" + e;
     }
   }
+
+  /**
+   * Creates the StAX based writer for the stream.
+   *
+   * @param output	the stream to write to
+   * @return		the writer
+   * @throws Exception	if the writer cannot be created
+   */
+  @Override
+  protected AbstractXMLStreamWriter newStreamWriter(OutputStream output) throws Exception {
+    return new TCXStreamWriter(this, output);
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TCXStreamReader.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import javax.xml.stream.XMLStreamConstants;
+import java.io.InputStream;
+
+/**
+ * Pull-parser based reader for TCX. Extracts all fields of a Trackpoint in
+ * a single pass, missing fields (eg Position or AltitudeMeters) result in
+ * empty values.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see TCX
+ */
+public class TCXStreamReader
+  extends AbstractXMLStreamReader {
+
+  /** the index of the current track. */
+  protected int m_Track;
+
+  /**
+   * Initializes the reader.
+   *
+   * @param owner	the format that opened the reader
+   * @param input	the stream to read from
+   * @throws Exception	if the parser cannot be created
+   */
+  public TCXStreamReader(TCX owner, InputStream input) throws Exception {
+    super(owner, input);
+    m_Track = -1;
+  }
+
+  /**
+   * Reads the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if parsing fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    boolean	inPoint;
+    String	name;
+    String	time;
+    String	lat;
+    String	lon;
+    String	ele;
+
+    inPoint = false;
+    time    = null;
+    lat     = null;
+    lon     = null;
+    ele     = null;
+
+    while (m_Reader.hasNext()) {
+      switch (m_Reader.next()) {
+	case XMLStreamConstants.START_ELEMENT:
+	  name = m_Reader.getLocalName();
+	  if (name.equals("Track")) {
+	    m_Track++;
+	  }
+	  else if ((m_Track > -1) && name.equals("Trackpoint")) {
+	    inPoint = true;
+	    time    = null;
+	    lat     = null;
+	    lon     = null;
+	    ele     = null;
+	  }
+	  else if (inPoint) {
+	    switch (name) {
+	      case "Time":
+		if (time == null)
+		  time = elementText();
+		break;
+	      case "LatitudeDegrees":
+		if (lat == null)
+		  lat = elementText();
+		break;
+	      case "LongitudeDegrees":
+		if (lon == null)
+		  lon = elementText();
+		break;
+	      case "AltitudeMeters":
+		if (ele == null)
+		  ele = elementText();
+		break;
+	    }
+	  }
+	  break;
+
+	case XMLStreamConstants.END_ELEMENT:
+	  if (inPoint && m_Reader.getLocalName().equals("Trackpoint")) {
+	    return newRecord(
+	      "" + m_Track,
+	      (time == null) ? "" : time,
+	      (lat  == null) ? "" : lat,
+	      (lon  == null) ? "" : lon,
+	      (ele  == null) ? "" : ele);
+	  }
+	  break;
+      }
+    }
+
+    return null;
+  }
+}
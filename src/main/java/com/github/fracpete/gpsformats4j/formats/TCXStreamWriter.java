@@ -0,0 +1,117 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TCXStreamWriter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.formats;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.OutputStream;
+
+/**
+ * StAX based writer for TCX.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see TCX
+ */
+public class TCXStreamWriter
+  extends AbstractXMLStreamWriter {
+
+  /** the current track, null if none started yet. */
+  protected String m_Track;
+
+  /**
+   * Initializes the writer.
+   *
+   * @param owner	the format that opened the writer
+   * @param output	the stream to write to
+   * @throws Exception	if the writer cannot be created
+   */
+  public TCXStreamWriter(TCX owner, OutputStream output) throws Exception {
+    super(owner, output);
+    m_Track = null;
+  }
+
+  /**
+   * Writes the root and the activities element.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void writeHeader() throws Exception {
+    start("TrainingCenterDatabase");
+    namespace(null, "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2");
+    namespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+    attribute("xsi", "http://www.w3.org/2001/XMLSchema-instance", "schemaLocation", "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2 http://www.garmin.com/xmlschemas/TrainingCenterDatabasev2.xsd");
+    start("Activities");
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  protected void doWrite(CSVRecord rec) throws Exception {
+    if ((m_Track == null) || !m_Track.equals(rec.get(Format.KEY_TRACK))) {
+      if (m_Track != null) {
+	end();  // Track
+	end();  // Lap
+	end();  // Activity
+      }
+      m_Track = rec.get(Format.KEY_TRACK);
+      start("Activity");
+      attribute("Sport", "Other");
+
+      // id
+      element("Id", m_Track);
+
+      // lap
+      start("Lap");
+      attribute("StartTime", rec.get(Format.KEY_TIME));
+      element("TotalTimeSeconds", "0");
+      element("DistanceMeters", "0");
+      element("Calories", "0");
+
+      // track
+      start("Track");
+    }
+
+    // trackpoint
+    start("Trackpoint");
+    element("Time", rec.get(Format.KEY_TIME));
+
+    // position
+    if (!rec.get(Format.KEY_LAT).isEmpty() && !rec.get(Format.KEY_LON).isEmpty()) {
+      start("Position");
+      element("LatitudeDegrees", coordinate(rec.get(Format.KEY_LAT)));
+      element("LongitudeDegrees", coordinate(rec.get(Format.KEY_LON)));
+      end();
+    }
+
+    // elevation
+    if (!rec.get(Format.KEY_ELEVATION).isEmpty())
+      element("AltitudeMeters", elevation(rec.get(Format.KEY_ELEVATION)));
+
+    // distance
+    element("DistanceMeters", "0.0");
+    end();
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionMetrics.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import java.io.Serializable;
+
+/**
+ * The measurements of a single conversion. The stage times are the times
+ * spent in the respective stage: parsing (input format), transforming
+ * (bounding box, resampling, simplification) and serializing (output
+ * format). In pipeline mode, parsing and transforming happen in parallel
+ * to serializing, ie the stage times can add up to more than the total.
+ * <br>
+ * Filled in by a single conversion, only to be read once it was handed to
+ * the listeners.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see MetricsListener
+ */
+public class ConversionMetrics
+  implements Serializable {
+
+  private static final long serialVersionUID = -3287715013948377710L;
+
+  /** the input format (simple class name). */
+  protected String m_InputFormat;
+
+  /** the output format (simple class name). */
+  protected String m_OutputFormat;
+
+  /** the time spent parsing in nsec. */
+  protected long m_ParseTime;
+
+  /** the time spent transforming in nsec. */
+  protected long m_TransformTime;
+
+  /** the time spent serializing in nsec. */
+  protected long m_SerializeTime;
+
+  /** the overall time in nsec. */
+  protected long m_TotalTime;
+
+  /** the number of points read. */
+  protected long m_PointsRead;
+
+  /** the number of points written. */
+  protected long m_PointsWritten;
+
+  /** the size of the input file. */
+  protected long m_BytesIn;
+
+  /** the size of the output file. */
+  protected long m_BytesOut;
+
+  /** the maximum number of points held in memory at the same time. */
+  protected long m_PeakRetained;
+
+  /** whether the conversion was streamed. */
+  protected boolean m_Streamed;
+
+  /** whether the output was supplied from the cache. */
+  protected boolean m_Cached;
+
+  /** whether the conversion was successful. */
+  protected boolean m_Success;
+
+  /**
+   * Initializes the metrics.
+   *
+   * @param inputFormat		the input format
+   * @param outputFormat	the output format
+   */
+  public ConversionMetrics(Class inputFormat, Class outputFormat) {
+    m_InputFormat   = inputFormat.getSimpleName();
+    m_OutputFormat  = outputFormat.getSimpleName();
+    m_ParseTime     = 0;
+    m_TransformTime = 0;
+    m_SerializeTime = 0;
+    m_TotalTime     = 0;
+    m_PointsRead    = 0;
+    m_PointsWritten = 0;
+    m_BytesIn       = 0;
+    m_BytesOut      = 0;
+    m_PeakRetained  = 0;
+    m_Streamed      = false;
+    m_Cached        = false;
+    m_Success       = false;
+  }
+
+  /**
+   * Returns the input format.
+   *
+   * @return		the simple class name
+   */
+  public String getInputFormat() {
+    return m_InputFormat;
+  }
+
+  /**
+   * Returns the output format.
+   *
+   * @return		the simple class name
+   */
+  public String getOutputFormat() {
+    return m_OutputFormat;
+  }
+
+  /**
+   * Adds to the time spent parsing.
+   *
+   * @param value	the time in nsec
+   */
+  public void addParseTime(long value) {
+    m_ParseTime += value;
+  }
+
+  /**
+   * Returns the time spent parsing.
+   *
+   * @return		the time in nsec
+   */
+  public long getParseTime() {
+    return m_ParseTime;
+  }
+
+  /**
+   * Adds to the time spent transforming.
+   *
+   * @param value	the time in nsec
+   */
+  public void addTransformTime(long value) {
+    m_TransformTime += value;
+  }
+
+  /**
+   * Returns the time spent transforming.
+   *
+   * @return		the time in nsec
+   */
+  public long getTransformTime() {
+    return m_TransformTime;
+  }
+
+  /**
+   * Adds to the time spent serializing.
+   *
+   * @param value	the time in nsec
+   */
+  public void addSerializeTime(long value) {
+    m_SerializeTime += value;
+  }
+
+  /**
+   * Returns the time spent serializing.
+   *
+   * @return		the time in nsec
+   */
+  public long getSerializeTime() {
+    return m_SerializeTime;
+  }
+
+  /**
+   * Sets the overall time.
+   *
+   * @param value	the time in nsec
+   */
+  public void setTotalTime(long value) {
+    m_TotalTime = value;
+  }
+
+  /**
+   * Returns the overall time.
+   *
+   * @return		the time in nsec
+   */
+  public long getTotalTime() {
+    return m_TotalTime;
+  }
+
+  /**
+   * Sets the number of points read.
+   *
+   * @param value	the number of points
+   */
+  public void setPointsRead(long value) {
+    m_PointsRead = value;
+  }
+
+  /**
+   * Returns the number of points read.
+   *
+   * @return		the number of points
+   */
+  public long getPointsRead() {
+    return m_PointsRead;
+  }
+
+  /**
+   * Sets the number of points written.
+   *
+   * @param value	the number of points
+   */
+  public void setPointsWritten(long value) {
+    m_PointsWritten = value;
+  }
+
+  /**
+   * Returns the number of points written.
+   *
+   * @return		the number of points
+   */
+  public long getPointsWritten() {
+    return m_PointsWritten;
+  }
+
+  /**
+   * Sets the size of the input file.
+   *
+   * @param value	the size in bytes
+   */
+  public void setBytesIn(long value) {
+    m_BytesIn = value;
+  }
+
+  /**
+   * Returns the size of the input file.
+   *
+   * @return		the size in bytes
+   */
+  public long getBytesIn() {
+    return m_BytesIn;
+  }
+
+  /**
+   * Sets the size of the output file.
+   *
+   * @param value	the size in bytes
+   */
+  public void setBytesOut(long value) {
+    m_BytesOut = value;
+  }
+
+  /**
+   * Returns the size of the output file.
+   *
+   * @return		the size in bytes
+   */
+  public long getBytesOut() {
+    return m_BytesOut;
+  }
+
+  /**
+   * Updates the maximum number of points held in memory at the same time.
+   *
+   * @param value	the number of points, ignored if less than the current maximum
+   */
+  public void updatePeakRetained(long value) {
+    m_PeakRetained = Math.max(m_PeakRetained, value);
+  }
+
+  /**
+   * Returns the maximum number of points held in memory at the same time
+   * (the input in memory, the largest track when simplifying, the queued
+   * batches in pipeline mode).
+   *
+   * @return		the number of points
+   */
+  public long getPeakRetained() {
+    return m_PeakRetained;
+  }
+
+  /**
+   * Sets whether the conversion was streamed.
+   *
+   * @param value	true if streamed
+   */
+  public void setStreamed(boolean value) {
+    m_Streamed = value;
+  }
+
+  /**
+   * Returns whether the conversion was streamed.
+   *
+   * @return		true if streamed
+   */
+  public boolean isStreamed() {
+    return m_Streamed;
+  }
+
+  /**
+   * Sets whether the output was supplied from the cache.
+   *
+   * @param value	true if cached
+   */
+  public void setCached(boolean value) {
+    m_Cached = value;
+  }
+
+  /**
+   * Returns whether the output was supplied from the cache.
+   *
+   * @return		true if cached
+   */
+  public boolean isCached() {
+    return m_Cached;
+  }
+
+  /**
+   * Sets whether the conversion was successful.
+   *
+   * @param value	true if successful
+   */
+  public void setSuccess(boolean value) {
+    m_Success = value;
+  }
+
+  /**
+   * Returns whether the conversion was successful.
+   *
+   * @return		true if successful
+   */
+  public boolean isSuccess() {
+    return m_Success;
+  }
+
+  /**
+   * Returns a one-line description of the measurements.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    return String.format(
+      "%s -> %s%s: total=%.1fms, parse=%.1fms, transform=%.1fms, serialize=%.1fms, points read=%d, points written=%d, bytes in=%d, bytes out=%d, peak retained=%d%s",
+      m_InputFormat, m_OutputFormat, m_Success ? "" : " (failed)",
+      m_TotalTime / 1e6, m_ParseTime / 1e6, m_TransformTime / 1e6, m_SerializeTime / 1e6,
+      m_PointsRead, m_PointsWritten, m_BytesIn, m_BytesOut, m_PeakRetained,
+      m_Cached ? " (cached)" : (m_Streamed ? " (streamed)" : ""));
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionStatistics.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates the metrics of any number of conversions: counters and latency
+ * histograms for the overall time and the individual stages. Thread-safe;
+ * can be registered as MBean so that long-running hosts can be monitored
+ * via JMX:
+ * <pre>
+ * ConversionStatistics stats = new ConversionStatistics();
+ * stats.register("service");
+ * converter.addMetricsListener(stats);
+ * </pre>
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class ConversionStatistics
+  implements MetricsListener, ConversionStatisticsMBean {
+
+  /** the JMX domain. */
+  public static final String DOMAIN = "com.github.fracpete.gpsformats4j";
+
+  /** the number of conversions. */
+  protected AtomicLong m_Conversions;
+
+  /** the number of failed conversions. */
+  protected AtomicLong m_Failures;
+
+  /** the number of conversions served from the cache. */
+  protected AtomicLong m_CacheHits;
+
+  /** the number of points read. */
+  protected AtomicLong m_PointsRead;
+
+  /** the number of points written. */
+  protected AtomicLong m_PointsWritten;
+
+  /** the number of bytes read. */
+  protected AtomicLong m_BytesIn;
+
+  /** the number of bytes written. */
+  protected AtomicLong m_BytesOut;
+
+  /** the maximum number of points held in memory by a conversion. */
+  protected AtomicLong m_PeakRetained;
+
+  /** the overall times. */
+  protected LatencyHistogram m_TotalTime;
+
+  /** the parse times. */
+  protected LatencyHistogram m_ParseTime;
+
+  /** the transform times. */
+  protected LatencyHistogram m_TransformTime;
+
+  /** the serialize times. */
+  protected LatencyHistogram m_SerializeTime;
+
+  /**
+   * Initializes the statistics.
+   */
+  public ConversionStatistics() {
+    m_Conversions   = new AtomicLong();
+    m_Failures      = new AtomicLong();
+    m_CacheHits     = new AtomicLong();
+    m_PointsRead    = new AtomicLong();
+    m_PointsWritten = new AtomicLong();
+    m_BytesIn       = new AtomicLong();
+    m_BytesOut      = new AtomicLong();
+    m_PeakRetained  = new AtomicLong();
+    m_TotalTime     = new LatencyHistogram();
+    m_ParseTime     = new LatencyHistogram();
+    m_TransformTime = new LatencyHistogram();
+    m_SerializeTime = new LatencyHistogram();
+  }
+
+  /**
+   * Adds the metrics of the conversion. Only the overall time of failed
+   * conversions is recorded, the stage times only for actual conversions
+   * (ie not for cache hits).
+   *
+   * @param metrics	the measurements of the conversion
+   */
+  @Override
+  public void conversionFinished(ConversionMetrics metrics) {
+    m_Conversions.incrementAndGet();
+    m_TotalTime.add(metrics.getTotalTime());
+    if (!metrics.isSuccess()) {
+      m_Failures.incrementAndGet();
+      return;
+    }
+    m_PointsRead.addAndGet(metrics.getPointsRead());
+    m_PointsWritten.addAndGet(metrics.getPointsWritten());
+    m_BytesIn.addAndGet(metrics.getBytesIn());
+    m_BytesOut.addAndGet(metrics.getBytesOut());
+    m_PeakRetained.accumulateAndGet(metrics.getPeakRetained(), Math::max);
+    if (metrics.isCached()) {
+      m_CacheHits.incrementAndGet();
+    }
+    else {
+      m_ParseTime.add(metrics.getParseTime());
+      m_TransformTime.add(metrics.getTransformTime());
+      m_SerializeTime.add(metrics.getSerializeTime());
+    }
+  }
+
+  /**
+   * Registers the statistics with the platform MBean server, using object
+   * name "com.github.fracpete.gpsformats4j:type=ConversionStatistics,name=NAME".
+   *
+   * @param name	the name to distinguish several instances
+   * @return		the object name
+   * @throws Exception	if registration fails, eg name already in use
+   */
+  public ObjectName register(String name) throws Exception {
+    MBeanServer		server;
+    ObjectName		result;
+
+    server = ManagementFactory.getPlatformMBeanServer();
+    result = new ObjectName(DOMAIN + ":type=" + getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+    server.registerMBean(this, result);
+
+    return result;
+  }
+
+  /**
+   * Removes the statistics from the platform MBean server.
+   *
+   * @param name	the object name returned by {@link #register(String)}
+   * @throws Exception	if not registered
+   */
+  public void unregister(ObjectName name) throws Exception {
+    ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+  }
+
+  /**
+   * Returns the number of conversions.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getConversions() {
+    return m_Conversions.get();
+  }
+
+  /**
+   * Returns the number of failed conversions.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getFailures() {
+    return m_Failures.get();
+  }
+
+  /**
+   * Returns the number of conversions served from the cache.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getCacheHits() {
+    return m_CacheHits.get();
+  }
+
+  /**
+   * Returns the number of points read by successful conversions.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getPointsRead() {
+    return m_PointsRead.get();
+  }
+
+  /**
+   * Returns the number of points written by successful conversions.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getPointsWritten() {
+    return m_PointsWritten.get();
+  }
+
+  /**
+   * Returns the size of the input files of successful conversions.
+   *
+   * @return		the size in bytes
+   */
+  @Override
+  public long getBytesIn() {
+    return m_BytesIn.get();
+  }
+
+  /**
+   * Returns the size of the output files of successful conversions.
+   *
+   * @return		the size in bytes
+   */
+  @Override
+  public long getBytesOut() {
+    return m_BytesOut.get();
+  }
+
+  /**
+   * Returns the maximum number of points a conversion held in memory.
+   *
+   * @return		the number
+   */
+  @Override
+  public long getPeakRetainedPoints() {
+    return m_PeakRetained.get();
+  }
+
+  /**
+   * Returns the mean overall time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTotalTimeMean() {
+    return m_TotalTime.getMean();
+  }
+
+  /**
+   * Returns the estimated median of the overall time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTotalTime50thPercentile() {
+    return m_TotalTime.getPercentile(0.50);
+  }
+
+  /**
+   * Returns the estimated 95th percentile of the overall time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTotalTime95thPercentile() {
+    return m_TotalTime.getPercentile(0.95);
+  }
+
+  /**
+   * Returns the estimated 99th percentile of the overall time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTotalTime99thPercentile() {
+    return m_TotalTime.getPercentile(0.99);
+  }
+
+  /**
+   * Returns the maximum overall time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTotalTimeMax() {
+    return m_TotalTime.getMax();
+  }
+
+  /**
+   * Returns the mean parse time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getParseTimeMean() {
+    return m_ParseTime.getMean();
+  }
+
+  /**
+   * Returns the estimated 95th percentile of the parse time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getParseTime95thPercentile() {
+    return m_ParseTime.getPercentile(0.95);
+  }
+
+  /**
+   * Returns the mean transform time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTransformTimeMean() {
+    return m_TransformTime.getMean();
+  }
+
+  /**
+   * Returns the estimated 95th percentile of the transform time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getTransformTime95thPercentile() {
+    return m_TransformTime.getPercentile(0.95);
+  }
+
+  /**
+   * Returns the mean serialize time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getSerializeTimeMean() {
+    return m_SerializeTime.getMean();
+  }
+
+  /**
+   * Returns the estimated 95th percentile of the serialize time.
+   *
+   * @return		the time in msec
+   */
+  @Override
+  public double getSerializeTime95thPercentile() {
+    return m_SerializeTime.getPercentile(0.95);
+  }
+
+  /**
+   * Returns the upper bounds of the histogram buckets.
+   *
+   * @return		the bounds in msec
+   */
+  @Override
+  public long[] getHistogramBounds() {
+    return LatencyHistogram.getBounds();
+  }
+
+  /**
+   * Returns the histogram of the overall times.
+   *
+   * @return		the counts per bucket
+   */
+  @Override
+  public long[] getTotalTimeHistogram() {
+    return m_TotalTime.getCounts();
+  }
+
+  /**
+   * Returns the histogram of the parse times.
+   *
+   * @return		the counts per bucket
+   */
+  @Override
+  public long[] getParseTimeHistogram() {
+    return m_ParseTime.getCounts();
+  }
+
+  /**
+   * Returns the histogram of the transform times.
+   *
+   * @return		the counts per bucket
+   */
+  @Override
+  public long[] getTransformTimeHistogram() {
+    return m_TransformTime.getCounts();
+  }
+
+  /**
+   * Returns the histogram of the serialize times.
+   *
+   * @return		the counts per bucket
+   */
+  @Override
+  public long[] getSerializeTimeHistogram() {
+    return m_SerializeTime.getCounts();
+  }
+
+  /**
+   * Resets all counters and histograms.
+   */
+  @Override
+  public void reset() {
+    m_Conversions.set(0);
+    m_Failures.set(0);
+    m_CacheHits.set(0);
+    m_PointsRead.set(0);
+    m_PointsWritten.set(0);
+    m_BytesIn.set(0);
+    m_BytesOut.set(0);
+    m_PeakRetained.set(0);
+    m_TotalTime.reset();
+    m_ParseTime.reset();
+    m_TransformTime.reset();
+    m_SerializeTime.reset();
+  }
+
+  /**
+   * Returns a multi-line summary of the statistics.
+   *
+   * @return		the summary
+   */
+  public String toSummary() {
+    return String.format(
+      "conversions=%d, failures=%d, cache hits=%d, points read=%d, points written=%d, bytes in=%d, bytes out=%d, peak retained=%d%n"
+	+ "total:     mean=%.1fms, p50=%.1fms, p95=%.1fms, p99=%.1fms, max=%.1fms%n"
+	+ "parse:     mean=%.1fms, p95=%.1fms%n"
+	+ "transform: mean=%.1fms, p95=%.1fms%n"
+	+ "serialize: mean=%.1fms, p95=%.1fms",
+      getConversions(), getFailures(), getCacheHits(), getPointsRead(), getPointsWritten(), getBytesIn(), getBytesOut(), getPeakRetainedPoints(),
+      getTotalTimeMean(), getTotalTime50thPercentile(), getTotalTime95thPercentile(), getTotalTime99thPercentile(), getTotalTimeMax(),
+      getParseTimeMean(), getParseTime95thPercentile(),
+      getTransformTimeMean(), getTransformTime95thPercentile(),
+      getSerializeTimeMean(), getSerializeTime95thPercentile());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionStatisticsMBean.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+/**
+ * JMX management interface of {@link ConversionStatistics}. Times are in
+ * msec, histograms are counts per bucket (see {@link #getHistogramBounds()}).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public interface ConversionStatisticsMBean {
+
+  public long getConversions();
+
+  public long getFailures();
+
+  public long getCacheHits();
+
+  public long getPointsRead();
+
+  public long getPointsWritten();
+
+  public long getBytesIn();
+
+  public long getBytesOut();
+
+  public long getPeakRetainedPoints();
+
+  public double getTotalTimeMean();
+
+  public double getTotalTime50thPercentile();
+
+  public double getTotalTime95thPercentile();
+
+  public double getTotalTime99thPercentile();
+
+  public double getTotalTimeMax();
+
+  public double getParseTimeMean();
+
+  public double getParseTime95thPercentile();
+
+  public double getTransformTimeMean();
+
+  public double getTransformTime95thPercentile();
+
+  public double getSerializeTimeMean();
+
+  public double getSerializeTime95thPercentile();
+
+  public long[] getHistogramBounds();
+
+  public long[] getTotalTimeHistogram();
+
+  public long[] getParseTimeHistogram();
+
+  public long[] getTransformTimeHistogram();
+
+  public long[] getSerializeTimeHistogram();
+
+  public void reset();
+}
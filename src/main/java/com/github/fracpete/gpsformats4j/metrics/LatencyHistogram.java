@@ -0,0 +1,200 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LatencyHistogram.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations with exponential buckets: bucket 0
+ * counts durations below 1ms, bucket i durations from 2^(i-1) up to (but
+ * excluding) 2^i msec. Percentiles are estimated as the upper bound of the
+ * bucket they fall in, capped at the maximum duration.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class LatencyHistogram
+  implements Serializable {
+
+  private static final long serialVersionUID = 8305386318462150716L;
+
+  /** the number of buckets. */
+  public static final int NUM_BUCKETS = 32;
+
+  /** the counts per bucket. */
+  protected AtomicLongArray m_Buckets;
+
+  /** the number of durations. */
+  protected AtomicLong m_Count;
+
+  /** the sum of the durations in nsec. */
+  protected AtomicLong m_Sum;
+
+  /** the maximum duration in nsec. */
+  protected AtomicLong m_Max;
+
+  /**
+   * Initializes the histogram.
+   */
+  public LatencyHistogram() {
+    m_Buckets = new AtomicLongArray(NUM_BUCKETS);
+    m_Count   = new AtomicLong();
+    m_Sum     = new AtomicLong();
+    m_Max     = new AtomicLong();
+  }
+
+  /**
+   * Returns the bucket for the duration.
+   *
+   * @param nanos	the duration in nsec
+   * @return		the bucket index
+   */
+  protected static int bucket(long nanos) {
+    long	msec;
+
+    msec = nanos / 1000000L;
+    if (msec <= 0)
+      return 0;
+
+    return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(msec));
+  }
+
+  /**
+   * Returns the upper bounds of the buckets.
+   *
+   * @return		the bounds in msec (exclusive; the last bucket is unbounded)
+   */
+  public static long[] getBounds() {
+    long[]	result;
+    int		i;
+
+    result = new long[NUM_BUCKETS];
+    for (i = 0; i < NUM_BUCKETS; i++)
+      result[i] = 1L << i;
+
+    return result;
+  }
+
+  /**
+   * Adds the duration.
+   *
+   * @param nanos	the duration in nsec
+   */
+  public void add(long nanos) {
+    m_Buckets.incrementAndGet(bucket(nanos));
+    m_Count.incrementAndGet();
+    m_Sum.addAndGet(nanos);
+    m_Max.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Returns the number of durations.
+   *
+   * @return		the number
+   */
+  public long getCount() {
+    return m_Count.get();
+  }
+
+  /**
+   * Returns the mean duration.
+   *
+   * @return		the mean in msec, 0 if no durations yet
+   */
+  public double getMean() {
+    long	count;
+
+    count = m_Count.get();
+    if (count == 0)
+      return 0;
+
+    return m_Sum.get() / 1e6 / count;
+  }
+
+  /**
+   * Returns the maximum duration.
+   *
+   * @return		the maximum in msec
+   */
+  public double getMax() {
+    return m_Max.get() / 1e6;
+  }
+
+  /**
+   * Estimates the percentile.
+   *
+   * @param q		the percentile (0-1)
+   * @return		the estimate in msec, 0 if no durations yet
+   */
+  public double getPercentile(double q) {
+    long[]	counts;
+    long	total;
+    long	cumulative;
+    int		i;
+
+    counts = getCounts();
+    total  = 0;
+    for (long count: counts)
+      total += count;
+    if (total == 0)
+      return 0;
+
+    cumulative = 0;
+    for (i = 0; i < NUM_BUCKETS - 1; i++) {
+      cumulative += counts[i];
+      if (cumulative >= Math.ceil(q * total))
+	return Math.min(1L << i, getMax());
+    }
+
+    return getMax();
+  }
+
+  /**
+   * Returns a snapshot of the counts per bucket.
+   *
+   * @return		the counts
+   * @see		#getBounds()
+   */
+  public long[] getCounts() {
+    long[]	result;
+    int		i;
+
+    result = new long[NUM_BUCKETS];
+    for (i = 0; i < NUM_BUCKETS; i++)
+      result[i] = m_Buckets.get(i);
+
+    return result;
+  }
+
+  /**
+   * Removes all durations.
+   */
+  public void reset() {
+    int		i;
+
+    for (i = 0; i < NUM_BUCKETS; i++)
+      m_Buckets.set(i, 0);
+    m_Count.set(0);
+    m_Sum.set(0);
+    m_Max.set(0);
+  }
+}
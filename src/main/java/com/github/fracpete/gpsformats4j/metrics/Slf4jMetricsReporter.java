@@ -0,0 +1,86 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Slf4jMetricsReporter.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the metrics of each conversion and keeps aggregated statistics,
+ * which {@link #logSummary()} outputs (eg at the end of a batch or
+ * periodically in a long-running host).
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class Slf4jMetricsReporter
+  implements MetricsListener {
+
+  /** the logger to use. */
+  protected Logger m_Logger;
+
+  /** the aggregated statistics. */
+  protected ConversionStatistics m_Statistics;
+
+  /**
+   * Initializes the reporter with its own logger and statistics.
+   */
+  public Slf4jMetricsReporter() {
+    this(LoggerFactory.getLogger(Slf4jMetricsReporter.class), new ConversionStatistics());
+  }
+
+  /**
+   * Initializes the reporter.
+   *
+   * @param logger	the logger to use
+   * @param statistics	the statistics to update, eg also registered via JMX
+   */
+  public Slf4jMetricsReporter(Logger logger, ConversionStatistics statistics) {
+    m_Logger     = logger;
+    m_Statistics = statistics;
+  }
+
+  /**
+   * Returns the aggregated statistics.
+   *
+   * @return		the statistics
+   */
+  public ConversionStatistics getStatistics() {
+    return m_Statistics;
+  }
+
+  /**
+   * Logs the metrics and adds them to the statistics.
+   *
+   * @param metrics	the measurements of the conversion
+   */
+  @Override
+  public void conversionFinished(ConversionMetrics metrics) {
+    m_Statistics.conversionFinished(metrics);
+    m_Logger.info("Metrics: " + metrics);
+  }
+
+  /**
+   * Logs the aggregated statistics.
+   */
+  public void logSummary() {
+    m_Logger.info("Metrics summary:\n" + m_Statistics.toSummary());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TimedPointSink.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import com.github.fracpete.gpsformats4j.formats.PointSink;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+
+/**
+ * Measures the time spent in the wrapped sink (including finishing the
+ * output) and counts its points.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class TimedPointSink
+  implements PointSink {
+
+  /** the wrapped sink. */
+  protected PointSink m_Sink;
+
+  /** the time spent in the sink in nsec. */
+  protected long m_Time;
+
+  /** the number of points written. */
+  protected long m_Points;
+
+  /**
+   * Initializes the sink.
+   *
+   * @param sink	the sink to measure
+   */
+  public TimedPointSink(PointSink sink) {
+    m_Sink   = sink;
+    m_Time   = 0;
+    m_Points = 0;
+  }
+
+  /**
+   * Writes the point.
+   *
+   * @param rec		the point to write
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void write(CSVRecord rec) throws Exception {
+    long	start;
+
+    start = System.nanoTime();
+    m_Sink.write(rec);
+    m_Time += System.nanoTime() - start;
+    m_Points++;
+  }
+
+  /**
+   * Completes the output.
+   *
+   * @throws Exception	if writing fails
+   */
+  @Override
+  public void finish() throws Exception {
+    long	start;
+
+    start = System.nanoTime();
+    m_Sink.finish();
+    m_Time += System.nanoTime() - start;
+  }
+
+  /**
+   * Returns the time spent in the wrapped sink so far.
+   *
+   * @return		the time in nsec
+   */
+  public long getTime() {
+    return m_Time;
+  }
+
+  /**
+   * Returns the number of points written so far.
+   *
+   * @return		the number of points
+   */
+  public long getPoints() {
+    return m_Points;
+  }
+
+  /**
+   * Closes the wrapped sink.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Sink.close();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TimedPointSource.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.metrics;
+
+import com.github.fracpete.gpsformats4j.formats.PointSource;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+
+/**
+ * Measures the time spent in the wrapped source and counts its points.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class TimedPointSource
+  implements PointSource {
+
+  /** the wrapped source. */
+  protected PointSource m_Source;
+
+  /** the time spent in the source in nsec. */
+  protected long m_Time;
+
+  /** the number of points supplied. */
+  protected long m_Points;
+
+  /**
+   * Initializes the source.
+   *
+   * @param source	the source to measure
+   */
+  public TimedPointSource(PointSource source) {
+    m_Source = source;
+    m_Time   = 0;
+    m_Points = 0;
+  }
+
+  /**
+   * Returns the next point.
+   *
+   * @return		the point, null if no more points available
+   * @throws Exception	if reading fails
+   */
+  @Override
+  public CSVRecord next() throws Exception {
+    CSVRecord	result;
+    long	start;
+
+    start   = System.nanoTime();
+    result  = m_Source.next();
+    m_Time += System.nanoTime() - start;
+    if (result != null)
+      m_Points++;
+
+    return result;
+  }
+
+  /**
+   * Returns the wrapped source.
+   *
+   * @return		the source
+   */
+  public PointSource getSource() {
+    return m_Source;
+  }
+
+  /**
+   * Returns the time spent in the wrapped source so far.
+   *
+   * @return		the time in nsec
+   */
+  public long getTime() {
+    return m_Time;
+  }
+
+  /**
+   * Returns the number of points supplied so far.
+   *
+   * @return		the number of points
+   */
+  public long getPoints() {
+    return m_Points;
+  }
+
+  /**
+   * Closes the wrapped source.
+   *
+   * @throws IOException	if closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    m_Source.close();
+  }
+}
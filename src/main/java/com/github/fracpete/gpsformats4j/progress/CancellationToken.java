@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CancellationToken.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Token for cooperatively cancelling a conversion, either explicitly via
+ * {@link #cancel()} (eg from another thread) or once its deadline has
+ * passed. Readers and writers check the token while they process the
+ * points and abort with a {@link CancellationException}.
+ * <br>
+ * A token can be shared by several conversions, eg to cancel all the
+ * conversions of a job at once. A child token (see
+ * {@link #CancellationToken(CancellationToken, long)}) adds its own deadline
+ * without modifying the parent, but gets cancelled along with the parent.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class CancellationToken {
+
+  /** whether cancellation was requested. */
+  protected volatile boolean m_Cancelled;
+
+  /** the deadline (System.nanoTime()), only if {@link #m_HasDeadline}. */
+  protected volatile long m_Deadline;
+
+  /** whether a deadline is set. */
+  protected volatile boolean m_HasDeadline;
+
+  /** whether the deadline caused the cancellation. */
+  protected volatile boolean m_TimedOut;
+
+  /** the parent token, can be null. */
+  protected CancellationToken m_Parent;
+
+  /**
+   * Initializes the token without deadline.
+   */
+  public CancellationToken() {
+    m_Cancelled   = false;
+    m_Deadline    = 0;
+    m_HasDeadline = false;
+    m_TimedOut    = false;
+    m_Parent      = null;
+  }
+
+  /**
+   * Initializes the token with a deadline.
+   *
+   * @param timeout	the time in msec from now after which to cancel
+   */
+  public CancellationToken(long timeout) {
+    this();
+    setTimeout(timeout);
+  }
+
+  /**
+   * Initializes a child token with a deadline. The child is cancelled if
+   * the parent is; cancelling the child does not affect the parent.
+   *
+   * @param parent	the parent token, can be null
+   * @param timeout	the time in msec from now after which to cancel
+   */
+  public CancellationToken(CancellationToken parent, long timeout) {
+    this(timeout);
+    m_Parent = parent;
+  }
+
+  /**
+   * Sets the deadline relative to now.
+   *
+   * @param timeout	the time in msec from now after which to cancel
+   */
+  public void setTimeout(long timeout) {
+    m_Deadline    = System.nanoTime() + timeout * 1000000L;
+    m_HasDeadline = true;
+  }
+
+  /**
+   * Requests the cancellation.
+   */
+  public void cancel() {
+    m_Cancelled = true;
+  }
+
+  /**
+   * Returns whether cancellation was requested or the deadline has passed.
+   *
+   * @return		true if cancelled
+   */
+  public boolean isCancelled() {
+    if (m_Cancelled)
+      return true;
+    if ((m_Parent != null) && m_Parent.isCancelled()) {
+      m_TimedOut  = m_Parent.isTimedOut();
+      m_Cancelled = true;
+      return true;
+    }
+    if (m_HasDeadline && (System.nanoTime() - m_Deadline >= 0)) {
+      m_TimedOut  = true;
+      m_Cancelled = true;
+    }
+    return m_Cancelled;
+  }
+
+  /**
+   * Returns whether the deadline caused the cancellation.
+   *
+   * @return		true if timed out
+   */
+  public boolean isTimedOut() {
+    return m_TimedOut;
+  }
+
+  /**
+   * Throws an exception if cancelled.
+   *
+   * @throws CancellationException	if cancelled
+   */
+  public void throwIfCancelled() {
+    if (isCancelled())
+      throw new CancellationException(m_TimedOut ? "Deadline exceeded" : "Cancelled");
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionProgress.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * Snapshot of the progress of a conversion.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see ProgressListener
+ */
+public class ConversionProgress
+  implements Serializable {
+
+  private static final long serialVersionUID = 4127395501936684122L;
+
+  /** the file being converted, null for streams. */
+  protected File m_InputFile;
+
+  /** the current stage. */
+  protected ConversionStage m_Stage;
+
+  /** the number of bytes consumed from the input file. */
+  protected long m_BytesRead;
+
+  /** the size of the input file, -1 if unknown. */
+  protected long m_BytesTotal;
+
+  /** the number of points processed in the current stage. */
+  protected long m_Points;
+
+  /** the time since the start of the conversion in msec. */
+  protected long m_Elapsed;
+
+  /**
+   * Initializes the snapshot.
+   *
+   * @param input	the file being converted, null for streams
+   * @param stage	the current stage
+   * @param bytesRead	the number of bytes consumed from the input file
+   * @param bytesTotal	the size of the input file, -1 if unknown
+   * @param points	the number of points processed in the current stage
+   * @param elapsed	the time since the start in msec
+   */
+  public ConversionProgress(File input, ConversionStage stage, long bytesRead, long bytesTotal, long points, long elapsed) {
+    m_InputFile  = input;
+    m_Stage      = stage;
+    m_BytesRead  = bytesRead;
+    m_BytesTotal = bytesTotal;
+    m_Points     = points;
+    m_Elapsed    = elapsed;
+  }
+
+  /**
+   * Returns the file being converted.
+   *
+   * @return		the file, null for streams
+   */
+  public File getInputFile() {
+    return m_InputFile;
+  }
+
+  /**
+   * Returns the current stage.
+   *
+   * @return		the stage
+   */
+  public ConversionStage getStage() {
+    return m_Stage;
+  }
+
+  /**
+   * Returns the number of bytes consumed from the input file (compressed
+   * bytes for compressed files). Only counted when the input format supports
+   * streaming, otherwise it jumps from 0 to the file size after reading.
+   *
+   * @return		the number of bytes
+   */
+  public long getBytesRead() {
+    return m_BytesRead;
+  }
+
+  /**
+   * Returns the size of the input file.
+   *
+   * @return		the number of bytes, -1 if unknown (streams)
+   */
+  public long getBytesTotal() {
+    return m_BytesTotal;
+  }
+
+  /**
+   * Returns the fraction of the input file consumed so far.
+   *
+   * @return		the fraction (0-1), 0 if the size is unknown
+   */
+  public double getFraction() {
+    if (m_BytesTotal <= 0)
+      return 0.0;
+    return Math.min(1.0, (double) m_BytesRead / m_BytesTotal);
+  }
+
+  /**
+   * Returns the number of points processed in the current stage, ie written
+   * when streaming, read, transformed or written otherwise.
+   *
+   * @return		the number of points
+   */
+  public long getPoints() {
+    return m_Points;
+  }
+
+  /**
+   * Returns the time since the start of the conversion.
+   *
+   * @return		the time in msec
+   */
+  public long getElapsed() {
+    return m_Elapsed;
+  }
+
+  /**
+   * Returns a one-line description of the progress.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    if (m_BytesTotal < 0)
+      return String.format(
+	"%s: %.1f MB, %d points, %.1fs",
+	m_Stage, m_BytesRead / 1048576.0, m_Points, m_Elapsed / 1000.0);
+    return String.format(
+      "%s: %.1f of %.1f MB (%.0f%%), %d points, %.1fs",
+      m_Stage, m_BytesRead / 1048576.0, m_BytesTotal / 1048576.0, getFraction() * 100,
+      m_Points, m_Elapsed / 1000.0);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ConversionStage.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+/**
+ * The stages of a conversion, as reported to {@link ProgressListener}s.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public enum ConversionStage {
+  /** reading, processing and writing the points one at a time. */
+  STREAMING,
+  /** reading all the points into memory. */
+  READING,
+  /** cropping, resampling and/or simplifying the points in memory. */
+  TRANSFORMING,
+  /** writing the points from memory. */
+  WRITING,
+  /** the output is in place. */
+  FINISHED,
+}
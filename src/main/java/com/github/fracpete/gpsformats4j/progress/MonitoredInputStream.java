@@ -0,0 +1,114 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MonitoredInputStream.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Input stream that reports the consumed bytes to a {@link ProgressMonitor},
+ * which also aborts reading with a {@link CancellationException} once the
+ * conversion got cancelled. Wrap it in a buffered stream, so that the
+ * monitor sees few large reads.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class MonitoredInputStream
+  extends FilterInputStream {
+
+  /** the monitor to report to. */
+  protected ProgressMonitor m_Monitor;
+
+  /**
+   * Initializes the stream.
+   *
+   * @param input	the stream to read from
+   * @param monitor	the monitor to report to
+   */
+  public MonitoredInputStream(InputStream input, ProgressMonitor monitor) {
+    super(input);
+    m_Monitor = monitor;
+  }
+
+  /**
+   * Reads a single byte.
+   *
+   * @return		the byte, -1 at the end
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public int read() throws IOException {
+    int		result;
+
+    result = super.read();
+    m_Monitor.bytesRead((result == -1) ? 0 : 1);
+
+    return result;
+  }
+
+  /**
+   * Reads bytes into the array.
+   *
+   * @param b		the array to fill
+   * @param off		the offset in the array
+   * @param len		the maximum number of bytes to read
+   * @return		the number of bytes read, -1 at the end
+   * @throws IOException	if reading fails
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int		result;
+
+    result = super.read(b, off, len);
+    m_Monitor.bytesRead(Math.max(result, 0));
+
+    return result;
+  }
+
+  /**
+   * Skips bytes.
+   *
+   * @param n		the number of bytes to skip
+   * @return		the number of bytes skipped
+   * @throws IOException	if skipping fails
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    long	result;
+
+    result = super.skip(n);
+    m_Monitor.bytesRead(result);
+
+    return result;
+  }
+
+  /**
+   * Marking is not supported, as it would count bytes twice.
+   *
+   * @return		always false
+   */
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MonitoredList.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Read-only view of points that counts every access as processed point
+ * with a {@link ProgressMonitor}. Handing it to
+ * {@link com.github.fracpete.gpsformats4j.formats.Format#write(List, java.io.File)}
+ * lets non-streaming writers report their progress and get aborted with a
+ * {@link CancellationException} once the conversion got cancelled.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class MonitoredList
+  extends AbstractList<CSVRecord>
+  implements RandomAccess {
+
+  /** the underlying points. */
+  protected List<CSVRecord> m_Data;
+
+  /** the monitor to report to. */
+  protected ProgressMonitor m_Monitor;
+
+  /**
+   * Initializes the view.
+   *
+   * @param data	the points
+   * @param monitor	the monitor to report to
+   */
+  public MonitoredList(List<CSVRecord> data, ProgressMonitor monitor) {
+    super();
+    m_Data    = data;
+    m_Monitor = monitor;
+  }
+
+  /**
+   * Returns the point at the position.
+   *
+   * @param index	the position
+   * @return		the point
+   * @throws CancellationException	if cancelled
+   */
+  @Override
+  public CSVRecord get(int index) {
+    m_Monitor.pointProcessed();
+    return m_Data.get(index);
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  @Override
+  public int size() {
+    return m_Data.size();
+  }
+}
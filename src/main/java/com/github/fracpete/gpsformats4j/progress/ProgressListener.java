@@ -0,0 +1,41 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ProgressListener.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+/**
+ * Interface for classes that get notified about the progress of a
+ * conversion. Gets called from the threads performing the conversion (in
+ * pipeline mode possibly from the parsing thread as well), but never
+ * concurrently for the same conversion. Implementations must return
+ * quickly, as the conversion waits for them.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ * @see ProgressMonitor
+ */
+public interface ProgressListener {
+
+  /**
+   * Gets called with the current progress of a conversion.
+   *
+   * @param progress	the progress
+   */
+  public void progressChanged(ConversionProgress progress);
+}
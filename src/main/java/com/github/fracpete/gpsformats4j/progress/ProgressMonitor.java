@@ -0,0 +1,260 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ProgressMonitor.java
+ * Copyright (C) 2026 FracPete
+ */
+
+package com.github.fracpete.gpsformats4j.progress;
+
+import com.github.fracpete.gpsformats4j.core.BaseObject;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Keeps track of the progress of a single conversion, checks its
+ * {@link CancellationToken} and notifies the {@link ProgressListener}, at
+ * most once per interval (and on every change of stage).
+ * <br>
+ * The bytes get counted by a {@link MonitoredInputStream} (possibly in the
+ * parsing thread), the points by the thread writing them. The cancellation
+ * gets checked on every read from the input and every {@link #CHECK_POINTS}
+ * points.
+ *
+ * @author FracPete (fracpete at gmail dot com)
+ */
+public class ProgressMonitor
+  extends BaseObject {
+
+  /** the default interval between notifications in msec. */
+  public static final long DEFAULT_INTERVAL = 500;
+
+  /** the number of points after which to check for cancellation (power of 2). */
+  public static final int CHECK_POINTS = 256;
+
+  /** the file being converted, null for streams. */
+  protected File m_InputFile;
+
+  /** the listener to notify, can be null. */
+  protected ProgressListener m_Listener;
+
+  /** the cancellation token, can be null. */
+  protected CancellationToken m_Token;
+
+  /** the minimum time between notifications in nsec. */
+  protected long m_Interval;
+
+  /** the start of the conversion (System.nanoTime()). */
+  protected long m_Start;
+
+  /** the time of the last notification (System.nanoTime()). */
+  protected long m_LastReport;
+
+  /** the size of the input file, -1 if unknown. */
+  protected long m_BytesTotal;
+
+  /** the current stage. */
+  protected volatile ConversionStage m_Stage;
+
+  /** the number of bytes consumed from the input file. */
+  protected volatile long m_BytesRead;
+
+  /** the number of points processed in the current stage. */
+  protected volatile long m_Points;
+
+  /**
+   * Initializes the monitor, using the default interval.
+   *
+   * @param input	the file being converted, null for streams
+   * @param listener	the listener to notify, can be null
+   * @param token	the cancellation token, can be null
+   */
+  public ProgressMonitor(File input, ProgressListener listener, CancellationToken token) {
+    this(input, listener, token, DEFAULT_INTERVAL);
+  }
+
+  /**
+   * Initializes the monitor.
+   *
+   * @param input	the file being converted, null for streams
+   * @param listener	the listener to notify, can be null
+   * @param token	the cancellation token, can be null
+   * @param interval	the minimum time between notifications in msec
+   */
+  public ProgressMonitor(File input, ProgressListener listener, CancellationToken token, long interval) {
+    super();
+
+    m_InputFile  = input;
+    m_Listener   = listener;
+    m_Token      = token;
+    m_Interval   = interval * 1000000L;
+    m_Start      = System.nanoTime();
+    m_LastReport = m_Start;
+    m_BytesTotal = (input == null) ? -1 : input.length();
+    m_Stage      = null;
+    m_BytesRead  = 0;
+    m_Points     = 0;
+  }
+
+  /**
+   * Returns the cancellation token.
+   *
+   * @return		the token, null if none
+   */
+  public CancellationToken getToken() {
+    return m_Token;
+  }
+
+  /**
+   * Returns whether the conversion got cancelled.
+   *
+   * @return		true if cancelled
+   */
+  public boolean isCancelled() {
+    return (m_Token != null) && m_Token.isCancelled();
+  }
+
+  /**
+   * Throws an exception if the conversion got cancelled.
+   *
+   * @throws CancellationException	if cancelled
+   */
+  public void check() {
+    if (m_Token != null)
+      m_Token.throwIfCancelled();
+  }
+
+  /**
+   * Sets the current stage, resets the points and notifies the listener.
+   *
+   * @param stage	the new stage
+   */
+  public void setStage(ConversionStage stage) {
+    m_Stage  = stage;
+    m_Points = 0;
+    report();
+  }
+
+  /**
+   * Marks the conversion as finished, with the input consumed completely
+   * (if its size is known), and notifies the listener.
+   *
+   * @param points	the number of points written
+   */
+  public void finish(long points) {
+    m_Stage     = ConversionStage.FINISHED;
+    if (m_BytesTotal >= 0)
+      m_BytesRead = m_BytesTotal;
+    m_Points    = points;
+    report();
+  }
+
+  /**
+   * Returns the current stage.
+   *
+   * @return		the stage, null if not started yet
+   */
+  public ConversionStage getStage() {
+    return m_Stage;
+  }
+
+  /**
+   * Adds to the bytes consumed from the input file and checks for
+   * cancellation.
+   *
+   * @param count	the number of bytes
+   * @throws CancellationException	if cancelled
+   */
+  public void bytesRead(long count) {
+    m_BytesRead += count;
+    check();
+    if (m_Listener != null)
+      reportIfDue();
+  }
+
+  /**
+   * Returns the bytes consumed from the input.
+   *
+   * @return		the number of bytes
+   */
+  public long getBytesRead() {
+    return m_BytesRead;
+  }
+
+  /**
+   * Sets the bytes consumed from the input file, eg once it has been read
+   * completely without a {@link MonitoredInputStream}.
+   *
+   * @param value	the number of bytes
+   */
+  public void setBytesRead(long value) {
+    m_BytesRead = value;
+  }
+
+  /**
+   * Counts a processed point, checks for cancellation and notifies the
+   * listener every {@link #CHECK_POINTS} points.
+   *
+   * @throws CancellationException	if cancelled
+   */
+  public void pointProcessed() {
+    m_Points++;
+    if ((m_Points & (CHECK_POINTS - 1)) == 0) {
+      check();
+      if (m_Listener != null)
+	reportIfDue();
+    }
+  }
+
+  /**
+   * Returns the number of points processed in the current stage.
+   *
+   * @return		the number of points
+   */
+  public long getPoints() {
+    return m_Points;
+  }
+
+  /**
+   * Notifies the listener if the interval has passed since the last
+   * notification.
+   */
+  protected void reportIfDue() {
+    if (System.nanoTime() - m_LastReport >= m_Interval)
+      report();
+  }
+
+  /**
+   * Notifies the listener (if any) about the current progress.
+   */
+  public synchronized void report() {
+    long	now;
+
+    if (m_Listener == null)
+      return;
+
+    now          = System.nanoTime();
+    m_LastReport = now;
+    try {
+      m_Listener.progressChanged(new ConversionProgress(
+	m_InputFile, m_Stage, m_BytesRead, m_BytesTotal, m_Points, (now - m_Start) / 1000000L));
+    }
+    catch (Exception e) {
+      m_Logger.warn("Progress listener failed: " + m_Listener.getClass().getName(), e);
+    }
+  }
+}
@@ -38,12 +38,15 @@ if not "%JAVACMD%"=="" set JCMD=%JAVACMD%
 
 set REPO=%BASEDIR%\lib
 set CLASSPATH="%REPO%\*"
+@REM use the class data sharing archive generated by create_cds, if present
+set JVM_OPTS=
+if exist "%REPO%\gpsformats4j.jsa" set JVM_OPTS=-XX:SharedArchiveFile="%REPO%\gpsformats4j.jsa" -Xshare:auto
 goto endInit
 
 @REM Reaching here means variables are defined and arguments have been captured
 :endInit
 
-%JCMD% -Xmx%MEMORY% -classpath %CLASSPATH% -Dbasedir="%BASEDIR%" %MAIN% %*
+%JCMD% -Xmx%MEMORY% %JVM_OPTS% -classpath %CLASSPATH% -Dbasedir="%BASEDIR%" -Dlogback.configurationFile="%BASEDIR%\conf\logback.xml" %MAIN% %*
 if ERRORLEVEL 1 goto error
 goto end
 
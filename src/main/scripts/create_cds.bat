@@ -0,0 +1,97 @@
+@REM ----------------------------------------------------------------------------
+@REM Copyright 2001-2004 The Apache Software Foundation.
+@REM
+@REM Licensed under the Apache License, Version 2.0 (the "License");
+@REM you may not use this file except in compliance with the License.
+@REM You may obtain a copy of the License at
+@REM
+@REM      http://www.apache.org/licenses/LICENSE-2.0
+@REM
+@REM Unless required by applicable law or agreed to in writing, software
+@REM distributed under the License is distributed on an "AS IS" BASIS,
+@REM WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+@REM See the License for the specific language governing permissions and
+@REM limitations under the License.
+@REM ----------------------------------------------------------------------------
+@REM
+
+@REM ----------------------------------------------------------------------------
+@REM Copyright (C) 2011-2015 University of Waikato, Hamilton, NZ
+@REM ----------------------------------------------------------------------------
+
+@REM ----------------------------------------------------------------------------
+@REM Copyright (C) 2026 FracPete
+@REM ----------------------------------------------------------------------------
+
+@echo off
+
+set ERROR_CODE=0
+
+@REM Slurp the command line arguments.  This loop allows for an unlimited number
+@REM of arguments (up to the command line limit, anyway).
+set MEMORY=256m
+set MAIN=com.github.fracpete.gpsformats4j.Convert
+set BASEDIR=%~dp0\..
+set JCMD=java
+if not "%JAVA_HOME%"=="" set JCMD="%JAVA_HOME%\bin\java"
+if not "%JAVACMD%"=="" set JCMD=%JAVACMD%
+
+set REPO=%BASEDIR%\lib
+set CLASSPATH="%REPO%\*"
+@REM the archive that the convert script picks up (requires Java 13 or later)
+set CDS=%REPO%\gpsformats4j.jsa
+if exist "%CDS%" del "%CDS%"
+@REM training run: the supplied convert options or a small GPX to TCX conversion
+set ARGS=%*
+if not "%ARGS%"=="" goto endInit
+set TRAIN=%TEMP%\gpsformats4j-train
+if not exist "%TRAIN%" mkdir "%TRAIN%"
+(
+echo ^<?xml version="1.0" encoding="UTF-8"?^>
+echo ^<gpx version="1.1" creator="gpsformats4j" xmlns="http://www.topografix.com/GPX/1/1"^>
+echo ^<trk^>^<name^>train^</name^>^<trkseg^>
+echo ^<trkpt lat="-37.7870" lon="175.2793"^>^<ele^>40.0^</ele^>^<time^>2026-01-01T10:00:00Z^</time^>^</trkpt^>
+echo ^<trkpt lat="-37.7872" lon="175.2797"^>^<ele^>40.5^</ele^>^<time^>2026-01-01T10:00:05Z^</time^>^</trkpt^>
+echo ^<trkpt lat="-37.7875" lon="175.2801"^>^<ele^>41.0^</ele^>^<time^>2026-01-01T10:00:10Z^</time^>^</trkpt^>
+echo ^</trkseg^>^</trk^>
+echo ^</gpx^>
+) > "%TRAIN%\train.gpx"
+set ARGS=--in_file "%TRAIN%\train.gpx" --in_format GPX --out_file "%TRAIN%\train.tcx" --out_format TCX
+goto endInit
+
+@REM Reaching here means variables are defined and arguments have been captured
+:endInit
+
+%JCMD% -Xmx%MEMORY% -XX:ArchiveClassesAtExit="%CDS%" -classpath %CLASSPATH% -Dbasedir="%BASEDIR%" -Dlogback.configurationFile="%BASEDIR%\conf\logback.xml" %MAIN% %ARGS% > NUL
+if ERRORLEVEL 1 goto failed
+if not exist "%CDS%" goto error
+echo Created: %CDS%
+if ERRORLEVEL 1 goto error
+goto end
+
+:failed
+if exist "%CDS%" del "%CDS%"
+
+:error
+if "%OS%"=="Windows_NT" @endlocal
+set ERROR_CODE=1
+
+:end
+@REM set local scope for the variables with windows NT shell
+if "%OS%"=="Windows_NT" goto endNT
+
+@REM For old DOS remove the set variables from ENV - we assume they were not set
+@REM before we started - at least we don't leave any baggage around
+set CMD_LINE_ARGS=
+goto postExec
+
+:endNT
+@endlocal
+
+:postExec
+
+if "%FORCE_EXIT_ON_ERROR%" == "on" (
+  if %ERROR_CODE% NEQ 0 exit %ERROR_CODE%
+)
+
+exit /B %ERROR_CODE%